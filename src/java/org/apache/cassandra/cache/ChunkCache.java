@@ -21,7 +21,13 @@
 package org.apache.cassandra.cache;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
@@ -29,13 +35,25 @@ import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import com.github.benmanes.caffeine.cache.*;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.io.sstable.CorruptSSTableException;
+import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.util.*;
 import org.apache.cassandra.metrics.CacheMissMetrics;
+import org.apache.cassandra.utils.Pair;
 import org.apache.cassandra.utils.memory.BufferPool;
 
+/**
+ * Cache of the decompressed chunks of the sstable files.
+ *
+ * Only the regular reads add the chunks they read to the cache. The operations that go through whole files once, like
+ * compactions, repair validations and streaming, read through a {@link RebuffererFactory#instantiateScanRebufferer()
+ * scan rebufferer} instead, which does not admit the chunks it reads, so that these operations do not evict the chunks
+ * used by the regular reads. If read-ahead is enabled, the scans bypass the cache entirely and read the chunks with a
+ * {@link PrefetchingRebufferer}; otherwise they use the chunks that are already cached.
+ */
 public class ChunkCache 
         implements CacheLoader<ChunkCache.Key, ChunkCache.Buffer>, RemovalListener<ChunkCache.Key, ChunkCache.Buffer>, CacheSize
 {
@@ -48,18 +66,28 @@ public class ChunkCache
     private final LoadingCache<Key, Buffer> cache;
     public final CacheMissMetrics metrics;
 
+    // the usage of the cache by each table, by keyspace and table name
+    private final ConcurrentMap<Pair<String, String>, TableStats> tableStats = new ConcurrentHashMap<>();
+
     static class Key
     {
         final ChunkReader file;
         final String path;
         final long position;
+        final TableStats stats; // not part of the identity of the key, only used to account for the loaded chunk
 
         public Key(ChunkReader file, long position)
+        {
+            this(file, position, null);
+        }
+
+        public Key(ChunkReader file, long position, TableStats stats)
         {
             super();
             this.file = file;
             this.position = position;
             this.path = file.channel().filePath();
+            this.stats = stats;
         }
 
         public int hashCode()
@@ -90,12 +118,14 @@ public class ChunkCache
     {
         private final ByteBuffer buffer;
         private final long offset;
+        private final TableStats stats;
         private final AtomicInteger references;
 
-        public Buffer(ByteBuffer buffer, long offset)
+        public Buffer(ByteBuffer buffer, long offset, TableStats stats)
         {
             this.buffer = buffer;
             this.offset = offset;
+            this.stats = stats;
             references = new AtomicInteger(1);  // start referenced.
         }
 
@@ -145,23 +175,77 @@ public class ChunkCache
         metrics = new CacheMissMetrics("ChunkCache", this);
     }
 
+    /**
+     * The usage of the cache by the files of a table.
+     */
+    public static class TableStats
+    {
+        /** Requests of the reads that are admitted to the cache */
+        public final Meter requests = new Meter();
+        /** Misses of the reads that are admitted to the cache */
+        public final Meter misses = new Meter();
+        private final AtomicLong size = new AtomicLong();
+
+        /**
+         * @return the space occupied by the chunks of the table in the cache, in bytes.
+         */
+        public long size()
+        {
+            return size.get();
+        }
+    }
+
+    /**
+     * Returns the usage of the cache by the given table, which is shared by all its files.
+     */
+    public TableStats tableStats(String keyspace, String table)
+    {
+        return tableStats.computeIfAbsent(Pair.create(keyspace, table), k -> new TableStats());
+    }
+
+    public void releaseTableStats(String keyspace, String table)
+    {
+        tableStats.remove(Pair.create(keyspace, table));
+    }
+
+    private TableStats tableStats(ChunkReader file)
+    {
+        Descriptor descriptor;
+        try
+        {
+            descriptor = Descriptor.fromFilename(file.channel().filePath());
+        }
+        catch (RuntimeException e)
+        {
+            // not a sstable file, not accounted to any table
+            return null;
+        }
+        return tableStats(descriptor.ksname, descriptor.cfname);
+    }
+
     @Override
     public Buffer load(Key key) throws Exception
     {
         ChunkReader rebufferer = key.file;
         metrics.misses.mark();
+        if (key.stats != null)
+            key.stats.misses.mark();
         try (Timer.Context ctx = metrics.missLatency.time())
         {
             ByteBuffer buffer = BufferPool.get(key.file.chunkSize(), key.file.preferredBufferType());
             assert buffer != null;
             rebufferer.readChunk(key.position, buffer);
-            return new Buffer(buffer, key.position);
+            if (key.stats != null)
+                key.stats.size.addAndGet(buffer.capacity());
+            return new Buffer(buffer, key.position, key.stats);
         }
     }
 
     @Override
     public void onRemoval(Key key, Buffer buffer, RemovalCause cause)
     {
+        if (buffer.stats != null)
+            buffer.stats.size.addAndGet(-buffer.buffer.capacity());
         buffer.release();
     }
 
@@ -213,11 +297,13 @@ public class ChunkCache
     class CachingRebufferer implements Rebufferer, RebuffererFactory
     {
         private final ChunkReader source;
+        private final TableStats stats;
         final long alignmentMask;
 
         public CachingRebufferer(ChunkReader file)
         {
             source = file;
+            stats = tableStats(file);
             int chunkSize = file.chunkSize();
             assert Integer.bitCount(chunkSize) == 1;    // Must be power of two
             alignmentMask = -chunkSize;
@@ -229,10 +315,12 @@ public class ChunkCache
             try
             {
                 metrics.requests.mark();
+                if (stats != null)
+                    stats.requests.mark();
                 long pageAlignedPos = position & alignmentMask;
                 Buffer buf;
                 do
-                    buf = cache.get(new Key(source, pageAlignedPos)).reference();
+                    buf = cache.get(new Key(source, pageAlignedPos, stats)).reference();
                 while (buf == null);
 
                 return buf;
@@ -256,6 +344,35 @@ public class ChunkCache
             return this;
         }
 
+        @Override
+        public Rebufferer instantiateScanRebufferer()
+        {
+            return PrefetchingRebufferer.isEnabled(source) ? new PrefetchingRebufferer(source) : new ScanRebufferer();
+        }
+
+        @Override
+        public CompletableFuture<Void> prefetch(long start, long end, long first)
+        {
+            // the chunk of the first position is read right away by the caller, then the ones after it, then the ones
+            // before it, backwards
+            List<CompletableFuture<?>> reads = new ArrayList<>();
+            long chunkSize = -alignmentMask;
+            long firstChunk = first & alignmentMask;
+            end = Math.min(end, source.fileLength());
+            for (long position = firstChunk + chunkSize; position < end; position += chunkSize)
+                prefetch(position, reads);
+            for (long position = firstChunk - chunkSize; position >= (start & alignmentMask); position -= chunkSize)
+                prefetch(position, reads);
+            return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0]));
+        }
+
+        private void prefetch(long position, List<CompletableFuture<?>> reads)
+        {
+            Key key = new Key(source, position, stats);
+            if (cache.getIfPresent(key) == null)
+                reads.add(ChunkReadExecutor.instance.submit(() -> cache.get(key)));
+        }
+
         @Override
         public void close()
         {
@@ -291,6 +408,86 @@ public class ChunkCache
         {
             return "CachingRebufferer:" + source.toString();
         }
+
+        /**
+         * Rebufferer that is served by the cached chunks if present, but reads the missing ones in its own buffer
+         * instead of loading them in the cache. Not thread-safe: one instance per reader.
+         */
+        private class ScanRebufferer implements Rebufferer, BufferHolder
+        {
+            private final ByteBuffer buffer = BufferPool.get(source.chunkSize(), source.preferredBufferType());
+            private long offset = -1;
+
+            @Override
+            public BufferHolder rebuffer(long position)
+            {
+                metrics.scanRequests.mark();
+                long pageAlignedPos = position & alignmentMask;
+                Buffer cached = cache.getIfPresent(new Key(source, pageAlignedPos));
+                if (cached != null && (cached = cached.reference()) != null)
+                    return cached;
+
+                metrics.scanMisses.mark();
+                offset = pageAlignedPos;
+                source.scanChunk(offset, buffer);
+                return this;
+            }
+
+            @Override
+            public ByteBuffer buffer()
+            {
+                return buffer.duplicate();
+            }
+
+            @Override
+            public long offset()
+            {
+                return offset;
+            }
+
+            @Override
+            public void release()
+            {
+                // the buffer is reused until the reader is closed
+            }
+
+            @Override
+            public void closeReader()
+            {
+                BufferPool.put(buffer);
+                offset = -1;
+            }
+
+            @Override
+            public void close()
+            {
+                // the source is shared, and closed with the caching rebufferer
+            }
+
+            @Override
+            public ChannelProxy channel()
+            {
+                return source.channel();
+            }
+
+            @Override
+            public long fileLength()
+            {
+                return source.fileLength();
+            }
+
+            @Override
+            public double getCrcCheckChance()
+            {
+                return source.getCrcCheckChance();
+            }
+
+            @Override
+            public String toString()
+            {
+                return "ScanRebufferer:" + source.toString();
+            }
+        }
     }
 
     @Override
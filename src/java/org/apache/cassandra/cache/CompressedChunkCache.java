@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.metrics.CacheMissMetrics;
+
+/**
+ * Off-heap cache of the compressed chunks of the sstable files, sitting below the {@link ChunkCache}.
+ *
+ * The chunks are kept as they are on disk, and are decompressed again on every hit, so the same memory holds several
+ * times more data than the chunk cache does. It is filled by the compressed readers that don't go through mmap (see
+ * {@link org.apache.cassandra.io.util.CompressedChunkReader.Standard}); the chunks are always checksummed before
+ * being cached, and not on hits.
+ */
+public class CompressedChunkCache implements RemovalListener<CompressedChunkCache.Key, CompressedChunkCache.Entry>, CacheSize
+{
+    public static final long cacheSize = 1024L * 1024L * DatabaseDescriptor.getCompressedChunkCacheSizeInMB();
+    public static final CompressedChunkCache instance = cacheSize > 0 ? new CompressedChunkCache(cacheSize) : null;
+
+    private final Cache<Key, Entry> cache;
+    private final long capacity;
+    public final CacheMissMetrics metrics;
+
+    static class Key
+    {
+        final String path;
+        final long offset;
+
+        Key(String path, long offset)
+        {
+            this.path = path;
+            this.offset = offset;
+        }
+
+        public int hashCode()
+        {
+            return 31 * path.hashCode() + Long.hashCode(offset);
+        }
+
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+
+            Key other = (Key) obj;
+            return offset == other.offset && path.equals(other.path);
+        }
+    }
+
+    /**
+     * A cached compressed chunk. Readers must {@link #release()} the entries they get once they are done with them.
+     */
+    public static class Entry
+    {
+        private final ByteBuffer buffer;
+        private final AtomicInteger references = new AtomicInteger(1); // referenced by the cache
+
+        Entry(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        Entry reference()
+        {
+            int refCount;
+            do
+            {
+                refCount = references.get();
+                if (refCount == 0)
+                    // evicted and released before we managed to reference it
+                    return null;
+            } while (!references.compareAndSet(refCount, refCount + 1));
+
+            return this;
+        }
+
+        /**
+         * @return the compressed bytes of the chunk, positioned at 0.
+         */
+        public ByteBuffer buffer()
+        {
+            assert references.get() > 0;
+            return buffer.duplicate();
+        }
+
+        public void release()
+        {
+            if (references.decrementAndGet() == 0)
+                FileUtils.clean(buffer);
+        }
+    }
+
+    @VisibleForTesting
+    CompressedChunkCache(long capacity)
+    {
+        this.capacity = capacity;
+        cache = Caffeine.newBuilder()
+                        .maximumWeight(capacity)
+                        .executor(MoreExecutors.directExecutor())
+                        .weigher((key, entry) -> ((Entry) entry).buffer.capacity())
+                        .removalListener(this)
+                        .build();
+        metrics = new CacheMissMetrics("CompressedChunkCache", this);
+    }
+
+    /**
+     * Returns the referenced compressed chunk at the given offset of the file if it is cached, null otherwise.
+     */
+    public Entry get(String path, long offset)
+    {
+        metrics.requests.mark();
+        Entry entry = cache.getIfPresent(new Key(path, offset));
+        if (entry != null && (entry = entry.reference()) != null)
+            return entry;
+
+        metrics.misses.mark();
+        return null;
+    }
+
+    /**
+     * Caches a copy of the given compressed chunk, from its position to its limit.
+     */
+    public void put(String path, long offset, ByteBuffer compressed)
+    {
+        ByteBuffer copy = ByteBuffer.allocateDirect(compressed.remaining());
+        copy.put(compressed.duplicate()).flip();
+        Entry previous = cache.asMap().putIfAbsent(new Key(path, offset), new Entry(copy));
+        if (previous != null)
+            FileUtils.clean(copy); // read concurrently by another reader
+    }
+
+    @Override
+    public void onRemoval(Key key, Entry entry, RemovalCause cause)
+    {
+        entry.release();
+    }
+
+    public void invalidateFile(String path)
+    {
+        cache.invalidateAll(Iterables.filter(cache.asMap().keySet(), key -> key.path.equals(path)));
+    }
+
+    @VisibleForTesting
+    public void clear()
+    {
+        cache.invalidateAll();
+        metrics.reset();
+    }
+
+    @Override
+    public long capacity()
+    {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(long capacity)
+    {
+        throw new UnsupportedOperationException("Compressed chunk cache size cannot be changed.");
+    }
+
+    @Override
+    public int size()
+    {
+        return cache.asMap().size();
+    }
+
+    @Override
+    public long weightedSize()
+    {
+        return cache.policy().eviction()
+                .map(policy -> policy.weightedSize().orElseGet(cache::estimatedSize))
+                .orElseGet(cache::estimatedSize);
+    }
+}
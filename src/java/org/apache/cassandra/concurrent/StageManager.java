@@ -20,11 +20,13 @@ package org.apache.cassandra.concurrent;
 import java.util.EnumMap;
 import java.util.concurrent.*;
 
+import io.netty.util.concurrent.FastThreadLocal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.JVMStabilityInspector;
 
 import static org.apache.cassandra.config.DatabaseDescriptor.*;
 
@@ -42,6 +44,15 @@ public class StageManager
 
     public static final long KEEPALIVE = 60; // seconds to keep "extra" threads alive for when idle
 
+    // whether the current thread is running a request with executeInline()
+    private static final FastThreadLocal<Boolean> inline = new FastThreadLocal<Boolean>()
+    {
+        protected Boolean initialValue()
+        {
+            return false;
+        }
+    };
+
     static
     {
         stages.put(Stage.MUTATION, multiThreadedLowSignalStage(Stage.MUTATION, getConcurrentWriters()));
@@ -101,6 +112,53 @@ public class StageManager
         return stages.get(stage);
     }
 
+    /**
+     * Runs the given request on the calling thread, and makes the local work it submits through
+     * {@link #maybeExecuteInline(Stage, Runnable)} run on that same thread rather than on the stages.
+     */
+    public static void executeInline(Runnable request)
+    {
+        if (inline.get())
+        {
+            request.run();
+            return;
+        }
+
+        inline.set(true);
+        try
+        {
+            request.run();
+        }
+        finally
+        {
+            inline.set(false);
+        }
+    }
+
+    /**
+     * Runs the given task on the calling thread if it is running a request with {@link #executeInline(Runnable)}, and
+     * otherwise submits it to the given stage, running it immediately if the stage has spare capacity.
+     */
+    public static void maybeExecuteInline(Stage stage, Runnable task)
+    {
+        if (!inline.get())
+        {
+            getStage(stage).maybeExecuteImmediately(task);
+            return;
+        }
+
+        try
+        {
+            task.run();
+        }
+        catch (Throwable t)
+        {
+            // like a task failing on the stage, this must not fail the request itself
+            JVMStabilityInspector.inspectThrowable(t);
+            logger.warn("Uncaught exception on thread {}: {}", Thread.currentThread(), t);
+        }
+    }
+
     /**
      * This method shuts down all registered stages.
      */
@@ -100,6 +100,7 @@ public class Config
     public volatile Long truncate_request_timeout_in_ms = 60000L;
 
     public Integer streaming_socket_timeout_in_ms = 86400000; //24 hours
+    public volatile boolean stream_entire_sstables = false;
 
     public boolean cross_node_timeout = false;
 
@@ -109,6 +110,9 @@ public class Config
     public Integer concurrent_writes = 32;
     public Integer concurrent_counter_writes = 32;
     public Integer concurrent_materialized_view_writes = 32;
+    public int concurrent_chunk_reads = 32;
+    public int chunk_prefetch_size_in_kb = 256;
+    public int scan_read_ahead_chunks = 4;
 
     @Deprecated
     public Integer concurrent_replicates = null;
@@ -145,6 +149,13 @@ public class Config
     public Integer internode_send_buff_size_in_bytes;
     public Integer internode_recv_buff_size_in_bytes;
 
+    /**
+     * Whether internode messaging connections are served by a group of Netty event loops, rather than by a thread each.
+     * The number of event loops defaults to twice the number of cores.
+     */
+    public boolean internode_event_loop = false;
+    public Integer internode_event_loop_threads;
+
     public Boolean start_native_transport = false;
     public Integer native_transport_port = 9042;
     public Integer native_transport_port_ssl = null;
@@ -152,6 +163,8 @@ public class Config
     public Integer native_transport_max_frame_size_in_mb = 256;
     public volatile Long native_transport_max_concurrent_connections = -1L;
     public volatile Long native_transport_max_concurrent_connections_per_ip = -1L;
+    public NativeTransportExecutionMode native_transport_execution_mode = NativeTransportExecutionMode.pooled;
+    public int native_transport_stream_results_min_rows = 1000;
 
     @Deprecated
     public Integer thrift_max_message_length_in_mb = 16;
@@ -173,6 +186,12 @@ public class Config
     public volatile int batch_size_fail_threshold_in_kb = 50;
     public Integer unlogged_batch_across_partitions_warn_threshold = 10;
     public Integer concurrent_compactors;
+    public volatile int validation_parallelism = 1;
+    public volatile boolean write_partition_hashes = false;
+    public volatile boolean write_partition_index = false;
+    public volatile boolean write_row_index = false;
+    public volatile boolean blocked_bloom_filters = false;
+    public volatile boolean write_row_filter = false;
     public volatile Integer compaction_throughput_mb_per_sec = 16;
     public volatile Integer compaction_large_partition_warning_threshold_mb = 100;
     public Integer min_free_space_per_drive_in_mb = 50;
@@ -213,6 +232,7 @@ public class Config
     public Integer dynamic_snitch_update_interval_in_ms = 100;
     public Integer dynamic_snitch_reset_interval_in_ms = 600000;
     public Double dynamic_snitch_badness_threshold = 0.1;
+    public Double dynamic_snitch_latency_percentile = 0.5;
 
     public String request_scheduler;
     public RequestSchedulerId request_scheduler_id;
@@ -239,6 +259,7 @@ public class Config
     public volatile boolean incremental_backups = false;
     public boolean trickle_fsync = false;
     public int trickle_fsync_interval_in_kb = 10240;
+    public Set<String> skip_page_cache_operations = Sets.newHashSet();
 
     public Long key_cache_size_in_mb = null;
     public volatile int key_cache_save_period = 14400;
@@ -257,6 +278,8 @@ public class Config
 
     public Integer file_cache_size_in_mb;
 
+    public int compressed_chunk_cache_size_in_mb = 0;
+
     public boolean buffer_pool_use_heap_if_exhausted = true;
 
     public DiskOptimizationStrategy disk_optimization_strategy = DiskOptimizationStrategy.ssd;
@@ -286,7 +309,7 @@ public class Config
 
     /*
      * Strategy to use for coalescing messages in OutboundTcpConnection.
-     * Can be fixed, movingaverage, timehorizon, disabled. Setting is case and leading/trailing
+     * Can be fixed, movingaverage, timehorizon, adaptive, disabled. Setting is case and leading/trailing
      * whitespace insensitive. You can also specify a subclass of CoalescingStrategies.CoalescingStrategy by name.
      */
     public String otc_coalescing_strategy = "TIMEHORIZON";
@@ -295,7 +318,8 @@ public class Config
      * How many microseconds to wait for coalescing. For fixed strategy this is the amount of time after the first
      * messgae is received before it will be sent with any accompanying messages. For moving average this is the
      * maximum amount of time that will be waited as well as the interval at which messages must arrive on average
-     * for coalescing to be enabled.
+     * for coalescing to be enabled. For adaptive this is the maximum amount of time that will be waited, which is
+     * also capped by an eighth of the round trip time measured to the peer.
      */
     public static final int otc_coalescing_window_us_default = 200;
     public int otc_coalescing_window_us = otc_coalescing_window_us_default;
@@ -427,6 +451,12 @@ public class Config
         spinning
     }
 
+    public enum NativeTransportExecutionMode
+    {
+        pooled,
+        thread_per_core
+    }
+
     private static final List<String> SENSITIVE_KEYS = new ArrayList<String>() {{
         add("client_encryption_options");
         add("server_encryption_options");
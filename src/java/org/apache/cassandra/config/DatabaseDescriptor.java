@@ -42,6 +42,7 @@ import org.apache.cassandra.config.EncryptionOptions.ClientEncryptionOptions;
 import org.apache.cassandra.config.EncryptionOptions.ServerEncryptionOptions;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.SystemKeyspace;
+import org.apache.cassandra.db.compaction.OperationType;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.io.FSWriteError;
@@ -113,6 +114,8 @@ public class DatabaseDescriptor
 
     private static DiskOptimizationStrategy diskOptimizationStrategy;
 
+    private static volatile Set<OperationType> skipPageCacheOperations = EnumSet.noneOf(OperationType.class);
+
     public static void forceStaticInitialization() {}
     static
     {
@@ -434,12 +437,26 @@ public class DatabaseDescriptor
         if (conf.concurrent_counter_writes != null && conf.concurrent_counter_writes < 2)
             throw new ConfigurationException("concurrent_counter_writes must be at least 2, but was " + conf.concurrent_counter_writes, false);
 
+        if (conf.concurrent_chunk_reads < 0)
+            throw new ConfigurationException("concurrent_chunk_reads must be non-negative, but was " + conf.concurrent_chunk_reads, false);
+
+        if (conf.chunk_prefetch_size_in_kb < 0)
+            throw new ConfigurationException("chunk_prefetch_size_in_kb must be non-negative, but was " + conf.chunk_prefetch_size_in_kb, false);
+
+        if (conf.scan_read_ahead_chunks < 0)
+            throw new ConfigurationException("scan_read_ahead_chunks must be non-negative, but was " + conf.scan_read_ahead_chunks, false);
+
+        skipPageCacheOperations = parseOperationTypes("skip_page_cache_operations", conf.skip_page_cache_operations);
+
         if (conf.concurrent_replicates != null)
             logger.warn("concurrent_replicates has been deprecated and should be removed from cassandra.yaml");
 
         if (conf.file_cache_size_in_mb == null)
             conf.file_cache_size_in_mb = Math.min(512, (int) (Runtime.getRuntime().maxMemory() / (4 * 1048576)));
 
+        if (conf.compressed_chunk_cache_size_in_mb < 0)
+            throw new ConfigurationException("compressed_chunk_cache_size_in_mb must be non-negative, but was " + conf.compressed_chunk_cache_size_in_mb, false);
+
         if (conf.memtable_offheap_space_in_mb == null)
             conf.memtable_offheap_space_in_mb = (int) (Runtime.getRuntime().maxMemory() / (4 * 1048576));
         if (conf.memtable_offheap_space_in_mb < 0)
@@ -685,6 +702,12 @@ public class DatabaseDescriptor
         if (conf.concurrent_compactors <= 0)
             throw new ConfigurationException("concurrent_compactors should be strictly greater than 0, but was " + conf.concurrent_compactors, false);
 
+        if (conf.dynamic_snitch_latency_percentile <= 0 || conf.dynamic_snitch_latency_percentile > 1)
+            throw new ConfigurationException("dynamic_snitch_latency_percentile must be greater than 0 and at most 1, but was " + conf.dynamic_snitch_latency_percentile, false);
+
+        if (conf.validation_parallelism <= 0)
+            throw new ConfigurationException("validation_parallelism should be strictly greater than 0, but was " + conf.validation_parallelism, false);
+
         if (conf.num_tokens == null)
             conf.num_tokens = 1;
         else if (conf.num_tokens > MAX_NUM_TOKENS)
@@ -1359,6 +1382,33 @@ public class DatabaseDescriptor
         return conf.concurrent_materialized_view_writes;
     }
 
+    public static int getConcurrentChunkReads()
+    {
+        return conf.concurrent_chunk_reads;
+    }
+
+    public static int getChunkPrefetchSizeInKB()
+    {
+        return conf.chunk_prefetch_size_in_kb;
+    }
+
+    @VisibleForTesting
+    public static void setChunkPrefetchSizeInKB(int sizeInKB)
+    {
+        conf.chunk_prefetch_size_in_kb = sizeInKB;
+    }
+
+    public static int getScanReadAheadChunks()
+    {
+        return conf.scan_read_ahead_chunks;
+    }
+
+    @VisibleForTesting
+    public static void setScanReadAheadChunks(int chunks)
+    {
+        conf.scan_read_ahead_chunks = chunks;
+    }
+
     public static int getFlushWriters()
     {
             return conf.memtable_flush_writers;
@@ -1369,6 +1419,72 @@ public class DatabaseDescriptor
         return conf.concurrent_compactors;
     }
 
+    public static int getValidationParallelism()
+    {
+        return conf.validation_parallelism;
+    }
+
+    @VisibleForTesting
+    public static void setValidationParallelism(int validationParallelism)
+    {
+        conf.validation_parallelism = validationParallelism;
+    }
+
+    public static boolean writePartitionHashes()
+    {
+        return conf.write_partition_hashes;
+    }
+
+    @VisibleForTesting
+    public static void setWritePartitionHashes(boolean writePartitionHashes)
+    {
+        conf.write_partition_hashes = writePartitionHashes;
+    }
+
+    public static boolean writePartitionIndex()
+    {
+        return conf.write_partition_index;
+    }
+
+    @VisibleForTesting
+    public static void setWritePartitionIndex(boolean writePartitionIndex)
+    {
+        conf.write_partition_index = writePartitionIndex;
+    }
+
+    public static boolean writeRowIndex()
+    {
+        return conf.write_row_index;
+    }
+
+    @VisibleForTesting
+    public static void setWriteRowIndex(boolean writeRowIndex)
+    {
+        conf.write_row_index = writeRowIndex;
+    }
+
+    public static boolean useBlockedBloomFilters()
+    {
+        return conf.blocked_bloom_filters;
+    }
+
+    @VisibleForTesting
+    public static void setUseBlockedBloomFilters(boolean useBlockedBloomFilters)
+    {
+        conf.blocked_bloom_filters = useBlockedBloomFilters;
+    }
+
+    public static boolean writeRowFilter()
+    {
+        return conf.write_row_filter;
+    }
+
+    @VisibleForTesting
+    public static void setWriteRowFilter(boolean writeRowFilter)
+    {
+        conf.write_row_filter = writeRowFilter;
+    }
+
     public static int getCompactionThroughputMbPerSec()
     {
         return conf.compaction_throughput_mb_per_sec;
@@ -1585,6 +1701,25 @@ public class DatabaseDescriptor
         return conf.internode_recv_buff_size_in_bytes;
     }
 
+    public static boolean useInternodeEventLoop()
+    {
+        return conf.internode_event_loop;
+    }
+
+    @VisibleForTesting
+    public static void setInternodeEventLoop(boolean internodeEventLoop)
+    {
+        conf.internode_event_loop = internodeEventLoop;
+    }
+
+    /**
+     * @return the number of event loops serving internode connections, or 0 for Netty's default
+     */
+    public static int getInternodeEventLoopThreads()
+    {
+        return conf.internode_event_loop_threads == null ? 0 : conf.internode_event_loop_threads;
+    }
+
     public static boolean startNativeTransport()
     {
         return conf.start_native_transport;
@@ -1617,6 +1752,22 @@ public class DatabaseDescriptor
         return conf.native_transport_max_threads;
     }
 
+    public static Config.NativeTransportExecutionMode getNativeTransportExecutionMode()
+    {
+        return conf.native_transport_execution_mode;
+    }
+
+    public static int getNativeTransportStreamResultsMinRows()
+    {
+        return conf.native_transport_stream_results_min_rows;
+    }
+
+    @VisibleForTesting
+    public static void setNativeTransportStreamResultsMinRows(int minRows)
+    {
+        conf.native_transport_stream_results_min_rows = minRows;
+    }
+
     public static int getNativeTransportMaxFrameSize()
     {
         return conf.native_transport_max_frame_size_in_mb * 1024 * 1024;
@@ -1815,6 +1966,17 @@ public class DatabaseDescriptor
         conf.dynamic_snitch_badness_threshold = dynamicBadnessThreshold;
     }
 
+    public static double getDynamicLatencyPercentile()
+    {
+        return conf.dynamic_snitch_latency_percentile;
+    }
+
+    @VisibleForTesting
+    public static void setDynamicLatencyPercentile(Double dynamicLatencyPercentile)
+    {
+        conf.dynamic_snitch_latency_percentile = dynamicLatencyPercentile;
+    }
+
     public static ServerEncryptionOptions getServerEncryptionOptions()
     {
         return conf.server_encryption_options;
@@ -1887,6 +2049,11 @@ public class DatabaseDescriptor
         return conf.file_cache_size_in_mb;
     }
 
+    public static int getCompressedChunkCacheSizeInMB()
+    {
+        return conf.compressed_chunk_cache_size_in_mb;
+    }
+
     public static boolean getBufferPoolUseHeapIfExhausted()
     {
         return conf.buffer_pool_use_heap_if_exhausted;
@@ -1926,6 +2093,39 @@ public class DatabaseDescriptor
         return conf.trickle_fsync_interval_in_kb;
     }
 
+    /**
+     * @return whether the sstables read and written by the given operation should be dropped from the OS page cache
+     * as the operation goes through them.
+     */
+    public static boolean skipPageCache(OperationType operation)
+    {
+        return skipPageCacheOperations.contains(operation);
+    }
+
+    @VisibleForTesting
+    public static void setSkipPageCacheOperations(Set<OperationType> operations)
+    {
+        skipPageCacheOperations = operations.isEmpty() ? EnumSet.noneOf(OperationType.class) : EnumSet.copyOf(operations);
+    }
+
+    private static Set<OperationType> parseOperationTypes(String option, Set<String> names) throws ConfigurationException
+    {
+        Set<OperationType> operations = EnumSet.noneOf(OperationType.class);
+        for (String name : names)
+        {
+            try
+            {
+                operations.add(OperationType.valueOf(name.trim().toUpperCase()));
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new ConfigurationException(String.format("Unknown operation type %s in %s, valid values are %s",
+                                                               name, option, Arrays.toString(OperationType.values())), false);
+            }
+        }
+        return operations;
+    }
+
     public static long getKeyCacheSizeInMB()
     {
         return keyCacheSizeInMB;
@@ -2027,6 +2227,17 @@ public class DatabaseDescriptor
         return conf.streaming_socket_timeout_in_ms;
     }
 
+    public static boolean streamEntireSSTables()
+    {
+        return conf.stream_entire_sstables;
+    }
+
+    @VisibleForTesting
+    public static void setStreamEntireSSTables(boolean streamEntireSSTables)
+    {
+        conf.stream_entire_sstables = streamEntireSSTables;
+    }
+
     public static String getLocalDataCenter()
     {
         return localDC;
@@ -2042,6 +2253,12 @@ public class DatabaseDescriptor
         return conf.internode_compression;
     }
 
+    @VisibleForTesting
+    public static void setInternodeCompression(Config.InternodeCompression compression)
+    {
+        conf.internode_compression = compression;
+    }
+
     public static boolean getInterDCTcpNoDelay()
     {
         return conf.inter_dc_tcp_nodelay;
@@ -2053,6 +2270,12 @@ public class DatabaseDescriptor
         return sstable_format;
     }
 
+    @VisibleForTesting
+    public static void setMemtableAllocationType(Config.MemtableAllocationType allocationType)
+    {
+        conf.memtable_allocation_type = allocationType;
+    }
+
     public static MemtablePool getMemtableAllocatorPool()
     {
         long heapLimit = ((long) conf.memtable_heap_space_in_mb) << 20;
@@ -29,10 +29,13 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import org.antlr.runtime.*;
 import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.config.DatabaseDescriptor;
@@ -63,8 +66,8 @@ public class QueryProcessor implements QueryHandler
 
     private static final Logger logger = LoggerFactory.getLogger(QueryProcessor.class);
 
-    private static final ConcurrentLinkedHashMap<MD5Digest, ParsedStatement.Prepared> preparedStatements;
-    private static final ConcurrentLinkedHashMap<Integer, ParsedStatement.Prepared> thriftPreparedStatements;
+    private static final Cache<MD5Digest, ParsedStatement.Prepared> preparedStatements;
+    private static final Cache<Integer, ParsedStatement.Prepared> thriftPreparedStatements;
 
     // A map for prepared statements used internally (which we don't want to mix with user statement, in particular we don't
     // bother with expiration on those.
@@ -79,18 +82,27 @@ public class QueryProcessor implements QueryHandler
 
     static
     {
-        preparedStatements = new ConcurrentLinkedHashMap.Builder<MD5Digest, ParsedStatement.Prepared>()
-                             .maximumWeightedCapacity(capacityToBytes(DatabaseDescriptor.getPreparedStatementsCacheSizeMB()))
+        preparedStatements = Caffeine.newBuilder()
+                             .executor(MoreExecutors.directExecutor())
+                             .maximumWeight(capacityToBytes(DatabaseDescriptor.getPreparedStatementsCacheSizeMB()))
                              .weigher(QueryProcessor::measure)
-                             .listener((md5Digest, prepared) -> {
+                             .removalListener((MD5Digest md5Digest, ParsedStatement.Prepared prepared, RemovalCause cause) -> {
+                                 if (!cause.wasEvicted())
+                                     return;
                                  metrics.preparedStatementsEvicted.inc();
                                  lastMinuteEvictionsCount.incrementAndGet();
-                             }).build();
-
-        thriftPreparedStatements = new ConcurrentLinkedHashMap.Builder<Integer, ParsedStatement.Prepared>()
-                                   .maximumWeightedCapacity(capacityToBytes(DatabaseDescriptor.getThriftPreparedStatementsCacheSizeMB()))
+                                 // so that the statements evicted aren't preloaded again on restart
+                                 SystemKeyspace.removePreparedStatement(md5Digest);
+                             })
+                             .build();
+
+        thriftPreparedStatements = Caffeine.newBuilder()
+                                   .executor(MoreExecutors.directExecutor())
+                                   .maximumWeight(capacityToBytes(DatabaseDescriptor.getThriftPreparedStatementsCacheSizeMB()))
                                    .weigher(QueryProcessor::measure)
-                                   .listener((integer, prepared) -> {
+                                   .removalListener((Integer integer, ParsedStatement.Prepared prepared, RemovalCause cause) -> {
+                                       if (!cause.wasEvicted())
+                                           return;
                                        metrics.preparedStatementsEvicted.inc();
                                        thriftLastMinuteEvictionsCount.incrementAndGet();
                                    })
@@ -121,7 +133,7 @@ public class QueryProcessor implements QueryHandler
 
     public static int preparedStatementsCount()
     {
-        return preparedStatements.size() + thriftPreparedStatements.size();
+        return Ints.checkedCast(preparedStatements.estimatedSize() + thriftPreparedStatements.estimatedSize());
     }
 
     // Work around initialization dependency
@@ -162,8 +174,8 @@ public class QueryProcessor implements QueryHandler
     @VisibleForTesting
     public static void clearPrepraredStatements()
     {
-        preparedStatements.clear();
-        thriftPreparedStatements.clear();
+        preparedStatements.invalidateAll();
+        thriftPreparedStatements.invalidateAll();
     }
 
     private static QueryState internalQueryState()
@@ -178,12 +190,21 @@ public class QueryProcessor implements QueryHandler
 
     public ParsedStatement.Prepared getPrepared(MD5Digest id)
     {
-        return preparedStatements.get(id);
+        return countLookup(preparedStatements.getIfPresent(id));
     }
 
     public ParsedStatement.Prepared getPreparedForThrift(Integer id)
     {
-        return thriftPreparedStatements.get(id);
+        return countLookup(thriftPreparedStatements.getIfPresent(id));
+    }
+
+    private static ParsedStatement.Prepared countLookup(ParsedStatement.Prepared prepared)
+    {
+        if (prepared == null)
+            metrics.preparedStatementsMisses.inc();
+        else
+            metrics.preparedStatementsHits.inc();
+        return prepared;
     }
 
     public static void validateKey(ByteBuffer key) throws InvalidRequestException
@@ -434,13 +455,13 @@ public class QueryProcessor implements QueryHandler
         if (forThrift)
         {
             Integer thriftStatementId = computeThriftId(queryString, keyspace);
-            ParsedStatement.Prepared existing = thriftPreparedStatements.get(thriftStatementId);
+            ParsedStatement.Prepared existing = thriftPreparedStatements.getIfPresent(thriftStatementId);
             return existing == null ? null : ResultMessage.Prepared.forThrift(thriftStatementId, existing.boundNames);
         }
         else
         {
             MD5Digest statementId = computeId(queryString, keyspace);
-            ParsedStatement.Prepared existing = preparedStatements.get(statementId);
+            ParsedStatement.Prepared existing = preparedStatements.getIfPresent(statementId);
             return existing == null ? null : new ResultMessage.Prepared(statementId, existing);
         }
     }
@@ -585,15 +606,15 @@ public class QueryProcessor implements QueryHandler
         private static void removeInvalidPreparedStatements(String ksName, String cfName)
         {
             removeInvalidPreparedStatements(internalStatements.values().iterator(), ksName, cfName);
-            removeInvalidPersistentPreparedStatements(preparedStatements.entrySet().iterator(), ksName, cfName);
-            removeInvalidPreparedStatements(thriftPreparedStatements.values().iterator(), ksName, cfName);
+            removeInvalidPersistentPreparedStatements(preparedStatements.asMap().entrySet().iterator(), ksName, cfName);
+            removeInvalidPreparedStatements(thriftPreparedStatements.asMap().values().iterator(), ksName, cfName);
         }
 
         private static void removeInvalidPreparedStatementsForFunction(String ksName, String functionName)
         {
             Predicate<Function> matchesFunction = f -> ksName.equals(f.name().keyspace) && functionName.equals(f.name().name);
 
-            for (Iterator<Map.Entry<MD5Digest, ParsedStatement.Prepared>> iter = preparedStatements.entrySet().iterator();
+            for (Iterator<Map.Entry<MD5Digest, ParsedStatement.Prepared>> iter = preparedStatements.asMap().entrySet().iterator();
                  iter.hasNext();)
             {
                 Map.Entry<MD5Digest, ParsedStatement.Prepared> pstmt = iter.next();
@@ -608,7 +629,7 @@ public class QueryProcessor implements QueryHandler
             Iterators.removeIf(internalStatements.values().iterator(),
                                statement -> Iterables.any(statement.statement.getFunctions(), matchesFunction));
 
-            Iterators.removeIf(thriftPreparedStatements.values().iterator(),
+            Iterators.removeIf(thriftPreparedStatements.asMap().values().iterator(),
                                statement -> Iterables.any(statement.statement.getFunctions(), matchesFunction));
         }
 
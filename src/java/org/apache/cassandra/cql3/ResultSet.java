@@ -21,6 +21,7 @@ import java.nio.ByteBuffer;
 import java.util.*;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
 import org.apache.cassandra.transport.*;
 import org.apache.cassandra.db.marshal.AbstractType;
@@ -133,6 +134,109 @@ public class ResultSet
         return res;
     }
 
+    /**
+     * Encodes the rows of this result set for the native protocol, preceded by their count.
+     */
+    protected void encodeRows(ByteBuf dest)
+    {
+        dest.writeInt(rows.size());
+        for (List<ByteBuffer> row : rows)
+        {
+            // Note that we do only want to serialize only the first columnCount values, even if the row
+            // as more: see comment on ResultMetadata.names field.
+            for (int i = 0; i < metadata.columnCount; i++)
+                CBUtil.writeValue(row.get(i), dest);
+        }
+    }
+
+    protected int encodedRowsSize()
+    {
+        int size = 4;
+        for (List<ByteBuffer> row : rows)
+        {
+            for (int i = 0; i < metadata.columnCount; i++)
+                size += CBUtil.sizeOfValue(row.get(i));
+        }
+        return size;
+    }
+
+    /**
+     * A result set whose rows are encoded for the native protocol as they are added, rather than kept as lists of
+     * values until the response is encoded. A large page then only takes its encoded size on the heap, without an
+     * object per row and per value, and doesn't retain the values it was built from.
+     * <p>
+     * It can only be sent to a native protocol client: its rows can't be read back, nor reordered or trimmed.
+     */
+    public static class Encoded extends ResultSet
+    {
+        private final ByteBuf encodedRows = Unpooled.buffer();
+        private int rowCount;
+
+        public Encoded(ResultMetadata metadata)
+        {
+            super(metadata, Collections.<List<ByteBuffer>>emptyList());
+        }
+
+        @Override
+        public int size()
+        {
+            return rowCount;
+        }
+
+        @Override
+        public void addRow(List<ByteBuffer> row)
+        {
+            assert row.size() == metadata.valueCount();
+            for (int i = 0; i < metadata.columnCount; i++)
+                CBUtil.writeValue(row.get(i), encodedRows);
+            rowCount++;
+        }
+
+        @Override
+        public void addColumnValue(ByteBuffer value)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void reverse()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void trim(int limit)
+        {
+            if (limit < rowCount)
+                throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CqlResult toThriftResult()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void encodeRows(ByteBuf dest)
+        {
+            dest.writeInt(rowCount);
+            dest.writeBytes(encodedRows, encodedRows.readerIndex(), encodedRows.readableBytes());
+        }
+
+        @Override
+        protected int encodedRowsSize()
+        {
+            return 4 + encodedRows.readableBytes();
+        }
+
+        @Override
+        public String toString()
+        {
+            return metadata + "\n" + rowCount + " encoded rows\n---";
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -194,25 +298,12 @@ public class ResultSet
         public void encode(ResultSet rs, ByteBuf dest, int version)
         {
             ResultMetadata.codec.encode(rs.metadata, dest, version);
-            dest.writeInt(rs.rows.size());
-            for (List<ByteBuffer> row : rs.rows)
-            {
-                // Note that we do only want to serialize only the first columnCount values, even if the row
-                // as more: see comment on ResultMetadata.names field.
-                for (int i = 0; i < rs.metadata.columnCount; i++)
-                    CBUtil.writeValue(row.get(i), dest);
-            }
+            rs.encodeRows(dest);
         }
 
         public int encodedSize(ResultSet rs, int version)
         {
-            int size = ResultMetadata.codec.encodedSize(rs.metadata, version) + 4;
-            for (List<ByteBuffer> row : rs.rows)
-            {
-                for (int i = 0; i < rs.metadata.columnCount; i++)
-                    size += CBUtil.sizeOfValue(row.get(i));
-            }
-            return size;
+            return ResultMetadata.codec.encodedSize(rs.metadata, version) + rs.encodedRowsSize();
         }
     }
 
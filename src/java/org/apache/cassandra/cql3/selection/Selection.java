@@ -240,7 +240,16 @@ public abstract class Selection
 
     public ResultSetBuilder resultSetBuilder(QueryOptions options, boolean isJons) throws InvalidRequestException
     {
-        return new ResultSetBuilder(options, isJons);
+        return new ResultSetBuilder(options, isJons, false);
+    }
+
+    /**
+     * Returns a builder of a {@link ResultSet.Encoded} if {@code encodeRows} is {@code true}, that encodes the rows
+     * for the native protocol as they are built.
+     */
+    public ResultSetBuilder resultSetBuilder(QueryOptions options, boolean isJson, boolean encodeRows) throws InvalidRequestException
+    {
+        return new ResultSetBuilder(options, isJson, encodeRows);
     }
 
     public abstract boolean isAggregate();
@@ -308,9 +317,11 @@ public abstract class Selection
 
         private final boolean isJson;
 
-        private ResultSetBuilder(QueryOptions options, boolean isJson) throws InvalidRequestException
+        private ResultSetBuilder(QueryOptions options, boolean isJson, boolean encodeRows) throws InvalidRequestException
         {
-            this.resultSet = new ResultSet(getResultMetadata(isJson).copy(), new ArrayList<List<ByteBuffer>>());
+            this.resultSet = encodeRows
+                           ? new ResultSet.Encoded(getResultMetadata(isJson).copy())
+                           : new ResultSet(getResultMetadata(isJson).copy(), new ArrayList<List<ByteBuffer>>());
             this.protocolVersion = options.getProtocolVersion();
             this.selectors = newSelectors(options);
             this.timestamps = collectTimestamps ? new long[columns.size()] : null;
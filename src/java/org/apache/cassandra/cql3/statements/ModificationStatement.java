@@ -84,6 +84,13 @@ public abstract class ModificationStatement implements CQLStatement
 
     private final PartitionColumns requiresRead;
 
+    // The parts of the execution that don't depend on the bound values, computed once at preparation
+    private final Map<UUID, PartitionColumns> updatedColumnsByTable;
+
+    private final ColumnFilter requiresReadFilter;
+
+    private final NavigableSet<Clustering> staticClustering;
+
     public ModificationStatement(StatementType type,
                                  int boundTerms,
                                  CFMetaData cfm,
@@ -136,6 +143,10 @@ public abstract class ModificationStatement implements CQLStatement
         this.updatedColumns = modifiedColumns;
         this.conditionColumns = conditionColumnsBuilder.build();
         this.requiresRead = requiresReadBuilder.build();
+
+        this.updatedColumnsByTable = Collections.singletonMap(cfm.cfId, updatedColumns);
+        this.requiresReadFilter = ColumnFilter.selection(requiresRead);
+        this.staticClustering = FBUtilities.singleton(CBuilder.STATIC_BUILDER.build(), cfm.comparator);
     }
 
     public Iterable<Function> getFunctions()
@@ -306,7 +317,7 @@ public abstract class ModificationStatement implements CQLStatement
     throws InvalidRequestException
     {
         if (appliesOnlyToStaticColumns() && !restrictions.hasClusteringColumnsRestriction())
-            return FBUtilities.singleton(CBuilder.STATIC_BUILDER.build(), cfm.comparator);
+            return staticClustering;
 
         return restrictions.getClusteringColumns(options);
     }
@@ -334,11 +345,25 @@ public abstract class ModificationStatement implements CQLStatement
     public boolean requiresRead()
     {
         // Lists SET operation incurs a read.
-        for (Operation op : allOperations())
-            if (op.requiresRead())
-                return true;
+        return !requiresRead.isEmpty();
+    }
 
-        return false;
+    /**
+     * Checks whether this statement writes a single partition for which the local node can acknowledge the write on its
+     * own with the specified options, i.e. without waiting for another replica.
+     */
+    public boolean isLocalOnly(QueryOptions options) throws InvalidRequestException
+    {
+        // conditions, counters and reads are coordinated with other replicas, and triggers and views go through the batchlog
+        if (hasConditions() || isCounter() || requiresRead() || !cfm.getTriggers().isEmpty())
+            return false;
+
+        Keyspace keyspace = Keyspace.open(keyspace());
+        if (!keyspace.viewManager.forTable(cfm).isEmpty())
+            return false;
+
+        List<ByteBuffer> keys = buildPartitionKeyNames(options);
+        return keys.size() == 1 && StorageProxy.isLocalOnlyWrite(keyspace, keys.get(0), options.getConsistency());
     }
 
     private Map<DecoratedKey, Partition> readRequiredLists(Collection<ByteBuffer> partitionKeys,
@@ -364,7 +389,7 @@ public abstract class ModificationStatement implements CQLStatement
         for (ByteBuffer key : partitionKeys)
             commands.add(SinglePartitionReadCommand.create(cfm,
                                                            nowInSec,
-                                                           ColumnFilter.selection(this.requiresRead),
+                                                           requiresReadFilter,
                                                            RowFilter.NONE,
                                                            limits,
                                                            cfm.decorateKey(key),
@@ -611,7 +636,7 @@ public abstract class ModificationStatement implements CQLStatement
      */
     private Collection<? extends IMutation> getMutations(QueryOptions options, boolean local, long now)
     {
-        UpdatesCollector collector = new UpdatesCollector(Collections.singletonMap(cfm.cfId, updatedColumns), 1);
+        UpdatesCollector collector = new UpdatesCollector(updatedColumnsByTable, 1);
         addUpdates(collector, options, local, now);
         collector.validateIndexedColumns();
 
@@ -702,6 +727,10 @@ public abstract class ModificationStatement implements CQLStatement
                                                   boolean local,
                                                   long now)
     {
+        // The filter is only used to read the columns requiring a read-before-write
+        if (!requiresRead())
+            return makeUpdateParameters(keys, null, options, DataLimits.NONE, local, now);
+
         if (clusterings.contains(Clustering.STATIC_CLUSTERING))
             return makeUpdateParameters(keys,
                                         new ClusteringIndexSliceFilter(Slices.ALL, false),
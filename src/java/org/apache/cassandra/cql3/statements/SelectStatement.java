@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.cassandra.auth.Permission;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.cql3.*;
 import org.apache.cassandra.cql3.functions.Function;
 import org.apache.cassandra.cql3.restrictions.StatementRestrictions;
@@ -50,8 +51,10 @@ import org.apache.cassandra.serializers.MarshalException;
 import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.service.ClientWarn;
 import org.apache.cassandra.service.QueryState;
+import org.apache.cassandra.service.StorageProxy;
 import org.apache.cassandra.service.pager.PagingState;
 import org.apache.cassandra.service.pager.QueryPager;
+import org.apache.cassandra.thrift.ThriftClientState;
 import org.apache.cassandra.thrift.ThriftValidation;
 import org.apache.cassandra.transport.messages.ResultMessage;
 import org.apache.cassandra.utils.ByteBufferUtil;
@@ -95,6 +98,13 @@ public class SelectStatement implements CQLStatement
 
     private final ColumnFilter queriedColumns;
 
+    /**
+     * The clustering index filter of the statement if it doesn't depend on the bound values (when there is no
+     * restriction on the clustering columns, or for DISTINCT queries), so that it is not rebuilt on every execution.
+     * {@code null} if it has to be built for each execution.
+     */
+    private final ClusteringIndexFilter clusteringIndexFilter;
+
     // Used by forSelection below
     private static final Parameters defaultParameters = new Parameters(Collections.<ColumnDefinition.Raw, Boolean>emptyMap(), false, false, false);
 
@@ -118,6 +128,9 @@ public class SelectStatement implements CQLStatement
         this.limit = limit;
         this.perPartitionLimit = perPartitionLimit;
         this.queriedColumns = gatherQueriedColumns();
+        this.clusteringIndexFilter = parameters.isDistinct || !restrictions.hasClusteringColumnsRestriction()
+                                   ? makeClusteringIndexFilter(QueryOptions.DEFAULT)
+                                   : null;
     }
 
     public Iterable<Function> getFunctions()
@@ -228,10 +241,26 @@ public class SelectStatement implements CQLStatement
         int pageSize = getPageSize(options);
 
         if (pageSize <= 0 || query.limits().count() <= pageSize)
-            return execute(query, options, state, nowInSec, userLimit);
+            return execute(query, options, state, nowInSec, userLimit, encodeRows(state, query.limits().count()));
 
         QueryPager pager = query.getPager(options.getPagingState(), options.getProtocolVersion());
-        return execute(Pager.forDistributedQuery(pager, cl, state.getClientState()), options, pageSize, nowInSec, userLimit);
+        return execute(Pager.forDistributedQuery(pager, cl, state.getClientState()), options, pageSize, nowInSec, userLimit, encodeRows(state, pageSize));
+    }
+
+    /**
+     * Whether the rows of a result of up to {@code maxRows} rows should be encoded for the client as they are read
+     * (see {@link ResultSet.Encoded}). This is only the case for large results sent as is to a native protocol client.
+     */
+    private boolean encodeRows(QueryState state, int maxRows)
+    {
+        int minRows = DatabaseDescriptor.getNativeTransportStreamResultsMinRows();
+        ClientState clientState = state.getClientState();
+        return minRows > 0
+            && maxRows >= minRows
+            && !clientState.isInternal
+            && !(clientState instanceof ThriftClientState)
+            && !selection.isAggregate()
+            && !needsPostQueryOrdering();
     }
 
     private int getPageSize(QueryOptions options)
@@ -265,11 +294,12 @@ public class SelectStatement implements CQLStatement
                                        QueryOptions options,
                                        QueryState state,
                                        int nowInSec,
-                                       int userLimit) throws RequestValidationException, RequestExecutionException
+                                       int userLimit,
+                                       boolean encodeRows) throws RequestValidationException, RequestExecutionException
     {
         try (PartitionIterator data = query.execute(options.getConsistency(), state.getClientState()))
         {
-            return processResults(data, options, nowInSec, userLimit);
+            return processResults(data, options, nowInSec, userLimit, encodeRows);
         }
     }
 
@@ -344,7 +374,8 @@ public class SelectStatement implements CQLStatement
                                        QueryOptions options,
                                        int pageSize,
                                        int nowInSec,
-                                       int userLimit) throws RequestValidationException, RequestExecutionException
+                                       int userLimit,
+                                       boolean encodeRows) throws RequestValidationException, RequestExecutionException
     {
         if (selection.isAggregate())
             return pageAggregateQuery(pager, options, pageSize, nowInSec);
@@ -357,7 +388,7 @@ public class SelectStatement implements CQLStatement
         ResultMessage.Rows msg;
         try (PartitionIterator page = pager.fetchPage(pageSize))
         {
-            msg = processResults(page, options, nowInSec, userLimit);
+            msg = processResults(page, options, nowInSec, userLimit, encodeRows);
         }
 
         // Please note that the isExhausted state of the pager only gets updated when we've closed the page, so this
@@ -402,9 +433,10 @@ public class SelectStatement implements CQLStatement
     private ResultMessage.Rows processResults(PartitionIterator partitions,
                                               QueryOptions options,
                                               int nowInSec,
-                                              int userLimit) throws RequestValidationException
+                                              int userLimit,
+                                              boolean encodeRows) throws RequestValidationException
     {
-        ResultSet rset = process(partitions, options, nowInSec, userLimit);
+        ResultSet rset = process(partitions, options, nowInSec, userLimit, encodeRows);
         return new ResultMessage.Rows(rset);
     }
 
@@ -426,20 +458,20 @@ public class SelectStatement implements CQLStatement
             {
                 try (PartitionIterator data = query.executeInternal(executionController))
                 {
-                    return processResults(data, options, nowInSec, userLimit);
+                    return processResults(data, options, nowInSec, userLimit, false);
                 }
             }
             else
             {
                 QueryPager pager = query.getPager(options.getPagingState(), options.getProtocolVersion());
-                return execute(Pager.forInternalQuery(pager, executionController), options, pageSize, nowInSec, userLimit);
+                return execute(Pager.forInternalQuery(pager, executionController), options, pageSize, nowInSec, userLimit, false);
             }
         }
     }
 
     public ResultSet process(PartitionIterator partitions, int nowInSec) throws InvalidRequestException
     {
-        return process(partitions, QueryOptions.DEFAULT, nowInSec, getLimit(QueryOptions.DEFAULT));
+        return process(partitions, QueryOptions.DEFAULT, nowInSec, getLimit(QueryOptions.DEFAULT), false);
     }
 
     public String keyspace()
@@ -468,6 +500,24 @@ public class SelectStatement implements CQLStatement
         return restrictions;
     }
 
+    /**
+     * Checks whether this query reads a single partition that the local node can serve on its own with the specified
+     * options, i.e. without waiting for another replica.
+     */
+    public boolean isLocalOnly(QueryOptions options) throws InvalidRequestException
+    {
+        if (restrictions.isKeyRange() || restrictions.usesSecondaryIndexing())
+            return false;
+
+        Collection<ByteBuffer> keys = restrictions.getPartitionKeys(options);
+        if (keys.size() != 1)
+            return false;
+
+        ByteBuffer key = keys.iterator().next();
+        QueryProcessor.validateKey(key);
+        return StorageProxy.isLocalOnlyRead(Keyspace.open(keyspace()), key, options.getConsistency());
+    }
+
     private ReadQuery getSliceCommands(QueryOptions options, DataLimits limit, int nowInSec) throws RequestValidationException
     {
         Collection<ByteBuffer> keys = restrictions.getPartitionKeys(options);
@@ -568,6 +618,9 @@ public class SelectStatement implements CQLStatement
     private ClusteringIndexFilter makeClusteringIndexFilter(QueryOptions options)
     throws InvalidRequestException
     {
+        if (clusteringIndexFilter != null)
+            return clusteringIndexFilter;
+
         if (parameters.isDistinct)
         {
             // We need to be able to distinguish between partition having live rows and those that don't. But
@@ -721,6 +774,10 @@ public class SelectStatement implements CQLStatement
      */
     public RowFilter getRowFilter(QueryOptions options) throws InvalidRequestException
     {
+        // Avoids looking up the index manager for the common case of statements without filtering restrictions
+        if (restrictions.getIndexRestrictions().isEmpty())
+            return RowFilter.NONE;
+
         ColumnFamilyStore cfs = Keyspace.open(keyspace()).getColumnFamilyStore(columnFamily());
         SecondaryIndexManager secondaryIndexManager = cfs.indexManager;
         RowFilter filter = restrictions.getRowFilter(secondaryIndexManager, options);
@@ -730,9 +787,10 @@ public class SelectStatement implements CQLStatement
     private ResultSet process(PartitionIterator partitions,
                               QueryOptions options,
                               int nowInSec,
-                              int userLimit) throws InvalidRequestException
+                              int userLimit,
+                              boolean encodeRows) throws InvalidRequestException
     {
-        Selection.ResultSetBuilder result = selection.resultSetBuilder(options, parameters.isJson);
+        Selection.ResultSetBuilder result = selection.resultSetBuilder(options, parameters.isJson, encodeRows);
         while (partitions.hasNext())
         {
             try (RowIterator partition = partitions.next())
@@ -77,7 +77,6 @@ import org.apache.cassandra.utils.*;
 import org.apache.cassandra.utils.TopKSampler.SamplerResult;
 import org.apache.cassandra.utils.concurrent.OpOrder;
 import org.apache.cassandra.utils.concurrent.Refs;
-import org.apache.cassandra.utils.memory.MemtableAllocator;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
@@ -128,7 +127,8 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     /*
     We keep a pool of threads for each data directory, size of each pool is memtable_flush_writers.
     When flushing we start a Flush runnable in the flushExecutor. Flush calculates how to split the
-    memtable ranges over the existing data directories and creates a FlushRunnable for each of the directories.
+    memtable ranges over the existing data directories and creates a FlushRunnable for each of the directories
+    (or for each shard within each directory, for memtables split in shards).
     The FlushRunnables are executed in the perDiskflushExecutors and the Flush will block until all FlushRunnables
     are finished. By having flushExecutor size the same size as each of the perDiskflushExecutors we make sure we can
     have that many flushes going at the same time.
@@ -280,7 +280,9 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
 
         // If the CF comparator has changed, we need to change the memtable,
         // because the old one still aliases the previous comparator.
-        if (data.getView().getCurrentMemtable().initialComparator != metadata.comparator)
+        // Likewise, a new memtable implementation only applies to new memtables.
+        Memtable current = data.getView().getCurrentMemtable();
+        if (current.initialComparator != metadata.comparator || !current.initialParams.equals(metadata.params.memtable))
             switchMemtable();
     }
 
@@ -828,6 +830,21 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         return desc.filenameFor(Component.DATA);
     }
 
+    /**
+     * @return the descriptor of a new sstable of the given version, for the sstables that are not written but copied
+     * as is in the given directory, like the sstables streamed entirely
+     */
+    public Descriptor newSSTableDescriptor(File directory, Version version, SSTableFormat.Type format)
+    {
+        return new Descriptor(version,
+                              directory,
+                              keyspace.getName(),
+                              name,
+                              fileIndexGenerator.incrementAndGet(),
+                              format,
+                              Component.digestFor(version.uncompressedChecksumType()));
+    }
+
     /**
      * Switches the memtable iff the live memtable is the one provided
      *
@@ -870,18 +887,18 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         float onHeapRatio = 0, offHeapRatio = 0;
         long onHeapTotal = 0, offHeapTotal = 0;
         Memtable memtable = getTracker().getView().getCurrentMemtable();
-        onHeapRatio +=  memtable.getAllocator().onHeap().ownershipRatio();
-        offHeapRatio += memtable.getAllocator().offHeap().ownershipRatio();
-        onHeapTotal += memtable.getAllocator().onHeap().owns();
-        offHeapTotal += memtable.getAllocator().offHeap().owns();
+        onHeapRatio +=  memtable.getOnHeapOwnershipRatio();
+        offHeapRatio += memtable.getOffHeapOwnershipRatio();
+        onHeapTotal += memtable.getOnHeapOwns();
+        offHeapTotal += memtable.getOffHeapOwns();
 
         for (ColumnFamilyStore indexCfs : indexManager.getAllIndexColumnFamilyStores())
         {
-            MemtableAllocator allocator = indexCfs.getTracker().getView().getCurrentMemtable().getAllocator();
-            onHeapRatio += allocator.onHeap().ownershipRatio();
-            offHeapRatio += allocator.offHeap().ownershipRatio();
-            onHeapTotal += allocator.onHeap().owns();
-            offHeapTotal += allocator.offHeap().owns();
+            Memtable indexMemtable = indexCfs.getTracker().getView().getCurrentMemtable();
+            onHeapRatio += indexMemtable.getOnHeapOwnershipRatio();
+            offHeapRatio += indexMemtable.getOffHeapOwnershipRatio();
+            onHeapTotal += indexMemtable.getOnHeapOwns();
+            offHeapTotal += indexMemtable.getOffHeapOwns();
         }
 
         logger.debug("Enqueuing flush of {}: {}",
@@ -1070,7 +1087,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 // switch all memtables, regardless of their dirty status, setting the barrier
                 // so that we can reach a coordinated decision about cleanliness once they
                 // are no longer possible to be modified
-                Memtable newMemtable = new Memtable(commitLogUpperBound, cfs);
+                Memtable newMemtable = Memtable.create(commitLogUpperBound, cfs);
                 Memtable oldMemtable = cfs.data.switchMemtable(truncate, newMemtable);
                 oldMemtable.setDiscarding(writeBarrier, commitLogUpperBound);
                 memtables.add(oldMemtable);
@@ -1144,8 +1161,8 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                     // flush the memtable
                     flushRunnables = memtable.flushRunnables(txn);
 
-                    for (int i = 0; i < flushRunnables.size(); i++)
-                        futures.add(perDiskflushExecutors[i].submit(flushRunnables.get(i)));
+                    for (Memtable.FlushRunnable flushRunnable : flushRunnables)
+                        futures.add(perDiskflushExecutors[flushRunnable.locationIndex].submit(flushRunnable));
 
                     flushResults = Lists.newArrayList(FBUtilities.waitOnFutures(futures));
                 }
@@ -1258,7 +1275,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     public void simulateFailedFlush()
     {
         discardFlushResults = this;
-        data.markFlushing(data.switchMemtable(false, new Memtable(new AtomicReference<>(CommitLog.instance.getCurrentPosition()), this)));
+        data.markFlushing(data.switchMemtable(false, Memtable.create(new AtomicReference<>(CommitLog.instance.getCurrentPosition()), this)));
     }
 
     public void resumeFlushing()
@@ -1287,14 +1304,14 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 // find the total ownership ratio for the memtable and all SecondaryIndexes owned by this CF,
                 // both on- and off-heap, and select the largest of the two ratios to weight this CF
                 float onHeap = 0f, offHeap = 0f;
-                onHeap += current.getAllocator().onHeap().ownershipRatio();
-                offHeap += current.getAllocator().offHeap().ownershipRatio();
+                onHeap += current.getOnHeapOwnershipRatio();
+                offHeap += current.getOffHeapOwnershipRatio();
 
                 for (ColumnFamilyStore indexCfs : cfs.indexManager.getAllIndexColumnFamilyStores())
                 {
-                    MemtableAllocator allocator = indexCfs.getTracker().getView().getCurrentMemtable().getAllocator();
-                    onHeap += allocator.onHeap().ownershipRatio();
-                    offHeap += allocator.offHeap().ownershipRatio();
+                    Memtable indexMemtable = indexCfs.getTracker().getView().getCurrentMemtable();
+                    onHeap += indexMemtable.getOnHeapOwnershipRatio();
+                    offHeap += indexMemtable.getOffHeapOwnershipRatio();
                 }
 
                 float ratio = Math.max(onHeap, offHeap);
@@ -1314,8 +1331,8 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 float usedOffHeap = Memtable.MEMORY_POOL.offHeap.usedRatio();
                 float flushingOnHeap = Memtable.MEMORY_POOL.onHeap.reclaimingRatio();
                 float flushingOffHeap = Memtable.MEMORY_POOL.offHeap.reclaimingRatio();
-                float thisOnHeap = largest.getAllocator().onHeap().ownershipRatio();
-                float thisOffHeap = largest.getAllocator().onHeap().ownershipRatio();
+                float thisOnHeap = largest.getOnHeapOwnershipRatio();
+                float thisOffHeap = largest.getOffHeapOwnershipRatio();
                 logger.debug("Flushing largest {} to free up room. Used total: {}, live: {}, flushing: {}, this: {}",
                             largest.cfs, ratio(usedOnHeap, usedOffHeap), ratio(liveOnHeap, liveOffHeap),
                             ratio(flushingOnHeap, flushingOffHeap), ratio(thisOnHeap, thisOffHeap));
@@ -41,28 +41,33 @@ import org.apache.cassandra.db.partitions.*;
 import org.apache.cassandra.db.rows.EncodingStats;
 import org.apache.cassandra.db.rows.UnfilteredRowIterator;
 import org.apache.cassandra.dht.*;
-import org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.index.transactions.UpdateTransaction;
 import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.SSTableMultiWriter;
 import org.apache.cassandra.io.sstable.metadata.MetadataCollector;
+import org.apache.cassandra.schema.MemtableParams;
 import org.apache.cassandra.service.ActiveRepairService;
-import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
-import org.apache.cassandra.utils.ObjectSizes;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.concurrent.OpOrder;
 import org.apache.cassandra.utils.memory.MemtableAllocator;
 import org.apache.cassandra.utils.memory.MemtablePool;
 
-public class Memtable implements Comparable<Memtable>
+/**
+ * The in-memory store of the writes to a table, until they are flushed to disk.
+ *
+ * This class handles the lifecycle of a memtable (commit log boundaries, memory accounting, flushing), while
+ * the structure holding the partitions is left to subclasses; the implementation used for a table is selected by the
+ * table's {@link MemtableParams}, see {@link Factory}.
+ */
+public abstract class Memtable implements Comparable<Memtable>
 {
     private static final Logger logger = LoggerFactory.getLogger(Memtable.class);
 
     public static final MemtablePool MEMORY_POOL = DatabaseDescriptor.getMemtableAllocatorPool();
-    private static final int ROW_OVERHEAD_HEAP_SIZE = estimateRowOverhead(Integer.parseInt(System.getProperty("cassandra.memtable_row_overhead_computation_step", "100000")));
 
-    private final MemtableAllocator allocator;
+    protected final MemtableAllocator allocator;
     private final AtomicLong liveDataSize = new AtomicLong(0);
     private final AtomicLong currentOperations = new AtomicLong(0);
 
@@ -89,10 +94,6 @@ public class Memtable implements Comparable<Memtable>
         }
     }
 
-    // We index the memtable by PartitionPosition only for the purpose of being able
-    // to select key range using Token.KeyBound. However put() ensures that we
-    // actually only store DecoratedKey.
-    private final ConcurrentNavigableMap<PartitionPosition, AtomicBTreePartition> partitions = new ConcurrentSkipListMap<>();
     public final ColumnFamilyStore cfs;
     private final long creationNano = System.nanoTime();
 
@@ -104,35 +105,154 @@ public class Memtable implements Comparable<Memtable>
     // memtable was created with the new or old comparator.
     public final ClusteringComparator initialComparator;
 
+    // Record the memtable parameters of the CFS at the creation of the memtable, so that
+    // a change of implementation or options switches to a new memtable.
+    public final MemtableParams initialParams;
+
     private final ColumnsCollector columnsCollector;
     private final StatsCollector statsCollector = new StatsCollector();
 
-    // only to be used by init(), to setup the very first memtable for the cfs
-    public Memtable(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs)
+    protected Memtable(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs)
     {
         this.cfs = cfs;
         this.commitLogLowerBound = commitLogLowerBound;
         this.allocator = MEMORY_POOL.newAllocator();
         this.initialComparator = cfs.metadata.comparator;
+        this.initialParams = cfs.metadata.params.memtable;
         this.cfs.scheduleFlush();
         this.columnsCollector = new ColumnsCollector(cfs.metadata.partitionColumns());
     }
 
     // ONLY to be used for testing, to create a mock Memtable
     @VisibleForTesting
-    public Memtable(CFMetaData metadata)
+    protected Memtable(CFMetaData metadata)
     {
         this.initialComparator = metadata.comparator;
+        this.initialParams = metadata.params.memtable;
         this.cfs = null;
         this.allocator = null;
         this.columnsCollector = new ColumnsCollector(metadata.partitionColumns());
     }
 
+    /**
+     * Creates a new memtable for the provided table, of the implementation selected by its parameters.
+     */
+    public static Memtable create(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs)
+    {
+        return cfs.metadata.params.memtable.factory().create(commitLogLowerBound, cfs);
+    }
+
+    /**
+     * Creates the memtables of a table.
+     *
+     * Memtable implementations are selected per table with the 'memtable' table option, which names the memtable
+     * class. The class must provide a public static {@code factory(Map<String, String>)} method returning its factory
+     * for the other sub-options of the table option, and throwing a {@link ConfigurationException} if they are invalid.
+     */
+    public interface Factory
+    {
+        Memtable create(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs);
+    }
+
+    /**
+     * @return the partition stored for the given key, or null if there is none.
+     */
+    protected abstract AtomicBTreePartition get(DecoratedKey key);
+
+    /**
+     * Adds the provided (empty) partition unless a partition already exists for its key.
+     *
+     * @return the partition already present for the key, or null if the provided one was added.
+     */
+    protected abstract AtomicBTreePartition putIfAbsent(AtomicBTreePartition partition, OpOrder.Group opGroup);
+
+    /**
+     * @return the on-heap memory used to index a newly added partition, including the partition object itself.
+     */
+    protected abstract long partitionOverhead(DecoratedKey key);
+
+    /**
+     * Returns the partitions between the provided bounds, in token order. A null bound means the range is unbounded
+     * on that side.
+     */
+    protected abstract Iterator<AtomicBTreePartition> partitionIterator(PartitionPosition from, boolean fromInclusive,
+                                                                         PartitionPosition to, boolean toInclusive);
+
+    public abstract int partitionCount();
+
+    public abstract boolean isClean();
+
+    /**
+     * Releases any resource held by the partition index. Called once no write or read can access this memtable anymore.
+     */
+    protected void discard()
+    {
+    }
+
     public MemtableAllocator getAllocator()
     {
         return allocator;
     }
 
+    /**
+     * @return the allocator to use for the partition of the given key; memtables splitting their partitions in shards
+     * can account each shard separately.
+     */
+    protected MemtableAllocator allocatorFor(DecoratedKey key)
+    {
+        return allocator;
+    }
+
+    public long getOnHeapOwns()
+    {
+        return allocator.onHeap().owns();
+    }
+
+    public long getOffHeapOwns()
+    {
+        return allocator.offHeap().owns();
+    }
+
+    public float getOnHeapOwnershipRatio()
+    {
+        return allocator.onHeap().ownershipRatio();
+    }
+
+    public float getOffHeapOwnershipRatio()
+    {
+        return allocator.offHeap().ownershipRatio();
+    }
+
+    /**
+     * Returns the boundaries between the shards splitting the partitions of this memtable, i.e. the upper bound of
+     * each shard but the last one, which extends to the end of the ring. Each shard is flushed separately, and in
+     * parallel with the others.
+     */
+    public List<PartitionPosition> shardBoundaries()
+    {
+        return Collections.emptyList();
+    }
+
+    public int shardCount()
+    {
+        return 1;
+    }
+
+    public long getShardOnHeapOwns(int shard)
+    {
+        return getOnHeapOwns();
+    }
+
+    public long getShardOffHeapOwns(int shard)
+    {
+        return getOffHeapOwns();
+    }
+
+    public int getShardPartitionCount(int shard)
+    {
+        return partitionCount();
+    }
+
     public long getLiveDataSize()
     {
         return liveDataSize.get();
@@ -154,6 +274,7 @@ public class Memtable implements Comparable<Memtable>
 
     void setDiscarded()
     {
+        discard();
         allocator.setDiscarded();
     }
 
@@ -197,11 +318,6 @@ public class Memtable implements Comparable<Memtable>
         return allocator.isLive();
     }
 
-    public boolean isClean()
-    {
-        return partitions.isEmpty();
-    }
-
     public boolean mayContainDataBefore(CommitLogPosition position)
     {
         return approximateCommitLogLowerBound.compareTo(position) < 0;
@@ -224,22 +340,22 @@ public class Memtable implements Comparable<Memtable>
      */
     long put(PartitionUpdate update, UpdateTransaction indexer, OpOrder.Group opGroup)
     {
-        AtomicBTreePartition previous = partitions.get(update.partitionKey());
+        AtomicBTreePartition previous = get(update.partitionKey());
 
         long initialSize = 0;
         if (previous == null)
         {
+            MemtableAllocator allocator = allocatorFor(update.partitionKey());
             final DecoratedKey cloneKey = allocator.clone(update.partitionKey(), opGroup);
             AtomicBTreePartition empty = new AtomicBTreePartition(cfs.metadata, cloneKey, allocator);
             // We'll add the columns later. This avoids wasting works if we get beaten in the putIfAbsent
-            previous = partitions.putIfAbsent(cloneKey, empty);
+            previous = putIfAbsent(empty, opGroup);
             if (previous == null)
             {
                 previous = empty;
                 // allocate the row overhead after the fact; this saves over allocating and having to free after, but
                 // means we can overshoot our declared limit.
-                int overhead = (int) (cloneKey.getToken().getHeapSize() + ROW_OVERHEAD_HEAP_SIZE);
-                allocator.onHeap().allocate(overhead, opGroup);
+                allocator.onHeap().allocate(partitionOverhead(cloneKey), opGroup);
                 initialSize = 8;
             }
             else
@@ -257,38 +373,57 @@ public class Memtable implements Comparable<Memtable>
         return pair[1];
     }
 
-    public int partitionCount()
-    {
-        return partitions.size();
-    }
-
     public List<FlushRunnable> flushRunnables(LifecycleTransaction txn)
     {
         List<Range<Token>> localRanges = Range.sort(StorageService.instance.getLocalRanges(cfs.keyspace.getName()));
 
         if (!cfs.getPartitioner().splitter().isPresent() || localRanges.isEmpty())
-            return Collections.singletonList(new FlushRunnable(txn));
+            return createFlushRunnables(null, null, txn);
 
-        return createFlushRunnables(localRanges, txn);
+        Directories.DataDirectory[] locations = cfs.getDirectories().getWriteableLocations();
+        List<PartitionPosition> boundaries = StorageService.getDiskBoundaries(localRanges, cfs.getPartitioner(), locations);
+        return createFlushRunnables(boundaries, locations, txn);
     }
 
-    private List<FlushRunnable> createFlushRunnables(List<Range<Token>> localRanges, LifecycleTransaction txn)
+    /**
+     * Creates a flush runnable per disk and shard: the ranges flushed are those delimited by both the disk boundaries
+     * and the shard boundaries, so that the shards of a memtable are written in parallel, each one to the disk owning
+     * its range. Without disk boundaries, shards are written to the location picked for their size.
+     */
+    private List<FlushRunnable> createFlushRunnables(List<PartitionPosition> diskBoundaries, Directories.DataDirectory[] locations, LifecycleTransaction txn)
     {
-        assert cfs.getPartitioner().splitter().isPresent();
+        List<PartitionPosition> shardBoundaries = shardBoundaries();
+        if (diskBoundaries == null && shardBoundaries.isEmpty())
+            return Collections.singletonList(new FlushRunnable(txn));
 
-        Directories.DataDirectory[] locations = cfs.getDirectories().getWriteableLocations();
-        List<PartitionPosition> boundaries = StorageService.getDiskBoundaries(localRanges, cfs.getPartitioner(), locations);
-        List<FlushRunnable> runnables = new ArrayList<>(boundaries.size());
+        List<FlushRunnable> runnables = new ArrayList<>();
         PartitionPosition rangeStart = cfs.getPartitioner().getMinimumToken().minKeyBound();
+        int disk = 0;
+        int shard = 0;
         try
         {
-            for (int i = 0; i < boundaries.size(); i++)
+            while (true)
             {
-                PartitionPosition t = boundaries.get(i);
-                runnables.add(new FlushRunnable(rangeStart, t, locations[i], txn));
-                rangeStart = t;
+                // a null end is the end of the ring
+                PartitionPosition diskEnd = diskBoundaries == null ? null : diskBoundaries.get(disk);
+                PartitionPosition shardEnd = shard < shardBoundaries.size() ? shardBoundaries.get(shard) : null;
+                boolean endsDisk = shardEnd == null || (diskEnd != null && diskEnd.compareTo(shardEnd) <= 0);
+                boolean endsShard = shardEnd != null && (diskEnd == null || shardEnd.compareTo(diskEnd) <= 0);
+                PartitionPosition rangeEnd = endsShard ? shardEnd : diskEnd;
+
+                // every disk gets a writer, but a shard range with no data within a disk does not need another one
+                if (endsDisk || partitionIterator(rangeStart, true, rangeEnd, false).hasNext())
+                    runnables.add(new FlushRunnable(rangeStart, rangeEnd, locations == null ? null : locations[disk], disk, txn));
+
+                if (endsDisk && (diskBoundaries == null || disk == diskBoundaries.size() - 1))
+                    return runnables;
+
+                rangeStart = rangeEnd;
+                if (endsDisk)
+                    disk++;
+                if (endsShard)
+                    shard++;
             }
-            return runnables;
         }
         catch (Throwable e)
         {
@@ -308,7 +443,7 @@ public class Memtable implements Comparable<Memtable>
     {
         return String.format("Memtable-%s@%s(%s serialized bytes, %s ops, %.0f%%/%.0f%% of on/off-heap limit)",
                              cfs.name, hashCode(), FBUtilities.prettyPrintMemory(liveDataSize.get()), currentOperations,
-                             100 * allocator.onHeap().ownershipRatio(), 100 * allocator.offHeap().ownershipRatio());
+                             100 * getOnHeapOwnershipRatio(), 100 * getOffHeapOwnershipRatio());
     }
 
     public MemtableUnfilteredPartitionIterator makePartitionIterator(final ColumnFilter columnFilter, final DataRange dataRange, final boolean isForThrift)
@@ -321,39 +456,31 @@ public class Memtable implements Comparable<Memtable>
         boolean isBound = keyRange instanceof Bounds;
         boolean includeStart = isBound || keyRange instanceof IncludingExcludingBounds;
         boolean includeStop = isBound || keyRange instanceof Range;
-        Map<PartitionPosition, AtomicBTreePartition> subMap;
-        if (startIsMin)
-            subMap = stopIsMin ? partitions : partitions.headMap(keyRange.right, includeStop);
-        else
-            subMap = stopIsMin
-                   ? partitions.tailMap(keyRange.left, includeStart)
-                   : partitions.subMap(keyRange.left, includeStart, keyRange.right, includeStop);
+        PartitionPosition from = startIsMin ? null : keyRange.left;
+        PartitionPosition to = stopIsMin ? null : keyRange.right;
 
         int minLocalDeletionTime = Integer.MAX_VALUE;
 
         // avoid iterating over the memtable if we purge all tombstones
         if (cfs.getCompactionStrategyManager().onlyPurgeRepairedTombstones())
-            minLocalDeletionTime = findMinLocalDeletionTime(subMap.entrySet().iterator());
+            minLocalDeletionTime = findMinLocalDeletionTime(partitionIterator(from, includeStart, to, includeStop));
 
-        final Iterator<Map.Entry<PartitionPosition, AtomicBTreePartition>> iter = subMap.entrySet().iterator();
+        final Iterator<AtomicBTreePartition> iter = partitionIterator(from, includeStart, to, includeStop);
 
         return new MemtableUnfilteredPartitionIterator(cfs, iter, isForThrift, minLocalDeletionTime, columnFilter, dataRange);
     }
 
-    private int findMinLocalDeletionTime(Iterator<Map.Entry<PartitionPosition, AtomicBTreePartition>> iterator)
+    private int findMinLocalDeletionTime(Iterator<AtomicBTreePartition> iterator)
     {
         int minLocalDeletionTime = Integer.MAX_VALUE;
         while (iterator.hasNext())
-        {
-            Map.Entry<PartitionPosition, AtomicBTreePartition> entry = iterator.next();
-            minLocalDeletionTime = Math.min(minLocalDeletionTime, entry.getValue().stats().minLocalDeletionTime);
-        }
+            minLocalDeletionTime = Math.min(minLocalDeletionTime, iterator.next().stats().minLocalDeletionTime);
         return minLocalDeletionTime;
     }
 
     public Partition getPartition(DecoratedKey key)
     {
-        return partitions.get(key);
+        return get(key);
     }
 
     public long getMinTimestamp()
@@ -364,7 +491,8 @@ public class Memtable implements Comparable<Memtable>
     class FlushRunnable implements Callable<SSTableMultiWriter>
     {
         private final long estimatedSize;
-        private final ConcurrentNavigableMap<PartitionPosition, AtomicBTreePartition> toFlush;
+        private final long partitionsToFlush;
+        private final long rowsToFlush;
 
         private final boolean isBatchLogTable;
         private final SSTableMultiWriter writer;
@@ -373,28 +501,30 @@ public class Memtable implements Comparable<Memtable>
         private final PartitionPosition from;
         private final PartitionPosition to;
 
-        FlushRunnable(PartitionPosition from, PartitionPosition to, Directories.DataDirectory flushLocation, LifecycleTransaction txn)
-        {
-            this(partitions.subMap(from, to), flushLocation, from, to, txn);
-        }
+        // the index of the data directory written to, used to pick the flush executor
+        final int locationIndex;
 
         FlushRunnable(LifecycleTransaction txn)
         {
-            this(partitions, null, null, null, txn);
+            this(null, null, null, 0, txn);
         }
 
-        FlushRunnable(ConcurrentNavigableMap<PartitionPosition, AtomicBTreePartition> toFlush, Directories.DataDirectory flushLocation, PartitionPosition from, PartitionPosition to, LifecycleTransaction txn)
+        FlushRunnable(PartitionPosition from, PartitionPosition to, Directories.DataDirectory flushLocation, int locationIndex, LifecycleTransaction txn)
         {
-            this.toFlush = toFlush;
             this.from = from;
             this.to = to;
+            this.locationIndex = locationIndex;
             long keySize = 0;
-            for (PartitionPosition key : toFlush.keySet())
+            long count = 0;
+            long rows = 0;
+            for (Iterator<AtomicBTreePartition> iter = toFlush(); iter.hasNext(); count++)
             {
-                //  make sure we don't write non-sensical keys
-                assert key instanceof DecoratedKey;
-                keySize += ((DecoratedKey) key).getKey().remaining();
+                AtomicBTreePartition partition = iter.next();
+                keySize += partition.partitionKey().getKey().remaining();
+                rows += partition.rowCount();
             }
+            this.partitionsToFlush = count;
+            this.rowsToFlush = rows;
             estimatedSize = (long) ((keySize // index entries
                                     + keySize // keys in data file
                                     + liveDataSize.get()) // data
@@ -414,6 +544,13 @@ public class Memtable implements Comparable<Memtable>
             return cfs.getDirectories();
         }
 
+        // the flushed range includes its start and excludes its end, like disk boundaries
+        private Iterator<AtomicBTreePartition> toFlush()
+        {
+            return partitionIterator(from == null || from.isMinimum() ? null : from, true,
+                                     to == null || to.isMinimum() ? null : to, false);
+        }
+
         private void writeSortedContents()
         {
             logger.debug("Writing {}, flushed range = ({}, {}]", Memtable.this.toString(), from, to);
@@ -422,8 +559,9 @@ public class Memtable implements Comparable<Memtable>
             int heavilyContendedRowCount = 0;
             // (we can't clear out the map as-we-go to free up memory,
             //  since the memtable is being used for queries in the "pending flush" category)
-            for (AtomicBTreePartition partition : toFlush.values())
+            for (Iterator<AtomicBTreePartition> partitions = toFlush(); partitions.hasNext(); )
             {
+                AtomicBTreePartition partition = partitions.next();
                 // Each batchlog partition is a separate entry in the log. And for an entry, we only do 2
                 // operations: 1) we insert the entry and 2) we delete it. Further, BL data is strictly local,
                 // we don't need to preserve tombstones for repair. So if both operation are in this
@@ -453,7 +591,7 @@ public class Memtable implements Comparable<Memtable>
             cfs.metric.bytesFlushed.inc(bytesFlushed);
 
             if (heavilyContendedRowCount > 0)
-                logger.trace(String.format("High update contention in %d/%d partitions of %s ", heavilyContendedRowCount, toFlush.size(), Memtable.this.toString()));
+                logger.trace(String.format("High update contention in %d/%d partitions of %s ", heavilyContendedRowCount, partitionsToFlush, Memtable.this.toString()));
         }
 
         public SSTableMultiWriter createFlushWriter(LifecycleTransaction txn,
@@ -463,9 +601,10 @@ public class Memtable implements Comparable<Memtable>
         {
             MetadataCollector sstableMetadataCollector = new MetadataCollector(cfs.metadata.comparator)
                     .commitLogLowerBound(commitLogLowerBound.get())
-                    .commitLogUpperBound(commitLogUpperBound.get());
+                    .commitLogUpperBound(commitLogUpperBound.get())
+                    .expectedRowsPerPartition(partitionsToFlush == 0 ? 0 : (double) rowsToFlush / partitionsToFlush);
             return cfs.createSSTableMultiWriter(Descriptor.fromFilename(filename),
-                                                (long)toFlush.size(),
+                                                partitionsToFlush,
                                                 ActiveRepairService.UNREPAIRED_SSTABLE,
                                                 sstableMetadataCollector,
                                                 new SerializationHeader(true, cfs.metadata, columns, stats), txn);
@@ -480,37 +619,16 @@ public class Memtable implements Comparable<Memtable>
         }
     }
 
-    private static int estimateRowOverhead(final int count)
-    {
-        // calculate row overhead
-        try (final OpOrder.Group group = new OpOrder().start())
-        {
-            int rowOverhead;
-            MemtableAllocator allocator = MEMORY_POOL.newAllocator();
-            ConcurrentNavigableMap<PartitionPosition, Object> partitions = new ConcurrentSkipListMap<>();
-            final Object val = new Object();
-            for (int i = 0 ; i < count ; i++)
-                partitions.put(allocator.clone(new BufferDecoratedKey(new LongToken(i), ByteBufferUtil.EMPTY_BYTE_BUFFER), group), val);
-            double avgSize = ObjectSizes.measureDeep(partitions) / (double) count;
-            rowOverhead = (int) ((avgSize - Math.floor(avgSize)) < 0.05 ? Math.floor(avgSize) : Math.ceil(avgSize));
-            rowOverhead -= ObjectSizes.measureDeep(new LongToken(0));
-            rowOverhead += AtomicBTreePartition.EMPTY_SIZE;
-            allocator.setDiscarding();
-            allocator.setDiscarded();
-            return rowOverhead;
-        }
-    }
-
     public static class MemtableUnfilteredPartitionIterator extends AbstractUnfilteredPartitionIterator
     {
         private final ColumnFamilyStore cfs;
-        private final Iterator<Map.Entry<PartitionPosition, AtomicBTreePartition>> iter;
+        private final Iterator<AtomicBTreePartition> iter;
         private final boolean isForThrift;
         private final int minLocalDeletionTime;
         private final ColumnFilter columnFilter;
         private final DataRange dataRange;
 
-        public MemtableUnfilteredPartitionIterator(ColumnFamilyStore cfs, Iterator<Map.Entry<PartitionPosition, AtomicBTreePartition>> iter, boolean isForThrift, int minLocalDeletionTime, ColumnFilter columnFilter, DataRange dataRange)
+        public MemtableUnfilteredPartitionIterator(ColumnFamilyStore cfs, Iterator<AtomicBTreePartition> iter, boolean isForThrift, int minLocalDeletionTime, ColumnFilter columnFilter, DataRange dataRange)
         {
             this.cfs = cfs;
             this.iter = iter;
@@ -542,13 +660,10 @@ public class Memtable implements Comparable<Memtable>
 
         public UnfilteredRowIterator next()
         {
-            Map.Entry<PartitionPosition, AtomicBTreePartition> entry = iter.next();
-            // Actual stored key should be true DecoratedKey
-            assert entry.getKey() instanceof DecoratedKey;
-            DecoratedKey key = (DecoratedKey)entry.getKey();
-            ClusteringIndexFilter filter = dataRange.clusteringIndexFilter(key);
+            AtomicBTreePartition partition = iter.next();
+            ClusteringIndexFilter filter = dataRange.clusteringIndexFilter(partition.partitionKey());
 
-            return filter.getUnfilteredRowIterator(columnFilter, entry.getValue());
+            return filter.getUnfilteredRowIterator(columnFilter, partition);
         }
     }
 
@@ -94,11 +94,23 @@ public abstract class ReadResponse
 
     protected static ByteBuffer makeDigest(UnfilteredPartitionIterator iterator, ReadCommand command)
     {
-        MessageDigest digest = FBUtilities.threadLocalMD5Digest();
+        MessageDigest digest = newDigest(command.digestVersion());
         UnfilteredPartitionIterators.digest(command, iterator, digest, command.digestVersion());
         return ByteBuffer.wrap(digest.digest());
     }
 
+    /**
+     * Returns the digest to use for the given digest version. Since the digest version is the smallest messaging
+     * version of the replicas queried, the cheaper non-cryptographic digest is only used if all of them support it.
+     */
+    @VisibleForTesting
+    static MessageDigest newDigest(int digestVersion)
+    {
+        return digestVersion >= MessagingService.VERSION_311
+             ? FBUtilities.threadLocalMurmur3Digest()
+             : FBUtilities.threadLocalMD5Digest();
+    }
+
     private static class DigestResponse extends ReadResponse
     {
         private final ByteBuffer digest;
@@ -381,7 +393,7 @@ public abstract class ReadResponse
             if (digest.hasRemaining())
                 return new DigestResponse(digest);
 
-            assert version == MessagingService.VERSION_30;
+            assert version >= MessagingService.VERSION_30;
             ByteBuffer data = ByteBufferUtil.readWithVIntLength(in);
             return new RemoteDataResponse(data);
         }
@@ -416,9 +428,9 @@ public abstract class ReadResponse
             long size = ByteBufferUtil.serializedSizeWithVIntLength(digest);
             if (!isDigest)
             {
-                // Note that we can only get there if version == 3.0, which is the current_version. When we'll change the
-                // version, we'll have to deserialize/re-serialize the data to be in the proper version.
-                assert version == MessagingService.VERSION_30;
+                // Note that we can only get there if version >= 3.0. The serialization of the data is the same in all
+                // those versions; if that changes, we'll have to deserialize/re-serialize the data to be in the proper version.
+                assert version >= MessagingService.VERSION_30;
                 ByteBuffer data = ((DataResponse)response).data;
                 size += ByteBufferUtil.serializedSizeWithVIntLength(data);
             }
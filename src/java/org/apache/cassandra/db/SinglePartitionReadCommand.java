@@ -559,6 +559,13 @@ public class SinglePartitionReadCommand extends ReadCommand
                 if (sstable.getMaxTimestamp() < mostRecentPartitionTombstone)
                     break;
 
+                // unlike below, the sstable can't have a partition deletion either
+                if (filter instanceof ClusteringIndexNamesFilter && !mayContainRows(sstable, (ClusteringIndexNamesFilter) filter))
+                {
+                    nonIntersectingSSTables++;
+                    continue;
+                }
+
                 if (!shouldInclude(sstable))
                 {
                     nonIntersectingSSTables++;
@@ -638,6 +645,18 @@ public class SinglePartitionReadCommand extends ReadCommand
         return clusteringIndexFilter().shouldInclude(sstable);
     }
 
+    /**
+     * @return false if the row filter of the sstable tells it has none of the rows queried by the given filter and no
+     * deletion that could shadow them. Static rows aren't in row filters.
+     */
+    private boolean mayContainRows(SSTableReader sstable, ClusteringIndexNamesFilter filter)
+    {
+        if (!columnFilter().fetchedColumns().statics.isEmpty())
+            return true;
+
+        return sstable.mayContainRows(partitionKey(), filter.requestedRows());
+    }
+
     private UnfilteredRowIteratorWithLowerBound makeIterator(ColumnFamilyStore cfs, final SSTableReader sstable, boolean applyThriftTransformation)
     {
         return StorageHook.instance.makeRowIteratorWithLowerBound(cfs,
@@ -744,6 +763,9 @@ public class SinglePartitionReadCommand extends ReadCommand
             if (filter == null)
                 break;
 
+            if (!mayContainRows(sstable, filter))
+                continue; // nothing queried is in the sstable, and it has no deletion that could shadow it
+
             if (!shouldInclude(sstable))
             {
                 // This mean that nothing queried by the filter can be in the sstable. One exception is the top-level partition deletion
@@ -27,6 +27,7 @@ import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.filter.ColumnFilter;
 import org.apache.cassandra.db.rows.*;
 import org.apache.cassandra.io.sstable.IndexInfo;
+import org.apache.cassandra.io.sstable.RowIndex;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.sstable.CorruptSSTableException;
 import org.apache.cassandra.io.util.FileDataInput;
@@ -446,6 +447,8 @@ public abstract class AbstractSSTableIterator implements UnfilteredRowIterator
 
         private final RowIndexEntry indexEntry;
         private final RowIndexEntry.IndexInfoRetriever indexInfoRetriever;
+        // the on-disk tree of the column index, if the partition has one
+        private final RowIndex.Searcher rowIndex;
         private final boolean reversed;
 
         private int currentIndexIdx;
@@ -454,11 +457,17 @@ public abstract class AbstractSSTableIterator implements UnfilteredRowIterator
         private DataPosition mark;
 
         public IndexState(Reader reader, ClusteringComparator comparator, RowIndexEntry indexEntry, boolean reversed, FileHandle indexFile)
+        {
+            this(reader, comparator, indexEntry, reversed, indexFile, null);
+        }
+
+        public IndexState(Reader reader, ClusteringComparator comparator, RowIndexEntry indexEntry, boolean reversed, FileHandle indexFile, RowIndex.Searcher rowIndex)
         {
             this.reader = reader;
             this.comparator = comparator;
             this.indexEntry = indexEntry;
             this.indexInfoRetriever = indexEntry.openWithIndex(indexFile);
+            this.rowIndex = rowIndex;
             this.reversed = reversed;
             this.currentIndexIdx = reversed ? indexEntry.columnsIndexCount() : -1;
         }
@@ -492,6 +501,21 @@ public abstract class AbstractSSTableIterator implements UnfilteredRowIterator
             return indexEntry.columnsIndexCount();
         }
 
+        /**
+         * Starts reading the data of the given blocks asynchronously, so that the chunks they span are read in
+         * parallel rather than one after the other as the blocks are consumed. Forward reads consume the blocks from
+         * the first one, and reversed reads from the last one, so the prefetched data starts with that block.
+         */
+        public void prefetch(SSTableReader sstable, int fromBlockIdx, int toBlockIdx) throws IOException
+        {
+            if (fromBlockIdx < 0 || toBlockIdx >= blocksCount() || fromBlockIdx > toBlockIdx)
+                return;
+
+            IndexInfo last = index(toBlockIdx);
+            long start = columnOffset(fromBlockIdx);
+            sstable.prefetchData(start, indexEntry.position + last.offset + last.width, reversed ? columnOffset(toBlockIdx) : start);
+        }
+
         // Update the block idx based on the current reader position if we're past the current block.
         // This only makes sense for forward iteration (for reverse ones, when we reach the end of a block we
         // should seek to the previous one, not update the index state and continue).
@@ -567,6 +591,11 @@ public abstract class AbstractSSTableIterator implements UnfilteredRowIterator
 
         public int indexFor(ClusteringPrefix name, int lastIndex) throws IOException
         {
+            // the tree finds the block without deserializing any IndexInfo, the search is then restricted like below
+            if (rowIndex != null)
+                return reversed ? Math.min(rowIndex.lastBlockNotAfter(name), lastIndex)
+                                : Math.max(rowIndex.firstBlockNotBefore(name), lastIndex);
+
             IndexInfo target = new IndexInfo(name, name, 0, 0, null);
             /*
             Take the example from the unit test, and say your index looks like this:
@@ -629,6 +658,8 @@ public abstract class AbstractSSTableIterator implements UnfilteredRowIterator
         public void close() throws IOException
         {
             indexInfoRetriever.close();
+            if (rowIndex != null)
+                rowIndex.close();
         }
     }
 }
@@ -179,11 +179,12 @@ public class SSTableIterator extends AbstractSSTableIterator
         private final IndexState indexState;
 
         private int lastBlockIdx; // the last index block that has data for the current query
+        private int firstBlockIdx; // the first index block of the current slice, or -1 once its other blocks are prefetched
 
         private ForwardIndexedReader(RowIndexEntry indexEntry, FileDataInput file, boolean shouldCloseFile)
         {
             super(file, shouldCloseFile);
-            this.indexState = new IndexState(this, sstable.metadata.comparator, indexEntry, false, ifile);
+            this.indexState = new IndexState(this, sstable.metadata.comparator, indexEntry, false, ifile, sstable.openRowIndex(indexEntry));
             this.lastBlockIdx = indexState.blocksCount(); // if we never call setForSlice, that's where we want to stop
         }
 
@@ -229,6 +230,8 @@ public class SSTableIterator extends AbstractSSTableIterator
             if (startIdx < 0)
                 startIdx = 0;
 
+            firstBlockIdx = startIdx;
+
             // If that's the last block we were reading, we're already where we want to be. Otherwise,
             // seek to that first block
             if (startIdx != indexState.currentBlockIdx())
@@ -258,6 +261,14 @@ public class SSTableIterator extends AbstractSSTableIterator
             // If we read from the beginning of the partition, this is also what will initialize the index state.
             indexState.updateBlock();
 
+            // Once the slice needs more than its first block, prefetch the others. Slices of a single row, or reads of
+            // the first rows only, never get there, and don't read what they won't use.
+            if (firstBlockIdx >= 0 && indexState.currentBlockIdx() > firstBlockIdx && indexState.currentBlockIdx() <= lastBlockIdx)
+            {
+                indexState.prefetch(sstable, indexState.currentBlockIdx(), Math.min(lastBlockIdx, indexState.blocksCount() - 1));
+                firstBlockIdx = -1;
+            }
+
             // Return the next unfiltered unless we've reached the end, or we're beyond our slice
             // end (note that unless we're on the last block for the slice, there is no point
             // in checking the slice end).
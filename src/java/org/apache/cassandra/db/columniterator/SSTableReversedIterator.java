@@ -202,11 +202,13 @@ public class SSTableReversedIterator extends AbstractSSTableIterator
         private Slice slice;
         // The last index block to consider for the slice
         private int lastBlockIdx;
+        // Whether the blocks of the slice after its first one have been prefetched
+        private boolean prefetched;
 
         private ReverseIndexedReader(RowIndexEntry indexEntry, FileDataInput file, boolean shouldCloseFile)
         {
             super(file, shouldCloseFile);
-            this.indexState = new IndexState(this, sstable.metadata.comparator, indexEntry, true, ifile);
+            this.indexState = new IndexState(this, sstable.metadata.comparator, indexEntry, true, ifile, sstable.openRowIndex(indexEntry));
         }
 
         @Override
@@ -250,6 +252,8 @@ public class SSTableReversedIterator extends AbstractSSTableIterator
             if (startIdx >= indexState.blocksCount())
                 startIdx = indexState.blocksCount() - 1;
 
+            prefetched = false;
+
             if (startIdx != indexState.currentBlockIdx())
             {
                 indexState.setToBlock(startIdx);
@@ -270,6 +274,14 @@ public class SSTableReversedIterator extends AbstractSSTableIterator
             if (previousBlockIdx < 0 || previousBlockIdx < lastBlockIdx)
                 return false;
 
+            // Once the slice needs more than its first block, prefetch the others. Slices of a single row, or reads of
+            // the last rows only, never get there, and don't read what they won't use.
+            if (!prefetched)
+            {
+                indexState.prefetch(sstable, Math.max(lastBlockIdx, 0), previousBlockIdx);
+                prefetched = true;
+            }
+
             // The slice start can be in 
             indexState.setToBlock(previousBlockIdx);
             readCurrentBlock(false);
@@ -219,7 +219,8 @@ public class CommitLogDescriptor
             case VERSION_22:
                 return MessagingService.VERSION_22;
             case VERSION_30:
-                return MessagingService.VERSION_30;
+                // the serialization of mutations is the same in 3.0 and 3.11
+                return MessagingService.VERSION_311;
             default:
                 throw new IllegalStateException("Unknown commitlog version " + version);
         }
@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.partitions.PurgeFunction;
 import org.apache.cassandra.db.partitions.UnfilteredPartitionIterator;
@@ -60,6 +61,7 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
     private final List<ISSTableScanner> scanners;
     private final int nowInSec;
     private final UUID compactionId;
+    private final boolean skipPageCache;
 
     private final long totalBytes;
     private long bytesRead;
@@ -88,6 +90,7 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
         this.scanners = scanners;
         this.nowInSec = nowInSec;
         this.compactionId = compactionId;
+        this.skipPageCache = DatabaseDescriptor.skipPageCache(type);
         this.bytesRead = 0;
 
         long bytes = 0;
@@ -223,7 +226,11 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
     {
         long n = 0;
         for (ISSTableScanner scanner : scanners)
+        {
             n += scanner.getCurrentPosition();
+            if (skipPageCache)
+                scanner.dropPageCacheBehind();
+        }
         bytesRead = n;
     }
 
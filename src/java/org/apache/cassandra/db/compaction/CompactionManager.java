@@ -46,7 +46,9 @@ import org.apache.cassandra.db.compaction.CompactionInfo.Holder;
 import org.apache.cassandra.db.lifecycle.LifecycleTransaction;
 import org.apache.cassandra.db.lifecycle.SSTableSet;
 import org.apache.cassandra.db.lifecycle.View;
+import org.apache.cassandra.db.filter.ColumnFilter;
 import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.db.rows.UnfilteredRowIterators;
 import org.apache.cassandra.db.view.ViewBuilder;
 import org.apache.cassandra.dht.Bounds;
 import org.apache.cassandra.dht.Range;
@@ -55,6 +57,7 @@ import org.apache.cassandra.index.SecondaryIndexBuilder;
 import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.ISSTableScanner;
 import org.apache.cassandra.io.sstable.IndexSummaryRedistribution;
+import org.apache.cassandra.io.sstable.PartitionHashes;
 import org.apache.cassandra.io.sstable.SSTableRewriter;
 import org.apache.cassandra.io.sstable.SnapshotDeletingTask;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
@@ -1233,20 +1236,42 @@ public class CompactionManager implements CompactionManagerMBean
             // determine tree depth from number of partitions, but cap at 20 to prevent large tree.
             MerkleTrees tree = createMerkleTrees(sstables, validator.desc.ranges, cfs);
             long start = System.nanoTime();
-            try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategyManager().getScanners(sstables, validator.desc.ranges);
-                 ValidationCompactionController controller = new ValidationCompactionController(cfs, gcBefore);
-                 CompactionIterator ci = new ValidationCompactionIterator(scanners.scanners, controller, nowInSec, metrics))
+            try
             {
-                // validate the CF as we iterate over it
                 validator.prepare(cfs, tree);
-                while (ci.hasNext())
+                List<Collection<Range<Token>>> rangeGroups = splitRanges(validator.desc.ranges, DatabaseDescriptor.getValidationParallelism());
+                if (rangeGroups.size() == 1)
+                {
+                    validateRanges(cfs, sstables, validator.desc.ranges, validator, gcBefore, nowInSec);
+                }
+                else
                 {
-                    if (ci.isStopRequested())
-                        throw new CompactionInterruptedException(ci.getCompactionInfo());
-                    try (UnfilteredRowIterator partition = ci.next())
+                    // the trees of the ranges are independent, so we build those of each group of ranges concurrently
+                    final Refs<SSTableReader> toValidate = sstables;
+                    final int validationGcBefore = gcBefore;
+                    List<Future<?>> futures = new ArrayList<>(rangeGroups.size());
+                    for (Collection<Range<Token>> ranges : rangeGroups)
+                    {
+                        Validator rangeValidator = validator.forRanges(ranges);
+                        futures.add(validationExecutor.submit(() -> {
+                            validateRanges(cfs, toValidate, ranges, rangeValidator, validationGcBefore, nowInSec);
+                            return null;
+                        }));
+                    }
+                    // wait for all the groups, even if one fails, as they use the referenced sstables
+                    Throwable failure = null;
+                    for (Future<?> future : futures)
                     {
-                        validator.add(partition);
+                        try
+                        {
+                            Uninterruptibles.getUninterruptibly(future);
+                        }
+                        catch (ExecutionException e)
+                        {
+                            failure = Throwables.merge(failure, e.getCause());
+                        }
                     }
+                    Throwables.maybeFail(failure, IOException.class);
                 }
                 validator.complete();
             }
@@ -1275,6 +1300,160 @@ public class CompactionManager implements CompactionManagerMBean
         }
     }
 
+    private void validateRanges(ColumnFamilyStore cfs, Refs<SSTableReader> sstables, Collection<Range<Token>> ranges,
+                                Validator validator, int gcBefore, int nowInSec) throws IOException
+    {
+        if (validator.useMurmur3Hash)
+        {
+            List<PartitionHashes.Reader> hashes = PartitionHashes.openAll(sstables, gcBefore, nowInSec);
+            if (hashes != null)
+            {
+                try
+                {
+                    validateRanges(cfs, sstables, hashes, ranges, validator, nowInSec);
+                }
+                finally
+                {
+                    hashes.forEach(FileUtils::closeQuietly);
+                }
+                return;
+            }
+        }
+
+        try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategyManager().getScanners(sstables, ranges);
+             ValidationCompactionController controller = new ValidationCompactionController(cfs, gcBefore);
+             CompactionIterator ci = new ValidationCompactionIterator(scanners.scanners, controller, nowInSec, metrics))
+        {
+            // validate the CF as we iterate over it
+            while (ci.hasNext())
+            {
+                if (ci.isStopRequested())
+                    throw new CompactionInterruptedException(ci.getCompactionInfo());
+                try (UnfilteredRowIterator partition = ci.next())
+                {
+                    validator.add(partition);
+                }
+            }
+        }
+    }
+
+    /**
+     * Validates the given ranges with the precomputed hashes of the partitions of the sstables, only reading the
+     * partitions found in several sstables, which have to be merged before being hashed. Only the hashes of the
+     * partitions of the ranges are read.
+     */
+    private void validateRanges(ColumnFamilyStore cfs, Refs<SSTableReader> sstables, List<PartitionHashes.Reader> hashes,
+                                Collection<Range<Token>> ranges, Validator validator, int nowInSec)
+    {
+        Comparator<PartitionHashes.Entry> comparator = (e1, e2) -> e1.key.compareTo(e2.key);
+        PartitionHashesValidationInfo info = new PartitionHashesValidationInfo(cfs.metadata, sstables, ranges);
+        metrics.beginCompaction(info);
+        try
+        {
+            for (Range<Token> range : Range.normalize(ranges))
+            {
+                List<CloseableIterator<PartitionHashes.Entry>> entries = new ArrayList<>(hashes.size());
+                for (PartitionHashes.Reader reader : hashes)
+                    entries.add(reader.entries(range));
+
+                try (CloseableIterator<List<PartitionHashes.Entry>> partitions = MergeIterator.get(entries, comparator, new PartitionHashesReducer()))
+                {
+                    while (partitions.hasNext())
+                    {
+                        if (info.isStopRequested())
+                            throw new CompactionInterruptedException(info.getCompactionInfo());
+
+                        List<PartitionHashes.Entry> partitionEntries = partitions.next();
+                        info.partitions++;
+                        DecoratedKey key = partitionEntries.get(0).key;
+                        if (partitionEntries.size() == 1)
+                        {
+                            PartitionHashes.Entry entry = partitionEntries.get(0);
+                            validator.add(key, entry.hash, entry.size);
+                            continue;
+                        }
+
+                        List<UnfilteredRowIterator> iterators = new ArrayList<>(partitionEntries.size());
+                        for (PartitionHashes.Entry entry : partitionEntries)
+                            iterators.add(entry.sstable.iterator(key, Slices.ALL, ColumnFilter.all(cfs.metadata), false, false));
+                        try (UnfilteredRowIterator partition = UnfilteredRowIterators.merge(iterators, nowInSec))
+                        {
+                            validator.add(partition);
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            metrics.finishCompaction(info);
+        }
+    }
+
+    /**
+     * The progress of a validation with the precomputed hashes of partitions, in partitions.
+     */
+    private static class PartitionHashesValidationInfo extends CompactionInfo.Holder
+    {
+        private final CFMetaData metadata;
+        private final long estimatedPartitions;
+        private final UUID validationId = UUIDGen.getTimeUUID();
+        private volatile long partitions;
+
+        private PartitionHashesValidationInfo(CFMetaData metadata, Iterable<SSTableReader> sstables, Collection<Range<Token>> ranges)
+        {
+            this.metadata = metadata;
+            long estimatedPartitions = 0;
+            for (SSTableReader sstable : sstables)
+                estimatedPartitions += sstable.estimatedKeysForRanges(ranges);
+            this.estimatedPartitions = estimatedPartitions;
+        }
+
+        public CompactionInfo getCompactionInfo()
+        {
+            return new CompactionInfo(metadata, OperationType.VALIDATION, partitions, estimatedPartitions, "keys", validationId);
+        }
+    }
+
+    private static class PartitionHashesReducer extends MergeIterator.Reducer<PartitionHashes.Entry, List<PartitionHashes.Entry>>
+    {
+        private final List<PartitionHashes.Entry> entries = new ArrayList<>();
+
+        public void reduce(int idx, PartitionHashes.Entry current)
+        {
+            entries.add(current);
+        }
+
+        protected List<PartitionHashes.Entry> getReduced()
+        {
+            return new ArrayList<>(entries);
+        }
+
+        @Override
+        protected void onKeyChange()
+        {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Splits the given ranges in at most {@code parallelism} groups of as many ranges, to validate them concurrently.
+     */
+    private static List<Collection<Range<Token>>> splitRanges(Collection<Range<Token>> ranges, int parallelism)
+    {
+        int groups = Math.min(parallelism, ranges.size());
+        if (groups <= 1)
+            return Collections.singletonList(ranges);
+
+        List<Collection<Range<Token>>> rangeGroups = new ArrayList<>(groups);
+        for (int i = 0; i < groups; i++)
+            rangeGroups.add(new ArrayList<>());
+        int i = 0;
+        for (Range<Token> range : ranges)
+            rangeGroups.get(i++ % groups).add(range);
+        return rangeGroups;
+    }
+
     private static MerkleTrees createMerkleTrees(Iterable<SSTableReader> sstables, Collection<Range<Token>> ranges, ColumnFamilyStore cfs)
     {
         MerkleTrees tree = new MerkleTrees(cfs.getPartitioner());
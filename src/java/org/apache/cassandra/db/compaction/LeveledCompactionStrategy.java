@@ -412,6 +412,12 @@ public class LeveledCompactionStrategy extends AbstractCompactionStrategy
         {
             return Joiner.on(", ").join(sstables);
         }
+
+        public void dropPageCacheBehind()
+        {
+            if (currentScanner != null)
+                currentScanner.dropPageCacheBehind();
+        }
     }
 
     @Override
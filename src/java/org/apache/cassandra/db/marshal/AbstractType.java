@@ -173,6 +173,35 @@ public abstract class AbstractType<T> implements Comparator<ByteBuffer>, Assignm
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Returns the byte-comparable representation of the provided value: comparing the representations of two
+     * values as unsigned bytes (with {@link FastByteOperations#compareUnsigned}) gives the same result as
+     * comparing the values with {@link #compare}, and the representation of a value is never a prefix of the
+     * representation of another value of this type.
+     *
+     * Note that the representation is not meant to be decoded back into the value.
+     */
+    public ByteBuffer asComparableBytes(ByteBuffer value)
+    {
+        ComparableBytes bytes = new ComparableBytes(value.remaining() + 2);
+        writeComparableBytes(value, bytes);
+        return bytes.toByteBuffer();
+    }
+
+    /**
+     * Writes the byte-comparable representation of the provided value (see {@link #asComparableBytes}).
+     *
+     * Types compared by their unsigned bytes get this for free, CUSTOM types must override it to support
+     * byte-comparable representations.
+     */
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (comparisonType != ComparisonType.BYTE_ORDER)
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " has no byte-comparable representation");
+
+        bytes.writeEscaped(value);
+    }
+
     /**
      * Validate cell value. Unlike {@linkplain #validate(java.nio.ByteBuffer)},
      * cell value is passed to validate its content.
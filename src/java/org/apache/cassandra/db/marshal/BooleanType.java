@@ -55,6 +55,12 @@ public class BooleanType extends AbstractType<Boolean>
         return b2 == 0 ? 1 : 0;
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (bytes.writePresence(value))
+            bytes.writeByte(value.get(value.position()) == 0 ? 0 : 1);
+    }
+
     public ByteBuffer fromString(String source) throws MarshalException
     {
 
@@ -41,6 +41,12 @@ public class ByteType extends AbstractType<Byte>
         return o1.get(o1.position()) - o2.get(o2.position());
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (bytes.writePresence(value))
+            bytes.writeSigned(value);
+    }
+
     public ByteBuffer fromString(String source) throws MarshalException
     {
         // Return an empty ByteBuffer for an empty string.
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.marshal;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+/**
+ * Builds the byte-comparable representation of a value (see {@link AbstractType#asComparableBytes}).
+ *
+ * The representations written through this class are compared as sequences of unsigned bytes, and the
+ * representation of a single value is never a prefix of the representation of another value of the same type.
+ * This allows multi-component values to simply concatenate the representations of their components.
+ */
+public final class ComparableBytes
+{
+    /**
+     * Written first for the empty value of types that also accept non-empty values, which always sorts first.
+     */
+    public static final int EMPTY = 0x00;
+    /**
+     * Written first for a non-empty value of a type that accepts empty values.
+     */
+    public static final int PRESENT = 0x01;
+
+    /**
+     * Separates a component from the previous one in sequences of components, like collection elements.
+     */
+    public static final int NEXT_COMPONENT = 0x01;
+    /**
+     * Ends a sequence of components. Sorts before {@link #NEXT_COMPONENT} so that a sequence sorts before any
+     * longer sequence it is a prefix of.
+     */
+    public static final int END_OF_COMPONENTS = 0x00;
+
+    private byte[] bytes;
+    private int length;
+
+    public ComparableBytes(int initialCapacity)
+    {
+        bytes = new byte[Math.max(initialCapacity, 8)];
+    }
+
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * Discards everything written so far, so that this can be reused for another value.
+     */
+    public void clear()
+    {
+        length = 0;
+    }
+
+    private void ensureCapacity(int extra)
+    {
+        if (length + extra > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+    }
+
+    public void writeByte(int b)
+    {
+        ensureCapacity(1);
+        bytes[length++] = (byte) b;
+    }
+
+    /**
+     * Writes whether the value is empty or not, for types whose empty value sorts before any other value.
+     *
+     * @return whether the value is non-empty, in which case the representation of its content must follow.
+     */
+    public boolean writePresence(ByteBuffer value)
+    {
+        boolean present = value.hasRemaining();
+        writeByte(present ? PRESENT : EMPTY);
+        return present;
+    }
+
+    public void writeInt(int v)
+    {
+        ensureCapacity(4);
+        bytes[length++] = (byte) (v >>> 24);
+        bytes[length++] = (byte) (v >>> 16);
+        bytes[length++] = (byte) (v >>> 8);
+        bytes[length++] = (byte) v;
+    }
+
+    public void writeLong(long v)
+    {
+        writeInt((int) (v >>> 32));
+        writeInt((int) v);
+    }
+
+    /**
+     * Copies the remaining bytes of {@code value} starting {@code offset} bytes after its position, as is.
+     * This is only prefix-free for values whose length is implied by what was written before them.
+     */
+    public void write(ByteBuffer value, int offset)
+    {
+        int size = value.remaining() - offset;
+        ensureCapacity(size);
+        ByteBufferUtil.arrayCopy(value, value.position() + offset, bytes, length, size);
+        length += size;
+    }
+
+    /**
+     * Writes a two's complement, big-endian number of fixed size so that signed numbers compare as unsigned bytes.
+     */
+    public void writeSigned(ByteBuffer value)
+    {
+        int start = length;
+        write(value, 0);
+        bytes[start] ^= 0x80;
+    }
+
+    /**
+     * Writes a sequence of bytes compared as unsigned bytes, and of any length.
+     *
+     * Every 0x00 byte is escaped as 0x00 0xFF and the sequence is terminated by 0x00 0x00, so that a sequence
+     * sorts before any longer sequence it is a prefix of while no representation is a prefix of another.
+     */
+    public void writeEscaped(ByteBuffer value)
+    {
+        int position = value.position();
+        int limit = value.limit();
+        ensureCapacity(limit - position + 2);
+        for (int i = position; i < limit; i++)
+        {
+            byte b = value.get(i);
+            if (b == 0)
+            {
+                ensureCapacity(limit - i + 3);
+                bytes[length++] = 0;
+                bytes[length++] = (byte) 0xFF;
+            }
+            else
+            {
+                bytes[length++] = b;
+            }
+        }
+        bytes[length++] = 0;
+        bytes[length++] = 0;
+    }
+
+    /**
+     * Inverts all the bytes written since {@code start}, which reverses the order of a prefix-free representation.
+     */
+    public void invertFrom(int start)
+    {
+        for (int i = start; i < length; i++)
+            bytes[i] = (byte) ~bytes[i];
+    }
+
+    public ByteBuffer toByteBuffer()
+    {
+        return ByteBuffer.wrap(bytes, 0, length);
+    }
+}
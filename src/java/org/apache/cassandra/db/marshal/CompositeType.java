@@ -98,6 +98,30 @@ public class CompositeType extends AbstractCompositeType
         return true;
     }
 
+    /**
+     * Note that legacy composites ending with a ColumnToCollectionType, whose last component is compared
+     * depending on the previous one, have no byte-comparable representation.
+     */
+    @Override
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        ByteBuffer bb = value.duplicate();
+        // static names sort before all others
+        bytes.writeByte(readStatic(bb) ? 0 : 1);
+        for (int i = 0; bb.remaining() > 0; i++)
+        {
+            bytes.writeByte(ComparableBytes.NEXT_COMPONENT);
+            AbstractType<?> comparator = getComparator(i, bb);
+            comparator.writeComparableBytes(ByteBufferUtil.readBytesWithShortLength(bb), bytes);
+            // the end-of-component byte is compared signed
+            bytes.writeByte(bb.get() ^ 0x80);
+        }
+        bytes.writeByte(ComparableBytes.END_OF_COMPONENTS);
+    }
+
     public static CompositeType getInstance(List<AbstractType<?>> types)
     {
         assert types != null && !types.isEmpty();
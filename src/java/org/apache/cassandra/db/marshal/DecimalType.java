@@ -47,6 +47,31 @@ public class DecimalType extends AbstractType<BigDecimal>
         return compose(o1).compareTo(compose(o2));
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        // BigDecimal.compareTo() ignores the scale, so the representation is built from the sign, the decimal
+        // exponent and the significant digits of the value, all of which are inverted for negative values.
+        BigDecimal decimal = compose(value);
+        int signum = decimal.signum();
+        bytes.writeByte(signum + 1);
+        if (signum == 0)
+            return;
+
+        decimal = decimal.stripTrailingZeros();
+        int start = bytes.length();
+        // the exponent of the first significant digit; the greater it is, the greater the magnitude
+        bytes.writeInt((decimal.precision() - decimal.scale()) ^ Integer.MIN_VALUE);
+        String digits = decimal.unscaledValue().abs().toString();
+        for (int i = 0; i < digits.length(); i++)
+            bytes.writeByte(digits.charAt(i) - '0' + 1);
+        bytes.writeByte(0);
+        if (signum < 0)
+            bytes.invertFrom(start);
+    }
+
     public ByteBuffer fromString(String source) throws MarshalException
     {
         // Return an empty ByteBuffer for an empty string.
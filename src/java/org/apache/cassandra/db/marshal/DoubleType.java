@@ -46,6 +46,16 @@ public class DoubleType extends AbstractType<Double>
         return compose(o1).compareTo(compose(o2));
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        // Same as FloatType
+        long bits = Double.doubleToLongBits(value.getDouble(value.position()));
+        bytes.writeLong(bits ^ ((bits >> 63) | Long.MIN_VALUE));
+    }
+
     public ByteBuffer fromString(String source) throws MarshalException
     {
       // Return an empty ByteBuffer for an empty string.
@@ -42,6 +42,11 @@ public class EmptyType extends AbstractType<Void>
         return 0;
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        // all values are equal
+    }
+
     public String getString(ByteBuffer bytes)
     {
         return "";
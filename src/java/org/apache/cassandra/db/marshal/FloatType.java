@@ -47,6 +47,17 @@ public class FloatType extends AbstractType<Float>
         return compose(o1).compareTo(compose(o2));
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        // Float.compareTo() orders the canonical bits of the values; flipping the sign bit of positive values
+        // and all the bits of negative ones makes that order the unsigned one.
+        int bits = Float.floatToIntBits(value.getFloat(value.position()));
+        bytes.writeInt(bits ^ ((bits >> 31) | Integer.MIN_VALUE));
+    }
+
     public ByteBuffer fromString(String source) throws MarshalException
     {
       // Return an empty ByteBuffer for an empty string.
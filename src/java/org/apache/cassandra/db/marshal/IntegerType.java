@@ -70,6 +70,21 @@ public final class IntegerType extends AbstractType<BigInteger>
         return IntegerType.compareIntegers(lhs, rhs);
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        // Numbers with more significant bytes have a greater magnitude, so the sign goes first, then the number
+        // of significant bytes (inverted for negative numbers) and finally the significant bytes themselves.
+        int msbIdx = findMostSignificantByte(value);
+        int length = value.remaining() - msbIdx;
+        boolean negative = value.get(value.position() + msbIdx) < 0;
+        bytes.writeByte(negative ? 0 : 1);
+        bytes.writeInt(negative ? ~length : length);
+        bytes.write(value, msbIdx);
+    }
+
     public static int compareIntegers(ByteBuffer lhs, ByteBuffer rhs)
     {
         int lhsLen = lhs.remaining();
@@ -50,6 +50,16 @@ public class LexicalUUIDType extends AbstractType<UUID>
         return UUIDGen.getUUID(o1).compareTo(UUIDGen.getUUID(o2));
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        // UUID.compareTo() compares both halves as signed longs
+        bytes.writeLong(value.getLong(value.position()) ^ Long.MIN_VALUE);
+        bytes.writeLong(value.getLong(value.position() + 8) ^ Long.MIN_VALUE);
+    }
+
     public ByteBuffer fromString(String source) throws MarshalException
     {
         // Return an empty ByteBuffer for an empty string.
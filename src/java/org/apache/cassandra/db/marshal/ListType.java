@@ -171,6 +171,28 @@ public class ListType<T> extends CollectionType<List<T>>
         return size1 == size2 ? 0 : (size1 < size2 ? -1 : 1);
     }
 
+    @Override
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        writeListOrSetComparableBytes(elements, value, bytes);
+    }
+
+    static void writeListOrSetComparableBytes(AbstractType<?> elementsComparator, ByteBuffer value, ComparableBytes bytes)
+    {
+        // Note that like compareListOrSet, this is only meaningful if the collection is frozen
+        if (!bytes.writePresence(value))
+            return;
+
+        ByteBuffer bb = value.duplicate();
+        int size = CollectionSerializer.readCollectionSize(bb, 3);
+        for (int i = 0; i < size; i++)
+        {
+            bytes.writeByte(ComparableBytes.NEXT_COMPONENT);
+            elementsComparator.writeComparableBytes(CollectionSerializer.readValue(bb, 3), bytes);
+        }
+        bytes.writeByte(ComparableBytes.END_OF_COMPONENTS);
+    }
+
     @Override
     public String toString(boolean ignoreFreezing)
     {
@@ -43,6 +43,12 @@ public class LongType extends AbstractType<Long>
         return compareLongs(o1, o2);
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (bytes.writePresence(value))
+            bytes.writeSigned(value);
+    }
+
     public static int compareLongs(ByteBuffer o1, ByteBuffer o2)
     {
         if (!o1.hasRemaining() || !o2.hasRemaining())
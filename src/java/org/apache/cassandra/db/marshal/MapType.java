@@ -185,6 +185,24 @@ public class MapType<K, V> extends CollectionType<Map<K, V>>
         return size1 == size2 ? 0 : (size1 < size2 ? -1 : 1);
     }
 
+    @Override
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        ByteBuffer bb = value.duplicate();
+        int protocolVersion = Server.VERSION_3;
+        int size = CollectionSerializer.readCollectionSize(bb, protocolVersion);
+        for (int i = 0; i < size; i++)
+        {
+            bytes.writeByte(ComparableBytes.NEXT_COMPONENT);
+            keys.writeComparableBytes(CollectionSerializer.readValue(bb, protocolVersion), bytes);
+            values.writeComparableBytes(CollectionSerializer.readValue(bb, protocolVersion), bytes);
+        }
+        bytes.writeByte(ComparableBytes.END_OF_COMPONENTS);
+    }
+
     @Override
     public MapSerializer<K, V> getSerializer()
     {
@@ -81,6 +81,17 @@ public class ReversedType<T> extends AbstractType<T>
         return baseType.compare(o2, o1);
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        // An empty byte buffer is always smaller
+        if (!bytes.writePresence(value))
+            return;
+
+        int start = bytes.length();
+        baseType.writeComparableBytes(value, bytes);
+        bytes.invertFrom(start);
+    }
+
     @Override
     public int compareForCQL(ByteBuffer v1, ByteBuffer v2)
     {
@@ -136,6 +136,12 @@ public class SetType<T> extends CollectionType<Set<T>>
         return ListType.compareListOrSet(elements, o1, o2);
     }
 
+    @Override
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        ListType.writeListOrSetComparableBytes(elements, value, bytes);
+    }
+
     public SetSerializer<T> getSerializer()
     {
         return serializer;
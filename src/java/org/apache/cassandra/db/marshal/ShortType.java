@@ -45,6 +45,12 @@ public class ShortType extends AbstractType<Short>
         return ByteBufferUtil.compareUnsigned(o1, o2);
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (bytes.writePresence(value))
+            bytes.writeSigned(value);
+    }
+
     public ByteBuffer fromString(String source) throws MarshalException
     {
         // Return an empty ByteBuffer for an empty string.
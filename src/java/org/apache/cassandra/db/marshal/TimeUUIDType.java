@@ -75,6 +75,16 @@ public class TimeUUIDType extends AbstractType<UUID>
         return Long.compare(lsb1, lsb2);
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        // the reordered timestamp is positive, and the bytes of the least significant half are compared signed
+        bytes.writeLong(reorderTimestampBytes(value.getLong(value.position())));
+        bytes.writeLong(value.getLong(value.position() + 8) ^ 0x8080808080808080L);
+    }
+
     // takes as input 8 signed bytes in native machine order
     // returns the first byte unchanged, and the following 7 bytes converted to an unsigned representation
     // which is the same as a 2's complement long in native format
@@ -55,6 +55,12 @@ public class TimestampType extends AbstractType<Date>
         return LongType.compareLongs(o1, o2);
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (bytes.writePresence(value))
+            bytes.writeSigned(value);
+    }
+
     public ByteBuffer fromString(String source) throws MarshalException
     {
       // Return an empty ByteBuffer for an empty string.
@@ -144,6 +144,40 @@ public class TupleType extends AbstractType<ByteBuffer>
         return 0;
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        // Trailing nulls and empty values are ignored by compareCustom, so they are not written either. Nulls
+        // sort before any other value of the component.
+        ByteBuffer bb = value.duplicate();
+        int end = bb.position();
+        for (ByteBuffer scan = value.duplicate(); scan.remaining() > 0; )
+        {
+            int size = scan.getInt();
+            if (size > 0)
+            {
+                scan.position(scan.position() + size);
+                end = scan.position();
+            }
+        }
+
+        for (int i = 0; bb.position() < end; i++)
+        {
+            bytes.writeByte(ComparableBytes.NEXT_COMPONENT);
+            int size = bb.getInt();
+            if (size < 0)
+            {
+                bytes.writeByte(0);
+                continue;
+            }
+            bytes.writeByte(1);
+            types.get(i).writeComparableBytes(ByteBufferUtil.readBytes(bb, size), bytes);
+        }
+        bytes.writeByte(ComparableBytes.END_OF_COMPONENTS);
+    }
+
     @Override
     public void validate(ByteBuffer bytes) throws MarshalException
     {
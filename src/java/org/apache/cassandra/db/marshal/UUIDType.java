@@ -101,6 +101,18 @@ public class UUIDType extends AbstractType<UUID>
         return UnsignedLongs.compare(b1.getLong(s1 + 8), b2.getLong(s2 + 8));
     }
 
+    public void writeComparableBytes(ByteBuffer value, ComparableBytes bytes)
+    {
+        if (!bytes.writePresence(value))
+            return;
+
+        long msb = value.getLong(value.position());
+        int version = (int) ((msb >>> 12) & 0xf);
+        bytes.writeByte(version);
+        bytes.writeLong(version == 1 ? TimeUUIDType.reorderTimestampBytes(msb) : msb);
+        bytes.writeLong(value.getLong(value.position() + 8));
+    }
+
     @Override
     public boolean isValueCompatibleWithInternal(AbstractType<?> otherType)
     {
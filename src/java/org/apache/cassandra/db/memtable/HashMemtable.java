@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.memtable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.commitlog.CommitLogPosition;
+import org.apache.cassandra.db.partitions.AtomicBTreePartition;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+
+/**
+ * A write-optimized memtable, indexing its partitions in a {@link ConcurrentHashMap}.
+ *
+ * Writes and single partition reads do not need to maintain any ordering, and contend far less than on a skip list.
+ * In exchange, range reads and flushes have to sort the partitions they return, which makes this memtable a good fit
+ * for write-heavy tables that are mostly read by partition key.
+ */
+public class HashMemtable extends Memtable
+{
+    public static final Factory FACTORY = HashMemtable::new;
+
+    private static final int ROW_OVERHEAD_HEAP_SIZE = SkipListMemtable.estimateRowOverhead(new ConcurrentHashMap<>());
+
+    private static final Comparator<AtomicBTreePartition> BY_KEY = Comparator.comparing(AtomicBTreePartition::partitionKey);
+
+    private final ConcurrentHashMap<DecoratedKey, AtomicBTreePartition> partitions = new ConcurrentHashMap<>();
+
+    public HashMemtable(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs)
+    {
+        super(commitLogLowerBound, cfs);
+    }
+
+    public static Factory factory(Map<String, String> options)
+    {
+        if (!options.isEmpty())
+            throw new ConfigurationException("Unknown options for HashMemtable: " + options.keySet());
+        return FACTORY;
+    }
+
+    protected AtomicBTreePartition get(DecoratedKey key)
+    {
+        return partitions.get(key);
+    }
+
+    protected AtomicBTreePartition putIfAbsent(AtomicBTreePartition partition, OpOrder.Group opGroup)
+    {
+        return partitions.putIfAbsent(partition.partitionKey(), partition);
+    }
+
+    protected long partitionOverhead(DecoratedKey key)
+    {
+        return key.getToken().getHeapSize() + ROW_OVERHEAD_HEAP_SIZE;
+    }
+
+    protected Iterator<AtomicBTreePartition> partitionIterator(PartitionPosition from, boolean fromInclusive,
+                                                                PartitionPosition to, boolean toInclusive)
+    {
+        List<AtomicBTreePartition> selected = new ArrayList<>();
+        for (AtomicBTreePartition partition : partitions.values())
+        {
+            DecoratedKey key = partition.partitionKey();
+            if (from != null && (fromInclusive ? key.compareTo(from) < 0 : key.compareTo(from) <= 0))
+                continue;
+            if (to != null && (toInclusive ? key.compareTo(to) > 0 : key.compareTo(to) >= 0))
+                continue;
+            selected.add(partition);
+        }
+        selected.sort(BY_KEY);
+        return selected.iterator();
+    }
+
+    public int partitionCount()
+    {
+        return partitions.size();
+    }
+
+    public boolean isClean()
+    {
+        return partitions.isEmpty();
+    }
+}
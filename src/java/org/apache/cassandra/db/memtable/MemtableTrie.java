@@ -0,0 +1,744 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.memtable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.collect.AbstractIterator;
+
+import org.apache.cassandra.utils.ObjectSizes;
+import org.apache.cassandra.utils.memory.MemoryUtil;
+
+/**
+ * A trie mapping byte-comparable keys to on-heap values, whose structure lives entirely off-heap.
+ *
+ * The nodes of the trie are stored in 32-byte cells carved out of fixed size native memory blocks; only the
+ * values and a reference array pointing to them are kept on heap. Cells are never freed individually: the whole
+ * trie is released at once by {@link #discard()}, which is how a memtable uses it.
+ *
+ * The trie supports a single writer and any number of concurrent, lock-free readers. Published nodes are only
+ * ever modified in ways that are atomic for a reader (appending a child to a sparse node, filling an empty slot
+ * of a split node, or replacing a child pointer); any other change builds new nodes aside and publishes them with
+ * a single ordered write of the pointer that references them.
+ *
+ * A node pointer is an int. Zero means no node and negative values reference a value (its index in the
+ * content array, bit-inverted). Positive values are the byte offset of a cell, whose low 5 bits give the node type:
+ * <ul>
+ *   <li>0-27: chain node, i.e. a run of single-child transitions whose bytes are stored from the pointed position up to
+ *   offset 28 of the cell, followed by the pointer to the child at offset 28;</li>
+ *   <li>28: sparse node with up to 6 children: pointers at offsets 0-23, transition bytes at 24-29 and count at 30;</li>
+ *   <li>29: split node, a 4-8-8 radix tree of cells addressing any of the 256 possible transitions;</li>
+ *   <li>30: prefix node, holding a value (offset 0) for a key that is also the prefix of other keys (child at 4).</li>
+ * </ul>
+ * Cell 0 is reserved and holds the root pointer.
+ */
+public class MemtableTrie<T>
+{
+    static final int BLOCK_SHIFT = 16;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    // pointers are positive ints, so we can address at most 2GiB
+    private static final int MAX_BLOCKS = 1 << (31 - BLOCK_SHIFT);
+
+    static final int CELL_SIZE = 32;
+    private static final int TYPE_MASK = CELL_SIZE - 1;
+
+    private static final int NONE = 0;
+    private static final int ROOT = 0;
+
+    private static final int CHAIN_MAX_LENGTH = 28;
+    private static final int CHAIN_CHILD_OFFSET = 28;
+
+    private static final int SPARSE_OFFSET = 28;
+    private static final int SPARSE_CAPACITY = 6;
+    private static final int SPARSE_BYTES_OFFSET = 24;
+    private static final int SPARSE_COUNT_OFFSET = 30;
+
+    private static final int SPLIT_OFFSET = 29;
+
+    private static final int PREFIX_OFFSET = 30;
+    private static final int PREFIX_CHILD_OFFSET = 4;
+
+    private static final int CONTENT_CHUNK_SHIFT = 10;
+    private static final int CONTENT_CHUNK_SIZE = 1 << CONTENT_CHUNK_SHIFT;
+    private static final int CONTENT_CHUNK_MASK = CONTENT_CHUNK_SIZE - 1;
+    private static final long CONTENT_CHUNK_HEAP_SIZE = ObjectSizes.measure(new AtomicReferenceArray<>(0))
+                                                      + ObjectSizes.sizeOfReferenceArray(CONTENT_CHUNK_SIZE);
+
+    /**
+     * Where a range iteration starts or stops. The position of a bound is given by its bytes and its type:
+     * an {@code INCLUSIVE} or {@code EXCLUSIVE} bound sits on the key equal to its bytes, while an {@code AFTER_PREFIX}
+     * bound sits after all the keys that start with its bytes (so they are excluded from a range it starts, and
+     * included in a range it ends).
+     */
+    public static final class Bound
+    {
+        public enum Type { INCLUSIVE, EXCLUSIVE, AFTER_PREFIX }
+
+        final byte[] bytes;
+        final Type type;
+
+        public Bound(byte[] bytes, Type type)
+        {
+            this.bytes = bytes;
+            this.type = type;
+        }
+    }
+
+    // the native addresses of our memory blocks; reassigned on every new block to publish it to readers
+    private volatile long[] blocks = new long[0];
+    private int blockCount;
+    // the offset of the next free cell, only accessed by the writer
+    private int allocatedPos;
+
+    private volatile AtomicReferenceArray<T>[] content = newContentChunks(0);
+    private int contentCount;
+    private volatile int valuesCount;
+
+    /**
+     * @return the value associated with the given key, or null if there is none.
+     */
+    public T get(byte[] key)
+    {
+        if (blocks.length == 0)
+            return null;
+
+        int node = MemoryUtil.getIntVolatile(address(ROOT));
+        int depth = 0;
+        while (true)
+        {
+            if (node == NONE)
+                return null;
+
+            if (node < 0)
+                return depth == key.length ? content(node) : null;
+
+            if ((node & TYPE_MASK) == PREFIX_OFFSET)
+            {
+                long cell = address(node - PREFIX_OFFSET);
+                if (depth == key.length)
+                    return content(MemoryUtil.getInt(cell));
+                node = MemoryUtil.getIntVolatile(cell + PREFIX_CHILD_OFFSET);
+                continue;
+            }
+
+            if (depth == key.length)
+                return null;
+
+            node = child(node, key[depth++] & 0xFF);
+        }
+    }
+
+    /**
+     * Associates the value to the given key unless the key is already present.
+     *
+     * Only one thread may modify the trie at a given time, which this method ensures.
+     *
+     * @return the value already associated with the key, or null if {@code value} was added.
+     */
+    public synchronized T putIfAbsent(byte[] key, T value)
+    {
+        if (blockCount == 0)
+        {
+            allocateBlock();
+            allocatedPos = CELL_SIZE;
+        }
+
+        long slot = address(ROOT);
+        int node = MemoryUtil.getInt(slot);
+        int depth = 0;
+        while (true)
+        {
+            if (node == NONE)
+            {
+                MemoryUtil.setIntOrdered(slot, attach(key, depth, value));
+                return null;
+            }
+
+            if (node < 0)
+            {
+                if (depth == key.length)
+                    return content(node);
+
+                // an existing key is a prefix of ours
+                int child = attach(key, depth, value);
+                MemoryUtil.setIntOrdered(slot, newPrefix(node, child));
+                return null;
+            }
+
+            int type = node & TYPE_MASK;
+            if (type == PREFIX_OFFSET)
+            {
+                long cell = address(node - PREFIX_OFFSET);
+                if (depth == key.length)
+                    return content(MemoryUtil.getInt(cell));
+
+                slot = cell + PREFIX_CHILD_OFFSET;
+                node = MemoryUtil.getInt(slot);
+                continue;
+            }
+
+            if (depth == key.length)
+            {
+                // our key is a prefix of existing ones
+                MemoryUtil.setIntOrdered(slot, newPrefix(addContent(value), node));
+                return null;
+            }
+
+            int transition = key[depth] & 0xFF;
+            switch (type)
+            {
+                case SPARSE_OFFSET:
+                {
+                    long cell = address(node - SPARSE_OFFSET);
+                    int count = MemoryUtil.getByte(cell + SPARSE_COUNT_OFFSET);
+                    int i = 0;
+                    while (i < count && (MemoryUtil.getByte(cell + SPARSE_BYTES_OFFSET + i) & 0xFF) != transition)
+                        i++;
+
+                    if (i < count)
+                    {
+                        slot = cell + 4 * i;
+                        node = MemoryUtil.getInt(slot);
+                        depth++;
+                        continue;
+                    }
+
+                    int child = attach(key, depth + 1, value);
+                    if (count < SPARSE_CAPACITY)
+                    {
+                        // readers only look at the first 'count' entries, so publishing the new count is enough
+                        MemoryUtil.setByte(cell + SPARSE_BYTES_OFFSET + count, (byte) transition);
+                        MemoryUtil.setInt(cell + 4 * count, child);
+                        MemoryUtil.setByteVolatile(cell + SPARSE_COUNT_OFFSET, (byte) (count + 1));
+                    }
+                    else
+                    {
+                        int split = newSplit();
+                        for (int j = 0; j < count; j++)
+                            MemoryUtil.setInt(splitSlot(split, MemoryUtil.getByte(cell + SPARSE_BYTES_OFFSET + j) & 0xFF), MemoryUtil.getInt(cell + 4 * j));
+                        MemoryUtil.setInt(splitSlot(split, transition), child);
+                        MemoryUtil.setIntOrdered(slot, split);
+                    }
+                    return null;
+                }
+                case SPLIT_OFFSET:
+                {
+                    slot = splitSlot(node, transition);
+                    node = MemoryUtil.getInt(slot);
+                    depth++;
+                    continue;
+                }
+                default:
+                {
+                    long position = address(node);
+                    long cell = position - type;
+                    int length = CHAIN_MAX_LENGTH - type;
+                    int matched = 0;
+                    while (matched < length
+                           && depth + matched < key.length
+                           && MemoryUtil.getByte(position + matched) == key[depth + matched])
+                        matched++;
+
+                    if (matched == length)
+                    {
+                        depth += length;
+                        slot = cell + CHAIN_CHILD_OFFSET;
+                        node = MemoryUtil.getInt(slot);
+                        continue;
+                    }
+
+                    // we diverge from the chain at position 'matched': we rebuild the part of the chain that precedes
+                    // it, the remainder of the old chain being reachable as is from its suffix position
+                    int tail;
+                    if (depth + matched == key.length)
+                    {
+                        tail = newPrefix(addContent(value), node + matched);
+                    }
+                    else
+                    {
+                        int existingChild = matched + 1 < length ? node + matched + 1 : MemoryUtil.getInt(cell + CHAIN_CHILD_OFFSET);
+                        int newChild = attach(key, depth + matched + 1, value);
+                        tail = newSparse(MemoryUtil.getByte(position + matched), existingChild, key[depth + matched], newChild);
+                    }
+                    MemoryUtil.setIntOrdered(slot, matched > 0 ? newChain(position, matched, tail) : tail);
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of values in the trie.
+     */
+    public int valuesCount()
+    {
+        return valuesCount;
+    }
+
+    public boolean isEmpty()
+    {
+        return valuesCount == 0;
+    }
+
+    /**
+     * @return the amount of native memory reserved by the trie.
+     */
+    public long sizeOffHeap()
+    {
+        return (long) blockCount * BLOCK_SIZE;
+    }
+
+    /**
+     * @return the on-heap size of the structures referencing the values, excluding the values themselves.
+     */
+    public long sizeOnHeap()
+    {
+        return ObjectSizes.sizeOfReferenceArray(content.length)
+               + (long) ((contentCount + CONTENT_CHUNK_SIZE - 1) >> CONTENT_CHUNK_SHIFT) * CONTENT_CHUNK_HEAP_SIZE;
+    }
+
+    /**
+     * Releases the native memory of the trie. The caller must ensure no reader can access the trie anymore.
+     */
+    public synchronized void discard()
+    {
+        long[] toFree = blocks;
+        blocks = new long[0];
+        for (int i = 0; i < blockCount; i++)
+            MemoryUtil.free(toFree[i]);
+        blockCount = 0;
+        content = newContentChunks(0);
+        contentCount = 0;
+        valuesCount = 0;
+    }
+
+    /**
+     * @return an iterator over all the values of the trie, in the order of their keys.
+     */
+    public Iterator<T> iterator()
+    {
+        return iterator(null, null);
+    }
+
+    /**
+     * @param lower the bound at which to start, or null to start from the smallest key.
+     * @param upper the bound at which to stop, or null to iterate to the greatest key.
+     * @return an iterator over the values of the trie whose keys are within the given bounds, in key order.
+     */
+    public Iterator<T> iterator(Bound lower, Bound upper)
+    {
+        return new TrieIterator(lower, upper);
+    }
+
+    private long address(int pointer)
+    {
+        return blocks[pointer >>> BLOCK_SHIFT] + (pointer & BLOCK_MASK);
+    }
+
+    private T content(int pointer)
+    {
+        int index = ~pointer;
+        return content[index >>> CONTENT_CHUNK_SHIFT].get(index & CONTENT_CHUNK_MASK);
+    }
+
+    private int child(int node, int transition)
+    {
+        int type = node & TYPE_MASK;
+        switch (type)
+        {
+            case SPARSE_OFFSET:
+            {
+                long cell = address(node - SPARSE_OFFSET);
+                int count = MemoryUtil.getByteVolatile(cell + SPARSE_COUNT_OFFSET);
+                for (int i = 0; i < count; i++)
+                {
+                    if ((MemoryUtil.getByte(cell + SPARSE_BYTES_OFFSET + i) & 0xFF) == transition)
+                        return MemoryUtil.getIntVolatile(cell + 4 * i);
+                }
+                return NONE;
+            }
+            case SPLIT_OFFSET:
+            {
+                long slot = existingSplitSlot(node, transition);
+                return slot == 0 ? NONE : MemoryUtil.getIntVolatile(slot);
+            }
+            case PREFIX_OFFSET:
+                throw new AssertionError();
+            default:
+            {
+                long position = address(node);
+                if ((MemoryUtil.getByte(position) & 0xFF) != transition)
+                    return NONE;
+                return type == CHAIN_MAX_LENGTH - 1 ? MemoryUtil.getIntVolatile(position + 1) : node + 1;
+            }
+        }
+    }
+
+    /**
+     * @return the address of the slot for the given transition of a split node, or 0 if the sub-cell containing
+     * that slot has not been created.
+     */
+    private long existingSplitSlot(int node, int transition)
+    {
+        long top = address(node - SPLIT_OFFSET);
+        int mid = MemoryUtil.getIntVolatile(top + 4 * (transition >> 6));
+        if (mid == NONE)
+            return 0;
+        int leaf = MemoryUtil.getIntVolatile(address(mid) + 4 * ((transition >> 3) & 7));
+        if (leaf == NONE)
+            return 0;
+        return address(leaf) + 4 * (transition & 7);
+    }
+
+    /**
+     * Writer-side version of {@link #existingSplitSlot}, which creates the sub-cells leading to the slot if needed.
+     */
+    private long splitSlot(int node, int transition)
+    {
+        long midSlot = address(node - SPLIT_OFFSET) + 4 * (transition >> 6);
+        int mid = MemoryUtil.getInt(midSlot);
+        if (mid == NONE)
+        {
+            mid = allocateCell();
+            MemoryUtil.setIntOrdered(midSlot, mid);
+        }
+        long leafSlot = address(mid) + 4 * ((transition >> 3) & 7);
+        int leaf = MemoryUtil.getInt(leafSlot);
+        if (leaf == NONE)
+        {
+            leaf = allocateCell();
+            MemoryUtil.setIntOrdered(leafSlot, leaf);
+        }
+        return address(leaf) + 4 * (transition & 7);
+    }
+
+    /**
+     * Builds the chain of nodes for the bytes of the key starting at {@code from}, leading to the given value.
+     */
+    private int attach(byte[] key, int from, T value)
+    {
+        int child = addContent(value);
+        int end = key.length;
+        while (end > from)
+        {
+            int length = Math.min(CHAIN_MAX_LENGTH, end - from);
+            int start = end - length;
+            int cell = allocateCell();
+            long address = address(cell);
+            int offset = CHAIN_MAX_LENGTH - length;
+            for (int i = 0; i < length; i++)
+                MemoryUtil.setByte(address + offset + i, key[start + i]);
+            MemoryUtil.setInt(address + CHAIN_CHILD_OFFSET, child);
+            child = cell + offset;
+            end = start;
+        }
+        return child;
+    }
+
+    private int newChain(long source, int length, int child)
+    {
+        int cell = allocateCell();
+        long address = address(cell);
+        int offset = CHAIN_MAX_LENGTH - length;
+        for (int i = 0; i < length; i++)
+            MemoryUtil.setByte(address + offset + i, MemoryUtil.getByte(source + i));
+        MemoryUtil.setInt(address + CHAIN_CHILD_OFFSET, child);
+        return cell + offset;
+    }
+
+    private int newSparse(byte transition1, int child1, byte transition2, int child2)
+    {
+        int cell = allocateCell();
+        long address = address(cell);
+        MemoryUtil.setInt(address, child1);
+        MemoryUtil.setInt(address + 4, child2);
+        MemoryUtil.setByte(address + SPARSE_BYTES_OFFSET, transition1);
+        MemoryUtil.setByte(address + SPARSE_BYTES_OFFSET + 1, transition2);
+        MemoryUtil.setByte(address + SPARSE_COUNT_OFFSET, (byte) 2);
+        return cell + SPARSE_OFFSET;
+    }
+
+    private int newSplit()
+    {
+        return allocateCell() + SPLIT_OFFSET;
+    }
+
+    private int newPrefix(int contentPointer, int child)
+    {
+        int cell = allocateCell();
+        long address = address(cell);
+        MemoryUtil.setInt(address, contentPointer);
+        MemoryUtil.setInt(address + PREFIX_CHILD_OFFSET, child);
+        return cell + PREFIX_OFFSET;
+    }
+
+    private int allocateCell()
+    {
+        int position = allocatedPos;
+        if ((position & BLOCK_MASK) == 0)
+            allocateBlock();
+        allocatedPos = position + CELL_SIZE;
+        return position;
+    }
+
+    private void allocateBlock()
+    {
+        if (blockCount == MAX_BLOCKS)
+            throw new IllegalStateException("Memtable trie cannot grow beyond " + ((long) MAX_BLOCKS * BLOCK_SIZE) + " bytes");
+
+        long[] current = blocks;
+        long[] updated = blockCount < current.length ? current : Arrays.copyOf(current, Math.max(16, current.length * 2));
+        long address = MemoryUtil.allocate(BLOCK_SIZE);
+        // readers expect unused cell space to be zeroed
+        MemoryUtil.setByte(address, BLOCK_SIZE, (byte) 0);
+        updated[blockCount++] = address;
+        blocks = updated;
+    }
+
+    private int addContent(T value)
+    {
+        int index = contentCount;
+        int chunk = index >>> CONTENT_CHUNK_SHIFT;
+        AtomicReferenceArray<T>[] chunks = content;
+        if (chunk == chunks.length)
+            chunks = Arrays.copyOf(chunks, Math.max(4, chunks.length * 2));
+        if (chunks[chunk] == null)
+        {
+            chunks[chunk] = new AtomicReferenceArray<>(CONTENT_CHUNK_SIZE);
+            content = chunks;
+        }
+        chunks[chunk].lazySet(index & CONTENT_CHUNK_MASK, value);
+        contentCount = index + 1;
+        valuesCount = contentCount;
+        return ~index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> AtomicReferenceArray<T>[] newContentChunks(int size)
+    {
+        return (AtomicReferenceArray<T>[]) new AtomicReferenceArray[size];
+    }
+
+    /**
+     * Walks the trie depth first, in order. The node at depth d of the current path is recorded at index d of
+     * the path arrays, together with the next transition to consider and the largest acceptable one.
+     */
+    private class TrieIterator extends AbstractIterator<T>
+    {
+        private final Bound lower;
+        private final Bound upper;
+
+        private int[] nodes = new int[32];
+        private int[] nextTransitions = new int[32];
+        private int[] limits = new int[32];
+        // whether the path so far equals the bytes of the lower (resp. upper) bound, including the node's transition
+        private boolean[] onLower = new boolean[32];
+        private boolean[] onUpper = new boolean[32];
+        private int top = -1;
+
+        // the next node to visit, and its position with respect to the bounds
+        private int pending;
+        private int pendingDepth;
+        private boolean pendingOnLower;
+        private boolean pendingOnUpper;
+        // the child found by the last call to nextTransition
+        private int foundChild;
+
+        TrieIterator(Bound lower, Bound upper)
+        {
+            this.lower = lower;
+            this.upper = upper;
+            this.pending = blocks.length == 0 ? NONE : MemoryUtil.getIntVolatile(address(ROOT));
+            this.pendingOnLower = lower != null;
+            this.pendingOnUpper = upper != null;
+        }
+
+        protected T computeNext()
+        {
+            while (true)
+            {
+                if (pending != NONE)
+                {
+                    int node = pending;
+                    int depth = pendingDepth;
+                    pending = NONE;
+
+                    if (node < 0)
+                    {
+                        if (isInRange(depth, pendingOnLower, pendingOnUpper))
+                            return content(node);
+                        continue;
+                    }
+
+                    if ((node & TYPE_MASK) == PREFIX_OFFSET)
+                    {
+                        // the prefix value comes before anything in its child, which sits at the same depth
+                        long cell = address(node - PREFIX_OFFSET);
+                        pending = MemoryUtil.getIntVolatile(cell + PREFIX_CHILD_OFFSET);
+                        if (isInRange(depth, pendingOnLower, pendingOnUpper))
+                            return content(MemoryUtil.getInt(cell));
+                        continue;
+                    }
+
+                    descend(node, depth, pendingOnLower, pendingOnUpper);
+                    continue;
+                }
+
+                if (top < 0)
+                    return endOfData();
+
+                int transition = nextTransition(top);
+                if (transition < 0)
+                {
+                    --top;
+                    continue;
+                }
+
+                pending = foundChild;
+                pendingDepth = top + 1;
+                pendingOnLower = onLower[top] && transition == (lower.bytes[top] & 0xFF);
+                pendingOnUpper = onUpper[top] && transition == (upper.bytes[top] & 0xFF);
+            }
+        }
+
+        private boolean isInRange(int depth, boolean isOnLower, boolean isOnUpper)
+        {
+            if (isOnLower && (depth < lower.bytes.length || lower.type != Bound.Type.INCLUSIVE))
+                return false;
+            return !isOnUpper || depth < upper.bytes.length || upper.type != Bound.Type.EXCLUSIVE;
+        }
+
+        private void descend(int node, int depth, boolean isOnLower, boolean isOnUpper)
+        {
+            int start = 0;
+            int limit = 255;
+            if (isOnLower)
+            {
+                if (depth < lower.bytes.length)
+                    start = lower.bytes[depth] & 0xFF;
+                else if (lower.type == Bound.Type.AFTER_PREFIX)
+                    return;
+            }
+            if (isOnUpper)
+            {
+                if (depth < upper.bytes.length)
+                    limit = upper.bytes[depth] & 0xFF;
+                else if (upper.type != Bound.Type.AFTER_PREFIX)
+                    return;
+            }
+
+            if (depth == nodes.length)
+            {
+                int size = nodes.length * 2;
+                nodes = Arrays.copyOf(nodes, size);
+                nextTransitions = Arrays.copyOf(nextTransitions, size);
+                limits = Arrays.copyOf(limits, size);
+                onLower = Arrays.copyOf(onLower, size);
+                onUpper = Arrays.copyOf(onUpper, size);
+            }
+
+            top = depth;
+            nodes[depth] = node;
+            nextTransitions[depth] = start;
+            limits[depth] = limit;
+            onLower[depth] = isOnLower && depth < lower.bytes.length;
+            onUpper[depth] = isOnUpper && depth < upper.bytes.length;
+        }
+
+        /**
+         * Finds the smallest transition of the node at the given depth between its next transition and its limit,
+         * setting {@code foundChild} to the corresponding child.
+         *
+         * @return the transition, or -1 if there is none left.
+         */
+        private int nextTransition(int depth)
+        {
+            int node = nodes[depth];
+            int from = nextTransitions[depth];
+            int limit = limits[depth];
+            int type = node & TYPE_MASK;
+            switch (type)
+            {
+                case SPARSE_OFFSET:
+                {
+                    long cell = address(node - SPARSE_OFFSET);
+                    int count = MemoryUtil.getByteVolatile(cell + SPARSE_COUNT_OFFSET);
+                    int best = -1;
+                    int bestIndex = -1;
+                    for (int i = 0; i < count; i++)
+                    {
+                        int transition = MemoryUtil.getByte(cell + SPARSE_BYTES_OFFSET + i) & 0xFF;
+                        if (transition >= from && transition <= limit && (best < 0 || transition < best))
+                        {
+                            best = transition;
+                            bestIndex = i;
+                        }
+                    }
+                    if (best < 0)
+                        return -1;
+                    nextTransitions[depth] = best + 1;
+                    foundChild = MemoryUtil.getIntVolatile(cell + 4 * bestIndex);
+                    return best;
+                }
+                case SPLIT_OFFSET:
+                {
+                    long topCell = address(node - SPLIT_OFFSET);
+                    int transition = from;
+                    while (transition <= limit)
+                    {
+                        int mid = MemoryUtil.getIntVolatile(topCell + 4 * (transition >> 6));
+                        if (mid == NONE)
+                        {
+                            transition = (transition | 63) + 1;
+                            continue;
+                        }
+                        int leaf = MemoryUtil.getIntVolatile(address(mid) + 4 * ((transition >> 3) & 7));
+                        if (leaf == NONE)
+                        {
+                            transition = (transition | 7) + 1;
+                            continue;
+                        }
+                        int child = MemoryUtil.getIntVolatile(address(leaf) + 4 * (transition & 7));
+                        if (child != NONE)
+                        {
+                            nextTransitions[depth] = transition + 1;
+                            foundChild = child;
+                            return transition;
+                        }
+                        transition++;
+                    }
+                    nextTransitions[depth] = 256;
+                    return -1;
+                }
+                default:
+                {
+                    nextTransitions[depth] = 256;
+                    long position = address(node);
+                    int transition = MemoryUtil.getByte(position) & 0xFF;
+                    if (transition < from || transition > limit)
+                        return -1;
+                    foundChild = type == CHAIN_MAX_LENGTH - 1 ? MemoryUtil.getIntVolatile(position + 1) : node + 1;
+                    return transition;
+                }
+            }
+        }
+    }
+}
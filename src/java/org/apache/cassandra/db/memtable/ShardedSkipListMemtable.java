@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.memtable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterators;
+
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.commitlog.CommitLogPosition;
+import org.apache.cassandra.db.partitions.AtomicBTreePartition;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.cassandra.utils.memory.MemtableAllocator;
+
+/**
+ * A skip list memtable whose partitions are split by token range into several independent shards, so that
+ * concurrent writes to different parts of the ring do not contend on the same skip list or memory accounting.
+ *
+ * Each shard has its own allocator, and is flushed in parallel with the others. Shards are aligned with the disk
+ * boundaries of the table: each disk range is split in the same number of shards, each owning about the same share of
+ * the local tokens, so that a shard is always written to a single data directory. Partitioners that cannot be split
+ * use a single shard.
+ *
+ * The number of shards is set with the 'shards' sub-option (rounded up to a multiple of the number of disks) and
+ * defaults to the number of available processors.
+ */
+public class ShardedSkipListMemtable extends Memtable
+{
+    public static final String SHARDS_OPTION = "shards";
+
+    private final PartitionPosition[] boundaries;
+    private final Shard[] shards;
+
+    public ShardedSkipListMemtable(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs, int shardCount)
+    {
+        super(commitLogLowerBound, cfs);
+        this.boundaries = shardBoundaries(cfs, shardCount);
+        this.shards = new Shard[boundaries.length + 1];
+        for (int i = 0; i < shards.length; i++)
+            shards[i] = new Shard(MEMORY_POOL.newAllocator());
+    }
+
+    public static Factory factory(Map<String, String> options)
+    {
+        Map<String, String> unknown = new HashMap<>(options);
+        String value = unknown.remove(SHARDS_OPTION);
+        if (!unknown.isEmpty())
+            throw new ConfigurationException("Unknown options for ShardedSkipListMemtable: " + unknown.keySet());
+
+        int shardCount = FBUtilities.getAvailableProcessors();
+        if (value != null)
+        {
+            try
+            {
+                shardCount = Integer.parseInt(value);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new ConfigurationException(String.format("Invalid value %s for '%s' option: must be an integer", value, SHARDS_OPTION));
+            }
+            if (shardCount <= 0)
+                throw new ConfigurationException(String.format("Invalid value %s for '%s' option: must be positive", value, SHARDS_OPTION));
+        }
+
+        int count = shardCount;
+        return (commitLogLowerBound, cfs) -> new ShardedSkipListMemtable(commitLogLowerBound, cfs, count);
+    }
+
+    /**
+     * Splits the local ranges of the table in about the given number of shards, within the disk boundaries.
+     *
+     * @return the upper bound of each shard but the last one.
+     */
+    @VisibleForTesting
+    static PartitionPosition[] shardBoundaries(ColumnFamilyStore cfs, int shardCount)
+    {
+        IPartitioner partitioner = cfs.getPartitioner();
+        if (shardCount == 1 || !partitioner.splitter().isPresent())
+            return new PartitionPosition[0];
+
+        Token minimum = partitioner.getMinimumToken();
+        List<Range<Token>> localRanges = Range.sort(StorageService.instance.getLocalRanges(cfs.keyspace.getName()));
+        if (localRanges.isEmpty())
+            localRanges = Collections.singletonList(new Range<>(minimum, minimum));
+
+        List<PartitionPosition> diskBoundaries = StorageService.getDiskBoundaries(cfs);
+        int disks = diskBoundaries == null ? 1 : diskBoundaries.size();
+        int shardsPerDisk = (shardCount + disks - 1) / disks;
+
+        List<PartitionPosition> boundaries = new ArrayList<>();
+        Token diskStart = minimum;
+        for (int disk = 0; disk < disks; disk++)
+        {
+            // the last disk extends to the end of the ring
+            boolean isLast = disk == disks - 1;
+            Token diskEnd = isLast ? minimum : diskBoundaries.get(disk).getToken();
+            if (shardsPerDisk > 1 && (isLast || !diskStart.equals(diskEnd)))
+            {
+                Range<Token> diskRange = new Range<>(diskStart, diskEnd);
+                List<Range<Token>> diskRanges = new ArrayList<>();
+                for (Range<Token> range : localRanges)
+                    diskRanges.addAll(range.intersectionWith(diskRange));
+
+                if (!diskRanges.isEmpty())
+                {
+                    List<Token> tokens = partitioner.splitter().get().splitOwnedRanges(shardsPerDisk, Range.sort(diskRanges), false);
+                    for (int i = 0; i < tokens.size() - 1; i++)
+                        boundaries.add(tokens.get(i).maxKeyBound());
+                }
+            }
+            if (!isLast)
+                boundaries.add(diskBoundaries.get(disk));
+            diskStart = diskEnd;
+        }
+        return boundaries.toArray(new PartitionPosition[boundaries.size()]);
+    }
+
+    // the index of the shard owning the given position, i.e. of the first boundary after it (if any)
+    private int shardIndex(PartitionPosition position)
+    {
+        int i = Arrays.binarySearch(boundaries, position);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    @Override
+    protected MemtableAllocator allocatorFor(DecoratedKey key)
+    {
+        return shards[shardIndex(key)].allocator;
+    }
+
+    protected AtomicBTreePartition get(DecoratedKey key)
+    {
+        return shards[shardIndex(key)].partitions.get(key);
+    }
+
+    protected AtomicBTreePartition putIfAbsent(AtomicBTreePartition partition, OpOrder.Group opGroup)
+    {
+        return shards[shardIndex(partition.partitionKey())].partitions.putIfAbsent(partition.partitionKey(), partition);
+    }
+
+    protected long partitionOverhead(DecoratedKey key)
+    {
+        return key.getToken().getHeapSize() + SkipListMemtable.ROW_OVERHEAD_HEAP_SIZE;
+    }
+
+    protected Iterator<AtomicBTreePartition> partitionIterator(PartitionPosition from, boolean fromInclusive,
+                                                                PartitionPosition to, boolean toInclusive)
+    {
+        int first = from == null ? 0 : shardIndex(from);
+        int last = to == null ? shards.length - 1 : shardIndex(to);
+        List<Iterator<AtomicBTreePartition>> iterators = new ArrayList<>(Math.max(last - first + 1, 0));
+        for (int i = first; i <= last; i++)
+        {
+            ConcurrentNavigableMap<PartitionPosition, AtomicBTreePartition> shard = shards[i].partitions;
+            Map<PartitionPosition, AtomicBTreePartition> subMap;
+            if (from == null || i > first)
+                subMap = to == null || i < last ? shard : shard.headMap(to, toInclusive);
+            else
+                subMap = to == null || i < last
+                       ? shard.tailMap(from, fromInclusive)
+                       : shard.subMap(from, fromInclusive, to, toInclusive);
+            iterators.add(subMap.values().iterator());
+        }
+        return Iterators.concat(iterators.iterator());
+    }
+
+    public int partitionCount()
+    {
+        int count = 0;
+        for (Shard shard : shards)
+            count += shard.partitions.size();
+        return count;
+    }
+
+    public boolean isClean()
+    {
+        for (Shard shard : shards)
+        {
+            if (!shard.partitions.isEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<PartitionPosition> shardBoundaries()
+    {
+        return Arrays.asList(boundaries);
+    }
+
+    @Override
+    public int shardCount()
+    {
+        return shards.length;
+    }
+
+    @Override
+    public long getShardOnHeapOwns(int shard)
+    {
+        return shards[shard].allocator.onHeap().owns();
+    }
+
+    @Override
+    public long getShardOffHeapOwns(int shard)
+    {
+        return shards[shard].allocator.offHeap().owns();
+    }
+
+    @Override
+    public int getShardPartitionCount(int shard)
+    {
+        return shards[shard].partitions.size();
+    }
+
+    // the shared allocator still accounts for the memory that is not tied to a shard, like secondary indexes
+
+    @Override
+    public long getOnHeapOwns()
+    {
+        long owns = super.getOnHeapOwns();
+        for (Shard shard : shards)
+            owns += shard.allocator.onHeap().owns();
+        return owns;
+    }
+
+    @Override
+    public long getOffHeapOwns()
+    {
+        long owns = super.getOffHeapOwns();
+        for (Shard shard : shards)
+            owns += shard.allocator.offHeap().owns();
+        return owns;
+    }
+
+    @Override
+    public float getOnHeapOwnershipRatio()
+    {
+        float ratio = super.getOnHeapOwnershipRatio();
+        for (Shard shard : shards)
+            ratio += shard.allocator.onHeap().ownershipRatio();
+        return ratio;
+    }
+
+    @Override
+    public float getOffHeapOwnershipRatio()
+    {
+        float ratio = super.getOffHeapOwnershipRatio();
+        for (Shard shard : shards)
+            ratio += shard.allocator.offHeap().ownershipRatio();
+        return ratio;
+    }
+
+    @Override
+    public void setDiscarding(OpOrder.Barrier writeBarrier, AtomicReference<CommitLogPosition> commitLogUpperBound)
+    {
+        super.setDiscarding(writeBarrier, commitLogUpperBound);
+        for (Shard shard : shards)
+            shard.allocator.setDiscarding();
+    }
+
+    @Override
+    protected void discard()
+    {
+        for (Shard shard : shards)
+            shard.allocator.setDiscarded();
+    }
+
+    private static final class Shard
+    {
+        final ConcurrentNavigableMap<PartitionPosition, AtomicBTreePartition> partitions = new ConcurrentSkipListMap<>();
+        final MemtableAllocator allocator;
+
+        Shard(MemtableAllocator allocator)
+        {
+            this.allocator = allocator;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.memtable;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.commitlog.CommitLogPosition;
+import org.apache.cassandra.db.partitions.AtomicBTreePartition;
+import org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.ObjectSizes;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.cassandra.utils.memory.MemtableAllocator;
+
+/**
+ * The default memtable, indexing partitions in a {@link ConcurrentSkipListMap}.
+ */
+public class SkipListMemtable extends Memtable
+{
+    public static final Factory FACTORY = SkipListMemtable::new;
+
+    static final int ROW_OVERHEAD_COMPUTATION_STEP = Integer.parseInt(System.getProperty("cassandra.memtable_row_overhead_computation_step", "100000"));
+    static final int ROW_OVERHEAD_HEAP_SIZE = estimateRowOverhead(new ConcurrentSkipListMap<>());
+
+    // We index the memtable by PartitionPosition only for the purpose of being able
+    // to select key range using Token.KeyBound. However put() ensures that we
+    // actually only store DecoratedKey.
+    private final ConcurrentNavigableMap<PartitionPosition, AtomicBTreePartition> partitions = new ConcurrentSkipListMap<>();
+
+    public SkipListMemtable(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs)
+    {
+        super(commitLogLowerBound, cfs);
+    }
+
+    // ONLY to be used for testing, to create a mock Memtable
+    @VisibleForTesting
+    public SkipListMemtable(CFMetaData metadata)
+    {
+        super(metadata);
+    }
+
+    public static Factory factory(Map<String, String> options)
+    {
+        if (!options.isEmpty())
+            throw new ConfigurationException("Unknown options for SkipListMemtable: " + options.keySet());
+        return FACTORY;
+    }
+
+    protected AtomicBTreePartition get(DecoratedKey key)
+    {
+        return partitions.get(key);
+    }
+
+    protected AtomicBTreePartition putIfAbsent(AtomicBTreePartition partition, OpOrder.Group opGroup)
+    {
+        return partitions.putIfAbsent(partition.partitionKey(), partition);
+    }
+
+    protected long partitionOverhead(DecoratedKey key)
+    {
+        return key.getToken().getHeapSize() + ROW_OVERHEAD_HEAP_SIZE;
+    }
+
+    protected Iterator<AtomicBTreePartition> partitionIterator(PartitionPosition from, boolean fromInclusive,
+                                                                PartitionPosition to, boolean toInclusive)
+    {
+        Map<PartitionPosition, AtomicBTreePartition> subMap;
+        if (from == null)
+            subMap = to == null ? partitions : partitions.headMap(to, toInclusive);
+        else
+            subMap = to == null
+                   ? partitions.tailMap(from, fromInclusive)
+                   : partitions.subMap(from, fromInclusive, to, toInclusive);
+        return subMap.values().iterator();
+    }
+
+    public int partitionCount()
+    {
+        return partitions.size();
+    }
+
+    public boolean isClean()
+    {
+        return partitions.isEmpty();
+    }
+
+    /**
+     * Measures the heap used per partition by the provided (empty) index map, including the partition object
+     * and its key.
+     */
+    static int estimateRowOverhead(Map<PartitionPosition, Object> partitions)
+    {
+        final int count = ROW_OVERHEAD_COMPUTATION_STEP;
+        // calculate row overhead
+        try (final OpOrder.Group group = new OpOrder().start())
+        {
+            int rowOverhead;
+            MemtableAllocator allocator = MEMORY_POOL.newAllocator();
+            final Object val = new Object();
+            for (int i = 0 ; i < count ; i++)
+                partitions.put(allocator.clone(new BufferDecoratedKey(new LongToken(i), ByteBufferUtil.EMPTY_BYTE_BUFFER), group), val);
+            double avgSize = ObjectSizes.measureDeep(partitions) / (double) count;
+            rowOverhead = (int) ((avgSize - Math.floor(avgSize)) < 0.05 ? Math.floor(avgSize) : Math.ceil(avgSize));
+            rowOverhead -= ObjectSizes.measureDeep(new LongToken(0));
+            rowOverhead += AtomicBTreePartition.EMPTY_SIZE;
+            allocator.setDiscarding();
+            allocator.setDiscarded();
+            return rowOverhead;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.memtable;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.commitlog.CommitLogPosition;
+import org.apache.cassandra.db.partitions.AtomicBTreePartition;
+import org.apache.cassandra.dht.ByteOrderedPartitioner.BytesToken;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import org.apache.cassandra.dht.RandomPartitioner.BigIntegerToken;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FastByteOperations;
+import org.apache.cassandra.utils.NoSpamLogger;
+import org.apache.cassandra.utils.ObjectSizes;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.cassandra.utils.memory.MemtableAllocator;
+
+/**
+ * A memtable indexing its partitions in an off-heap {@link MemtableTrie}, keyed by a byte-comparable encoding of
+ * the partition keys (the token followed by the key bytes).
+ *
+ * Compared to the skip list of {@link SkipListMemtable}, the index does not allocate any heap object per partition
+ * besides the partition itself, and lookups and ordered iteration only walk the key bytes. The index memory is
+ * accounted as off-heap memtable space, or as heap space if the memtable pool doesn't allow any off-heap
+ * memory.
+ *
+ * Only partitioners whose tokens have a byte-comparable representation are supported; tables using another
+ * partitioner get a {@link SkipListMemtable} instead.
+ */
+public class TrieMemtable extends Memtable
+{
+    private static final Logger logger = LoggerFactory.getLogger(TrieMemtable.class);
+
+    public static final Factory FACTORY = (commitLogLowerBound, cfs) ->
+    {
+        if (supports(cfs.getPartitioner()))
+            return new TrieMemtable(commitLogLowerBound, cfs);
+
+        NoSpamLogger.log(logger, NoSpamLogger.Level.WARN, 1, TimeUnit.HOURS,
+                         "TrieMemtable does not support partitioner {}, using SkipListMemtable for {}.{}",
+                         cfs.getPartitioner().getClass().getSimpleName(), cfs.keyspace.getName(), cfs.name);
+        return new SkipListMemtable(commitLogLowerBound, cfs);
+    };
+
+    // the index only costs a reference to the partition on heap, and the decorated key object
+    private static final long ROW_OVERHEAD_HEAP_SIZE = AtomicBTreePartition.EMPTY_SIZE
+                                                       + ObjectSizes.measure(new BufferDecoratedKey(new LongToken(0), ByteBufferUtil.EMPTY_BYTE_BUFFER))
+                                                       + ObjectSizes.sizeOfReferenceArray(1) - ObjectSizes.sizeOfReferenceArray(0);
+
+    private final MemtableTrie<AtomicBTreePartition> partitions = new MemtableTrie<>();
+
+    public TrieMemtable(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs)
+    {
+        super(commitLogLowerBound, cfs);
+        assert supports(cfs.getPartitioner()) : cfs.getPartitioner();
+    }
+
+    // ONLY to be used for testing, to create a mock Memtable
+    @VisibleForTesting
+    public TrieMemtable(CFMetaData metadata)
+    {
+        super(metadata);
+    }
+
+    public static Factory factory(Map<String, String> options)
+    {
+        if (!options.isEmpty())
+            throw new ConfigurationException("Unknown options for TrieMemtable: " + options.keySet());
+        return FACTORY;
+    }
+
+    /**
+     * @return whether the tokens of the provided partitioner can be used as keys of a trie memtable.
+     */
+    public static boolean supports(IPartitioner partitioner)
+    {
+        Token token = partitioner.getMinimumToken();
+        return token instanceof LongToken || token instanceof BigIntegerToken || token instanceof BytesToken;
+    }
+
+    protected AtomicBTreePartition get(DecoratedKey key)
+    {
+        return partitions.get(encode(key));
+    }
+
+    protected AtomicBTreePartition putIfAbsent(AtomicBTreePartition partition, OpOrder.Group opGroup)
+    {
+        byte[] key = encode(partition.partitionKey());
+        AtomicBTreePartition previous;
+        long growth;
+        synchronized (partitions)
+        {
+            long sizeBefore = partitions.sizeOffHeap();
+            previous = partitions.putIfAbsent(key, partition);
+            growth = partitions.sizeOffHeap() - sizeBefore;
+        }
+        // like the row overhead, the trie memory is accounted after the fact
+        if (growth > 0)
+            trieAllocator().allocate(growth, opGroup);
+        return previous;
+    }
+
+    /**
+     * @return the allocator the trie memory is accounted with. The trie lives off-heap, but pools that don't allow any
+     * off-heap memory (heap_buffers and unslabbed_heap_buffers) would block on it forever, so they count it on heap.
+     */
+    private MemtableAllocator.SubAllocator trieAllocator()
+    {
+        return MEMORY_POOL.offHeap.limit > 0 ? allocator.offHeap() : allocator.onHeap();
+    }
+
+    protected long partitionOverhead(DecoratedKey key)
+    {
+        return key.getToken().getHeapSize() + ROW_OVERHEAD_HEAP_SIZE;
+    }
+
+    protected Iterator<AtomicBTreePartition> partitionIterator(PartitionPosition from, boolean fromInclusive,
+                                                                PartitionPosition to, boolean toInclusive)
+    {
+        return partitions.iterator(from == null ? null : bound(from, fromInclusive, true),
+                                   to == null ? null : bound(to, toInclusive, false));
+    }
+
+    public int partitionCount()
+    {
+        return partitions.valuesCount();
+    }
+
+    public boolean isClean()
+    {
+        return partitions.isEmpty();
+    }
+
+    @Override
+    protected void discard()
+    {
+        partitions.discard();
+    }
+
+    private static MemtableTrie.Bound bound(PartitionPosition position, boolean inclusive, boolean isLowerBound)
+    {
+        if (position instanceof DecoratedKey)
+            return new MemtableTrie.Bound(encode((DecoratedKey) position),
+                                          inclusive ? MemtableTrie.Bound.Type.INCLUSIVE : MemtableTrie.Bound.Type.EXCLUSIVE);
+
+        // a key bound sits either before or after all the keys of its token, which all start with the token bytes
+        Token.KeyBound keyBound = (Token.KeyBound) position;
+        byte[] token = new byte[tokenLength(keyBound.getToken())];
+        writeToken(keyBound.getToken(), token);
+        MemtableTrie.Bound.Type type = !keyBound.isMinimumBound
+                                       ? MemtableTrie.Bound.Type.AFTER_PREFIX
+                                       : isLowerBound ? MemtableTrie.Bound.Type.INCLUSIVE : MemtableTrie.Bound.Type.EXCLUSIVE;
+        return new MemtableTrie.Bound(token, type);
+    }
+
+    @VisibleForTesting
+    static byte[] encode(DecoratedKey key)
+    {
+        ByteBuffer bytes = key.getKey();
+        int tokenLength = tokenLength(key.getToken());
+        byte[] encoded = new byte[tokenLength + bytes.remaining()];
+        writeToken(key.getToken(), encoded);
+        FastByteOperations.copy(bytes, bytes.position(), encoded, tokenLength, bytes.remaining());
+        return encoded;
+    }
+
+    private static int tokenLength(Token token)
+    {
+        if (token instanceof LongToken)
+            return 8;
+        if (token instanceof BigIntegerToken)
+            return 16;
+
+        // escape zeros and terminate with two zeros, so that no token is a prefix of another
+        byte[] bytes = (byte[]) token.getTokenValue();
+        int length = bytes.length + 2;
+        for (byte b : bytes)
+        {
+            if (b == 0)
+                length++;
+        }
+        return length;
+    }
+
+    private static void writeToken(Token token, byte[] dest)
+    {
+        if (token instanceof LongToken)
+        {
+            // flipping the sign bit makes the signed order match the unsigned order of the bytes
+            long value = (Long) token.getTokenValue() ^ Long.MIN_VALUE;
+            for (int i = 0; i < 8; i++)
+                dest[i] = (byte) (value >>> (56 - 8 * i));
+        }
+        else if (token instanceof BigIntegerToken)
+        {
+            // random partitioner tokens go from -1 (the minimum) to 2^127, so adding one makes them fit 16 unsigned bytes
+            byte[] value = ((BigIntegerToken) token).getTokenValue().add(BigInteger.ONE).toByteArray();
+            int length = Math.min(value.length, 16);
+            System.arraycopy(value, value.length - length, dest, 16 - length, length);
+        }
+        else
+        {
+            int i = 0;
+            for (byte b : (byte[]) token.getTokenValue())
+            {
+                dest[i++] = b;
+                if (b == 0)
+                    dest[i++] = (byte) 0xFF;
+            }
+            dest[i++] = 0;
+            dest[i] = 0;
+        }
+    }
+}
@@ -116,24 +116,7 @@ public abstract class UnfilteredRowIterators
             return;
         }
 
-        digest.update(iterator.partitionKey().getKey().duplicate());
-        iterator.partitionLevelDeletion().digest(digest);
-        iterator.columns().regulars.digest(digest);
-        // When serializing an iterator, we skip the static columns if the iterator has not static row, even if the
-        // columns() object itself has some (the columns() is a superset of what the iterator actually contains, and
-        // will correspond to the queried columns pre-serialization). So we must avoid taking the satic column names
-        // into account if there is no static row or we'd have a digest mismatch between depending on whether the digest
-        // is computed on an iterator that has been serialized or not (see CASSANDRA-12090)
-        // TODO: in practice we could completely skip digesting the columns since they are more informative of what the
-        // iterator may contain, and digesting the actual content is enough. And in fact, that would be more correct
-        // (since again, the columns could be different without the information represented by the iterator being
-        // different), but removing them entirely is stricly speaking a breaking change (it would create mismatches on
-        // upgrade) so we can only do on the next protocol version bump.
-        if (iterator.staticRow() != Rows.EMPTY_STATIC_ROW)
-            iterator.columns().statics.digest(digest);
-        FBUtilities.updateWithBoolean(digest, iterator.isReverseOrder());
-        iterator.staticRow().digest(digest);
-
+        digestPartitionHeader(iterator, digest, version);
         while (iterator.hasNext())
         {
             Unfiltered unfiltered = iterator.next();
@@ -141,6 +124,35 @@ public abstract class UnfilteredRowIterators
         }
     }
 
+    /**
+     * Digests the partition-level information of the given iterator, that is everything {@link #digest} digests but
+     * the rows and range tombstone markers of the partition, which must then be digested in order.
+     */
+    public static void digestPartitionHeader(UnfilteredRowIterator iterator, MessageDigest digest, int version)
+    {
+        assert version >= MessagingService.VERSION_30;
+
+        digest.update(iterator.partitionKey().getKey().duplicate());
+        iterator.partitionLevelDeletion().digest(digest);
+        // The columns() are more informative of what the iterator may contain than of what it actually contains, and
+        // digesting the actual content is enough. And in fact, skipping them is more correct, since the columns could
+        // be different without the information represented by the iterator being different. So they are no longer
+        // digested since 3.11, but we still have to digest them for older versions to avoid mismatches.
+        if (version < MessagingService.VERSION_311)
+        {
+            iterator.columns().regulars.digest(digest);
+            // When serializing an iterator, we skip the static columns if the iterator has not static row, even if the
+            // columns() object itself has some (the columns() is a superset of what the iterator actually contains, and
+            // will correspond to the queried columns pre-serialization). So we must avoid taking the satic column names
+            // into account if there is no static row or we'd have a digest mismatch between depending on whether the digest
+            // is computed on an iterator that has been serialized or not (see CASSANDRA-12090)
+            if (iterator.staticRow() != Rows.EMPTY_STATIC_ROW)
+                iterator.columns().statics.digest(digest);
+        }
+        FBUtilities.updateWithBoolean(digest, iterator.isReverseOrder());
+        iterator.staticRow().digest(digest);
+    }
+
     /**
      * Filter the provided iterator to exclude cells that have been fetched but are not queried by the user
      * (see ColumnFilter for detailes).
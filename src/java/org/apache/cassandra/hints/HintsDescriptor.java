@@ -213,7 +213,8 @@ final class HintsDescriptor
         switch (hintsVersion)
         {
             case VERSION_30:
-                return MessagingService.VERSION_30;
+                // the serialization of mutations is the same in 3.0 and 3.11
+                return MessagingService.VERSION_311;
             default:
                 throw new AssertionError();
         }
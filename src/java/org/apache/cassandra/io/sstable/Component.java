@@ -58,6 +58,14 @@ public class Component
         SUMMARY("Summary.db"),
         // table of contents, stores the list of all components for the sstable
         TOC("TOC.txt"),
+        // precomputed repair hashes of the partitions
+        PARTITION_HASHES("PartitionHashes.db"),
+        // trie of the partition keys, pointing to their entries in the primary index
+        PARTITION_INDEX("Partitions.db"),
+        // trees of the column index blocks of the widest partitions
+        ROW_INDEX("Rows.db"),
+        // bloom filter of the rows, keyed by partition key and clustering
+        ROW_FILTER("RowFilter.db"),
         // built-in secondary index (may be multiple per sstable)
         SECONDARY_INDEX("SI_.*.db"),
         // custom component, used by e.g. custom compaction strategy
@@ -102,6 +110,10 @@ public class Component
     public final static Component CRC = new Component(Type.CRC);
     public final static Component SUMMARY = new Component(Type.SUMMARY);
     public final static Component TOC = new Component(Type.TOC);
+    public final static Component PARTITION_HASHES = new Component(Type.PARTITION_HASHES);
+    public final static Component PARTITION_INDEX = new Component(Type.PARTITION_INDEX);
+    public final static Component ROW_INDEX = new Component(Type.ROW_INDEX);
+    public final static Component ROW_FILTER = new Component(Type.ROW_FILTER);
 
     public static Component digestFor(ChecksumType checksumType)
     {
@@ -175,6 +187,10 @@ public class Component
             case CRC:               component = Component.CRC;                          break;
             case SUMMARY:           component = Component.SUMMARY;                      break;
             case TOC:               component = Component.TOC;                          break;
+            case PARTITION_HASHES:  component = Component.PARTITION_HASHES;             break;
+            case PARTITION_INDEX:   component = Component.PARTITION_INDEX;              break;
+            case ROW_INDEX:         component = Component.ROW_INDEX;                    break;
+            case ROW_FILTER:        component = Component.ROW_FILTER;                   break;
             case SECONDARY_INDEX:   component = new Component(Type.SECONDARY_INDEX, path.right); break;
             case CUSTOM:            component = new Component(Type.CUSTOM, path.right); break;
             default:
@@ -30,4 +30,13 @@ public interface ISSTableScanner extends UnfilteredPartitionIterator
     public long getLengthInBytes();
     public long getCurrentPosition();
     public String getBackingFiles();
+
+    /**
+     * Drops the part of the sstable this scanner went through from the OS page cache, for the operations that
+     * should not keep the files they scan in cache (see skip_page_cache_operations). The scanners may ignore
+     * some of the calls and drop the pages they read in larger batches.
+     */
+    default void dropPageCacheBehind()
+    {
+    }
 }
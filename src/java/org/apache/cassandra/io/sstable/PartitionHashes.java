@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.rows.RangeTombstoneMarker;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.db.rows.UnfilteredRowIterators;
+import org.apache.cassandra.db.transform.Transformation;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.sstable.metadata.StatsMetadata;
+import org.apache.cassandra.io.util.DataPosition;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.io.util.SequentialWriter;
+import org.apache.cassandra.io.util.SequentialWriterOption;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.AbstractIterator;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.CloseableIterator;
+import org.apache.cassandra.utils.CountingDigest;
+import org.apache.cassandra.utils.Murmur3Digest;
+import org.apache.cassandra.utils.concurrent.Transactional;
+
+/**
+ * The hashes of the partitions of an sstable, as computed by repair validation (see
+ * {@link org.apache.cassandra.repair.Validator}), which are precomputed when the sstable is written so validation
+ * can add them to its merkle trees without reading and hashing the partitions again.
+ *
+ * The hashes are only valid as long as validation would read the partitions as they were written, that is as long
+ * as none of their tombstones can be purged and none of their cells has expired (see {@link #canUse}). Partitions
+ * found in several sstables are still read and merged.
+ *
+ * The {@link Component#PARTITION_HASHES} file is made of the version of the digest the hashes were computed with,
+ * as an unsigned vint, followed by an entry for each partition, in order, made of its key (with a short length),
+ * its 16 bytes hash, and the number of bytes it was computed on, as an unsigned vint. The entries are followed by a
+ * sample of one every {@link #INDEX_INTERVAL} of them, as the number of samples, as an unsigned vint, and the key
+ * (with a short length) and position of each sampled entry, and the file ends with the position of that sample, so
+ * that the validation of a range only reads the entries of the range (see {@link Reader#entries}).
+ */
+public final class PartitionHashes
+{
+    /**
+     * The version of the partition digests (see {@link UnfilteredRowIterators#digest}) of the hashes.
+     */
+    public static final int DIGEST_VERSION = MessagingService.VERSION_311;
+
+    public static final int HASH_SIZE = 16;
+
+    static final int INDEX_INTERVAL = 128;
+
+    private PartitionHashes()
+    {
+    }
+
+    public static MessageDigest newDigest()
+    {
+        return new Murmur3Digest();
+    }
+
+    /**
+     * @return whether the stored hashes of the given sstable are the ones validation would compute for its partitions
+     * with the given gcBefore and nowInSec, that is if it has them and none of its tombstones and expiring cells would
+     * be purged or converted.
+     */
+    public static boolean canUse(SSTableReader sstable, int gcBefore, int nowInSec)
+    {
+        if (!sstable.descriptor.version.storeRows() || !sstable.getComponents().contains(Component.PARTITION_HASHES))
+            return false;
+
+        // data of dropped columns is skipped when reading the sstable
+        if (!sstable.metadata.getDroppedColumns().isEmpty())
+            return false;
+
+        StatsMetadata stats = sstable.getSSTableMetadata();
+        if (stats.minLocalDeletionTime < gcBefore)
+            return false;
+        return stats.maxTTL == 0 || stats.minLocalDeletionTime > nowInSec;
+    }
+
+    /**
+     * Opens the hashes of all the given sstables.
+     *
+     * @return the readers of the hashes of the given sstables, in the same order, or {@code null} if any of them
+     * can't be used (see {@link #canUse}).
+     */
+    public static List<Reader> openAll(Iterable<SSTableReader> sstables, int gcBefore, int nowInSec)
+    {
+        List<Reader> readers = new ArrayList<>();
+        try
+        {
+            for (SSTableReader sstable : sstables)
+            {
+                Reader reader = canUse(sstable, gcBefore, nowInSec) ? Reader.open(sstable) : null;
+                if (reader == null)
+                {
+                    readers.forEach(FileUtils::closeQuietly);
+                    return null;
+                }
+                readers.add(reader);
+            }
+            return readers;
+        }
+        catch (Throwable t)
+        {
+            readers.forEach(FileUtils::closeQuietly);
+            throw t;
+        }
+    }
+
+    /**
+     * Writes the hashes of the partitions appended to an sstable.
+     */
+    public static class Writer extends Transactional.AbstractTransactional implements Transactional
+    {
+        private final SequentialWriter file;
+        private final CountingDigest digest = new CountingDigest(newDigest());
+        private final Hasher hasher = new Hasher();
+        private final List<ByteBuffer> sampledKeys = new ArrayList<>();
+        private final List<Long> sampledPositions = new ArrayList<>();
+        private long entries;
+        private DataPosition mark;
+        private long markedEntries;
+
+        public Writer(Descriptor descriptor, SequentialWriterOption option)
+        {
+            file = new SequentialWriter(new File(descriptor.filenameFor(Component.PARTITION_HASHES)), option);
+            try
+            {
+                file.writeUnsignedVInt(DIGEST_VERSION);
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, file.getPath());
+            }
+        }
+
+        /**
+         * Starts hashing the given partition.
+         *
+         * @return the partition, whose rows and markers are hashed as they are iterated over
+         */
+        public UnfilteredRowIterator hashing(UnfilteredRowIterator partition)
+        {
+            digest.reset();
+            UnfilteredRowIterators.digestPartitionHeader(partition, digest, DIGEST_VERSION);
+            return Transformation.apply(partition, hasher);
+        }
+
+        /**
+         * Writes the hash of the partition last passed to {@link #hashing}, once fully iterated over.
+         */
+        public void append(DecoratedKey key)
+        {
+            try
+            {
+                long size = digest.count();
+                if (entries++ % INDEX_INTERVAL == 0)
+                {
+                    sampledKeys.add(ByteBufferUtil.clone(key.getKey()));
+                    sampledPositions.add(file.position());
+                }
+                ByteBufferUtil.writeWithShortLength(key.getKey(), file);
+                file.write(digest.digest());
+                file.writeUnsignedVInt(size);
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, file.getPath());
+            }
+        }
+
+        public void mark()
+        {
+            mark = file.mark();
+            markedEntries = entries;
+        }
+
+        public void resetAndTruncate()
+        {
+            file.resetAndTruncate(mark);
+            entries = markedEntries;
+            int samples = (int) ((entries + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+            sampledKeys.subList(samples, sampledKeys.size()).clear();
+            sampledPositions.subList(samples, sampledPositions.size()).clear();
+        }
+
+        protected void doPrepare()
+        {
+            try
+            {
+                long indexPosition = file.position();
+                file.writeUnsignedVInt(sampledKeys.size());
+                for (int i = 0; i < sampledKeys.size(); i++)
+                {
+                    ByteBufferUtil.writeWithShortLength(sampledKeys.get(i), file);
+                    file.writeLong(sampledPositions.get(i));
+                }
+                file.writeLong(indexPosition);
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, file.getPath());
+            }
+            file.prepareToCommit();
+        }
+
+        protected Throwable doCommit(Throwable accumulate)
+        {
+            return file.commit(accumulate);
+        }
+
+        protected Throwable doAbort(Throwable accumulate)
+        {
+            return file.abort(accumulate);
+        }
+
+        private class Hasher extends Transformation
+        {
+            @Override
+            public Row applyToRow(Row row)
+            {
+                row.digest(digest);
+                return row;
+            }
+
+            @Override
+            public RangeTombstoneMarker applyToMarker(RangeTombstoneMarker marker)
+            {
+                marker.digest(digest);
+                return marker;
+            }
+        }
+    }
+
+    /**
+     * Reads the hashes of the partitions of an sstable, by ranges of tokens.
+     */
+    public static class Reader implements AutoCloseable
+    {
+        private final SSTableReader sstable;
+        private final RandomAccessReader in;
+        private final long entriesStart;
+        private final long entriesEnd;
+
+        // the tokens of the sampled entries, and their positions
+        private final Token[] sampledTokens;
+        private final long[] sampledPositions;
+
+        private Reader(SSTableReader sstable, RandomAccessReader in) throws IOException
+        {
+            this.sstable = sstable;
+            this.in = in;
+            this.entriesStart = in.getFilePointer();
+
+            in.seek(in.length() - Long.BYTES);
+            this.entriesEnd = in.readLong();
+            in.seek(entriesEnd);
+            int samples = (int) in.readUnsignedVInt();
+            this.sampledTokens = new Token[samples];
+            this.sampledPositions = new long[samples];
+            for (int i = 0; i < samples; i++)
+            {
+                sampledTokens[i] = sstable.getPartitioner().getToken(ByteBufferUtil.readWithShortLength(in));
+                sampledPositions[i] = in.readLong();
+            }
+        }
+
+        /**
+         * @return the reader of the hashes of the given sstable, or {@code null} if they were computed with another
+         * version of the digest.
+         */
+        @SuppressWarnings("resource")
+        public static Reader open(SSTableReader sstable)
+        {
+            RandomAccessReader in = RandomAccessReader.open(new File(sstable.descriptor.filenameFor(Component.PARTITION_HASHES)));
+            try
+            {
+                if (in.readUnsignedVInt() == DIGEST_VERSION)
+                    return new Reader(sstable, in);
+            }
+            catch (IOException e)
+            {
+                in.close();
+                throw new FSReadError(e, in.getPath());
+            }
+            in.close();
+            return null;
+        }
+
+        /**
+         * Iterates over the hashes of the partitions of the given range, in order, from the last sampled entry before
+         * the range, and up to the first entry past its end. Only one of the iterators of the reader can be used at a
+         * time, and closing them doesn't close the reader.
+         *
+         * @param range a range that doesn't wrap around, like the ones of {@link Range#normalize}, but for the ones
+         * ending with the minimum token.
+         */
+        public CloseableIterator<Entry> entries(Range<Token> range)
+        {
+            Token left = range.left;
+            Token right = range.right;
+            boolean fromStart = left.isMinimum();
+            boolean toEnd = right.isMinimum();
+            assert toEnd || fromStart || left.compareTo(right) < 0 : range;
+
+            // the last sampled entry whose token isn't after the start of the range, which is exclusive
+            int sample = fromStart ? -1 : Arrays.binarySearch(sampledTokens, left);
+            if (sample < 0)
+                sample = -sample - 2;
+            in.seek(sample < 0 ? entriesStart : sampledPositions[sample]);
+            return new RangeIterator(fromStart ? null : left, toEnd ? null : right);
+        }
+
+        private class RangeIterator extends AbstractIterator<Entry> implements CloseableIterator<Entry>
+        {
+            // the bounds of the range, or null if it starts or ends with the partitions of the sstable
+            private final Token left;
+            private final Token right;
+
+            private RangeIterator(Token left, Token right)
+            {
+                this.left = left;
+                this.right = right;
+            }
+
+            protected Entry computeNext()
+            {
+                try
+                {
+                    while (in.getFilePointer() < entriesEnd)
+                    {
+                        DecoratedKey key = sstable.decorateKey(ByteBufferUtil.readWithShortLength(in));
+                        if (right != null && key.getToken().compareTo(right) > 0)
+                            break;
+
+                        byte[] hash = new byte[HASH_SIZE];
+                        in.readFully(hash);
+                        long size = in.readUnsignedVInt();
+                        if (left == null || key.getToken().compareTo(left) > 0)
+                            return new Entry(sstable, key, hash, size);
+                    }
+                    return endOfData();
+                }
+                catch (IOException e)
+                {
+                    throw new FSReadError(e, in.getPath());
+                }
+            }
+
+            public void close()
+            {
+                // the reader is closed by its owner
+            }
+        }
+
+        public void close()
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * The hash of a partition of an sstable.
+     */
+    public static class Entry
+    {
+        public final SSTableReader sstable;
+        public final DecoratedKey key;
+        public final byte[] hash;
+        public final long size;
+
+        public Entry(SSTableReader sstable, DecoratedKey key, byte[] hash, long size)
+        {
+            this.sstable = sstable;
+            this.key = key;
+            this.hash = hash;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.cassandra.cache.ChunkCache;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.marshal.ComparableBytes;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.LocalPartitioner;
+import org.apache.cassandra.dht.OrderPreservingPartitioner;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.util.FileHandle;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.io.util.SequentialWriter;
+import org.apache.cassandra.io.util.SequentialWriterOption;
+import org.apache.cassandra.utils.concurrent.Transactional;
+import org.apache.cassandra.utils.concurrent.WrappedSharedCloseable;
+
+/**
+ * An on-disk trie mapping the partition keys of an sstable to the position of their entry in the primary index, so
+ * that point lookups find that entry without a binary search of the index summary and without scanning the primary
+ * index. Keys that are not in the sstable are usually rejected without reading the primary index at all.
+ *
+ * The trie is built over the byte-comparable representation of the keys (see {@link #comparableBytes}) and only holds
+ * the shortest prefix of each key that tells it apart from its neighbours, so lookups must still check the key found
+ * in the primary index. As keys are appended in order, the nodes are written bottom-up, children before their parent,
+ * and packed in pages of {@link #PAGE_SIZE} bytes so that any branch that fits in a page is written within a single
+ * page. A lookup thus reads about one page per level of such branches, and the top ones are shared by all lookups.
+ *
+ * A leaf is made of a byte holding {@code LEAF | n}, followed by the position in the primary index on n bytes. A
+ * branch is made of a byte holding the size n of its pointers, a byte holding its number of children minus one, the
+ * transition bytes to its children in increasing order, then the distance back from the branch to each child on n
+ * bytes. The file ends with the position of the root, on 8 bytes, which is -1 if the sstable has no partitions.
+ */
+public class PartitionIndex extends WrappedSharedCloseable
+{
+    public static final int PAGE_SIZE = 4096;
+
+    private static final int LEAF = 0x80;
+    private static final int FOOTER_SIZE = 8;
+
+    private final FileHandle fh;
+    private final long root;
+
+    private PartitionIndex(FileHandle fh, long root)
+    {
+        super(fh);
+        this.fh = fh;
+        this.root = root;
+    }
+
+    private PartitionIndex(PartitionIndex copy)
+    {
+        super(copy);
+        this.fh = copy.fh;
+        this.root = copy.root;
+    }
+
+    public PartitionIndex sharedCopy()
+    {
+        return new PartitionIndex(this);
+    }
+
+    /**
+     * @return whether the keys of the given partitioner can be written to a partition index, which requires their
+     * tokens to have a byte-comparable representation consistent with their order.
+     */
+    public static boolean supports(IPartitioner partitioner)
+    {
+        // strings tokens are ordered by their UTF-16 code units, and local tokens may use any type
+        return !(partitioner instanceof OrderPreservingPartitioner) && !(partitioner instanceof LocalPartitioner);
+    }
+
+    /**
+     * @return the byte-comparable representation of the given key, ordered like the keys of an sstable.
+     */
+    static ByteBuffer comparableBytes(DecoratedKey key)
+    {
+        IPartitioner partitioner = key.getPartitioner();
+        ComparableBytes bytes = new ComparableBytes(key.getKey().remaining() + 16);
+        partitioner.getTokenValidator().writeComparableBytes(partitioner.getTokenFactory().toByteArray(key.getToken()), bytes);
+        bytes.writeEscaped(key.getKey());
+        return bytes.toByteBuffer();
+    }
+
+    @SuppressWarnings("resource")
+    public static PartitionIndex load(Descriptor descriptor)
+    {
+        String path = descriptor.filenameFor(Component.PARTITION_INDEX);
+        try (FileHandle.Builder builder = new FileHandle.Builder(path).mmapped(DatabaseDescriptor.getIndexAccessMode() == Config.DiskAccessMode.mmap)
+                                                                      .withChunkCache(ChunkCache.instance)
+                                                                      .bufferSize(PAGE_SIZE))
+        {
+            FileHandle fh = builder.complete();
+            try (RandomAccessReader reader = fh.createReader())
+            {
+                reader.seek(fh.dataLength() - FOOTER_SIZE);
+                return new PartitionIndex(fh, reader.readLong());
+            }
+            catch (Throwable t)
+            {
+                fh.close();
+                throw t;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new FSReadError(e, path);
+        }
+    }
+
+    /**
+     * @return the position in the primary index of the only partition of the sstable that may be the given key, or
+     * -1 if the given key is definitely not in the sstable.
+     */
+    public long getPosition(DecoratedKey key)
+    {
+        if (root < 0)
+            return -1;
+
+        ByteBuffer bytes = comparableBytes(key);
+        byte[] transitions = new byte[256];
+        try (RandomAccessReader reader = fh.createReader())
+        {
+            long position = root;
+            for (int i = bytes.position(); ; i++)
+            {
+                reader.seek(position);
+                int header = reader.readUnsignedByte();
+                if ((header & LEAF) != 0)
+                    return readSized(reader, header & ~LEAF);
+
+                // the key is a prefix of other keys, which byte-comparable representations never are
+                if (i == bytes.limit())
+                    return -1;
+
+                int count = reader.readUnsignedByte() + 1;
+                reader.readFully(transitions, 0, count);
+                int child = binarySearch(transitions, count, bytes.get(i) & 0xFF);
+                if (child < 0)
+                    return -1;
+
+                reader.seek(position + 2 + count + child * header);
+                position -= readSized(reader, header);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new FSReadError(e, fh.path());
+        }
+    }
+
+    private static int binarySearch(byte[] transitions, int count, int transition)
+    {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = (transitions[mid] & 0xFF) - transition;
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private static long readSized(RandomAccessReader reader, int size) throws IOException
+    {
+        long value = 0;
+        for (int i = 0; i < size; i++)
+            value = (value << 8) | reader.readUnsignedByte();
+        return value;
+    }
+
+    private static int sizeOf(long value)
+    {
+        return Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 7) / 8);
+    }
+
+    /**
+     * Writes the partition index of an sstable as its keys are appended.
+     */
+    public static class Writer extends Transactional.AbstractTransactional implements Transactional
+    {
+        private final SequentialWriter file;
+
+        // the open branches along the prefix of the last appended key
+        private final List<Node> path = new ArrayList<>();
+
+        // the last appended key is only added to the trie once the next one tells the length of its unique prefix
+        private ByteBuffer pendingKey;
+        private long pendingPosition;
+        private int pendingCommonPrefix;
+
+        private long appendedAtMark;
+        private long appended;
+
+        public Writer(Descriptor descriptor, SequentialWriterOption option)
+        {
+            file = new SequentialWriter(new File(descriptor.filenameFor(Component.PARTITION_INDEX)), option);
+        }
+
+        /**
+         * Adds the given key, whose entry starts at the given position of the primary index. Keys must be appended
+         * in order.
+         */
+        public void append(DecoratedKey key, long indexPosition)
+        {
+            ByteBuffer bytes = comparableBytes(key);
+            int commonPrefix = 0;
+            if (pendingKey != null)
+            {
+                commonPrefix = commonPrefixLength(pendingKey, bytes);
+                addPending(commonPrefix);
+            }
+            pendingKey = bytes;
+            pendingPosition = indexPosition;
+            pendingCommonPrefix = commonPrefix;
+            appended++;
+        }
+
+        private static int commonPrefixLength(ByteBuffer b1, ByteBuffer b2)
+        {
+            int length = Math.min(b1.remaining(), b2.remaining());
+            int i = 0;
+            while (i < length && b1.get(b1.position() + i) == b2.get(b2.position() + i))
+                i++;
+            return i;
+        }
+
+        /**
+         * Adds the pending key to the trie, and completes the branches the next key does not share with it.
+         */
+        private void addPending(int nextCommonPrefix)
+        {
+            int length = Math.max(pendingCommonPrefix, nextCommonPrefix) + 1;
+            while (path.size() < length)
+                path.add(new Node());
+            path.get(length - 1).add(pendingKey.get(pendingKey.position() + length - 1), Node.leaf(pendingPosition));
+
+            while (path.size() > nextCommonPrefix + 1)
+            {
+                int depth = path.size() - 1;
+                Node completed = path.remove(depth);
+                complete(completed);
+                path.get(depth - 1).add(pendingKey.get(pendingKey.position() + depth - 1), completed);
+            }
+        }
+
+        /**
+         * Computes the size of the unwritten branch starting at the given node, writing its children first if the
+         * branch does not fit in a page.
+         */
+        private void complete(Node node)
+        {
+            int branchSize = node.maxSize();
+            for (Node child : node.children)
+                branchSize += child.unwrittenBranchSize();
+
+            if (branchSize > PAGE_SIZE)
+            {
+                for (Node child : node.children)
+                    writeBranch(child);
+                branchSize = node.maxSize();
+            }
+            node.branchSize = branchSize;
+        }
+
+        /**
+         * Writes the unwritten branch starting at the given node within a single page.
+         */
+        private void writeBranch(Node node)
+        {
+            if (node.isWritten())
+                return;
+
+            try
+            {
+                long pageOffset = file.position() % PAGE_SIZE;
+                if (pageOffset + node.branchSize > PAGE_SIZE)
+                {
+                    for (long i = pageOffset; i < PAGE_SIZE; i++)
+                        file.writeByte(0);
+                }
+                write(node);
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, file.getPath());
+            }
+        }
+
+        private void write(Node node) throws IOException
+        {
+            if (node.isLeaf())
+            {
+                node.position = file.position();
+                int size = sizeOf(node.payload);
+                file.writeByte(LEAF | size);
+                writeSized(node.payload, size);
+                return;
+            }
+
+            for (Node child : node.children)
+            {
+                if (!child.isWritten())
+                    write(child);
+            }
+
+            node.position = file.position();
+            long maxDistance = 0;
+            for (Node child : node.children)
+                maxDistance = Math.max(maxDistance, node.position - child.position);
+            int size = sizeOf(maxDistance);
+
+            file.writeByte(size);
+            file.writeByte(node.children.size() - 1);
+            for (int i = 0; i < node.children.size(); i++)
+                file.writeByte(node.transitions[i]);
+            for (Node child : node.children)
+                writeSized(node.position - child.position, size);
+            // the children are not needed anymore, only the position of the node is
+            node.children.clear();
+        }
+
+        private void writeSized(long value, int size) throws IOException
+        {
+            for (int i = size - 1; i >= 0; i--)
+                file.writeByte((int) (value >>> (i * 8)));
+        }
+
+        private void writeRemaining()
+        {
+            try
+            {
+                long root = -1;
+                if (pendingKey != null)
+                {
+                    addPending(0);
+                    Node node = path.remove(0);
+                    complete(node);
+                    writeBranch(node);
+                    root = node.position;
+                }
+                file.writeLong(root);
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, file.getPath());
+            }
+        }
+
+        public void mark()
+        {
+            appendedAtMark = appended;
+        }
+
+        public void resetAndTruncate()
+        {
+            // keys are added to the trie as they are appended, and can't be removed from it
+            if (appended != appendedAtMark)
+                throw new UnsupportedOperationException("Partitions appended to a partition index cannot be removed");
+        }
+
+        protected void doPrepare()
+        {
+            writeRemaining();
+            file.prepareToCommit();
+        }
+
+        protected Throwable doCommit(Throwable accumulate)
+        {
+            return file.commit(accumulate);
+        }
+
+        protected Throwable doAbort(Throwable accumulate)
+        {
+            return file.abort(accumulate);
+        }
+    }
+
+    private static final class Node
+    {
+        // for leaves, the position in the primary index, -1 for branches
+        final long payload;
+        final List<Node> children;
+        byte[] transitions;
+
+        // the size the branch starting at this node takes if written, while it isn't
+        int branchSize;
+        long position = -1;
+
+        private Node(long payload)
+        {
+            this.payload = payload;
+            this.children = payload < 0 ? new ArrayList<>(2) : null;
+            this.transitions = payload < 0 ? new byte[2] : null;
+        }
+
+        Node()
+        {
+            this(-1);
+        }
+
+        static Node leaf(long payload)
+        {
+            Node leaf = new Node(payload);
+            leaf.branchSize = 1 + sizeOf(payload);
+            return leaf;
+        }
+
+        boolean isLeaf()
+        {
+            return payload >= 0;
+        }
+
+        boolean isWritten()
+        {
+            return position >= 0;
+        }
+
+        void add(byte transition, Node child)
+        {
+            if (children.size() == transitions.length)
+                transitions = Arrays.copyOf(transitions, transitions.length * 2);
+            transitions[children.size()] = transition;
+            children.add(child);
+        }
+
+        int unwrittenBranchSize()
+        {
+            return isWritten() ? 0 : branchSize;
+        }
+
+        /**
+         * @return an upper bound of the size of this branch node once written: the distance to children written
+         * along with it is within a page, but children that are already written may be anywhere before it.
+         */
+        int maxSize()
+        {
+            int pointerSize = 2;
+            for (Node child : children)
+            {
+                if (child.isWritten())
+                    pointerSize = 8;
+            }
+            return 2 + children.size() * (1 + pointerSize);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.ClusteringComparator;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.marshal.ComparableBytes;
+import org.apache.cassandra.db.rows.RangeTombstoneMarker;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.db.transform.Transformation;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.util.SequentialWriter;
+import org.apache.cassandra.io.util.SequentialWriterOption;
+import org.apache.cassandra.utils.FilterFactory;
+import org.apache.cassandra.utils.IFilter;
+import org.apache.cassandra.utils.MurmurHash;
+import org.apache.cassandra.utils.concurrent.Transactional;
+import org.apache.cassandra.utils.concurrent.WrappedSharedCloseable;
+
+/**
+ * A Bloom filter over the rows of an sstable, keyed by partition key and clustering, which tells point reads of
+ * rows (see {@link org.apache.cassandra.db.SinglePartitionReadCommand}) that they can skip the sstable without
+ * reading its index, even though it has the partition.
+ *
+ * Besides its rows, the filter has a key for each partition having a partition deletion or range tombstones, since
+ * those may shadow rows of other sstables, and the filter can only rule an sstable out if it has neither. Static
+ * rows are not in the filter. Clusterings are keyed by their byte-comparable representation (see
+ * {@link RowIndex#writeComparableBytes}), so that clusterings equal for their types have the same key whatever their
+ * bytes; the filter of a table clustered by a type without such a representation is empty and never loaded.
+ *
+ * The filter is sized up front for the number of rows the sstable is expected to have (see
+ * {@link org.apache.cassandra.io.sstable.metadata.MetadataCollector#expectedRows}). The {@link Component#ROW_FILTER}
+ * file is that filter, as serialized by {@link FilterFactory#serialize}.
+ */
+public class RowBloomFilter extends WrappedSharedCloseable
+{
+    // follows the partition key in the key of the deletions of a partition, while the clusterings of rows never start
+    // with that byte
+    private static final int PARTITION_DELETIONS = 0x00;
+
+    private final IFilter filter;
+    private final ClusteringComparator comparator;
+
+    private RowBloomFilter(IFilter filter, ClusteringComparator comparator)
+    {
+        super(filter);
+        this.filter = filter;
+        this.comparator = comparator;
+    }
+
+    private RowBloomFilter(RowBloomFilter copy)
+    {
+        super(copy);
+        this.filter = copy.filter;
+        this.comparator = copy.comparator;
+    }
+
+    public RowBloomFilter sharedCopy()
+    {
+        return new RowBloomFilter(this);
+    }
+
+    /**
+     * @return the row filter of the given sstable, or null if the table is clustered by a type that can't be keyed.
+     */
+    public static RowBloomFilter load(Descriptor descriptor, ClusteringComparator comparator)
+    {
+        File file = new File(descriptor.filenameFor(Component.ROW_FILTER));
+        if (file.length() == 0)
+            return null;
+
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            return new RowBloomFilter(FilterFactory.deserialize(stream, true, false), comparator);
+        }
+        catch (IOException e)
+        {
+            throw new FSReadError(e, file);
+        }
+    }
+
+    /**
+     * @return false if the given partition has none of the given rows and no deletion that may shadow them.
+     */
+    public boolean mayContain(DecoratedKey partitionKey, Collection<Clustering> clusterings)
+    {
+        Key key = new Key(comparator);
+        if (filter.isPresent(key.partitionDeletions(partitionKey.getKey())))
+            return true;
+
+        for (Clustering clustering : clusterings)
+        {
+            if (filter.isPresent(key.row(partitionKey.getKey(), clustering)))
+                return true;
+        }
+        return false;
+    }
+
+    public long offHeapSize()
+    {
+        return filter.offHeapSize();
+    }
+
+    /**
+     * The key of a row, or of the deletions of a partition, which can be reused for several keys.
+     */
+    static final class Key implements IFilter.FilterKey
+    {
+        private final ComparableBytes bytes = new ComparableBytes(64);
+        private final ClusteringComparator comparator;
+
+        Key(ClusteringComparator comparator)
+        {
+            this.comparator = comparator;
+        }
+
+        private void writePartitionKey(ByteBuffer partitionKey)
+        {
+            bytes.clear();
+            bytes.writeInt(partitionKey.remaining());
+            bytes.write(partitionKey, 0);
+        }
+
+        /**
+         * @throws UnsupportedOperationException if one of the clustering types has no byte-comparable representation.
+         */
+        Key row(ByteBuffer partitionKey, Clustering clustering)
+        {
+            writePartitionKey(partitionKey);
+            RowIndex.writeComparableBytes(comparator, clustering, bytes);
+            return this;
+        }
+
+        Key partitionDeletions(ByteBuffer partitionKey)
+        {
+            writePartitionKey(partitionKey);
+            bytes.writeByte(PARTITION_DELETIONS);
+            return this;
+        }
+
+        public void filterHash(long[] dest)
+        {
+            ByteBuffer buffer = bytes.toByteBuffer();
+            MurmurHash.hash3_x64_128(buffer, buffer.position(), buffer.remaining(), 0, dest);
+        }
+    }
+
+    /**
+     * Writes the filter of the rows of the partitions appended to an sstable.
+     */
+    public static class Writer extends Transactional.AbstractTransactional implements Transactional
+    {
+        private final Descriptor descriptor;
+        private final SequentialWriterOption option;
+        private final IFilter filter;
+        private final Key key;
+        private final Adder adder = new Adder();
+        private SequentialWriter file;
+
+        // set if the clustering types can't be keyed, in which case the filter is left empty
+        private boolean unsupported;
+
+        private ByteBuffer partitionKey;
+        private boolean hasDeletions;
+
+        /**
+         * @param expectedRows the number of rows the filter is sized for, which may have a higher false positive chance
+         * than the given one if the sstable ends up with more
+         */
+        public Writer(Descriptor descriptor, SequentialWriterOption option, ClusteringComparator comparator, double fpChance, long expectedRows)
+        {
+            this.descriptor = descriptor;
+            this.option = option;
+            this.key = new Key(comparator);
+            filter = FilterFactory.getFilter(Math.max(1, expectedRows), fpChance, true, false, DatabaseDescriptor.useBlockedBloomFilters());
+        }
+
+        /**
+         * Starts adding the given partition.
+         *
+         * @return the partition, whose rows and deletions are added as they are iterated over
+         */
+        public UnfilteredRowIterator filtering(UnfilteredRowIterator partition)
+        {
+            if (unsupported)
+                return partition;
+
+            partitionKey = partition.partitionKey().getKey();
+            hasDeletions = false;
+            if (!partition.partitionLevelDeletion().isLive())
+                addDeletions();
+            return Transformation.apply(partition, adder);
+        }
+
+        private void addDeletions()
+        {
+            if (!hasDeletions)
+            {
+                hasDeletions = true;
+                filter.add(key.partitionDeletions(partitionKey));
+            }
+        }
+
+        protected void doPrepare()
+        {
+            file = new SequentialWriter(new File(descriptor.filenameFor(Component.ROW_FILTER)), option);
+            if (!unsupported)
+            {
+                try
+                {
+                    FilterFactory.serialize(filter, file);
+                }
+                catch (IOException e)
+                {
+                    throw new FSWriteError(e, file.getPath());
+                }
+            }
+            file.prepareToCommit();
+        }
+
+        protected Throwable doCommit(Throwable accumulate)
+        {
+            return file.commit(accumulate);
+        }
+
+        protected Throwable doAbort(Throwable accumulate)
+        {
+            return file == null ? accumulate : file.abort(accumulate);
+        }
+
+        @Override
+        protected Throwable doPostCleanup(Throwable accumulate)
+        {
+            return filter.close(accumulate);
+        }
+
+        private class Adder extends Transformation
+        {
+            @Override
+            public Row applyToRow(Row row)
+            {
+                if (unsupported)
+                    return row;
+
+                try
+                {
+                    filter.add(key.row(partitionKey, row.clustering()));
+                }
+                catch (UnsupportedOperationException e)
+                {
+                    unsupported = true;
+                }
+                return row;
+            }
+
+            @Override
+            public RangeTombstoneMarker applyToMarker(RangeTombstoneMarker marker)
+            {
+                if (!unsupported)
+                    addDeletions();
+                return marker;
+            }
+        }
+    }
+}
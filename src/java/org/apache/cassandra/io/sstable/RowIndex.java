@@ -0,0 +1,504 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.cassandra.cache.ChunkCache;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ClusteringComparator;
+import org.apache.cassandra.db.ClusteringPrefix;
+import org.apache.cassandra.db.marshal.ComparableBytes;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.ISerializer;
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.io.util.DataPosition;
+import org.apache.cassandra.io.util.FileHandle;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.io.util.SequentialWriter;
+import org.apache.cassandra.io.util.SequentialWriterOption;
+import org.apache.cassandra.utils.FastByteOperations;
+import org.apache.cassandra.utils.concurrent.Transactional;
+import org.apache.cassandra.utils.concurrent.WrappedSharedCloseable;
+
+/**
+ * An on-disk B+tree over the {@link IndexInfo} blocks of the widest partitions of an sstable, those whose column
+ * index exceeds {@link org.apache.cassandra.config.Config#column_index_cache_size_in_kb} and is thus searched on
+ * disk. A binary search of such a column index reads two pages of the primary index and deserializes an
+ * {@link IndexInfo} per probe, while the tree finds the block of any clustering in one page read per level of the
+ * tree, comparing the byte-comparable representation of the clustering (see {@link #writeComparableBytes}) with the
+ * keys of each node in place.
+ *
+ * The keys of the tree of a partition are the first and last clusterings of each of its blocks, in order, so that
+ * the rank of a clustering among them tells both the first block that may contain it and the last block that may
+ * contain it (see {@link Searcher}). Each node is written within a page of {@link #PAGE_SIZE} bytes and is made of a
+ * header holding its kind, its number of keys and its size, then for leaves the rank of their first key, and for
+ * branches the position of each child, then the end offset of each key and finally the keys themselves. The first
+ * key of a branch is the first key of its first child.
+ *
+ * The trees are followed by the data file position and the root of the tree of each partition, then by the
+ * position of that directory, on 8 bytes. The directory is kept on heap, which only costs 16 bytes per partition
+ * with a tree.
+ */
+public class RowIndex extends WrappedSharedCloseable
+{
+    public static final int PAGE_SIZE = 4096;
+
+    // keys longer than that would leave too few keys per node, the partitions having some keep their column index only
+    static final int MAX_KEY_SIZE = PAGE_SIZE / 8;
+
+    private static final int LEAF = 0;
+    private static final int BRANCH = 1;
+    private static final int HEADER_SIZE = 5;
+
+    // bytes terminating the representation of a clustering prefix depending on its kind, and preceding each component
+    private static final int BEFORE_CLUSTERINGS = 0x20;
+    private static final int STATIC = 0x28;
+    private static final int CLUSTERING = 0x30;
+    private static final int NULL_COMPONENT = 0x3E;
+    private static final int NEXT_COMPONENT = 0x40;
+    private static final int AFTER_CLUSTERINGS = 0x60;
+
+    private final FileHandle fh;
+    // the data file positions of the partitions with a tree, in order, and the positions of their roots
+    private final long[] partitionPositions;
+    private final long[] roots;
+
+    private RowIndex(FileHandle fh, long[] partitionPositions, long[] roots)
+    {
+        super(fh);
+        this.fh = fh;
+        this.partitionPositions = partitionPositions;
+        this.roots = roots;
+    }
+
+    private RowIndex(RowIndex copy)
+    {
+        super(copy);
+        this.fh = copy.fh;
+        this.partitionPositions = copy.partitionPositions;
+        this.roots = copy.roots;
+    }
+
+    public RowIndex sharedCopy()
+    {
+        return new RowIndex(this);
+    }
+
+    /**
+     * Writes the byte-comparable representation of the given clustering prefix: each component is preceded by a byte
+     * telling whether it is null, and the components are followed by a byte ordering bounds before or after the
+     * clusterings they are a prefix of, like {@link ClusteringComparator#compare(ClusteringPrefix, ClusteringPrefix)}.
+     *
+     * @throws UnsupportedOperationException if one of the clustering types has no byte-comparable representation.
+     */
+    static void writeComparableBytes(ClusteringComparator comparator, ClusteringPrefix prefix, ComparableBytes bytes)
+    {
+        for (int i = 0; i < prefix.size(); i++)
+        {
+            ByteBuffer value = prefix.get(i);
+            if (value == null)
+            {
+                bytes.writeByte(NULL_COMPONENT);
+            }
+            else
+            {
+                bytes.writeByte(NEXT_COMPONENT);
+                comparator.subtype(i).writeComparableBytes(value, bytes);
+            }
+        }
+
+        switch (prefix.kind())
+        {
+            case STATIC_CLUSTERING:
+                bytes.writeByte(STATIC);
+                break;
+            case CLUSTERING:
+                bytes.writeByte(CLUSTERING);
+                break;
+            default:
+                bytes.writeByte(prefix.kind().comparedToClustering < 0 ? BEFORE_CLUSTERINGS : AFTER_CLUSTERINGS);
+        }
+    }
+
+    @SuppressWarnings("resource")
+    public static RowIndex load(Descriptor descriptor)
+    {
+        String path = descriptor.filenameFor(Component.ROW_INDEX);
+        try (FileHandle.Builder builder = new FileHandle.Builder(path).mmapped(DatabaseDescriptor.getIndexAccessMode() == Config.DiskAccessMode.mmap)
+                                                                      .withChunkCache(ChunkCache.instance)
+                                                                      .bufferSize(PAGE_SIZE))
+        {
+            FileHandle fh = builder.complete();
+            try (RandomAccessReader reader = fh.createReader())
+            {
+                reader.seek(fh.dataLength() - 8);
+                reader.seek(reader.readLong());
+                int count = reader.readInt();
+                long[] partitionPositions = new long[count];
+                long[] roots = new long[count];
+                for (int i = 0; i < count; i++)
+                {
+                    partitionPositions[i] = reader.readLong();
+                    roots[i] = reader.readLong();
+                }
+                return new RowIndex(fh, partitionPositions, roots);
+            }
+            catch (Throwable t)
+            {
+                fh.close();
+                throw t;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new FSReadError(e, path);
+        }
+    }
+
+    /**
+     * @return a searcher of the tree of the partition starting at the given position of the data file, or null if
+     * that partition has no tree. The searcher must be closed.
+     */
+    public Searcher open(long dataPosition, ClusteringComparator comparator)
+    {
+        int i = Arrays.binarySearch(partitionPositions, dataPosition);
+        return i < 0 ? null : new Searcher(fh, roots[i], comparator);
+    }
+
+    /**
+     * Finds the column index blocks of clusterings in the tree of a partition. Searches read the nodes into a reused
+     * page and compare the keys in place, so they allocate nothing.
+     */
+    public static class Searcher implements AutoCloseable
+    {
+        private final RandomAccessReader reader;
+        private final long root;
+        private final ClusteringComparator comparator;
+
+        private final ComparableBytes bound = new ComparableBytes(64);
+        private final byte[] node = new byte[PAGE_SIZE];
+
+        private Searcher(FileHandle fh, long root, ClusteringComparator comparator)
+        {
+            this.reader = fh.createReader();
+            this.root = root;
+            this.comparator = comparator;
+        }
+
+        /**
+         * @return the index of the first block whose last clustering is not before the given one, as searched
+         * with {@link ClusteringComparator#indexComparator(boolean)} for forward reads.
+         */
+        public int firstBlockNotBefore(ClusteringPrefix clustering) throws IOException
+        {
+            // the keys before the rank are the first and last clusterings of the blocks before the searched one, and
+            // maybe the first clustering of the searched one
+            return rank(clustering, false) / 2;
+        }
+
+        /**
+         * @return the index of the last block whose first clustering is not after the given one, as searched with
+         * {@link ClusteringComparator#indexComparator(boolean)} for reversed reads, or -1 if there is none.
+         */
+        public int lastBlockNotAfter(ClusteringPrefix clustering) throws IOException
+        {
+            // the keys up to the rank are the clusterings of the blocks before the searched one and its first clustering
+            return (rank(clustering, true) + 1) / 2 - 1;
+        }
+
+        /**
+         * @return the number of keys that are before the given clustering, or not after it if {@code inclusive}.
+         */
+        private int rank(ClusteringPrefix clustering, boolean inclusive) throws IOException
+        {
+            bound.clear();
+            writeComparableBytes(comparator, clustering, bound);
+            ByteBuffer key = bound.toByteBuffer();
+
+            long position = root;
+            while (true)
+            {
+                reader.seek(position);
+                reader.readFully(node, 0, HEADER_SIZE);
+                int kind = node[0];
+                int count = readUnsignedShort(1);
+                reader.readFully(node, HEADER_SIZE, readUnsignedShort(3) - HEADER_SIZE);
+
+                int keyEnds = HEADER_SIZE + (kind == LEAF ? 4 : count * 8);
+                int keys = keyEnds + count * 2;
+                int before = countBefore(key, inclusive, count, keyEnds, keys);
+                if (kind == LEAF)
+                    return readInt(HEADER_SIZE) + before;
+
+                // the rank is within the last child whose first key is before the searched one
+                position = readLong(HEADER_SIZE + Math.max(before - 1, 0) * 8);
+            }
+        }
+
+        private int countBefore(ByteBuffer key, boolean inclusive, int count, int keyEnds, int keys)
+        {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                int start = mid == 0 ? 0 : readUnsignedShort(keyEnds + (mid - 1) * 2);
+                int end = readUnsignedShort(keyEnds + mid * 2);
+                int cmp = FastByteOperations.compareUnsigned(node, keys + start, end - start, key);
+                if (cmp < 0 || (inclusive && cmp == 0))
+                    low = mid + 1;
+                else
+                    high = mid - 1;
+            }
+            return low;
+        }
+
+        private int readUnsignedShort(int offset)
+        {
+            return ((node[offset] & 0xFF) << 8) | (node[offset + 1] & 0xFF);
+        }
+
+        private int readInt(int offset)
+        {
+            return (readUnsignedShort(offset) << 16) | readUnsignedShort(offset + 2);
+        }
+
+        private long readLong(int offset)
+        {
+            return ((long) readInt(offset) << 32) | (readInt(offset + 4) & 0xFFFFFFFFL);
+        }
+
+        public void close()
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Writes the trees of the partitions of an sstable as they are appended.
+     */
+    public static class Writer extends Transactional.AbstractTransactional implements Transactional
+    {
+        private final SequentialWriter file;
+        private final ClusteringComparator comparator;
+        private final ISerializer<IndexInfo> serializer;
+
+        // set once a clustering type turns out to have no byte-comparable representation
+        private boolean unsupported;
+
+        private long[] partitionPositions = new long[16];
+        private long[] roots = new long[16];
+        private int count;
+
+        private DataPosition mark;
+        private int countAtMark;
+
+        public Writer(Descriptor descriptor, SequentialWriterOption option, ClusteringComparator comparator, ISerializer<IndexInfo> serializer)
+        {
+            this.file = new SequentialWriter(new File(descriptor.filenameFor(Component.ROW_INDEX)), option);
+            this.comparator = comparator;
+            this.serializer = serializer;
+        }
+
+        /**
+         * Writes the tree of a partition, unless its clusterings can't be represented in one.
+         *
+         * @param dataPosition the position of the partition in the data file
+         * @param indexInfo the serialized {@link IndexInfo} blocks of the partition
+         * @param blocks the number of blocks of the partition
+         */
+        public void append(long dataPosition, ByteBuffer indexInfo, int blocks)
+        {
+            if (unsupported)
+                return;
+
+            List<ByteBuffer> keys = new ArrayList<>(blocks * 2);
+            try
+            {
+                DataInputBuffer in = new DataInputBuffer(indexInfo, true);
+                for (int i = 0; i < blocks; i++)
+                {
+                    IndexInfo info = serializer.deserialize(in);
+                    keys.add(comparableBytes(info.firstName));
+                    keys.add(comparableBytes(info.lastName));
+                }
+            }
+            catch (UnsupportedOperationException e)
+            {
+                unsupported = true;
+                return;
+            }
+            catch (IOException e)
+            {
+                throw new AssertionError(e);
+            }
+
+            for (ByteBuffer key : keys)
+            {
+                if (key.remaining() > MAX_KEY_SIZE)
+                    return;
+            }
+
+            try
+            {
+                long root = writeTree(keys);
+                if (count == partitionPositions.length)
+                {
+                    partitionPositions = Arrays.copyOf(partitionPositions, count * 2);
+                    roots = Arrays.copyOf(roots, count * 2);
+                }
+                partitionPositions[count] = dataPosition;
+                roots[count] = root;
+                count++;
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, file.getPath());
+            }
+        }
+
+        private ByteBuffer comparableBytes(ClusteringPrefix clustering)
+        {
+            ComparableBytes bytes = new ComparableBytes(clustering.dataSize() + clustering.size() * 2 + 1);
+            writeComparableBytes(comparator, clustering, bytes);
+            return bytes.toByteBuffer();
+        }
+
+        /**
+         * Writes the given keys in leaves, then the first key of each node of a level in the nodes of the level above,
+         * up to a single root node.
+         *
+         * @return the position of the root.
+         */
+        private long writeTree(List<ByteBuffer> keys) throws IOException
+        {
+            boolean leaves = true;
+            long[] children = null;
+            while (true)
+            {
+                List<ByteBuffer> firstKeys = new ArrayList<>();
+                long[] positions = new long[keys.size()];
+                int start = 0;
+                while (start < keys.size())
+                {
+                    int size = HEADER_SIZE + (leaves ? 4 : 0);
+                    int end = start;
+                    while (end < keys.size() && size + entrySize(leaves, keys.get(end)) <= PAGE_SIZE)
+                        size += entrySize(leaves, keys.get(end++));
+
+                    positions[firstKeys.size()] = writeNode(leaves, keys, children, start, end, size);
+                    firstKeys.add(keys.get(start));
+                    start = end;
+                }
+
+                if (firstKeys.size() == 1)
+                    return positions[0];
+
+                keys = firstKeys;
+                children = positions;
+                leaves = false;
+            }
+        }
+
+        private static int entrySize(boolean leaves, ByteBuffer key)
+        {
+            return (leaves ? 0 : 8) + 2 + key.remaining();
+        }
+
+        private long writeNode(boolean leaves, List<ByteBuffer> keys, long[] children, int start, int end, int size) throws IOException
+        {
+            // nodes never straddle pages
+            long pageOffset = file.position() % PAGE_SIZE;
+            if (pageOffset + size > PAGE_SIZE)
+            {
+                for (long i = pageOffset; i < PAGE_SIZE; i++)
+                    file.writeByte(0);
+            }
+
+            long position = file.position();
+            file.writeByte(leaves ? LEAF : BRANCH);
+            file.writeShort(end - start);
+            file.writeShort(size);
+            if (leaves)
+                file.writeInt(start);
+            else
+                for (int i = start; i < end; i++)
+                    file.writeLong(children[i]);
+
+            int keyEnd = 0;
+            for (int i = start; i < end; i++)
+            {
+                keyEnd += keys.get(i).remaining();
+                file.writeShort(keyEnd);
+            }
+            for (int i = start; i < end; i++)
+                file.write(keys.get(i).duplicate());
+            return position;
+        }
+
+        public void mark()
+        {
+            mark = file.mark();
+            countAtMark = count;
+        }
+
+        public void resetAndTruncate()
+        {
+            file.resetAndTruncate(mark);
+            count = countAtMark;
+        }
+
+        protected void doPrepare()
+        {
+            try
+            {
+                long directory = file.position();
+                file.writeInt(count);
+                for (int i = 0; i < count; i++)
+                {
+                    file.writeLong(partitionPositions[i]);
+                    file.writeLong(roots[i]);
+                }
+                file.writeLong(directory);
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, file.getPath());
+            }
+            file.prepareToCommit();
+        }
+
+        protected Throwable doCommit(Throwable accumulate)
+        {
+            return file.commit(accumulate);
+        }
+
+        protected Throwable doAbort(Throwable accumulate)
+        {
+            return file.abort(accumulate);
+        }
+    }
+}
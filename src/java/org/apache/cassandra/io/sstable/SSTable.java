@@ -159,6 +159,11 @@ public abstract class SSTable
         return descriptor.ksname;
     }
 
+    public Set<Component> getComponents()
+    {
+        return Collections.unmodifiableSet(components);
+    }
+
     public List<String> getAllFilePaths()
     {
         List<String> ret = new ArrayList<>();
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable.format;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.PartitionIndex;
+import org.apache.cassandra.io.sstable.RowBloomFilter;
+import org.apache.cassandra.io.sstable.RowIndex;
+import org.apache.cassandra.utils.Throwables;
+import org.apache.cassandra.utils.concurrent.Ref;
+import org.apache.cassandra.utils.concurrent.SharedCloseable;
+
+/**
+ * The components an sstable may or may not have, kept in memory by its readers: the trie of its partition keys, the
+ * trees of the column indexes of its widest partitions and the filter of its rows. Each is null if the sstable
+ * doesn't have it.
+ *
+ * Like the components it holds, an instance is shared by copy and must be closed by each of its owners.
+ */
+public final class OptionalComponents
+{
+    public static final OptionalComponents NONE = new OptionalComponents(null, null, null);
+
+    public final PartitionIndex partitionIndex;
+    public final RowIndex rowIndex;
+    public final RowBloomFilter rowFilter;
+
+    private OptionalComponents(PartitionIndex partitionIndex, RowIndex rowIndex, RowBloomFilter rowFilter)
+    {
+        this.partitionIndex = partitionIndex;
+        this.rowIndex = rowIndex;
+        this.rowFilter = rowFilter;
+    }
+
+    /**
+     * Loads those of the components of the given sstable that it has.
+     */
+    @SuppressWarnings("resource")
+    public static OptionalComponents load(Descriptor descriptor, Set<Component> components, CFMetaData metadata)
+    {
+        PartitionIndex partitionIndex = null;
+        RowIndex rowIndex = null;
+        RowBloomFilter rowFilter = null;
+        try
+        {
+            if (components.contains(Component.PARTITION_INDEX))
+                partitionIndex = PartitionIndex.load(descriptor);
+
+            if (components.contains(Component.ROW_INDEX))
+                rowIndex = RowIndex.load(descriptor);
+
+            if (components.contains(Component.ROW_FILTER))
+                rowFilter = RowBloomFilter.load(descriptor, metadata.comparator);
+        }
+        catch (Throwable t)
+        {
+            // release those loaded already, adding any failure to do so to the one thrown
+            new OptionalComponents(partitionIndex, rowIndex, rowFilter).close(t);
+            throw t;
+        }
+
+        if (partitionIndex == null && rowIndex == null && rowFilter == null)
+            return NONE;
+        return new OptionalComponents(partitionIndex, rowIndex, rowFilter);
+    }
+
+    public OptionalComponents sharedCopy()
+    {
+        if (this == NONE)
+            return NONE;
+        return new OptionalComponents(partitionIndex != null ? partitionIndex.sharedCopy() : null,
+                                      rowIndex != null ? rowIndex.sharedCopy() : null,
+                                      rowFilter != null ? rowFilter.sharedCopy() : null);
+    }
+
+    /**
+     * @return the amount of memory in bytes used off heap by the row filter, if there is one
+     */
+    public long rowFilterOffHeapSize()
+    {
+        return rowFilter == null ? 0 : rowFilter.offHeapSize();
+    }
+
+    public void close()
+    {
+        Throwables.maybeFail(close(null));
+    }
+
+    public Throwable close(Throwable accumulate)
+    {
+        return Throwables.close(accumulate, present());
+    }
+
+    public void addTo(Ref.IdentityCollection identities)
+    {
+        for (SharedCloseable component : present())
+            component.addTo(identities);
+    }
+
+    private List<SharedCloseable> present()
+    {
+        List<SharedCloseable> present = new ArrayList<>(3);
+        if (partitionIndex != null)
+            present.add(partitionIndex);
+        if (rowIndex != null)
+            present.add(rowIndex);
+        if (rowFilter != null)
+            present.add(rowFilter);
+        return present;
+    }
+}
@@ -39,6 +39,7 @@ import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
 import com.clearspring.analytics.stream.cardinality.ICardinality;
 
 import org.apache.cassandra.cache.ChunkCache;
+import org.apache.cassandra.cache.CompressedChunkCache;
 import org.apache.cassandra.cache.InstrumentingCache;
 import org.apache.cassandra.cache.KeyCacheKey;
 import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
@@ -196,6 +197,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
     protected FileHandle ifile;
     protected FileHandle dfile;
     protected IndexSummary indexSummary;
+    protected OptionalComponents optionalComponents = OptionalComponents.NONE;
     protected IFilter bf;
 
     protected final RowIndexEntry.IndexSerializer rowIndexEntrySerializer;
@@ -438,7 +440,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                                                      .withChunkCache(ChunkCache.instance);
             FileHandle.Builder dbuilder = new FileHandle.Builder(sstable.descriptor.filenameFor(Component.DATA)).compressed(sstable.compression)
                                                      .mmapped(DatabaseDescriptor.getDiskAccessMode() == Config.DiskAccessMode.mmap)
-                                                     .withChunkCache(ChunkCache.instance))
+                                                     .withChunkCache(ChunkCache.instance)
+                                                     .withCompressedChunkCache(CompressedChunkCache.instance))
         {
             if (!sstable.loadSummary())
                 sstable.buildSummary(false, false, Downsampling.BASE_SAMPLING_LEVEL);
@@ -594,7 +597,27 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                                       OpenReason openReason,
                                       SerializationHeader header)
     {
-        assert desc != null && ifile != null && dfile != null && isummary != null && bf != null && sstableMetadata != null;
+        return internalOpen(desc, components, metadata, ifile, dfile, isummary, OptionalComponents.NONE, bf, maxDataAge, sstableMetadata, openReason, header);
+    }
+
+    /**
+     * Open a RowIndexedReader which already has its state initialized (by SSTableWriter), including those of its
+     * optional components that it has.
+     */
+    public static SSTableReader internalOpen(Descriptor desc,
+                                      Set<Component> components,
+                                      CFMetaData metadata,
+                                      FileHandle ifile,
+                                      FileHandle dfile,
+                                      IndexSummary isummary,
+                                      OptionalComponents optionalComponents,
+                                      IFilter bf,
+                                      long maxDataAge,
+                                      StatsMetadata sstableMetadata,
+                                      OpenReason openReason,
+                                      SerializationHeader header)
+    {
+        assert desc != null && ifile != null && dfile != null && isummary != null && optionalComponents != null && bf != null && sstableMetadata != null;
 
         SSTableReader reader = internalOpen(desc, components, metadata, maxDataAge, sstableMetadata, openReason, header);
 
@@ -602,6 +625,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         reader.ifile = ifile;
         reader.dfile = dfile;
         reader.indexSummary = isummary;
+        reader.optionalComponents = optionalComponents;
         reader.setup(true);
 
         return reader;
@@ -742,7 +766,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                                                      .withChunkCache(ChunkCache.instance);
             FileHandle.Builder dbuilder = new FileHandle.Builder(descriptor.filenameFor(Component.DATA)).compressed(compression)
                                                      .mmapped(DatabaseDescriptor.getDiskAccessMode() == Config.DiskAccessMode.mmap)
-                                                     .withChunkCache(ChunkCache.instance))
+                                                     .withChunkCache(ChunkCache.instance)
+                                                     .withCompressedChunkCache(CompressedChunkCache.instance))
         {
             boolean summaryLoaded = loadSummary();
             boolean builtSummary = false;
@@ -763,6 +788,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
 
             dfile = dbuilder.bufferSize(dataBufferSize).complete();
 
+            optionalComponents = OptionalComponents.load(descriptor, components, metadata);
+
             if (saveSummaryIfCreated && builtSummary)
                 saveSummary();
         }
@@ -786,6 +813,9 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                 indexSummary = null;
             }
 
+            optionalComponents.close();
+            optionalComponents = OptionalComponents.NONE;
+
             throw t;
         }
     }
@@ -812,7 +842,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                     : estimateRowsFromIndex(primaryIndex); // statistics is supposed to be optional
 
             if (recreateBloomFilter)
-                bf = FilterFactory.getFilter(estimatedKeys, metadata.params.bloomFilterFpChance, true, descriptor.version.hasOldBfHashOrder());
+                bf = FilterFactory.getFilter(estimatedKeys, metadata.params.bloomFilterFpChance, true, descriptor.version.hasOldBfHashOrder(), DatabaseDescriptor.useBlockedBloomFilters());
 
             try (IndexSummaryBuilder summaryBuilder = summaryLoaded ? null : new IndexSummaryBuilder(estimatedKeys, metadata.params.minIndexInterval, samplingLevel))
             {
@@ -1013,6 +1043,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                                                  ifile != null ? ifile.sharedCopy() : null,
                                                  dfile.sharedCopy(),
                                                  newSummary,
+                                                 optionalComponents.sharedCopy(),
                                                  bf.sharedCopy(),
                                                  maxDataAge,
                                                  sstableMetadata,
@@ -1287,6 +1318,14 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         return bf.offHeapSize();
     }
 
+    /**
+     * @return the amount of memory in bytes used off heap by the row filter, if the sstable has one
+     */
+    public long getRowFilterOffHeapSize()
+    {
+        return optionalComponents.rowFilterOffHeapSize();
+    }
+
     /**
      * @return An estimate of the number of keys in this SSTable based on the index summary.
      */
@@ -1712,6 +1751,54 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         return dfile.createReader(position);
     }
 
+    /**
+     * Starts reading the chunks of the given range of the data file asynchronously, for a read that is about to go
+     * through it from the given position, which is the start of the range for forward reads, and the start of its last
+     * block for reversed ones (see {@link org.apache.cassandra.io.util.RebuffererFactory#prefetch}).
+     *
+     * The range is capped to the chunk_prefetch_size_in_kb bytes that the read goes through first. The sstable is
+     * referenced until the chunks are read, so that they are not read from a released file, nor cached after it.
+     */
+    public void prefetchData(long start, long end, long first)
+    {
+        long maxSize = DatabaseDescriptor.getChunkPrefetchSizeInKB() * 1024L;
+        if (maxSize <= 0 || !ChunkReadExecutor.instance.isAsync())
+            return;
+
+        Ref<SSTableReader> ref = tryRef();
+        if (ref == null)
+            return;
+
+        CompletableFuture<Void> prefetch;
+        try
+        {
+            prefetch = end - first >= maxSize
+                       ? dfile.prefetch(first, first + maxSize, first)
+                       : dfile.prefetch(Math.max(start, first - (maxSize - (end - first))), end, first);
+        }
+        catch (Throwable t)
+        {
+            ref.release();
+            throw t;
+        }
+
+        prefetch.whenComplete((ignored, t) -> {
+            ref.release();
+            if (t != null)
+                logger.warn("Failed to prefetch the data of {} from position {}", getFilename(), first, t);
+        });
+    }
+
+    /**
+     * Drops the beginning of the data and index files, up to the given positions, from the OS page cache.
+     */
+    public void dropPageCache(long dataPosition, long indexPosition)
+    {
+        // a position of 0 would drop the whole file
+        if (dataPosition > 0)
+            new DropPageCache(dfile, dataPosition, indexPosition > 0 ? ifile : null, indexPosition, null).run();
+    }
+
     /**
      * Tests if the sstable contains data newer than the given age param (in localhost currentMilli time).
      * This works in conjunction with maxDataAge which is an upper bound on the create of data in this sstable.
@@ -1938,6 +2025,28 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         return null;
     }
 
+    /**
+     * Opens a reader over the data file for an operation that reads through it once, like a compaction, a repair
+     * validation or streaming, which should not add the chunks it reads to the chunk cache.
+     *
+     * @param limiter the rate limiter for the reads, or null
+     */
+    public RandomAccessReader openDataScanReader(RateLimiter limiter)
+    {
+        return dfile.createScanReader(limiter);
+    }
+
+    /**
+     * Opens a reader over the index file for an operation that reads through it once, which should not add the chunks
+     * it reads to the chunk cache.
+     */
+    public RandomAccessReader openIndexScanReader()
+    {
+        if (ifile != null)
+            return ifile.createScanReader(null);
+        return null;
+    }
+
     public ChannelProxy getDataChannel()
     {
         return dfile.channel;
@@ -1953,6 +2062,30 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         return ifile;
     }
 
+    /**
+     * @return a searcher of the on-disk tree of the column index of the given partition, or null if the partition
+     * has none, in which case its column index must be searched. The searcher must be closed.
+     */
+    public RowIndex.Searcher openRowIndex(RowIndexEntry<?> indexEntry)
+    {
+        // column indexes kept on heap are searched at least as fast as a tree
+        RowIndex rowIndex = optionalComponents.rowIndex;
+        if (rowIndex == null || !indexEntry.isIndexed() || indexEntry.indexOnHeap())
+            return null;
+
+        return rowIndex.open(indexEntry.position, metadata.comparator);
+    }
+
+    /**
+     * @return false if the given partition of this sstable has none of the given rows and no deletion that may shadow
+     * them, which is only known if the sstable has a row filter.
+     */
+    public boolean mayContainRows(DecoratedKey key, Collection<Clustering> clusterings)
+    {
+        RowBloomFilter rowFilter = optionalComponents.rowFilter;
+        return rowFilter == null || rowFilter.mayContain(key, clusterings);
+    }
+
     /**
      * @param component component to get timestamp.
      * @return last modified time for given component. 0 if given component does not exist or IO error occurs.
@@ -2066,7 +2199,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         ifile.addTo(identities);
         bf.addTo(identities);
         indexSummary.addTo(identities);
-
+        optionalComponents.addTo(identities);
     }
 
     /**
@@ -2084,6 +2217,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         private final CFMetaData metadata;
         private IFilter bf;
         private IndexSummary summary;
+        private OptionalComponents optionalComponents;
 
         private FileHandle dfile;
         private FileHandle ifile;
@@ -2102,6 +2236,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
             this.setup = true;
             this.bf = reader.bf;
             this.summary = reader.indexSummary;
+            this.optionalComponents = reader.optionalComponents;
             this.dfile = reader.dfile;
             this.ifile = reader.ifile;
             // get a new reference to the shared descriptor-type tidy
@@ -2143,6 +2278,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                         bf.close();
                     if (summary != null)
                         summary.close();
+                    if (optionalComponents != null)
+                        optionalComponents.close();
                     if (runOnClose != null)
                         runOnClose.run();
                     if (dfile != null)
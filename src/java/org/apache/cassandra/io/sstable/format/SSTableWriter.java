@@ -36,6 +36,7 @@ import org.apache.cassandra.index.Index;
 import org.apache.cassandra.io.FSWriteError;
 import org.apache.cassandra.io.sstable.Component;
 import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.PartitionIndex;
 import org.apache.cassandra.io.sstable.SSTable;
 import org.apache.cassandra.io.sstable.format.big.BigFormat;
 import org.apache.cassandra.io.sstable.metadata.MetadataCollector;
@@ -172,6 +173,19 @@ public abstract class SSTableWriter extends SSTable implements Transactional
             // but the components are unmodifiable after construction
             components.add(Component.CRC);
         }
+
+        if (DatabaseDescriptor.writePartitionHashes())
+            components.add(Component.PARTITION_HASHES);
+
+        if (DatabaseDescriptor.writePartitionIndex() && PartitionIndex.supports(metadata.partitioner))
+            components.add(Component.PARTITION_INDEX);
+
+        // partitions without clustering columns have a single row, and never a column index
+        if (DatabaseDescriptor.writeRowIndex() && metadata.comparator.size() > 0)
+            components.add(Component.ROW_INDEX);
+
+        if (DatabaseDescriptor.writeRowFilter() && metadata.comparator.size() > 0 && metadata.params.bloomFilterFpChance < 1.0)
+            components.add(Component.ROW_FILTER);
         return components;
     }
 
@@ -179,6 +179,9 @@ public class BigTableReader extends SSTableReader
             return null;
         }
 
+        if (op == Operator.EQ && optionalComponents.partitionIndex != null)
+            return getPositionFromPartitionIndex((DecoratedKey) key, updateCacheAndStats);
+
         int binarySearchResult = indexSummary.binarySearch(key);
         long sampledPosition = getIndexScanPositionFromBinarySearchResult(binarySearchResult, indexSummary);
         int sampledIndex = getIndexSummaryIndexFromBinarySearchResult(binarySearchResult);
@@ -271,5 +274,44 @@ public class BigTableReader extends SSTableReader
         return null;
     }
 
+    /**
+     * Finds the index entry of the given key through the partition index, which points directly to the only entry
+     * of the primary index that may match.
+     */
+    private RowIndexEntry getPositionFromPartitionIndex(DecoratedKey key, boolean updateCacheAndStats)
+    {
+        if (ifile == null)
+            return null;
+
+        long indexPosition = optionalComponents.partitionIndex.getPosition(key);
+        if (indexPosition >= 0)
+        {
+            try (FileDataInput in = ifile.createReader(indexPosition))
+            {
+                if (ByteBufferUtil.readWithShortLength(in).equals(key.getKey()))
+                {
+                    RowIndexEntry indexEntry = rowIndexEntrySerializer.deserialize(in, in.getFilePointer());
+                    if (updateCacheAndStats)
+                    {
+                        cacheKey(key, indexEntry);
+                        bloomFilterTracker.addTruePositive();
+                    }
+                    Tracing.trace("Partition index with {} entries found for sstable {}", indexEntry.columnsIndexCount(), descriptor.generation);
+                    return indexEntry;
+                }
+            }
+            catch (IOException e)
+            {
+                markSuspect();
+                throw new CorruptSSTableException(e, ifile.path());
+            }
+        }
+
+        if (updateCacheAndStats)
+            bloomFilterTracker.addFalsePositive();
+        Tracing.trace("Partition trie lookup allows skipping sstable {} (bloom filter false positive)", descriptor.generation);
+        return null;
+    }
+
 
 }
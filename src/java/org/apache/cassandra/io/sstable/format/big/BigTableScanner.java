@@ -26,6 +26,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.util.concurrent.RateLimiter;
 
 import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.rows.*;
 import org.apache.cassandra.db.filter.*;
@@ -65,15 +66,18 @@ public class BigTableScanner implements ISSTableScanner
 
     protected Iterator<UnfilteredRowIterator> iterator;
 
+    // the position of the data file up to which the pages were dropped from the page cache
+    private long pageCacheDroppedPosition = 0;
+
     // Full scan of the sstables
     public static ISSTableScanner getScanner(SSTableReader sstable, RateLimiter limiter)
     {
-        return new BigTableScanner(sstable, ColumnFilter.all(sstable.metadata), null, limiter, false, Iterators.singletonIterator(fullRange(sstable)));
+        return new BigTableScanner(sstable, ColumnFilter.all(sstable.metadata), null, limiter, false, Iterators.singletonIterator(fullRange(sstable)), false);
     }
 
     public static ISSTableScanner getScanner(SSTableReader sstable, ColumnFilter columns, DataRange dataRange, RateLimiter limiter, boolean isForThrift)
     {
-        return new BigTableScanner(sstable, columns, dataRange, limiter, isForThrift, makeBounds(sstable, dataRange).iterator());
+        return new BigTableScanner(sstable, columns, dataRange, limiter, isForThrift, makeBounds(sstable, dataRange).iterator(), true);
     }
 
     public static ISSTableScanner getScanner(SSTableReader sstable, Collection<Range<Token>> tokenRanges, RateLimiter limiter)
@@ -83,20 +87,33 @@ public class BigTableScanner implements ISSTableScanner
         if (positions.isEmpty())
             return new EmptySSTableScanner(sstable);
 
-        return new BigTableScanner(sstable, ColumnFilter.all(sstable.metadata), null, limiter, false, makeBounds(sstable, tokenRanges).iterator());
+        return new BigTableScanner(sstable, ColumnFilter.all(sstable.metadata), null, limiter, false, makeBounds(sstable, tokenRanges).iterator(), false);
     }
 
     public static ISSTableScanner getScanner(SSTableReader sstable, Iterator<AbstractBounds<PartitionPosition>> rangeIterator)
     {
-        return new BigTableScanner(sstable, ColumnFilter.all(sstable.metadata), null, null, false, rangeIterator);
+        return new BigTableScanner(sstable, ColumnFilter.all(sstable.metadata), null, null, false, rangeIterator, false);
     }
 
-    private BigTableScanner(SSTableReader sstable, ColumnFilter columns, DataRange dataRange, RateLimiter limiter, boolean isForThrift, Iterator<AbstractBounds<PartitionPosition>> rangeIterator)
+    /**
+     * @param useChunkCache whether the chunks read should be added to the chunk cache: only the scanners of the user
+     * queries do, the scanners that go through whole sstables for compactions, validations or streaming must not
+     * evict the chunks used by the reads.
+     */
+    private BigTableScanner(SSTableReader sstable, ColumnFilter columns, DataRange dataRange, RateLimiter limiter, boolean isForThrift, Iterator<AbstractBounds<PartitionPosition>> rangeIterator, boolean useChunkCache)
     {
         assert sstable != null;
 
-        this.dfile = limiter == null ? sstable.openDataReader() : sstable.openDataReader(limiter);
-        this.ifile = sstable.openIndexReader();
+        if (useChunkCache)
+        {
+            this.dfile = limiter == null ? sstable.openDataReader() : sstable.openDataReader(limiter);
+            this.ifile = sstable.openIndexReader();
+        }
+        else
+        {
+            this.dfile = sstable.openDataScanReader(limiter);
+            this.ifile = sstable.openIndexScanReader();
+        }
         this.sstable = sstable;
         this.columns = columns;
         this.dataRange = dataRange;
@@ -228,6 +245,17 @@ public class BigTableScanner implements ISSTableScanner
         return sstable.toString();
     }
 
+    public void dropPageCacheBehind()
+    {
+        // drop the pages in batches of trickle_fsync_interval_in_kb, like the writes of the same operations
+        long position = dfile.getFilePointer();
+        if (position - pageCacheDroppedPosition < DatabaseDescriptor.getTrickleFsyncIntervalInKb() * 1024L)
+            return;
+
+        sstable.dropPageCache(position, ifile.getFilePointer());
+        pageCacheDroppedPosition = position;
+    }
+
     public boolean isForThrift()
     {
         return isForThrift;
@@ -29,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.cache.ChunkCache;
+import org.apache.cassandra.cache.CompressedChunkCache;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
@@ -39,6 +40,7 @@ import org.apache.cassandra.db.transform.Transformation;
 import org.apache.cassandra.io.FSWriteError;
 import org.apache.cassandra.io.compress.CompressedSequentialWriter;
 import org.apache.cassandra.io.sstable.*;
+import org.apache.cassandra.io.sstable.format.OptionalComponents;
 import org.apache.cassandra.io.sstable.format.SSTableFlushObserver;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.sstable.format.SSTableWriter;
@@ -56,6 +58,8 @@ public class BigTableWriter extends SSTableWriter
 
     private final ColumnIndex columnIndexWriter;
     private final IndexWriter iwriter;
+    private final PartitionHashes.Writer partitionHashes;
+    private final RowBloomFilter.Writer rowFilter;
     private final FileHandle.Builder dbuilder;
     protected final SequentialWriter dataFile;
     private DecoratedKey lastWrittenKey;
@@ -63,10 +67,7 @@ public class BigTableWriter extends SSTableWriter
     private long lastEarlyOpenLength = 0;
     private final Optional<ChunkCache> chunkCache = Optional.ofNullable(ChunkCache.instance);
 
-    private final SequentialWriterOption writerOption = SequentialWriterOption.newBuilder()
-                                                        .trickleFsync(DatabaseDescriptor.getTrickleFsync())
-                                                        .trickleFsyncByteInterval(DatabaseDescriptor.getTrickleFsyncIntervalInKb() * 1024)
-                                                        .build();
+    private final SequentialWriterOption writerOption;
 
     public BigTableWriter(Descriptor descriptor,
                           long keyCount,
@@ -80,6 +81,12 @@ public class BigTableWriter extends SSTableWriter
         super(descriptor, keyCount, repairedAt, metadata, metadataCollector, header, observers);
         txn.trackNew(this); // must track before any files are created
 
+        writerOption = SequentialWriterOption.newBuilder()
+                                             .trickleFsync(DatabaseDescriptor.getTrickleFsync())
+                                             .trickleFsyncByteInterval(DatabaseDescriptor.getTrickleFsyncIntervalInKb() * 1024)
+                                             .skipPageCache(DatabaseDescriptor.skipPageCache(txn.opType()))
+                                             .build();
+
         if (compression)
         {
             dataFile = new CompressedSequentialWriter(new File(getFilename()),
@@ -97,9 +104,14 @@ public class BigTableWriter extends SSTableWriter
                     writerOption);
         }
         dbuilder = new FileHandle.Builder(descriptor.filenameFor(Component.DATA)).compressed(compression)
-                                              .mmapped(DatabaseDescriptor.getDiskAccessMode() == Config.DiskAccessMode.mmap);
+                                              .mmapped(DatabaseDescriptor.getDiskAccessMode() == Config.DiskAccessMode.mmap)
+                                              .withCompressedChunkCache(CompressedChunkCache.instance);
         chunkCache.ifPresent(dbuilder::withChunkCache);
         iwriter = new IndexWriter(keyCount);
+        partitionHashes = components.contains(Component.PARTITION_HASHES) ? new PartitionHashes.Writer(descriptor, writerOption) : null;
+        rowFilter = components.contains(Component.ROW_FILTER)
+                  ? new RowBloomFilter.Writer(descriptor, writerOption, metadata.comparator, metadata.params.bloomFilterFpChance, metadataCollector.expectedRows(keyCount))
+                  : null;
 
         columnIndexWriter = new ColumnIndex(this.header, dataFile, descriptor.version, this.observers, getRowIndexEntrySerializer().indexInfoSerializer());
     }
@@ -108,12 +120,17 @@ public class BigTableWriter extends SSTableWriter
     {
         dataMark = dataFile.mark();
         iwriter.mark();
+        if (partitionHashes != null)
+            partitionHashes.mark();
     }
 
     public void resetAndTruncate()
     {
         dataFile.resetAndTruncate(dataMark);
         iwriter.resetAndTruncate();
+        // like the partition bloom filter, the row filter keeps the keys added since the mark, which are harmless
+        if (partitionHashes != null)
+            partitionHashes.resetAndTruncate();
     }
 
     /**
@@ -168,7 +185,10 @@ public class BigTableWriter extends SSTableWriter
         //Reuse the writer for each row
         columnIndexWriter.reset();
 
-        try (UnfilteredRowIterator collecting = Transformation.apply(iterator, new StatsCollector(metadataCollector)))
+        UnfilteredRowIterator collected = Transformation.apply(iterator, new StatsCollector(metadataCollector));
+        if (rowFilter != null)
+            collected = rowFilter.filtering(collected);
+        try (UnfilteredRowIterator collecting = partitionHashes == null ? collected : partitionHashes.hashing(collected))
         {
             columnIndexWriter.buildRowIndex(collecting);
 
@@ -190,6 +210,8 @@ public class BigTableWriter extends SSTableWriter
             maybeLogLargePartitionWarning(key, rowSize);
             metadataCollector.addPartitionSizeInBytes(rowSize);
             afterAppend(key, endPosition, entry, columnIndexWriter.buffer());
+            if (partitionHashes != null)
+                partitionHashes.append(key);
             return entry;
         }
         catch (IOException e)
@@ -335,12 +357,17 @@ public class BigTableWriter extends SSTableWriter
             dbuilder.withCompressionMetadata(((CompressedSequentialWriter) dataFile).open(0));
         FileHandle dfile = dbuilder.bufferSize(optimizationStrategy.bufferSize(dataBufferSize)).complete();
         invalidateCacheAtBoundary(dfile);
+        // the optional components are only complete once their writers are prepared
+        OptionalComponents optionalComponents = openReason == SSTableReader.OpenReason.NORMAL
+                                              ? OptionalComponents.load(descriptor, components, this.metadata)
+                                              : OptionalComponents.NONE;
         SSTableReader sstable = SSTableReader.internalOpen(descriptor,
                                                            components,
                                                            this.metadata,
                                                            ifile,
                                                            dfile,
                                                            indexSummary,
+                                                           optionalComponents,
                                                            iwriter.bf.sharedCopy(),
                                                            maxDataAge,
                                                            stats,
@@ -362,6 +389,10 @@ public class BigTableWriter extends SSTableWriter
         protected void doPrepare()
         {
             iwriter.prepareToCommit();
+            if (partitionHashes != null)
+                partitionHashes.prepareToCommit();
+            if (rowFilter != null)
+                rowFilter.prepareToCommit();
 
             // write sstable statistics
             dataFile.prepareToCommit();
@@ -378,6 +409,10 @@ public class BigTableWriter extends SSTableWriter
         {
             accumulate = dataFile.commit(accumulate);
             accumulate = iwriter.commit(accumulate);
+            if (partitionHashes != null)
+                accumulate = partitionHashes.commit(accumulate);
+            if (rowFilter != null)
+                accumulate = rowFilter.commit(accumulate);
             return accumulate;
         }
 
@@ -391,6 +426,10 @@ public class BigTableWriter extends SSTableWriter
         protected Throwable doAbort(Throwable accumulate)
         {
             accumulate = iwriter.abort(accumulate);
+            if (partitionHashes != null)
+                accumulate = partitionHashes.abort(accumulate);
+            if (rowFilter != null)
+                accumulate = rowFilter.abort(accumulate);
             accumulate = dataFile.abort(accumulate);
             return accumulate;
         }
@@ -434,6 +473,8 @@ public class BigTableWriter extends SSTableWriter
         public final FileHandle.Builder builder;
         public final IndexSummaryBuilder summary;
         public final IFilter bf;
+        private final PartitionIndex.Writer partitionIndex;
+        private final RowIndex.Writer rowIndex;
         private DataPosition mark;
 
         IndexWriter(long keyCount)
@@ -442,7 +483,11 @@ public class BigTableWriter extends SSTableWriter
             builder = new FileHandle.Builder(descriptor.filenameFor(Component.PRIMARY_INDEX)).mmapped(DatabaseDescriptor.getIndexAccessMode() == Config.DiskAccessMode.mmap);
             chunkCache.ifPresent(builder::withChunkCache);
             summary = new IndexSummaryBuilder(keyCount, metadata.params.minIndexInterval, Downsampling.BASE_SAMPLING_LEVEL);
-            bf = FilterFactory.getFilter(keyCount, metadata.params.bloomFilterFpChance, true, descriptor.version.hasOldBfHashOrder());
+            bf = FilterFactory.getFilter(keyCount, metadata.params.bloomFilterFpChance, true, descriptor.version.hasOldBfHashOrder(), DatabaseDescriptor.useBlockedBloomFilters());
+            partitionIndex = components.contains(Component.PARTITION_INDEX) ? new PartitionIndex.Writer(descriptor, writerOption) : null;
+            rowIndex = components.contains(Component.ROW_INDEX)
+                     ? new RowIndex.Writer(descriptor, writerOption, metadata.comparator, getRowIndexEntrySerializer().indexInfoSerializer())
+                     : null;
             // register listeners to be alerted when the data files are flushed
             indexFile.setPostFlushListener(() -> summary.markIndexSynced(indexFile.getLastFlushOffset()));
             dataFile.setPostFlushListener(() -> summary.markDataSynced(dataFile.getLastFlushOffset()));
@@ -473,6 +518,11 @@ public class BigTableWriter extends SSTableWriter
                 logger.trace("wrote index entry: {} at {}", indexEntry, indexStart);
 
             summary.maybeAddEntry(key, indexStart, indexEnd, dataEnd);
+            if (partitionIndex != null)
+                partitionIndex.append(key, indexStart);
+            // indexInfo is only set for the column indexes too large to be kept on heap once read
+            if (rowIndex != null && indexInfo != null && indexEntry.isIndexed())
+                rowIndex.append(indexEntry.position, indexInfo, indexEntry.columnsIndexCount());
         }
 
         /**
@@ -501,6 +551,10 @@ public class BigTableWriter extends SSTableWriter
         public void mark()
         {
             mark = indexFile.mark();
+            if (partitionIndex != null)
+                partitionIndex.mark();
+            if (rowIndex != null)
+                rowIndex.mark();
         }
 
         public void resetAndTruncate()
@@ -509,6 +563,10 @@ public class BigTableWriter extends SSTableWriter
             // we can't reset dbuilder either, but that is the last thing called in afterappend so
             // we assume that if that worked then we won't be trying to reset.
             indexFile.resetAndTruncate(mark);
+            if (partitionIndex != null)
+                partitionIndex.resetAndTruncate();
+            if (rowIndex != null)
+                rowIndex.resetAndTruncate();
         }
 
         protected void doPrepare()
@@ -526,16 +584,31 @@ public class BigTableWriter extends SSTableWriter
             {
                 SSTableReader.saveSummary(descriptor, first, last, indexSummary);
             }
+
+            if (partitionIndex != null)
+                partitionIndex.prepareToCommit();
+            if (rowIndex != null)
+                rowIndex.prepareToCommit();
         }
 
         protected Throwable doCommit(Throwable accumulate)
         {
-            return indexFile.commit(accumulate);
+            accumulate = indexFile.commit(accumulate);
+            if (partitionIndex != null)
+                accumulate = partitionIndex.commit(accumulate);
+            if (rowIndex != null)
+                accumulate = rowIndex.commit(accumulate);
+            return accumulate;
         }
 
         protected Throwable doAbort(Throwable accumulate)
         {
-            return indexFile.abort(accumulate);
+            accumulate = indexFile.abort(accumulate);
+            if (partitionIndex != null)
+                accumulate = partitionIndex.abort(accumulate);
+            if (rowIndex != null)
+                accumulate = rowIndex.abort(accumulate);
+            return accumulate;
         }
 
         @Override
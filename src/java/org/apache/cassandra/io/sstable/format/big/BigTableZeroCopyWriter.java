@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable.format.big;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.UUID;
+
+import com.google.common.collect.Sets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.lifecycle.LifecycleTransaction;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.io.sstable.SSTableMultiWriter;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.sstable.metadata.MetadataType;
+import org.apache.cassandra.io.sstable.metadata.StatsMetadata;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.SyncUtil;
+import org.apache.cassandra.utils.Throwables;
+
+import static org.apache.cassandra.utils.Throwables.merge;
+
+/**
+ * Writes an SSTable whose components are copied as is, instead of being rebuilt from its partitions, like the
+ * SSTables streamed entirely (see {@link org.apache.cassandra.streaming.messages.StreamMessage.Type#ENTIRE_SSTABLE_FILE}).
+ *
+ * The components are transferred from a channel with {@link FileChannel#transferFrom}. On finish, the TOC is written,
+ * and the repairedAt and level of the stats component are rewritten if they differ from the requested ones.
+ */
+public class BigTableZeroCopyWriter extends SSTable implements SSTableMultiWriter
+{
+    private static final Logger logger = LoggerFactory.getLogger(BigTableZeroCopyWriter.class);
+
+    private final LifecycleTransaction txn;
+    private final long repairedAt;
+    private final int sstableLevel;
+
+    private long bytesWritten;
+    private boolean openResult;
+    private SSTableReader finished;
+
+    public BigTableZeroCopyWriter(Descriptor descriptor,
+                                  CFMetaData metadata,
+                                  Collection<Component> components,
+                                  long repairedAt,
+                                  int sstableLevel,
+                                  LifecycleTransaction txn)
+    {
+        super(descriptor, Sets.union(new HashSet<>(components), Collections.singleton(Component.TOC)), metadata, DatabaseDescriptor.getDiskOptimizationStrategy());
+        this.txn = txn;
+        this.repairedAt = repairedAt;
+        this.sstableLevel = sstableLevel;
+        txn.trackNew(this); // must track before any files are created
+    }
+
+    /**
+     * Writes the given component from the next {@code size} bytes of the given channel.
+     */
+    public void writeComponent(Component component, ReadableByteChannel in, long size) throws IOException
+    {
+        assert components.contains(component) && component != Component.TOC : component;
+        File file = new File(descriptor.filenameFor(component));
+        logger.trace("Writing component {} of {} bytes to {}", component, size, file);
+
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+        {
+            long position = 0;
+            while (position < size)
+            {
+                long transferred = out.transferFrom(in, position, size - position);
+                if (transferred == 0)
+                    throw new EOFException(String.format("Reached the end of the stream after %d bytes of the %d bytes of %s", position, size, file));
+                position += transferred;
+                bytesWritten += transferred;
+            }
+            SyncUtil.force(out, true);
+        }
+        catch (EOFException e)
+        {
+            throw e;
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, file);
+        }
+    }
+
+    public boolean append(UnfilteredRowIterator partition)
+    {
+        throw new UnsupportedOperationException("The components of a zero-copy SSTable are written as is");
+    }
+
+    public Collection<SSTableReader> finish(long repairedAt, long maxDataAge, boolean openResult)
+    {
+        return finish(openResult);
+    }
+
+    public Collection<SSTableReader> finish(boolean openResult)
+    {
+        setOpenResult(openResult);
+        prepareToCommit();
+        Throwables.maybeFail(commit(null));
+        return finished();
+    }
+
+    public Collection<SSTableReader> finished()
+    {
+        return finished == null ? Collections.emptyList() : Collections.singleton(finished);
+    }
+
+    public SSTableMultiWriter setOpenResult(boolean openResult)
+    {
+        this.openResult = openResult;
+        return this;
+    }
+
+    public String getFilename()
+    {
+        return descriptor.filenameFor(Component.DATA);
+    }
+
+    public long getFilePointer()
+    {
+        return bytesWritten;
+    }
+
+    public UUID getCfId()
+    {
+        return metadata.cfId;
+    }
+
+    public void prepareToCommit()
+    {
+        try
+        {
+            StatsMetadata stats = (StatsMetadata) descriptor.getMetadataSerializer().deserialize(descriptor, MetadataType.STATS);
+            if (stats.repairedAt != repairedAt)
+                descriptor.getMetadataSerializer().mutateRepairedAt(descriptor, repairedAt);
+            if (stats.sstableLevel != sstableLevel)
+                descriptor.getMetadataSerializer().mutateLevel(descriptor, sstableLevel);
+
+            appendTOC(descriptor, components);
+
+            if (openResult)
+                finished = SSTableReader.open(descriptor, components, metadata);
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, getFilename());
+        }
+    }
+
+    public Throwable commit(Throwable accumulate)
+    {
+        return accumulate;
+    }
+
+    public Throwable abort(Throwable accumulate)
+    {
+        txn.untrackNew(this);
+        if (finished != null)
+        {
+            accumulate = finished.selfRef().ensureReleased(accumulate);
+            finished = null;
+        }
+
+        for (Component component : components)
+        {
+            File file = new File(descriptor.filenameFor(component));
+            try
+            {
+                if (file.exists())
+                    FileUtils.deleteWithConfirm(file);
+            }
+            catch (Throwable t)
+            {
+                accumulate = merge(accumulate, t);
+            }
+        }
+        return accumulate;
+    }
+
+    public void close()
+    {
+    }
+}
@@ -101,6 +101,8 @@ public class MetadataCollector implements PartitionStatisticsCollector
     protected boolean hasLegacyCounterShards = false;
     protected long totalColumnsSet;
     protected long totalRows;
+    // the mean number of rows per partition of what the sstable is written from, or -1 if unknown
+    protected double expectedRowsPerPartition = -1;
 
     /**
      * Default cardinality estimation method is to use HyperLogLog++.
@@ -124,8 +126,12 @@ public class MetadataCollector implements PartitionStatisticsCollector
         this(comparator);
 
         CommitLogPosition min = null, max = null;
+        long rows = 0, keys = 0;
         for (SSTableReader sstable : sstables)
         {
+            // sstables predating the count of rows have a negative one
+            rows = rows < 0 || sstable.getTotalRows() < 0 ? -1 : rows + sstable.getTotalRows();
+            keys += sstable.getEstimatedPartitionSize().count();
             if (min == null)
             {
                 min = sstable.getSSTableMetadata().commitLogLowerBound;
@@ -141,6 +147,8 @@ public class MetadataCollector implements PartitionStatisticsCollector
         commitLogLowerBound(min);
         commitLogUpperBound(max);
         sstableLevel(level);
+        if (rows >= 0 && keys > 0)
+            expectedRowsPerPartition((double) rows / keys);
     }
 
     public MetadataCollector addKey(ByteBuffer key)
@@ -244,6 +252,21 @@ public class MetadataCollector implements PartitionStatisticsCollector
         return this;
     }
 
+    public MetadataCollector expectedRowsPerPartition(double expectedRowsPerPartition)
+    {
+        this.expectedRowsPerPartition = expectedRowsPerPartition;
+        return this;
+    }
+
+    /**
+     * @return the number of rows expected in an sstable of the given number of partitions, which is that number if
+     * the number of rows per partition of what the sstable is written from is unknown
+     */
+    public long expectedRows(long keyCount)
+    {
+        return expectedRowsPerPartition < 0 ? keyCount : (long) Math.ceil(keyCount * expectedRowsPerPartition);
+    }
+
     public MetadataCollector updateClusteringValues(ClusteringPrefix clustering)
     {
         int size = clustering.size();
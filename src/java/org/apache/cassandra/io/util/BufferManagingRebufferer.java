@@ -35,13 +35,23 @@ public abstract class BufferManagingRebufferer implements Rebufferer, Rebufferer
 {
     protected final ChunkReader source;
     protected final ByteBuffer buffer;
+    protected final boolean scan;
     protected long offset = 0;
 
     abstract long alignedPosition(long position);
 
     protected BufferManagingRebufferer(ChunkReader wrapped)
+    {
+        this(wrapped, false);
+    }
+
+    /**
+     * @param scan whether the chunks should be read with {@link ChunkReader#scanChunk}.
+     */
+    protected BufferManagingRebufferer(ChunkReader wrapped, boolean scan)
     {
         this.source = wrapped;
+        this.scan = scan;
         buffer = BufferPool.get(wrapped.chunkSize(), wrapped.preferredBufferType()).order(ByteOrder.BIG_ENDIAN);
         buffer.limit(0);
     }
@@ -76,7 +86,10 @@ public abstract class BufferManagingRebufferer implements Rebufferer, Rebufferer
     public BufferHolder rebuffer(long position)
     {
         offset = alignedPosition(position);
-        source.readChunk(offset, buffer);
+        if (scan)
+            source.scanChunk(offset, buffer);
+        else
+            source.readChunk(offset, buffer);
         return this;
     }
 
@@ -128,7 +141,12 @@ public abstract class BufferManagingRebufferer implements Rebufferer, Rebufferer
     {
         public Aligned(ChunkReader wrapped)
         {
-            super(wrapped);
+            this(wrapped, false);
+        }
+
+        public Aligned(ChunkReader wrapped, boolean scan)
+        {
+            super(wrapped, scan);
             assert Integer.bitCount(wrapped.chunkSize()) == 1;
         }
 
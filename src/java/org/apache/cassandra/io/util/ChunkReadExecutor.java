@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.config.DatabaseDescriptor;
+
+/**
+ * Executes the asynchronous reads of sstable chunks, that is the prefetches of the chunk cache (see
+ * {@link RebuffererFactory#prefetch}) and the read-ahead of scans (see {@link PrefetchingRebufferer}), so that a
+ * reader can issue the reads of several chunks at once instead of waiting for each of them in turn.
+ *
+ * The reads are blocking reads done by a pool of concurrent_chunk_reads threads, which keeps that many reads in
+ * flight independently of the number of threads of the READ stage. If concurrent_chunk_reads is 0, the asynchronous
+ * reads are done synchronously by the calling thread.
+ */
+public class ChunkReadExecutor
+{
+    public static final ChunkReadExecutor instance = new ChunkReadExecutor(DatabaseDescriptor.getConcurrentChunkReads());
+
+    private final JMXEnabledThreadPoolExecutor executor;
+
+    private ChunkReadExecutor(int threads)
+    {
+        executor = threads > 0
+                   ? new JMXEnabledThreadPoolExecutor(threads,
+                                                      60,
+                                                      TimeUnit.SECONDS,
+                                                      new LinkedBlockingQueue<>(),
+                                                      new NamedThreadFactory("ChunkReads"),
+                                                      "internal")
+                   : null;
+    }
+
+    /**
+     * @return whether the reads are asynchronous, i.e. whether it is worth issuing reads ahead of their use.
+     */
+    public boolean isAsync()
+    {
+        return executor != null;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> read)
+    {
+        if (executor == null)
+        {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            try
+            {
+                future.complete(read.get());
+            }
+            catch (Throwable t)
+            {
+                future.completeExceptionally(t);
+            }
+            return future;
+        }
+        return CompletableFuture.supplyAsync(read, executor);
+    }
+}
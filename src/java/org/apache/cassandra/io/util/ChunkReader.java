@@ -38,6 +38,15 @@ public interface ChunkReader extends RebuffererFactory
      */
     void readChunk(long position, ByteBuffer buffer);
 
+    /**
+     * Same as {@link #readChunk(long, ByteBuffer)}, for a read that goes through a large part of the file once, like
+     * a compaction: readers that cache some of the data they read should not cache it for this read.
+     */
+    default void scanChunk(long position, ByteBuffer buffer)
+    {
+        readChunk(position, buffer);
+    }
+
     /**
      * Buffer size required for this rebufferer. Must be power of 2 if alignment is required.
      */
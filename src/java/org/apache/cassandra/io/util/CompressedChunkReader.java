@@ -25,6 +25,7 @@ import java.util.concurrent.ThreadLocalRandom;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.primitives.Ints;
 
+import org.apache.cassandra.cache.CompressedChunkCache;
 import org.apache.cassandra.io.compress.BufferType;
 import org.apache.cassandra.io.compress.CompressionMetadata;
 import org.apache.cassandra.io.compress.CorruptBlockException;
@@ -76,15 +77,31 @@ public abstract class CompressedChunkReader extends AbstractReaderFileProxy impl
         return new BufferManagingRebufferer.Aligned(this);
     }
 
+    @Override
+    public Rebufferer instantiateScanRebufferer()
+    {
+        return PrefetchingRebufferer.isEnabled(this)
+               ? new PrefetchingRebufferer(this)
+               : new BufferManagingRebufferer.Aligned(this, true);
+    }
+
     public static class Standard extends CompressedChunkReader
     {
         // we read the raw compressed bytes into this buffer, then uncompressed them into the provided one.
         private final ThreadLocal<ByteBuffer> compressedHolder;
+        // the cache of the compressed chunks, if any
+        private final CompressedChunkCache compressedChunkCache;
 
         public Standard(ChannelProxy channel, CompressionMetadata metadata)
+        {
+            this(channel, metadata, null);
+        }
+
+        public Standard(ChannelProxy channel, CompressionMetadata metadata, CompressedChunkCache compressedChunkCache)
         {
             super(channel, metadata);
             compressedHolder = ThreadLocal.withInitial(this::allocateBuffer);
+            this.compressedChunkCache = compressedChunkCache;
         }
 
         public ByteBuffer allocateBuffer()
@@ -99,6 +116,17 @@ public abstract class CompressedChunkReader extends AbstractReaderFileProxy impl
 
         @Override
         public void readChunk(long position, ByteBuffer uncompressed)
+        {
+            readChunk(position, uncompressed, true);
+        }
+
+        @Override
+        public void scanChunk(long position, ByteBuffer uncompressed)
+        {
+            readChunk(position, uncompressed, false);
+        }
+
+        private void readChunk(long position, ByteBuffer uncompressed, boolean admit)
         {
             try
             {
@@ -107,11 +135,34 @@ public abstract class CompressedChunkReader extends AbstractReaderFileProxy impl
                 assert position <= fileLength;
 
                 CompressionMetadata.Chunk chunk = metadata.chunkFor(position);
+                if (compressedChunkCache != null)
+                {
+                    CompressedChunkCache.Entry cached = compressedChunkCache.get(channel.filePath(), chunk.offset);
+                    if (cached != null)
+                    {
+                        // cached chunks have been checksummed when read
+                        try
+                        {
+                            uncompress(chunk, cached.buffer(), uncompressed);
+                        }
+                        finally
+                        {
+                            cached.release();
+                        }
+                        return;
+                    }
+                }
+
+                // the chunks that are cached are always checksummed, and the checksum is then read with the chunk
+                boolean cache = admit && compressedChunkCache != null;
+                boolean verify = cache || getCrcCheckChance() > ThreadLocalRandom.current().nextDouble();
+                int length = verify ? chunk.length + Integer.BYTES : chunk.length;
+
                 ByteBuffer compressed = compressedHolder.get();
 
-                if (compressed.capacity() < chunk.length)
+                if (compressed.capacity() < length)
                 {
-                    compressed = allocateBuffer(chunk.length);
+                    compressed = allocateBuffer(length);
                     compressedHolder.set(compressed);
                 }
                 else
@@ -119,42 +170,52 @@ public abstract class CompressedChunkReader extends AbstractReaderFileProxy impl
                     compressed.clear();
                 }
 
-                compressed.limit(chunk.length);
-                if (channel.read(compressed, chunk.offset) != chunk.length)
+                compressed.limit(length);
+                if (channel.read(compressed, chunk.offset) != length)
                     throw new CorruptBlockException(channel.filePath(), chunk);
 
-                compressed.flip();
-                uncompressed.clear();
-
-                try
-                {
-                    metadata.compressor().uncompress(compressed, uncompressed);
-                }
-                catch (IOException e)
-                {
-                    throw new CorruptBlockException(channel.filePath(), chunk);
-                }
-                finally
-                {
-                    uncompressed.flip();
-                }
+                compressed.flip().limit(chunk.length);
+                uncompress(chunk, compressed, uncompressed);
 
-                if (getCrcCheckChance() > ThreadLocalRandom.current().nextDouble())
+                if (verify)
                 {
                     compressed.rewind();
                     int checksum = (int) metadata.checksumType.of(compressed);
 
-                    compressed.clear().limit(Integer.BYTES);
-                    if (channel.read(compressed, chunk.offset + chunk.length) != Integer.BYTES
-                                || compressed.getInt(0) != checksum)
+                    compressed.limit(length);
+                    if (compressed.getInt(chunk.length) != checksum)
                         throw new CorruptBlockException(channel.filePath(), chunk);
                 }
+
+                if (cache)
+                {
+                    compressed.position(0).limit(chunk.length);
+                    compressedChunkCache.put(channel.filePath(), chunk.offset, compressed);
+                }
             }
             catch (CorruptBlockException e)
             {
                 throw new CorruptSSTableException(e, channel.filePath());
             }
         }
+
+        private void uncompress(CompressionMetadata.Chunk chunk, ByteBuffer compressed, ByteBuffer uncompressed) throws CorruptBlockException
+        {
+            uncompressed.clear();
+
+            try
+            {
+                metadata.compressor().uncompress(compressed, uncompressed);
+            }
+            catch (IOException e)
+            {
+                throw new CorruptBlockException(channel.filePath(), chunk);
+            }
+            finally
+            {
+                uncompressed.flip();
+            }
+        }
     }
 
     public static class Mmap extends CompressedChunkReader
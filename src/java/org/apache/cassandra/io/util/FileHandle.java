@@ -19,12 +19,14 @@ package org.apache.cassandra.io.util;
 
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.common.util.concurrent.RateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.cache.ChunkCache;
+import org.apache.cassandra.cache.CompressedChunkCache;
 import org.apache.cassandra.io.compress.BufferType;
 import org.apache.cassandra.io.compress.CompressionMetadata;
 import org.apache.cassandra.utils.CLibrary;
@@ -141,7 +143,31 @@ public class FileHandle extends SharedCloseableImpl
      */
     public RandomAccessReader createReader(RateLimiter limiter)
     {
-        return new RandomAccessReader(instantiateRebufferer(limiter));
+        return new RandomAccessReader(limited(rebuffererFactory.instantiateRebufferer(), limiter));
+    }
+
+    /**
+     * Create {@link RandomAccessReader} for an operation that reads through the file once, like a compaction or a repair
+     * validation: it uses the chunks that are already in the chunk cache, but does not add the chunks it reads to the
+     * cache, so as not to evict the chunks used by the regular reads.
+     * Reading from file will be rate limited by given {@link RateLimiter}, if not null.
+     *
+     * @param limiter RateLimiter to use for rate limiting read, or null
+     * @return RandomAccessReader for the file
+     */
+    public RandomAccessReader createScanReader(RateLimiter limiter)
+    {
+        return new RandomAccessReader(limited(rebuffererFactory.instantiateScanRebufferer(), limiter));
+    }
+
+    /**
+     * Hints that the given range of the file is about to be read, starting at the given position: if the file is
+     * cached, the chunks of the range that are not cached yet (but the one read first) are read asynchronously and
+     * added to the cache. See {@link RebuffererFactory#prefetch}.
+     */
+    public CompletableFuture<Void> prefetch(long start, long end, long first)
+    {
+        return rebuffererFactory.prefetch(start, end, first);
     }
 
     public FileDataInput createReader(long position)
@@ -167,10 +193,8 @@ public class FileHandle extends SharedCloseableImpl
         CLibrary.trySkipCache(channel.getFileDescriptor(), 0, position, path());
     }
 
-    private Rebufferer instantiateRebufferer(RateLimiter limiter)
+    private static Rebufferer limited(Rebufferer rebufferer, RateLimiter limiter)
     {
-        Rebufferer rebufferer = rebuffererFactory.instantiateRebufferer();
-
         if (limiter != null)
             rebufferer = new LimitingRebufferer(rebufferer, limiter, DiskOptimizationStrategy.MAX_BUFFER_SIZE);
         return rebufferer;
@@ -185,16 +209,19 @@ public class FileHandle extends SharedCloseableImpl
         final RebuffererFactory rebufferer;
         final CompressionMetadata compressionMetadata;
         final Optional<ChunkCache> chunkCache;
+        final Optional<CompressedChunkCache> compressedChunkCache;
 
         private Cleanup(ChannelProxy channel,
                         RebuffererFactory rebufferer,
                         CompressionMetadata compressionMetadata,
-                        ChunkCache chunkCache)
+                        ChunkCache chunkCache,
+                        CompressedChunkCache compressedChunkCache)
         {
             this.channel = channel;
             this.rebufferer = rebufferer;
             this.compressionMetadata = compressionMetadata;
             this.chunkCache = Optional.ofNullable(chunkCache);
+            this.compressedChunkCache = Optional.ofNullable(compressedChunkCache);
         }
 
         public String name()
@@ -205,6 +232,7 @@ public class FileHandle extends SharedCloseableImpl
         public void tidy()
         {
             chunkCache.ifPresent(cache -> cache.invalidateFile(name()));
+            compressedChunkCache.ifPresent(cache -> cache.invalidateFile(name()));
             try
             {
                 if (compressionMetadata != null)
@@ -237,6 +265,7 @@ public class FileHandle extends SharedCloseableImpl
         private CompressionMetadata compressionMetadata;
         private MmappedRegions regions;
         private ChunkCache chunkCache;
+        private CompressedChunkCache compressedChunkCache;
         private int bufferSize = RandomAccessReader.DEFAULT_BUFFER_SIZE;
         private BufferType bufferType = BufferType.OFF_HEAP;
 
@@ -272,6 +301,18 @@ public class FileHandle extends SharedCloseableImpl
             return this;
         }
 
+        /**
+         * Set {@link CompressedChunkCache} to use. Only used by compressed files that are not mmapped.
+         *
+         * @param compressedChunkCache CompressedChunkCache object to use for caching the compressed chunks
+         * @return this object
+         */
+        public Builder withCompressedChunkCache(CompressedChunkCache compressedChunkCache)
+        {
+            this.compressedChunkCache = compressedChunkCache;
+            return this;
+        }
+
         /**
          * Provide {@link CompressionMetadata} to use when reading compressed file.
          *
@@ -374,14 +415,14 @@ public class FileHandle extends SharedCloseableImpl
                     regions = null;
                     if (compressed)
                     {
-                        rebuffererFactory = maybeCached(new CompressedChunkReader.Standard(channelCopy, compressionMetadata));
+                        rebuffererFactory = maybeCached(new CompressedChunkReader.Standard(channelCopy, compressionMetadata, compressedChunkCache));
                     }
                     else
                     {
                         rebuffererFactory = maybeCached(new SimpleChunkReader(channelCopy, length, bufferType, bufferSize));
                     }
                 }
-                Cleanup cleanup = new Cleanup(channelCopy, rebuffererFactory, compressionMetadata, chunkCache);
+                Cleanup cleanup = new Cleanup(channelCopy, rebuffererFactory, compressionMetadata, chunkCache, compressedChunkCache);
                 return new FileHandle(cleanup, channelCopy, rebuffererFactory, compressionMetadata, length);
             }
             catch (Throwable t)
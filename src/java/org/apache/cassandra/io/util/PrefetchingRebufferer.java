@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.google.common.base.Throwables;
+
+import com.codahale.metrics.Timer;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.metrics.ReadAheadMetrics;
+import org.apache.cassandra.utils.memory.BufferPool;
+
+/**
+ * Rebufferer for the sequential scans of a file, like compactions or repair validations, that keeps reading the
+ * chunks following the current one in the background, on the {@link ChunkReadExecutor}, so that the disk is not
+ * idle while the scan processes a chunk.
+ *
+ * Up to scan_read_ahead_chunks chunks are kept in flight. The chunks are read directly from the source, with
+ * {@link ChunkReader#scanChunk}: the chunk cache is neither used nor filled. Seeking outside of the chunks read ahead
+ * discards them and restarts the read-ahead at the new position.
+ *
+ * Not thread-safe: one instance per reader.
+ */
+public class PrefetchingRebufferer implements Rebufferer
+{
+    private final ChunkReader source;
+    private final int readAheadChunks;
+    private final int chunkSize;
+
+    // the chunks that are read or being read, in file order
+    private final Deque<Chunk> chunks = new ArrayDeque<>();
+    // the position of the chunk after the last one read ahead
+    private long nextPosition = -1;
+
+    public PrefetchingRebufferer(ChunkReader source)
+    {
+        this(source, DatabaseDescriptor.getScanReadAheadChunks());
+    }
+
+    public PrefetchingRebufferer(ChunkReader source, int readAheadChunks)
+    {
+        assert readAheadChunks > 0;
+        assert Integer.bitCount(source.chunkSize()) == 1;
+        this.source = source;
+        this.readAheadChunks = readAheadChunks;
+        this.chunkSize = source.chunkSize();
+    }
+
+    /**
+     * @return whether the scans of the given source should use a prefetching rebufferer, i.e. if read-ahead is
+     * enabled, the chunks are read asynchronously and the source has aligned chunks.
+     */
+    public static boolean isEnabled(ChunkReader source)
+    {
+        return DatabaseDescriptor.getScanReadAheadChunks() > 0
+               && ChunkReadExecutor.instance.isAsync()
+               && Integer.bitCount(source.chunkSize()) == 1;
+    }
+
+    @Override
+    public BufferHolder rebuffer(long position)
+    {
+        long offset = position & -chunkSize;
+
+        // drop the chunks we skipped, and all of them if we seeked outside of the ones read ahead
+        while (!chunks.isEmpty() && chunks.peekFirst().offset != offset)
+        {
+            chunks.pollFirst().discard();
+            ReadAheadMetrics.wastedChunks.mark();
+        }
+
+        if (chunks.isEmpty())
+            nextPosition = offset;
+
+        // read the requested chunk, if it isn't already, and the ones after it
+        while (chunks.isEmpty() || (chunks.size() <= readAheadChunks && nextPosition < source.fileLength()))
+        {
+            chunks.addLast(new Chunk(nextPosition));
+            nextPosition += chunkSize;
+        }
+
+        Chunk chunk = chunks.pollFirst();
+        chunk.await();
+        ReadAheadMetrics.chunks.mark();
+        ReadAheadMetrics.bytes.mark(chunk.buffer.remaining());
+        return chunk;
+    }
+
+    @Override
+    public void closeReader()
+    {
+        while (!chunks.isEmpty())
+        {
+            chunks.pollFirst().discard();
+            ReadAheadMetrics.wastedChunks.mark();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        // the source is shared, and closed by the owner of the file
+    }
+
+    @Override
+    public ChannelProxy channel()
+    {
+        return source.channel();
+    }
+
+    @Override
+    public long fileLength()
+    {
+        return source.fileLength();
+    }
+
+    @Override
+    public double getCrcCheckChance()
+    {
+        return source.getCrcCheckChance();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PrefetchingRebufferer:" + source.toString();
+    }
+
+    private class Chunk implements BufferHolder
+    {
+        final long offset;
+        final ByteBuffer buffer;
+        final CompletableFuture<ByteBuffer> read;
+
+        Chunk(long offset)
+        {
+            this.offset = offset;
+            this.buffer = BufferPool.get(chunkSize, source.preferredBufferType());
+            this.read = ChunkReadExecutor.instance.submit(() -> {
+                source.scanChunk(offset, buffer);
+                return buffer;
+            });
+        }
+
+        void await()
+        {
+            if (read.isDone())
+            {
+                join();
+                return;
+            }
+
+            try (Timer.Context ignored = ReadAheadMetrics.waitLatency.time())
+            {
+                join();
+            }
+        }
+
+        private void join()
+        {
+            try
+            {
+                read.join();
+            }
+            catch (CompletionException e)
+            {
+                release();
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        // releases the buffer once the read is done with it, whatever its outcome
+        void discard()
+        {
+            read.handle((b, t) -> null).join();
+            release();
+        }
+
+        @Override
+        public ByteBuffer buffer()
+        {
+            return buffer.duplicate();
+        }
+
+        @Override
+        public long offset()
+        {
+            return offset;
+        }
+
+        @Override
+        public void release()
+        {
+            BufferPool.put(buffer);
+        }
+    }
+}
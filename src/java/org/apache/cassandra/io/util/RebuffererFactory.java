@@ -18,6 +18,8 @@
 
 package org.apache.cassandra.io.util;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface for the classes that can be used to instantiate rebufferers over a given file.
  *
@@ -29,4 +31,26 @@ package org.apache.cassandra.io.util;
 public interface RebuffererFactory extends ReaderFileProxy
 {
     Rebufferer instantiateRebufferer();
+
+    /**
+     * Instantiates a rebufferer for a read that goes through a large part of the file once, like a compaction, and
+     * whose chunks should thus not be cached. Same as {@link #instantiateRebufferer()} for the factories that don't cache.
+     */
+    default Rebufferer instantiateScanRebufferer()
+    {
+        return instantiateRebufferer();
+    }
+
+    /**
+     * Hints that the given range of the file is about to be read, starting at the given position, up to the end of
+     * the range and then back from that position to its start, like reversed reads of the blocks of a partition do.
+     * The factories that cache the chunks they read can start reading the missing ones asynchronously, in that order,
+     * but for the one of the first position that the caller reads right away. Does nothing for the other factories.
+     *
+     * @return a future completed once the chunks are read, exceptionally if one of the reads failed
+     */
+    default CompletableFuture<Void> prefetch(long start, long end, long first)
+    {
+        return CompletableFuture.completedFuture(null);
+    }
 }
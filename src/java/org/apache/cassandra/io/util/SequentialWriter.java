@@ -24,6 +24,7 @@ import java.nio.file.StandardOpenOption;
 
 import org.apache.cassandra.io.FSReadError;
 import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.utils.CLibrary;
 import org.apache.cassandra.utils.SyncUtil;
 import org.apache.cassandra.utils.concurrent.Transactional;
 
@@ -31,7 +32,8 @@ import static org.apache.cassandra.utils.Throwables.merge;
 
 /**
  * Adds buffering, mark, and fsyncing to OutputStream.  We always fsync on close; we may also
- * fsync incrementally if Config.trickle_fsync is enabled.
+ * fsync incrementally if Config.trickle_fsync is enabled, or if the written data should not be kept
+ * in the OS page cache (see {@link SequentialWriterOption#skipPageCache()}).
  */
 public class SequentialWriter extends BufferedDataOutputStreamPlus implements Transactional
 {
@@ -183,6 +185,14 @@ public class SequentialWriter extends BufferedDataOutputStreamPlus implements Tr
     {
         doFlush(0);
         syncDataOnlyInternal();
+        if (option.skipPageCache())
+            skipPageCache();
+    }
+
+    // drops the synced content of the file from the page cache
+    private void skipPageCache()
+    {
+        CLibrary.trySkipCache(CLibrary.getfd(fchannel), 0, 0, filePath);
     }
 
     @Override
@@ -190,12 +200,15 @@ public class SequentialWriter extends BufferedDataOutputStreamPlus implements Tr
     {
         flushData();
 
-        if (option.trickleFsync())
+        if (option.trickleFsync() || option.skipPageCache())
         {
             bytesSinceTrickleFsync += buffer.position();
             if (bytesSinceTrickleFsync >= option.trickleFsyncByteInterval())
             {
+                // dirty pages cannot be dropped, so we have to sync before skipping the cache
                 syncDataOnlyInternal();
+                if (option.skipPageCache())
+                    skipPageCache();
                 bytesSinceTrickleFsync = 0;
             }
         }
@@ -37,6 +37,7 @@ public class SequentialWriterOption
      *   <li>trickle fsync: false
      *   <li>trickle fsync byte interval: 10 MB
      *   <li>finish on close: false
+     *   <li>skip page cache: false
      * </ul>
      */
     public static final SequentialWriterOption DEFAULT = SequentialWriterOption.newBuilder().build();
@@ -46,18 +47,21 @@ public class SequentialWriterOption
     private final boolean trickleFsync;
     private final int trickleFsyncByteInterval;
     private final boolean finishOnClose;
+    private final boolean skipPageCache;
 
     private SequentialWriterOption(int bufferSize,
                                    BufferType bufferType,
                                    boolean trickleFsync,
                                    int trickleFsyncByteInterval,
-                                   boolean finishOnClose)
+                                   boolean finishOnClose,
+                                   boolean skipPageCache)
     {
         this.bufferSize = bufferSize;
         this.bufferType = bufferType;
         this.trickleFsync = trickleFsync;
         this.trickleFsyncByteInterval = trickleFsyncByteInterval;
         this.finishOnClose = finishOnClose;
+        this.skipPageCache = skipPageCache;
     }
 
     public static Builder newBuilder()
@@ -90,6 +94,15 @@ public class SequentialWriterOption
         return finishOnClose;
     }
 
+    /**
+     * @return whether the written data is dropped from the OS page cache once synced, every trickle fsync byte
+     * interval and on sync, so that writing a file does not evict the pages of the files being read.
+     */
+    public boolean skipPageCache()
+    {
+        return skipPageCache;
+    }
+
     /**
      * Allocate buffer using set buffer type and buffer size.
      *
@@ -111,6 +124,8 @@ public class SequentialWriterOption
         /* default tricle fsync byte interval: 10MB */
         private int trickleFsyncByteInterval = 10 * 1024 * 1024;
         private boolean finishOnClose = false;
+        /* default: keep the written data in the page cache */
+        private boolean skipPageCache = false;
 
         /* construct throguh SequentialWriteOption.newBuilder */
         private Builder() {}
@@ -118,7 +133,7 @@ public class SequentialWriterOption
         public SequentialWriterOption build()
         {
             return new SequentialWriterOption(bufferSize, bufferType, trickleFsync,
-                                   trickleFsyncByteInterval, finishOnClose);
+                                   trickleFsyncByteInterval, finishOnClose, skipPageCache);
         }
 
         public Builder bufferSize(int bufferSize)
@@ -150,5 +165,11 @@ public class SequentialWriterOption
             this.finishOnClose = finishOnClose;
             return this;
         }
+
+        public Builder skipPageCache(boolean skipPageCache)
+        {
+            this.skipPageCache = skipPageCache;
+            return this;
+        }
     }
 }
@@ -60,6 +60,12 @@ class SimpleChunkReader extends AbstractReaderFileProxy implements ChunkReader
         return new BufferManagingRebufferer.Unaligned(this);
     }
 
+    @Override
+    public Rebufferer instantiateScanRebufferer()
+    {
+        return PrefetchingRebufferer.isEnabled(this) ? new PrefetchingRebufferer(this) : instantiateRebufferer();
+    }
+
     @Override
     public String toString()
     {
@@ -42,6 +42,11 @@ import org.apache.cassandra.utils.FBUtilities;
 
 /**
  * A dynamic snitch that sorts endpoints by latency with an adapted phi failure detector
+ *
+ * The score of an endpoint is a percentile of its recent latencies (dynamic_snitch_latency_percentile), relative to
+ * the worst one, plus its severity. When sorting, the score is also weighted by the number of requests still pending
+ * on the endpoint, so that a replica that stopped answering (during a GC pause, for instance) is avoided right away,
+ * instead of once its latencies are reported, which only happens when its requests are answered or time out.
  */
 public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILatencySubscriber, DynamicEndpointSnitchMBean
 {
@@ -53,6 +58,7 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     private final int UPDATE_INTERVAL_IN_MS = DatabaseDescriptor.getDynamicUpdateInterval();
     private final int RESET_INTERVAL_IN_MS = DatabaseDescriptor.getDynamicResetInterval();
     private final double BADNESS_THRESHOLD = DatabaseDescriptor.getDynamicBadnessThreshold();
+    private final double LATENCY_PERCENTILE = DatabaseDescriptor.getDynamicLatencyPercentile();
 
     // the score for a merged set of endpoints must be this much worse than the score for separate endpoints to
     // warrant not merging two ranges into a single range
@@ -164,9 +170,9 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     {
         // Scores can change concurrently from a call to this method. But Collections.sort() expects
         // its comparator to be "stable", that is 2 endpoint should compare the same way for the duration
-        // of the sort() call. As we copy the scores map on write, it is thus enough to alias the current
-        // version of it during this call.
-        final HashMap<InetAddress, Double> scores = this.scores;
+        // of the sort() call. As we copy the scores map on write, and take a snapshot of the pending
+        // requests, it is thus enough to use that version of them during this call.
+        final Map<InetAddress, Double> scores = currentScores(addresses);
         Collections.sort(addresses, new Comparator<InetAddress>()
         {
             public int compare(InetAddress a1, InetAddress a2)
@@ -182,8 +188,8 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
             return;
 
         subsnitch.sortByProximity(address, addresses);
-        HashMap<InetAddress, Double> scores = this.scores; // Make sure the score don't change in the middle of the loop below
-                                                           // (which wouldn't really matter here but its cleaner that way).
+        Map<InetAddress, Double> scores = currentScores(addresses); // Make sure the score don't change in the middle of the loop below
+                                                                    // (which wouldn't really matter here but its cleaner that way).
         ArrayList<Double> subsnitchOrderedScores = new ArrayList<>(addresses.size());
         for (InetAddress inet : addresses)
         {
@@ -210,6 +216,24 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
         }
     }
 
+    /**
+     * @return the scores of the given endpoints, weighted by the number of requests pending on them: as the
+     * latencies of an endpoint are only reported once its requests are answered (or time out), its pending requests
+     * are the only sign that it became slow since its score was last updated.
+     */
+    private Map<InetAddress, Double> currentScores(List<InetAddress> addresses)
+    {
+        HashMap<InetAddress, Double> scores = this.scores;
+        Map<InetAddress, Double> currentScores = new HashMap<>(addresses.size());
+        for (InetAddress address : addresses)
+        {
+            Double score = scores.get(address);
+            if (score != null)
+                currentScores.put(address, score * (1 + MessagingService.instance().getPendingRequests(address)));
+        }
+        return currentScores;
+    }
+
     // Compare endpoints given an immutable snapshot of the scores
     private int compareEndpoints(InetAddress target, InetAddress a1, InetAddress a2, Map<InetAddress, Double> scores)
     {
@@ -276,14 +300,14 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
         HashMap<InetAddress, Double> newScores = new HashMap<>();
         for (Map.Entry<InetAddress, ExponentiallyDecayingReservoir> entry : samples.entrySet())
         {
-            double mean = entry.getValue().getSnapshot().getMedian();
-            if (mean > maxLatency)
-                maxLatency = mean;
+            double latency = entry.getValue().getSnapshot().getValue(LATENCY_PERCENTILE);
+            if (latency > maxLatency)
+                maxLatency = latency;
         }
         // now make another pass to do the weighting based on the maximums we found before
         for (Map.Entry<InetAddress, ExponentiallyDecayingReservoir> entry: samples.entrySet())
         {
-            double score = entry.getValue().getSnapshot().getMedian() / maxLatency;
+            double score = entry.getValue().getSnapshot().getValue(LATENCY_PERCENTILE) / maxLatency;
             // finally, add the severity without any weighting, since hosts scale this relative to their own load and the size of the task causing the severity.
             // "Severity" is basically a measure of compaction activity (CASSANDRA-3722).
             if (USE_SEVERITY)
@@ -316,6 +340,10 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     {
         return BADNESS_THRESHOLD;
     }
+    public double getLatencyPercentile()
+    {
+        return LATENCY_PERCENTILE;
+    }
 
     public String getSubsnitchClassName()
     {
@@ -27,6 +27,7 @@ public interface DynamicEndpointSnitchMBean {
     public int getUpdateInterval();
     public int getResetInterval();
     public double getBadnessThreshold();
+    public double getLatencyPercentile();
     public String getSubsnitchClassName();
     public List<Double> dumpTimings(String hostname) throws UnknownHostException;
 
@@ -31,6 +31,10 @@ public class CQLMetrics
     public final Counter regularStatementsExecuted;
     public final Counter preparedStatementsExecuted;
     public final Counter preparedStatementsEvicted;
+    /** Executions of prepared statements found in the cache */
+    public final Counter preparedStatementsHits;
+    /** Executions of prepared statements not found in the cache, which the clients have to prepare again */
+    public final Counter preparedStatementsMisses;
 
     public final Gauge<Integer> preparedStatementsCount;
     public final Gauge<Double> preparedStatementsRatio;
@@ -40,6 +44,8 @@ public class CQLMetrics
         regularStatementsExecuted = Metrics.counter(factory.createMetricName("RegularStatementsExecuted"));
         preparedStatementsExecuted = Metrics.counter(factory.createMetricName("PreparedStatementsExecuted"));
         preparedStatementsEvicted = Metrics.counter(factory.createMetricName("PreparedStatementsEvicted"));
+        preparedStatementsHits = Metrics.counter(factory.createMetricName("PreparedStatementsHits"));
+        preparedStatementsMisses = Metrics.counter(factory.createMetricName("PreparedStatementsMisses"));
 
         preparedStatementsCount = Metrics.register(factory.createMetricName("PreparedStatementsCount"), new Gauge<Integer>()
         {
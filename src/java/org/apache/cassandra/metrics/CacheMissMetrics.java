@@ -36,6 +36,10 @@ public class CacheMissMetrics
     public final Meter misses;
     /** Total number of cache requests */
     public final Meter requests;
+    /** Total number of requests of the scans, which are not admitted to the cache */
+    public final Meter scanRequests;
+    /** Total number of misses of the scans, which are not admitted to the cache */
+    public final Meter scanMisses;
     /** Latency of misses */
     public final Timer missLatency;
     /** all time cache hit rate */
@@ -64,6 +68,8 @@ public class CacheMissMetrics
         capacity = Metrics.register(factory.createMetricName("Capacity"), (Gauge<Long>) cache::capacity);
         misses = Metrics.meter(factory.createMetricName("Misses"));
         requests = Metrics.meter(factory.createMetricName("Requests"));
+        scanRequests = Metrics.meter(factory.createMetricName("ScanRequests"));
+        scanMisses = Metrics.meter(factory.createMetricName("ScanMisses"));
         missLatency = Metrics.timer(factory.createMetricName("MissLatency"));
         hitRate = Metrics.register(factory.createMetricName("HitRate"), new RatioGauge()
         {
@@ -110,5 +116,7 @@ public class CacheMissMetrics
     {
         requests.mark(-requests.getCount());
         misses.mark(-misses.getCount());
+        scanRequests.mark(-scanRequests.getCount());
+        scanMisses.mark(-scanMisses.getCount());
     }
 }
@@ -20,6 +20,7 @@ package org.apache.cassandra.metrics;
 import java.net.InetAddress;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 
 import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
@@ -60,6 +61,11 @@ public class ConnectionMetrics
     /** Number of timeouts for specific IP */
     public final Meter timeouts;
 
+    /** Number of messages sent at once by the connections, as coalesced by their strategy */
+    public final Histogram coalescedMessages;
+    /** Coalescing window of the connections when sending messages, in microseconds, 0 when not coalescing */
+    public final Histogram coalescingWindow;
+
     private final MetricNameFactory factory;
 
     /**
@@ -139,6 +145,8 @@ public class ConnectionMetrics
             }
         });
         timeouts = Metrics.meter(factory.createMetricName("Timeouts"));
+        coalescedMessages = Metrics.histogram(factory.createMetricName("CoalescedMessages"), false);
+        coalescingWindow = Metrics.histogram(factory.createMetricName("CoalescingWindow"), true);
     }
 
     public void release()
@@ -153,5 +161,7 @@ public class ConnectionMetrics
         Metrics.remove(factory.createMetricName("GossipMessageCompletedTasks"));
         Metrics.remove(factory.createMetricName("GossipMessageDroppedTasks"));
         Metrics.remove(factory.createMetricName("Timeouts"));
+        Metrics.remove(factory.createMetricName("CoalescedMessages"));
+        Metrics.remove(factory.createMetricName("CoalescingWindow"));
     }
 }
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.metrics;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+
+/**
+ * Metrics of the read-ahead of the sstable scans (see {@link org.apache.cassandra.io.util.PrefetchingRebufferer}).
+ */
+public class ReadAheadMetrics
+{
+    private static final MetricNameFactory factory = new DefaultNameFactory("ReadAhead");
+
+    /** Bytes read ahead and consumed by the scans, whose rate is the read throughput of the scans */
+    public static final Meter bytes = Metrics.meter(factory.createMetricName("Bytes"));
+    /** Chunks read ahead and consumed by the scans */
+    public static final Meter chunks = Metrics.meter(factory.createMetricName("Chunks"));
+    /** Chunks read ahead but not consumed, because the scan skipped them or was closed */
+    public static final Meter wastedChunks = Metrics.meter(factory.createMetricName("WastedChunks"));
+    /** Time the scans waited for chunks whose read was not completed yet */
+    public static final Timer waitLatency = Metrics.timer(factory.createMetricName("WaitLatency"));
+}
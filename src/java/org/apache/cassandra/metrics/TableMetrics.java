@@ -27,6 +27,7 @@ import com.codahale.metrics.Timer;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 
+import org.apache.cassandra.cache.ChunkCache;
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.Keyspace;
@@ -63,6 +64,14 @@ public class TableMetrics
     public final Gauge<Long> allMemtablesLiveDataSize;
     /** Total number of columns present in the memtable. */
     public final Gauge<Long> memtableColumnsCount;
+    /** Number of shards the partitions of the memtable are split into. */
+    public final Gauge<Integer> memtableShardCount;
+    /** Amount of data stored on-heap by each shard of the memtable. */
+    public final Gauge<long[]> memtableShardOnHeapSizes;
+    /** Amount of data stored off-heap by each shard of the memtable. */
+    public final Gauge<long[]> memtableShardOffHeapSizes;
+    /** Number of partitions stored by each shard of the memtable. */
+    public final Gauge<long[]> memtableShardPartitionCounts;
     /** Number of times flush has resulted in the memtable being switched out. */
     public final Counter memtableSwitchCount;
     /** Current compression ratio for all SSTables */
@@ -111,7 +120,7 @@ public class TableMetrics
     public final Gauge<Double> recentBloomFilterFalseRatio;
     /** Disk space used by bloom filter */
     public final Gauge<Long> bloomFilterDiskSpaceUsed;
-    /** Off heap memory used by bloom filter */
+    /** Off heap memory used by bloom filters, of partitions and of rows */
     public final Gauge<Long> bloomFilterOffHeapMemoryUsed;
     /** Off heap memory used by index summary */
     public final Gauge<Long> indexSummaryOffHeapMemoryUsed;
@@ -119,6 +128,10 @@ public class TableMetrics
     public final Gauge<Long> compressionMetadataOffHeapMemoryUsed;
     /** Key cache hit rate  for this CF */
     public final Gauge<Double> keyCacheHitRate;
+    /** Chunk cache hit rate of the reads of this CF that are admitted to the cache */
+    public final Gauge<Double> chunkCacheHitRate;
+    /** Space occupied by the chunks of this CF in the chunk cache, in bytes */
+    public final Gauge<Long> chunkCacheSize;
     /** Tombstones scanned in queries on this CF */
     public final TableHistogram tombstoneScannedHistogram;
     /** Live cells scanned in queries on this CF */
@@ -157,6 +170,8 @@ public class TableMetrics
 
     private final MetricNameFactory factory;
     private final MetricNameFactory aliasFactory;
+    private final ColumnFamilyStore cfs;
+    private final ChunkCache.TableStats chunkCacheStats;
     private static final MetricNameFactory globalFactory = new AllTableMetricNameFactory("Table");
     private static final MetricNameFactory globalAliasFactory = new AllTableMetricNameFactory("ColumnFamily");
 
@@ -260,6 +275,8 @@ public class TableMetrics
     {
         factory = new TableMetricNameFactory(cfs, "Table");
         aliasFactory = new TableMetricNameFactory(cfs, "ColumnFamily");
+        this.cfs = cfs;
+        chunkCacheStats = ChunkCache.instance == null ? null : ChunkCache.instance.tableStats(cfs.metadata.ksName, cfs.metadata.cfName);
 
         samplers = Maps.newHashMap();
         for (Sampler sampler : Sampler.values())
@@ -278,14 +295,60 @@ public class TableMetrics
         {
             public Long getValue()
             {
-                return cfs.getTracker().getView().getCurrentMemtable().getAllocator().onHeap().owns();
+                return cfs.getTracker().getView().getCurrentMemtable().getOnHeapOwns();
             }
         });
         memtableOffHeapSize = createTableGauge("MemtableOffHeapSize", new Gauge<Long>()
         {
             public Long getValue()
             {
-                return cfs.getTracker().getView().getCurrentMemtable().getAllocator().offHeap().owns();
+                return cfs.getTracker().getView().getCurrentMemtable().getOffHeapOwns();
+            }
+        });
+        memtableShardCount = createTableGauge("MemtableShardCount", new Gauge<Integer>()
+        {
+            public Integer getValue()
+            {
+                return cfs.getTracker().getView().getCurrentMemtable().shardCount();
+            }
+        });
+        memtableShardOnHeapSizes = Metrics.register(factory.createMetricName("MemtableShardOnHeapSizes"),
+                                                    aliasFactory.createMetricName("MemtableShardOnHeapSizes"),
+                                                    new Gauge<long[]>()
+        {
+            public long[] getValue()
+            {
+                Memtable memtable = cfs.getTracker().getView().getCurrentMemtable();
+                long[] sizes = new long[memtable.shardCount()];
+                for (int i = 0; i < sizes.length; i++)
+                    sizes[i] = memtable.getShardOnHeapOwns(i);
+                return sizes;
+            }
+        });
+        memtableShardOffHeapSizes = Metrics.register(factory.createMetricName("MemtableShardOffHeapSizes"),
+                                                     aliasFactory.createMetricName("MemtableShardOffHeapSizes"),
+                                                     new Gauge<long[]>()
+        {
+            public long[] getValue()
+            {
+                Memtable memtable = cfs.getTracker().getView().getCurrentMemtable();
+                long[] sizes = new long[memtable.shardCount()];
+                for (int i = 0; i < sizes.length; i++)
+                    sizes[i] = memtable.getShardOffHeapOwns(i);
+                return sizes;
+            }
+        });
+        memtableShardPartitionCounts = Metrics.register(factory.createMetricName("MemtableShardPartitionCounts"),
+                                                        aliasFactory.createMetricName("MemtableShardPartitionCounts"),
+                                                        new Gauge<long[]>()
+        {
+            public long[] getValue()
+            {
+                Memtable memtable = cfs.getTracker().getView().getCurrentMemtable();
+                long[] counts = new long[memtable.shardCount()];
+                for (int i = 0; i < counts.length; i++)
+                    counts[i] = memtable.getShardPartitionCount(i);
+                return counts;
             }
         });
         memtableLiveDataSize = createTableGauge("MemtableLiveDataSize", new Gauge<Long>()
@@ -301,7 +364,7 @@ public class TableMetrics
             {
                 long size = 0;
                 for (ColumnFamilyStore cfs2 : cfs.concatWithIndexes())
-                    size += cfs2.getTracker().getView().getCurrentMemtable().getAllocator().onHeap().owns();
+                    size += cfs2.getTracker().getView().getCurrentMemtable().getOnHeapOwns();
                 return size;
             }
         });
@@ -311,7 +374,7 @@ public class TableMetrics
             {
                 long size = 0;
                 for (ColumnFamilyStore cfs2 : cfs.concatWithIndexes())
-                    size += cfs2.getTracker().getView().getCurrentMemtable().getAllocator().offHeap().owns();
+                    size += cfs2.getTracker().getView().getCurrentMemtable().getOffHeapOwns();
                 return size;
             }
         });
@@ -605,8 +668,9 @@ public class TableMetrics
             public Long getValue()
             {
                 long total = 0;
+                // the row filters as well as the partition ones
                 for (SSTableReader sst : cfs.getSSTables(SSTableSet.LIVE))
-                    total += sst.getBloomFilterOffHeapSize();
+                    total += sst.getBloomFilterOffHeapSize() + sst.getRowFilterOffHeapSize();
                 return total;
             }
         });
@@ -657,6 +721,26 @@ public class TableMetrics
                 return Math.max(requests, 1); // to avoid NaN.
             }
         });
+        chunkCacheHitRate = Metrics.register(factory.createMetricName("ChunkCacheHitRate"),
+                                             aliasFactory.createMetricName("ChunkCacheHitRate"),
+                                             new RatioGauge()
+        {
+            @Override
+            public Ratio getRatio()
+            {
+                if (chunkCacheStats == null)
+                    return Ratio.of(0, 1);
+                long requests = chunkCacheStats.requests.getCount();
+                return Ratio.of(requests - chunkCacheStats.misses.getCount(), Math.max(requests, 1));
+            }
+        });
+        chunkCacheSize = createTableGauge("ChunkCacheSize", new Gauge<Long>()
+        {
+            public Long getValue()
+            {
+                return chunkCacheStats == null ? 0L : chunkCacheStats.size();
+            }
+        });
         tombstoneScannedHistogram = createTableHistogram("TombstoneScannedHistogram", cfs.keyspace.metric.tombstoneScannedHistogram, false);
         liveScannedHistogram = createTableHistogram("LiveScannedHistogram", cfs.keyspace.metric.liveScannedHistogram, false);
         colUpdateTimeDeltaHistogram = createTableHistogram("ColUpdateTimeDeltaHistogram", cfs.keyspace.metric.colUpdateTimeDeltaHistogram, false);
@@ -718,9 +802,15 @@ public class TableMetrics
         Metrics.remove(factory.createMetricName("EstimatedPartitionCount"), aliasFactory.createMetricName("EstimatedRowCount"));
         Metrics.remove(factory.createMetricName("EstimatedColumnCountHistogram"), aliasFactory.createMetricName("EstimatedColumnCountHistogram"));
         Metrics.remove(factory.createMetricName("KeyCacheHitRate"), aliasFactory.createMetricName("KeyCacheHitRate"));
+        Metrics.remove(factory.createMetricName("ChunkCacheHitRate"), aliasFactory.createMetricName("ChunkCacheHitRate"));
         Metrics.remove(factory.createMetricName("CoordinatorReadLatency"), aliasFactory.createMetricName("CoordinatorReadLatency"));
         Metrics.remove(factory.createMetricName("CoordinatorScanLatency"), aliasFactory.createMetricName("CoordinatorScanLatency"));
         Metrics.remove(factory.createMetricName("WaitingOnFreeMemtableSpace"), aliasFactory.createMetricName("WaitingOnFreeMemtableSpace"));
+        Metrics.remove(factory.createMetricName("MemtableShardOnHeapSizes"), aliasFactory.createMetricName("MemtableShardOnHeapSizes"));
+        Metrics.remove(factory.createMetricName("MemtableShardOffHeapSizes"), aliasFactory.createMetricName("MemtableShardOffHeapSizes"));
+        Metrics.remove(factory.createMetricName("MemtableShardPartitionCounts"), aliasFactory.createMetricName("MemtableShardPartitionCounts"));
+        if (chunkCacheStats != null)
+            ChunkCache.instance.releaseTableStats(cfs.metadata.ksName, cfs.metadata.cfName);
     }
 
 
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.UnknownColumnFamilyException;
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.utils.JVMStabilityInspector;
+
+/**
+ * An incoming messaging connection served by one of the event loops of {@link MessagingService#eventLoopGroup()},
+ * rather than by a thread of its own like {@link IncomingTcpConnection}, once {@link MessagingService.SocketThread}
+ * has read its header. It reads the same handshake and messages.
+ *
+ * This handler reads the handshake, then replaces itself with the decompressor, if the connection is compressed, and
+ * with the decoder of messages, which delivers each message as soon as all of it has been read. As with
+ * {@link IncomingTcpConnection}, the messages of a peer speaking a newer version than ours are ignored.
+ */
+final class IncomingEventLoopConnection extends ByteToMessageDecoder
+{
+    private static final Logger logger = LoggerFactory.getLogger(IncomingEventLoopConnection.class);
+
+    private final int version;
+    private final boolean compressed;
+
+    private IncomingEventLoopConnection(int version, boolean compressed)
+    {
+        this.version = version;
+        this.compressed = compressed;
+    }
+
+    /**
+     * Registers the given socket, whose header has been read, with the event loops.
+     *
+     * @return the connection, which is added to the given group until it is closed
+     */
+    @SuppressWarnings("resource")
+    static Closeable register(int version, boolean compressed, SocketChannel socket, Set<Closeable> group)
+    {
+        assert version >= MessagingService.VERSION_21 : version;
+        Channel channel = new NioSocketChannel(socket);
+        if (DatabaseDescriptor.getInternodeRecvBufferSize() != null)
+            channel.config().setOption(ChannelOption.SO_RCVBUF, DatabaseDescriptor.getInternodeRecvBufferSize());
+        channel.pipeline().addLast("handshake", new IncomingEventLoopConnection(version, compressed));
+
+        Closeable connection = channel::close;
+        group.add(connection);
+        channel.closeFuture().addListener((ChannelFutureListener) future -> group.remove(connection));
+        MessagingService.instance().eventLoopGroup().register(channel);
+        return connection;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception
+    {
+        // handshake (true) endpoint versions
+        ctx.writeAndFlush(ctx.alloc().buffer(4).writeInt(MessagingService.current_version));
+        super.channelActive(ctx);
+    }
+
+    @SuppressWarnings("resource")
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws IOException
+    {
+        // the maximum version of the peer, then its address, preceded by its size
+        if (in.readableBytes() < 5 || in.readableBytes() < 5 + in.getUnsignedByte(in.readerIndex() + 4))
+            return;
+
+        int maxVersion = in.readInt();
+        InetAddress from = CompactEndpointSerializationHelper.deserialize(new ByteBufInputStream(in));
+        // record the (true) version of the endpoint
+        MessagingService.instance().setVersion(from, maxVersion);
+        logger.trace("Set version for {} to {} (will use {})", from, maxVersion, MessagingService.instance().getVersion(from));
+
+        ChannelPipeline pipeline = ctx.pipeline();
+        if (compressed)
+        {
+            logger.trace("Upgrading incoming connection to be compressed");
+            pipeline.addLast("decompressor", new LZ4BlockCodec.Decoder());
+        }
+        pipeline.addLast("messages", new MessageDecoder(version, from));
+        // passes the bytes read past the handshake on to the handlers just added
+        pipeline.remove(this);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+    {
+        close(ctx, cause);
+    }
+
+    private static void close(ChannelHandlerContext ctx, Throwable cause)
+    {
+        if (cause instanceof DecoderException && cause.getCause() != null)
+            cause = cause.getCause();
+
+        if (cause instanceof UnknownColumnFamilyException)
+        {
+            logger.warn("UnknownColumnFamilyException reading from socket; closing", cause);
+        }
+        else if (cause instanceof IOException)
+        {
+            logger.trace("IOException reading from socket; closing", cause);
+        }
+        else
+        {
+            JVMStabilityInspector.inspectThrowable(cause);
+            logger.error("Unexpected exception reading from socket; closing", cause);
+        }
+        ctx.close();
+    }
+
+    /**
+     * Reads the messages following the handshake.
+     */
+    private static final class MessageDecoder extends ByteToMessageDecoder
+    {
+        private final int version;
+        private final InetAddress from;
+
+        private MessageDecoder(int version, InetAddress from)
+        {
+            this.version = version;
+            this.from = from;
+        }
+
+        @SuppressWarnings("resource")
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws IOException
+        {
+            while (true)
+            {
+                int length = messageLength(in);
+                if (length < 0)
+                    return;
+
+                if (in.readableBytes() < length)
+                {
+                    // so that large messages aren't copied over and over as the buffer grows
+                    in.ensureWritable(length - in.readableBytes());
+                    return;
+                }
+
+                if (version > MessagingService.current_version)
+                {
+                    // like IncomingTcpConnection, ignore the messages of a peer speaking a newer version, which
+                    // reconnects with ours once it has read it from the handshake
+                    logger.trace("Received connection from newer protocol version {}. Ignoring message", version);
+                    in.skipBytes(length);
+                    continue;
+                }
+
+                DataInputBuffer input = new DataInputBuffer(in.nioBuffer(in.readerIndex(), length), false);
+                MessagingService.validateMagic(input.readInt());
+                IncomingTcpConnection.receiveMessage(input, version, from);
+                in.skipBytes(length);
+            }
+        }
+
+        /**
+         * @return the length of the message at the reader index of the given buffer, including its magic, or -1 if
+         * the buffer doesn't have enough of it to tell yet
+         */
+        private static int messageLength(ByteBuf in) throws IOException
+        {
+            int start = in.readerIndex();
+            int end = in.writerIndex();
+            if (end - start < 4)
+                return -1;
+            MessagingService.validateMagic(in.getInt(start));
+
+            // the magic, id and timestamp, then the address of the sender, preceded by its size
+            long position = start + 12;
+            if (position + 1 > end)
+                return -1;
+            position += 1 + in.getUnsignedByte((int) position);
+
+            // the verb and the number of parameters
+            if (position + 8 > end)
+                return -1;
+            int parameters = in.getInt((int) position + 4);
+            position += 8;
+            for (int i = 0; i < parameters; i++)
+            {
+                // the name, preceded by its unsigned short length, and the value, preceded by its int length
+                if (position + 2 > end)
+                    return -1;
+                position += 2 + in.getUnsignedShort((int) position);
+                if (position + 4 > end)
+                    return -1;
+                position += 4 + length(in, (int) position);
+            }
+
+            // the payload, preceded by its size
+            if (position + 4 > end)
+                return -1;
+            position += 4 + length(in, (int) position);
+
+            if (position - start > Integer.MAX_VALUE)
+                throw new IOException("Message too large: " + (position - start));
+            return (int) (position - start);
+        }
+
+        private static int length(ByteBuf in, int index) throws IOException
+        {
+            int length = in.getInt(index);
+            if (length < 0)
+                throw new IOException("Invalid length " + length);
+            return length;
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+        {
+            close(ctx, cause);
+        }
+    }
+}
@@ -161,7 +161,7 @@ public class IncomingTcpConnection extends FastThreadLocalThread implements Clos
             else
             {
                 LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
-                Checksum checksum = XXHashFactory.fastestInstance().newStreamingHash32(OutboundTcpConnection.LZ4_HASH_SEED).asChecksum();
+                Checksum checksum = XXHashFactory.fastestInstance().newStreamingHash32(OutboundConnection.LZ4_HASH_SEED).asChecksum();
                 in = new DataInputStreamPlus(new LZ4BlockInputStream(socket.getInputStream(),
                                                                  decompressor,
                                                                  checksum));
@@ -176,11 +176,14 @@ public class IncomingTcpConnection extends FastThreadLocalThread implements Clos
         while (true)
         {
             MessagingService.validateMagic(in.readInt());
-            receiveMessage(in, version);
+            receiveMessage(in, version, from);
         }
     }
 
-    private InetAddress receiveMessage(DataInputPlus input, int version) throws IOException
+    /**
+     * Reads the message following the magic in the given input, sent by the given node, and delivers it.
+     */
+    static InetAddress receiveMessage(DataInputPlus input, int version, InetAddress from) throws IOException
     {
         int id;
         if (version < MessagingService.VERSION_20)
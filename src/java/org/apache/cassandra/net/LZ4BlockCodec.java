@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.Checksum;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.MessageToByteEncoder;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import net.jpountz.xxhash.XXHashFactory;
+
+/**
+ * Netty handlers compressing the internode messages written to a channel, and decompressing those read from it, in
+ * the block format of {@link LZ4BlockOutputStream} and {@link LZ4BlockInputStream}, so that the connections served by
+ * event loops can talk to {@link OutboundTcpConnection} and {@link IncomingTcpConnection}.
+ *
+ * A block is a header followed by up to {@link #BLOCK_SIZE} bytes, which are LZ4 compressed unless that doesn't make
+ * them smaller. The header is a magic, a byte holding the compression method and the log2 of the block size, then the
+ * compressed length, the original length and the checksum of the original bytes, as little endian ints.
+ */
+final class LZ4BlockCodec
+{
+    private static final byte[] MAGIC = { 'L', 'Z', '4', 'B', 'l', 'o', 'c', 'k' };
+    private static final int HEADER_LENGTH = MAGIC.length + 13;
+    private static final int COMPRESSION_LEVEL_BASE = 10;
+    private static final int COMPRESSION_METHOD_RAW = 0x10;
+    private static final int COMPRESSION_METHOD_LZ4 = 0x20;
+
+    // the block size of OutboundTcpConnection
+    static final int BLOCK_SIZE = 1 << 14;
+    private static final int COMPRESSION_LEVEL = 32 - Integer.numberOfLeadingZeros(BLOCK_SIZE - 1) - COMPRESSION_LEVEL_BASE;
+
+    private LZ4BlockCodec()
+    {
+    }
+
+    private static Checksum newChecksum()
+    {
+        return XXHashFactory.fastestInstance().newStreamingHash32(OutboundConnection.LZ4_HASH_SEED).asChecksum();
+    }
+
+    /**
+     * Compresses each buffer written into blocks, the last of which may be partial, as written when a
+     * {@link LZ4BlockOutputStream} is flushed.
+     */
+    static final class Encoder extends MessageToByteEncoder<ByteBuf>
+    {
+        private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+        private final Checksum checksum = newChecksum();
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[compressor.maxCompressedLength(BLOCK_SIZE)];
+
+        Encoder()
+        {
+            super(ByteBuf.class);
+        }
+
+        @Override
+        protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect)
+        {
+            // enough for blocks that can't be compressed
+            int length = msg.readableBytes();
+            int blocks = (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            return ctx.alloc().ioBuffer(length + blocks * HEADER_LENGTH);
+        }
+
+        protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out)
+        {
+            while (msg.isReadable())
+            {
+                int length = Math.min(msg.readableBytes(), BLOCK_SIZE);
+                msg.readBytes(block, 0, length);
+                checksum.reset();
+                checksum.update(block, 0, length);
+                int check = (int) checksum.getValue();
+
+                int method = COMPRESSION_METHOD_LZ4;
+                byte[] data = compressed;
+                int compressedLength = compressor.compress(block, 0, length, compressed, 0);
+                if (compressedLength >= length)
+                {
+                    method = COMPRESSION_METHOD_RAW;
+                    data = block;
+                    compressedLength = length;
+                }
+
+                out.writeBytes(MAGIC);
+                out.writeByte(method | COMPRESSION_LEVEL);
+                out.writeInt(Integer.reverseBytes(compressedLength));
+                out.writeInt(Integer.reverseBytes(length));
+                out.writeInt(Integer.reverseBytes(check));
+                out.writeBytes(data, 0, compressedLength);
+            }
+        }
+    }
+
+    /**
+     * Decompresses the blocks read, each of which is passed on as soon as it is complete.
+     */
+    static final class Decoder extends ByteToMessageDecoder
+    {
+        private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+        private final Checksum checksum = newChecksum();
+        private byte[] compressed = new byte[BLOCK_SIZE];
+
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws IOException
+        {
+            while (in.readableBytes() >= HEADER_LENGTH)
+            {
+                int start = in.readerIndex();
+                for (int i = 0; i < MAGIC.length; i++)
+                {
+                    if (in.getByte(start + i) != MAGIC[i])
+                        throw new IOException("Stream is corrupted");
+                }
+                int token = in.getUnsignedByte(start + MAGIC.length);
+                int method = token & 0xF0;
+                int compressionLevel = COMPRESSION_LEVEL_BASE + (token & 0x0F);
+                int compressedLength = Integer.reverseBytes(in.getInt(start + MAGIC.length + 1));
+                int originalLength = Integer.reverseBytes(in.getInt(start + MAGIC.length + 5));
+                int check = Integer.reverseBytes(in.getInt(start + MAGIC.length + 9));
+                if ((method != COMPRESSION_METHOD_RAW && method != COMPRESSION_METHOD_LZ4)
+                    || originalLength > 1 << compressionLevel
+                    || originalLength < 0
+                    || compressedLength < 0
+                    || (originalLength == 0) != (compressedLength == 0)
+                    || (method == COMPRESSION_METHOD_RAW && originalLength != compressedLength))
+                    throw new IOException("Stream is corrupted");
+
+                if (originalLength == 0)
+                {
+                    // the end of the stream, which connections never write but LZ4BlockInputStream would stop at
+                    in.skipBytes(in.readableBytes());
+                    ctx.close();
+                    return;
+                }
+
+                if (in.readableBytes() < HEADER_LENGTH + compressedLength)
+                    return;
+
+                in.skipBytes(HEADER_LENGTH);
+                ByteBuf block = ctx.alloc().heapBuffer(originalLength);
+                try
+                {
+                    decompress(in, method, compressedLength, block, originalLength);
+                    checksum.reset();
+                    checksum.update(block.array(), block.arrayOffset(), originalLength);
+                    if ((int) checksum.getValue() != check)
+                        throw new IOException("Stream is corrupted");
+                }
+                catch (Throwable t)
+                {
+                    block.release();
+                    throw t;
+                }
+                out.add(block);
+            }
+        }
+
+        private void decompress(ByteBuf in, int method, int compressedLength, ByteBuf block, int originalLength) throws IOException
+        {
+            if (method == COMPRESSION_METHOD_RAW)
+            {
+                in.readBytes(block, originalLength);
+                return;
+            }
+
+            byte[] source;
+            int sourceOffset;
+            if (in.hasArray())
+            {
+                source = in.array();
+                sourceOffset = in.arrayOffset() + in.readerIndex();
+            }
+            else
+            {
+                if (compressed.length < compressedLength)
+                    compressed = new byte[compressedLength];
+                in.getBytes(in.readerIndex(), compressed, 0, compressedLength);
+                source = compressed;
+                sourceOffset = 0;
+            }
+
+            try
+            {
+                if (decompressor.decompress(source, sourceOffset, block.array(), block.arrayOffset(), originalLength) != compressedLength)
+                    throw new IOException("Stream is corrupted");
+            }
+            catch (LZ4Exception e)
+            {
+                throw new IOException("Stream is corrupted", e);
+            }
+            in.skipBytes(compressedLength);
+            block.writerIndex(originalLength);
+        }
+    }
+}
@@ -38,10 +38,13 @@ import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
 import org.cliffc.high_scale_lib.NonBlockingHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.cassandra.concurrent.ExecutorLocals;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.concurrent.StageManager;
@@ -88,7 +91,8 @@ public final class MessagingService implements MessagingServiceMBean
     public static final int VERSION_21 = 8;
     public static final int VERSION_22 = 9;
     public static final int VERSION_30 = 10;
-    public static final int current_version = VERSION_30;
+    public static final int VERSION_311 = 11; // digests of read responses use Murmur3Digest instead of MD5
+    public static final int current_version = VERSION_311;
 
     public static final String FAILURE_CALLBACK_PARAM = "CAL_BAC";
     public static final byte[] ONE_BYTE = new byte[1];
@@ -307,6 +311,9 @@ public final class MessagingService implements MessagingServiceMBean
     private final List<SocketThread> socketThreads = Lists.newArrayList();
     private final SimpleCondition listenGate;
 
+    // serves the connections when internode_event_loop is set, created with the first of them
+    private EventLoopGroup eventLoopGroup;
+
     /**
      * Verbs it's okay to drop if the request has been queued longer than the request timeout.  These
      * all correspond to client requests or something triggered by them; we don't want to
@@ -344,6 +351,9 @@ public final class MessagingService implements MessagingServiceMBean
 
     private final List<ILatencySubscriber> subscribers = new ArrayList<ILatencySubscriber>();
 
+    // the number of requests whose latency is reported to the snitch that are awaiting a response, per endpoint
+    private final ConcurrentMap<InetAddress, AtomicInteger> pendingRequests = new NonBlockingHashMap<>();
+
     // protocol versions of the other nodes in the cluster
     private final ConcurrentMap<InetAddress, Integer> versions = new NonBlockingHashMap<InetAddress, Integer>();
 
@@ -409,6 +419,7 @@ public final class MessagingService implements MessagingServiceMBean
             public Object apply(Pair<Integer, ExpiringMap.CacheableObject<CallbackInfo>> pair)
             {
                 final CallbackInfo expiredCallbackInfo = pair.right.value;
+                onCallbackRemoved(expiredCallbackInfo);
                 maybeAddLatency(expiredCallbackInfo.callback, expiredCallbackInfo.target, pair.right.timeout);
                 ConnectionMetrics.totalTimeouts.mark();
                 getConnectionPool(expiredCallbackInfo.target).incrementTimeout();
@@ -467,6 +478,54 @@ public final class MessagingService implements MessagingServiceMBean
             subscriber.receiveTiming(address, latency);
     }
 
+    /**
+     * Passes the round trip time of a request to the given endpoint to the coalescing strategies of its connections,
+     * if it has any.
+     */
+    public void addRoundTripTime(InetAddress address, long nanos)
+    {
+        OutboundTcpConnectionPool cp = connectionManagers.get(address);
+        if (cp != null)
+            cp.onRoundTripTime(nanos);
+    }
+
+    /**
+     * @return the number of requests sent to the given endpoint whose latency is reported to the snitch (see
+     * {@link IAsyncCallback#isLatencyForSnitch}) that are still awaiting a response, that is neither answered nor
+     * expired.
+     */
+    public int getPendingRequests(InetAddress endpoint)
+    {
+        AtomicInteger pending = pendingRequests.get(endpoint);
+        return pending == null ? 0 : pending.get();
+    }
+
+    private void onCallbackAdded(CallbackInfo callbackInfo)
+    {
+        if (!callbackInfo.callback.isLatencyForSnitch())
+            return;
+
+        AtomicInteger pending = pendingRequests.get(callbackInfo.target);
+        if (pending == null)
+        {
+            AtomicInteger newPending = new AtomicInteger();
+            pending = pendingRequests.putIfAbsent(callbackInfo.target, newPending);
+            if (pending == null)
+                pending = newPending;
+        }
+        pending.incrementAndGet();
+    }
+
+    private void onCallbackRemoved(CallbackInfo callbackInfo)
+    {
+        if (!callbackInfo.callback.isLatencyForSnitch())
+            return;
+
+        AtomicInteger pending = pendingRequests.get(callbackInfo.target);
+        if (pending != null)
+            pending.updateAndGet(count -> Math.max(count - 1, 0));
+    }
+
     /**
      * called from gossiper when it notices a node is not responding.
      */
@@ -479,6 +538,7 @@ public final class MessagingService implements MessagingServiceMBean
     public void listen()
     {
         callbacks.reset(); // hack to allow tests to stop/restart MS
+        pendingRequests.clear();
         listen(FBUtilities.getLocalAddress());
         if (DatabaseDescriptor.shouldListenOnBroadcastAddress()
             && !FBUtilities.getLocalAddress().equals(FBUtilities.getBroadcastAddress()))
@@ -614,11 +674,26 @@ public final class MessagingService implements MessagingServiceMBean
     }
 
 
-    public OutboundTcpConnection getConnection(InetAddress to, MessageOut msg)
+    public OutboundConnection getConnection(InetAddress to, MessageOut msg)
     {
         return getConnectionPool(to).getConnection(msg);
     }
 
+    /**
+     * @return the event loops serving the messaging connections, if {@link DatabaseDescriptor#useInternodeEventLoop()}
+     */
+    synchronized EventLoopGroup eventLoopGroup()
+    {
+        if (eventLoopGroup == null)
+        {
+            NioEventLoopGroup group = new NioEventLoopGroup(DatabaseDescriptor.getInternodeEventLoopThreads(),
+                                                            new NamedThreadFactory("MessagingService-EventLoop"));
+            logger.info("Serving internode messaging connections with {} event loops", group.executorCount());
+            eventLoopGroup = group;
+        }
+        return eventLoopGroup;
+    }
+
     /**
      * Register a verb and the corresponding verb handler with the
      * Messaging Service.
@@ -648,8 +723,10 @@ public final class MessagingService implements MessagingServiceMBean
     {
         assert message.verb != Verb.MUTATION; // mutations need to call the overload with a ConsistencyLevel
         int messageId = nextId();
-        CallbackInfo previous = callbacks.put(messageId, new CallbackInfo(to, cb, callbackDeserializers.get(message.verb), failureCallback), timeout);
+        CallbackInfo callbackInfo = new CallbackInfo(to, cb, callbackDeserializers.get(message.verb), failureCallback);
+        CallbackInfo previous = callbacks.put(messageId, callbackInfo, timeout);
         assert previous == null : String.format("Callback already exists for id %d! (%s)", messageId, previous);
+        onCallbackAdded(callbackInfo);
         return messageId;
     }
 
@@ -665,15 +742,15 @@ public final class MessagingService implements MessagingServiceMBean
             || message.verb == Verb.PAXOS_COMMIT;
         int messageId = nextId();
 
-        CallbackInfo previous = callbacks.put(messageId,
-                                              new WriteCallbackInfo(to,
-                                                                    cb,
-                                                                    message,
-                                                                    callbackDeserializers.get(message.verb),
-                                                                    consistencyLevel,
-                                                                    allowHints),
-                                                                    timeout);
+        CallbackInfo callbackInfo = new WriteCallbackInfo(to,
+                                                          cb,
+                                                          message,
+                                                          callbackDeserializers.get(message.verb),
+                                                          consistencyLevel,
+                                                          allowHints);
+        CallbackInfo previous = callbacks.put(messageId, callbackInfo, timeout);
         assert previous == null : String.format("Callback already exists for id %d! (%s)", messageId, previous);
+        onCallbackAdded(callbackInfo);
         return messageId;
     }
 
@@ -765,7 +842,7 @@ public final class MessagingService implements MessagingServiceMBean
                 return;
 
         // get pooled connection (really, connection queue)
-        OutboundTcpConnection connection = getConnection(to, message);
+        OutboundConnection connection = getConnection(to, message);
 
         // write it
         connection.enqueue(message, id);
@@ -786,6 +863,7 @@ public final class MessagingService implements MessagingServiceMBean
     public void clearCallbacksUnsafe()
     {
         callbacks.reset();
+        pendingRequests.clear();
     }
 
     /**
@@ -850,7 +928,10 @@ public final class MessagingService implements MessagingServiceMBean
 
     public CallbackInfo removeRegisteredCallback(int messageId)
     {
-        return callbacks.remove(messageId);
+        CallbackInfo callbackInfo = callbacks.remove(messageId);
+        if (callbackInfo != null)
+            onCallbackRemoved(callbackInfo);
+        return callbackInfo;
     }
 
     /**
@@ -1104,7 +1185,7 @@ public final class MessagingService implements MessagingServiceMBean
                     }
 
                     socket.setKeepAlive(true);
-                    socket.setSoTimeout(2 * OutboundTcpConnection.WAIT_FOR_VERSION_MAX_TIME);
+                    socket.setSoTimeout(2 * OutboundConnection.WAIT_FOR_VERSION_MAX_TIME);
                     // determine the connection type to decide whether to buffer
                     DataInputStream in = new DataInputStream(socket.getInputStream());
                     MessagingService.validateMagic(in.readInt());
@@ -1114,9 +1195,17 @@ public final class MessagingService implements MessagingServiceMBean
                     logger.trace("Connection version {} from {}", version, socket.getInetAddress());
                     socket.setSoTimeout(0);
 
+                    boolean compressed = MessagingService.getBits(header, 2, 1) == 1;
+                    // streaming and encrypted sockets, which have no channel, keep a thread each
+                    if (!isStream && DatabaseDescriptor.useInternodeEventLoop() && socket.getChannel() != null && version >= VERSION_21)
+                    {
+                        IncomingEventLoopConnection.register(version, compressed, socket.getChannel(), connections);
+                        continue;
+                    }
+
                     Thread thread = isStream
                                   ? new IncomingStreamingConnection(version, socket, connections)
-                                  : new IncomingTcpConnection(version, MessagingService.getBits(header, 2, 1) == 1, socket, connections);
+                                  : new IncomingTcpConnection(version, compressed, socket, connections);
                     thread.start();
                     connections.add((Closeable) thread);
                 }
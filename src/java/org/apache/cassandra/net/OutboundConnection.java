@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.tracing.TraceState;
+import org.apache.cassandra.tracing.Tracing;
+import org.apache.cassandra.utils.CoalescingStrategies;
+import org.apache.cassandra.utils.CoalescingStrategies.Coalescable;
+import org.apache.cassandra.utils.CoalescingStrategies.CoalescingStrategy;
+import org.apache.cassandra.utils.CoalescingStrategies.Parker;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.UUIDGen;
+import org.apache.cassandra.utils.concurrent.LockFreeBlockingQueue;
+
+/**
+ * A connection sending messages of one type (see {@link OutboundTcpConnectionPool}) to a peer. Messages are queued in
+ * a backlog until sent, and the messages that time out in the backlog are dropped.
+ *
+ * Sending is done by {@link OutboundTcpConnection}, with a thread of its own, or by {@link OutboundEventLoopConnection},
+ * with one of the event loops shared by all connections.
+ */
+public abstract class OutboundConnection
+{
+    private static final Logger logger = LoggerFactory.getLogger(OutboundConnection.class);
+
+    private static final String PREFIX = Config.PROPERTY_PREFIX;
+
+    /*
+     * Enabled/disable TCP_NODELAY for intradc connections. Defaults to enabled.
+     */
+    private static final String INTRADC_TCP_NODELAY_PROPERTY = PREFIX + "otc_intradc_tcp_nodelay";
+    private static final boolean INTRADC_TCP_NODELAY = Boolean.valueOf(System.getProperty(INTRADC_TCP_NODELAY_PROPERTY, "true"));
+
+    static CoalescingStrategy newCoalescingStrategy(String displayName)
+    {
+        return CoalescingStrategies.newCoalescingStrategy(DatabaseDescriptor.getOtcCoalescingStrategy(),
+                                                          DatabaseDescriptor.getOtcCoalescingWindow(),
+                                                          logger,
+                                                          displayName);
+    }
+
+    static CoalescingStrategy newCoalescingStrategy(String displayName, Parker parker)
+    {
+        return CoalescingStrategies.newCoalescingStrategy(DatabaseDescriptor.getOtcCoalescingStrategy(),
+                                                          DatabaseDescriptor.getOtcCoalescingWindow(),
+                                                          parker,
+                                                          logger,
+                                                          displayName);
+    }
+
+    static
+    {
+        String strategy = DatabaseDescriptor.getOtcCoalescingStrategy();
+        switch (strategy)
+        {
+        case "TIMEHORIZON":
+            break;
+        case "MOVINGAVERAGE":
+        case "FIXED":
+        case "DISABLED":
+        case "ADAPTIVE":
+            logger.info("OutboundTcpConnection using coalescing strategy {}", strategy);
+            break;
+            default:
+                //Check that it can be loaded
+                newCoalescingStrategy("dummy");
+        }
+
+        int coalescingWindow = DatabaseDescriptor.getOtcCoalescingWindow();
+        if (coalescingWindow != Config.otc_coalescing_window_us_default)
+            logger.info("OutboundTcpConnection coalescing window set to {}μs", coalescingWindow);
+
+        if (coalescingWindow < 0)
+            throw new ExceptionInInitializerError(
+                    "Value provided for coalescing window must be greather than 0: " + coalescingWindow);
+    }
+
+    static final MessageOut CLOSE_SENTINEL = new MessageOut(MessagingService.Verb.INTERNAL_RESPONSE);
+    protected volatile boolean isStopped = false;
+
+    static final int OPEN_RETRY_DELAY = 100; // ms between retries
+    public static final int WAIT_FOR_VERSION_MAX_TIME = 5000;
+    static final int NO_VERSION = Integer.MIN_VALUE;
+
+    static final int LZ4_HASH_SEED = 0x9747b28c;
+
+    // producers don't contend on a lock to enqueue messages, nor with the consumer
+    protected final BlockingQueue<QueuedMessage> backlog = new LockFreeBlockingQueue<>();
+
+    protected final OutboundTcpConnectionPool poolReference;
+
+    protected final CoalescingStrategy cs;
+    protected volatile long completed;
+    protected final AtomicLong dropped = new AtomicLong();
+    protected volatile int currentMsgBufferCount = 0;
+    protected volatile int targetVersion;
+
+    protected OutboundConnection(OutboundTcpConnectionPool pool, CoalescingStrategy cs)
+    {
+        this.poolReference = pool;
+        this.cs = cs;
+
+        // We want to use the most precise version we know because while there is version detection on connect(),
+        // the target version might be accessed by the pool (in getConnection()) before we actually connect (as we
+        // connect when the first message is submitted). Note however that the only case where we'll connect
+        // without knowing the true version of a node is if that node is a seed (otherwise, we can't know a node
+        // unless it has been gossiped to us or it has connected to us and in both case this sets the version) and
+        // in that case we won't rely on that targetVersion before we're actually connected and so the version
+        // detection in connect() will do its job.
+        targetVersion = MessagingService.instance().getVersion(pool.endPoint());
+    }
+
+    /**
+     * Starts sending the messages enqueued.
+     */
+    public abstract void start();
+
+    static boolean isLocalDC(InetAddress targetHost)
+    {
+        String remoteDC = DatabaseDescriptor.getEndpointSnitch().getDatacenter(targetHost);
+        String localDC = DatabaseDescriptor.getEndpointSnitch().getDatacenter(FBUtilities.getBroadcastAddress());
+        return remoteDC.equals(localDC);
+    }
+
+    protected boolean tcpNoDelay()
+    {
+        return isLocalDC(poolReference.endPoint()) ? INTRADC_TCP_NODELAY : DatabaseDescriptor.getInterDCTcpNoDelay();
+    }
+
+    public void enqueue(MessageOut<?> message, int id)
+    {
+        if (backlog.size() > 1024)
+            expireMessages();
+        try
+        {
+            backlog.put(new QueuedMessage(message, id));
+        }
+        catch (InterruptedException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+
+    void closeSocket(boolean destroyThread)
+    {
+        backlog.clear();
+        isStopped = destroyThread; // Exit loop to stop the thread
+        enqueue(CLOSE_SENTINEL, -1);
+    }
+
+    void softCloseSocket()
+    {
+        enqueue(CLOSE_SENTINEL, -1);
+    }
+
+    void onRoundTripTime(long nanos)
+    {
+        cs.onRoundTripTime(nanos);
+    }
+
+    public int getTargetVersion()
+    {
+        return targetVersion;
+    }
+
+    public int getPendingMessages()
+    {
+        return backlog.size() + currentMsgBufferCount;
+    }
+
+    public long getCompletedMesssages()
+    {
+        return completed;
+    }
+
+    public long getDroppedMessages()
+    {
+        return dropped.get();
+    }
+
+    protected boolean shouldCompressConnection()
+    {
+        // assumes version >= 1.2
+        return DatabaseDescriptor.internodeCompression() == Config.InternodeCompression.all
+               || (DatabaseDescriptor.internodeCompression() == Config.InternodeCompression.dc && !isLocalDC(poolReference.endPoint()));
+    }
+
+    /**
+     * Traces the sending of the given message, if it is part of a tracing session.
+     */
+    protected void traceSending(MessageOut<?> message)
+    {
+        byte[] sessionBytes = message.parameters.get(Tracing.TRACE_HEADER);
+        if (sessionBytes == null)
+            return;
+
+        UUID sessionId = UUIDGen.getUUID(ByteBuffer.wrap(sessionBytes));
+        TraceState state = Tracing.instance.get(sessionId);
+        String traceMessage = String.format("Sending %s message to %s", message.verb, poolReference.endPoint());
+        // session may have already finished; see CASSANDRA-5668
+        if (state == null)
+        {
+            byte[] traceTypeBytes = message.parameters.get(Tracing.TRACE_TYPE);
+            Tracing.TraceType traceType = traceTypeBytes == null ? Tracing.TraceType.QUERY : Tracing.TraceType.deserialize(traceTypeBytes[0]);
+            Tracing.instance.trace(ByteBuffer.wrap(sessionBytes), traceMessage, traceType.getTTL());
+        }
+        else
+        {
+            state.trace(traceMessage);
+            if (message.verb == MessagingService.Verb.REQUEST_RESPONSE)
+                Tracing.instance.doneWithNonLocalSession(state);
+        }
+    }
+
+    static void writeInternal(DataOutputPlus out, MessageOut message, int id, long timestamp, int targetVersion) throws IOException
+    {
+        out.writeInt(MessagingService.PROTOCOL_MAGIC);
+
+        if (targetVersion < MessagingService.VERSION_20)
+            out.writeUTF(String.valueOf(id));
+        else
+            out.writeInt(id);
+
+        // int cast cuts off the high-order half of the timestamp, which we can assume remains
+        // the same between now and when the recipient reconstructs it.
+        out.writeInt((int) timestamp);
+        message.serialize(out, targetVersion);
+    }
+
+    /**
+     * @return the number of bytes written by {@link #writeInternal} for the given message, for versions from 2.0
+     */
+    static int serializedSize(MessageOut message, int targetVersion)
+    {
+        assert targetVersion >= MessagingService.VERSION_20;
+        return 12 + message.serializedSize(targetVersion);
+    }
+
+    static void writeHeader(DataOutput out, int version, boolean compressionEnabled) throws IOException
+    {
+        // 2 bits: unused.  used to be "serializer type," which was always Binary
+        // 1 bit: compression
+        // 1 bit: streaming mode
+        // 3 bits: unused
+        // 8 bits: version
+        // 15 bits: unused
+        int header = 0;
+        if (compressionEnabled)
+            header |= 4;
+        header |= (version << 8);
+        out.writeInt(header);
+    }
+
+    private void expireMessages()
+    {
+        Iterator<QueuedMessage> iter = backlog.iterator();
+        while (iter.hasNext())
+        {
+            QueuedMessage qm = iter.next();
+            if (!qm.droppable)
+                continue;
+            if (!qm.isTimedOut())
+                return;
+            iter.remove();
+            dropped.incrementAndGet();
+        }
+    }
+
+    /** messages that have not been retried yet */
+    static class QueuedMessage implements Coalescable
+    {
+        final MessageOut<?> message;
+        final int id;
+        final long timestampNanos;
+        final boolean droppable;
+
+        QueuedMessage(MessageOut<?> message, int id)
+        {
+            this.message = message;
+            this.id = id;
+            this.timestampNanos = System.nanoTime();
+            this.droppable = MessagingService.DROPPABLE_VERBS.contains(message.verb);
+        }
+
+        /** don't drop a non-droppable message just because it's timestamp is expired */
+        boolean isTimedOut()
+        {
+            return droppable && timestampNanos < System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(message.getTimeout());
+        }
+
+        boolean shouldRetry()
+        {
+            return !droppable;
+        }
+
+        public long timestampNanos()
+        {
+            return timestampNanos;
+        }
+    }
+
+    static class RetriedQueuedMessage extends QueuedMessage
+    {
+        RetriedQueuedMessage(QueuedMessage msg)
+        {
+            super(msg.message, msg.id);
+        }
+
+        boolean shouldRetry()
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,565 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.net.ssl.SSLHandshakeException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.util.DataOutputBufferFixed;
+import org.apache.cassandra.security.SSLFactory;
+import org.apache.cassandra.utils.CoalescingStrategies.Parker;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.JVMStabilityInspector;
+import org.apache.cassandra.utils.NanoTimeToCurrentTimeMillis;
+
+/**
+ * An {@link OutboundConnection} sending messages with one of the event loops of {@link MessagingService#eventLoopGroup()},
+ * shared by all connections, rather than with a thread of its own like {@link OutboundTcpConnection}. It connects and
+ * writes the same handshake and messages.
+ *
+ * Enqueuing a message schedules the draining of the backlog on the event loop, unless it is already scheduled. Each
+ * drain coalesces up to {@link #DRAINED_MESSAGE_SIZE} messages and writes them to the channel in as few buffers as
+ * their size allows, and stops while the channel is connecting or isn't writable. Where the coalescing strategy would park, the flush is
+ * delayed by as long instead, so that the event loop is never blocked.
+ */
+public class OutboundEventLoopConnection extends OutboundConnection
+{
+    private static final Logger logger = LoggerFactory.getLogger(OutboundEventLoopConnection.class);
+
+    private static final int DRAINED_MESSAGE_SIZE = 128;
+
+    private final EventLoop loop;
+    private final RecordingParker parker;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+    private final Runnable flushTask = this::flush;
+
+    // the state below is only accessed by the event loop
+
+    // the messages drained from the backlog, which the coalescing strategy drains in turn, so that it never blocks
+    private final BlockingQueue<QueuedMessage> staging = new ArrayBlockingQueue<>(DRAINED_MESSAGE_SIZE);
+    private final List<QueuedMessage> coalesced = new ArrayList<>(DRAINED_MESSAGE_SIZE);
+    // the messages coalesced but not written yet, waiting for the channel to connect or to be writable
+    private final Deque<QueuedMessage> pending = new ArrayDeque<>(DRAINED_MESSAGE_SIZE);
+    private final List<QueuedMessage> batch = new ArrayList<>(DRAINED_MESSAGE_SIZE);
+
+    private Channel channel;
+    private Channel connecting;
+    private long connectStart;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    public OutboundEventLoopConnection(OutboundTcpConnectionPool pool)
+    {
+        this(pool, new RecordingParker());
+    }
+
+    private OutboundEventLoopConnection(OutboundTcpConnectionPool pool, RecordingParker parker)
+    {
+        super(pool, newCoalescingStrategy(pool.endPoint().getHostAddress(), parker));
+        this.parker = parker;
+        this.loop = MessagingService.instance().eventLoopGroup().next();
+    }
+
+    public void start()
+    {
+        // connects with the first message enqueued
+    }
+
+    @Override
+    public void enqueue(MessageOut<?> message, int id)
+    {
+        super.enqueue(message, id);
+        schedule();
+    }
+
+    private void schedule()
+    {
+        if (scheduled.compareAndSet(false, true))
+            loop.execute(drainTask);
+    }
+
+    private void drain()
+    {
+        scheduled.set(false);
+        if (closed)
+        {
+            backlog.clear();
+            return;
+        }
+
+        long flushDelay = 0;
+        if (pending.isEmpty() && backlog.drainTo(staging, DRAINED_MESSAGE_SIZE) > 0)
+        {
+            parker.parked = 0;
+            try
+            {
+                cs.coalesce(staging, coalesced, DRAINED_MESSAGE_SIZE);
+            }
+            catch (InterruptedException e)
+            {
+                throw new AssertionError(e);
+            }
+            flushDelay = parker.parked;
+            poolReference.onCoalesced(coalesced.size(), cs.currentWindowNanos());
+            pending.addAll(coalesced);
+            coalesced.clear();
+        }
+
+        try
+        {
+            send(flushDelay);
+        }
+        catch (Exception e)
+        {
+            JVMStabilityInspector.inspectThrowable(e);
+            logger.error("error processing a message intended for {}", poolReference.endPoint(), e);
+        }
+        currentMsgBufferCount = pending.size();
+
+        // the messages left in the backlog, or enqueued while draining, are drained once these are written
+        if (pending.isEmpty() && !backlog.isEmpty())
+            schedule();
+    }
+
+    private void send(long flushDelay)
+    {
+        while (!pending.isEmpty())
+        {
+            QueuedMessage qm = pending.peek();
+            if (qm.message == CLOSE_SENTINEL)
+            {
+                pending.poll();
+                writeBatch();
+                disconnect();
+                if (isStopped)
+                {
+                    closed = true;
+                    pending.clear();
+                    backlog.clear();
+                    return;
+                }
+                continue;
+            }
+
+            if (qm.isTimedOut())
+            {
+                pending.poll();
+                dropped.incrementAndGet();
+                continue;
+            }
+
+            if (channel == null)
+            {
+                connect();
+                return;
+            }
+
+            // writes the rest of the messages once the channel has written enough of what it has
+            if (!channel.isWritable())
+                break;
+
+            batch.add(pending.poll());
+        }
+
+        if (writeBatch())
+            flush(flushDelay);
+    }
+
+    /**
+     * Writes the messages of the batch to the channel, in buffers of up to {@link OutboundTcpConnection#BUFFER_SIZE}
+     * bytes, or of a single message if it is larger. A message that fails to serialize is dropped, alone.
+     *
+     * @return whether anything was written
+     */
+    @SuppressWarnings("resource")
+    private boolean writeBatch()
+    {
+        boolean written = false;
+        ByteBuf buffer = null;
+        List<QueuedMessage> retried = null;
+        for (QueuedMessage qm : batch)
+        {
+            int start = buffer == null ? 0 : buffer.writerIndex();
+            try
+            {
+                int size = serializedSize(qm.message, targetVersion);
+                if (buffer != null && buffer.capacity() - buffer.writerIndex() < size)
+                {
+                    written |= write(buffer, retried);
+                    buffer = null;
+                    retried = null;
+                }
+                if (buffer == null)
+                    buffer = channel.alloc().directBuffer(Math.max(size, OutboundTcpConnection.BUFFER_SIZE));
+
+                start = buffer.writerIndex();
+                DataOutputBufferFixed out = new DataOutputBufferFixed(buffer.nioBuffer(start, size));
+                traceSending(qm.message);
+                long timestampMillis = NanoTimeToCurrentTimeMillis.convert(qm.timestampNanos);
+                writeInternal(out, qm.message, qm.id, timestampMillis, targetVersion);
+                buffer.writerIndex(start + out.getLength());
+            }
+            catch (Throwable e)
+            {
+                JVMStabilityInspector.inspectThrowable(e);
+                // failing to serialize a message is likely a programming error so let's not silence it
+                logger.error("error writing to {}", poolReference.endPoint(), e);
+                if (buffer != null)
+                    buffer.writerIndex(start);
+                dropped.incrementAndGet();
+                continue;
+            }
+
+            completed++;
+            if (qm.shouldRetry())
+            {
+                if (retried == null)
+                    retried = new ArrayList<>();
+                retried.add(qm);
+            }
+        }
+        batch.clear();
+
+        if (buffer != null)
+            written |= write(buffer, retried);
+        return written;
+    }
+
+    /**
+     * Writes the given buffer to the channel, unless it is empty, in which case it is released.
+     *
+     * @return whether the buffer was written
+     */
+    private boolean write(ByteBuf buffer, List<QueuedMessage> retried)
+    {
+        if (!buffer.isReadable())
+        {
+            buffer.release();
+            return false;
+        }
+        channel.write(buffer, retry(retried));
+        return true;
+    }
+
+    /**
+     * @return a promise putting the given messages back on the backlog, to retry them after reconnecting, if the
+     * write fails; the important ones, such as repair acknowledgements. See CASSANDRA-5393
+     */
+    private ChannelPromise retry(List<QueuedMessage> messages)
+    {
+        if (messages == null)
+            return channel.voidPromise();
+
+        ChannelPromise promise = channel.newPromise();
+        promise.addListener(future -> {
+            if (future.isSuccess())
+                return;
+
+            if (logger.isTraceEnabled())
+                logger.trace("error writing to {}", poolReference.endPoint(), future.cause());
+            for (QueuedMessage qm : messages)
+                backlog.offer(new RetriedQueuedMessage(qm));
+            schedule();
+        });
+        return promise;
+    }
+
+    private void flush(long delayNanos)
+    {
+        if (delayNanos <= 0)
+        {
+            channel.flush();
+        }
+        else if (!flushScheduled)
+        {
+            flushScheduled = true;
+            loop.schedule(flushTask, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flush()
+    {
+        flushScheduled = false;
+        if (channel != null)
+            channel.flush();
+    }
+
+    private void disconnect()
+    {
+        if (connecting != null)
+        {
+            connecting.close();
+            connecting = null;
+            connectStart = 0;
+        }
+        if (channel != null)
+        {
+            // closes the channel once the messages written so far are
+            channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+            channel = null;
+            if (logger.isTraceEnabled())
+                logger.trace("Socket to {} closed", poolReference.endPoint());
+        }
+    }
+
+    private void connect()
+    {
+        if (connecting != null)
+            return;
+
+        if (logger.isTraceEnabled())
+            logger.trace("attempting to connect to {}", poolReference.endPoint());
+
+        if (connectStart == 0)
+            connectStart = System.nanoTime();
+        targetVersion = MessagingService.instance().getVersion(poolReference.endPoint());
+
+        boolean encrypted = OutboundTcpConnectionPool.isEncryptedChannel(poolReference.endPoint());
+        Bootstrap bootstrap = new Bootstrap().group(loop)
+                                             .channel(NioSocketChannel.class)
+                                             .option(ChannelOption.SO_KEEPALIVE, true)
+                                             .option(ChannelOption.TCP_NODELAY, tcpNoDelay())
+                                             .handler(new ChannelInitializer<Channel>()
+                                             {
+                                                 protected void initChannel(Channel channel) throws IOException
+                                                 {
+                                                     if (encrypted)
+                                                         channel.pipeline().addLast("ssl", new SslHandler(SSLFactory.getClientEngine(DatabaseDescriptor.getServerEncryptionOptions(),
+                                                                                                                                     poolReference.endPoint(),
+                                                                                                                                     DatabaseDescriptor.getSSLStoragePort())));
+                                                     channel.pipeline().addLast("handshake", new Handshake());
+                                                 }
+                                             });
+        if (DatabaseDescriptor.getInternodeSendBufferSize() != null)
+            bootstrap.option(ChannelOption.SO_SNDBUF, DatabaseDescriptor.getInternodeSendBufferSize());
+        // zero means 'bind on any available port.'
+        if (!Config.getOutboundBindAny())
+            bootstrap.localAddress(FBUtilities.getLocalAddress(), 0);
+
+        int port = encrypted ? DatabaseDescriptor.getSSLStoragePort() : DatabaseDescriptor.getStoragePort();
+        ChannelFuture future = bootstrap.connect(poolReference.endPoint(), port);
+        connecting = future.channel();
+        future.addListener(f -> {
+            if (!f.isSuccess())
+                onConnectFailure(future.channel(), f.cause());
+        });
+    }
+
+    private void onConnected(Channel connected)
+    {
+        if (connected != connecting)
+            return;
+
+        channel = connected;
+        connecting = null;
+        connectStart = 0;
+        drain();
+    }
+
+    private void onConnectFailure(Channel failed, Throwable cause)
+    {
+        if (failed != connecting)
+            return;
+
+        connecting = null;
+        if (logger.isTraceEnabled())
+            logger.trace("unable to connect to " + poolReference.endPoint(), cause);
+
+        if (pending.isEmpty() || System.nanoTime() - connectStart >= TimeUnit.MILLISECONDS.toNanos(DatabaseDescriptor.getRpcTimeout()))
+        {
+            connectStart = 0;
+            // clear out the queue, else gossip messages back up.
+            pending.clear();
+            backlog.clear();
+            currentMsgBufferCount = 0;
+            return;
+        }
+        loop.schedule(drainTask, OPEN_RETRY_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Compresses the connection with LZ4, which requires the peer to be at least 2.1.
+     */
+    private boolean compress()
+    {
+        return shouldCompressConnection() && targetVersion >= MessagingService.VERSION_21;
+    }
+
+    /**
+     * Writes the header of the connection, reads the version of the peer and replies with ours, then adds the
+     * compressor, if the connection is compressed. Nothing else is read from the connection.
+     */
+    private final class Handshake extends ByteToMessageDecoder
+    {
+        private boolean handshaken;
+        private ScheduledFuture<?> timeout;
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception
+        {
+            ByteBuf header = ctx.alloc().buffer(8);
+            header.writeInt(MessagingService.PROTOCOL_MAGIC);
+            writeHeader(new ByteBufOutputStream(header), targetVersion, compress());
+            ctx.writeAndFlush(header);
+
+            timeout = ctx.executor().schedule(() -> {
+                logger.info("Cannot handshake version with {}", poolReference.endPoint());
+                ctx.close();
+            }, WAIT_FOR_VERSION_MAX_TIME, TimeUnit.MILLISECONDS);
+            super.channelActive(ctx);
+        }
+
+        @SuppressWarnings("resource")
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws IOException
+        {
+            if (handshaken)
+            {
+                in.skipBytes(in.readableBytes());
+                return;
+            }
+            if (in.readableBytes() < 4)
+                return;
+
+            int maxTargetVersion = in.readInt();
+            handshaken = true;
+            timeout.cancel(false);
+            MessagingService.instance().setVersion(poolReference.endPoint(), maxTargetVersion);
+
+            if (targetVersion > maxTargetVersion)
+            {
+                logger.trace("Target max version is {}; will reconnect with that version", maxTargetVersion);
+                ctx.close();
+                return;
+            }
+
+            if (targetVersion < maxTargetVersion && targetVersion < MessagingService.current_version)
+            {
+                logger.trace("Detected higher max version {} (using {}); will reconnect when queued messages are done",
+                             maxTargetVersion, targetVersion);
+                softCloseSocket();
+            }
+
+            ByteBuf reply = ctx.alloc().buffer(9 + FBUtilities.getBroadcastAddress().getAddress().length);
+            reply.writeInt(MessagingService.current_version);
+            CompactEndpointSerializationHelper.serialize(FBUtilities.getBroadcastAddress(), new ByteBufOutputStream(reply));
+            ctx.writeAndFlush(reply);
+            if (compress())
+            {
+                logger.trace("Upgrading outgoing connection to be compressed");
+                ctx.pipeline().addBefore(ctx.name(), "compressor", new LZ4BlockCodec.Encoder());
+            }
+            onConnected(ctx.channel());
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception
+        {
+            if (ctx.channel().isWritable())
+                schedule();
+            super.channelWritabilityChanged(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception
+        {
+            if (timeout != null)
+                timeout.cancel(false);
+
+            if (ctx.channel() == channel)
+            {
+                channel = null;
+                if (logger.isTraceEnabled())
+                    logger.trace("Socket to {} closed", poolReference.endPoint());
+                // reconnects for the messages left
+                if (!pending.isEmpty())
+                    schedule();
+            }
+            else
+            {
+                onConnectFailure(ctx.channel(), null);
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+        {
+            if (cause instanceof DecoderException && cause.getCause() != null)
+                cause = cause.getCause();
+
+            if (cause instanceof SSLHandshakeException)
+            {
+                logger.error("SSL handshake error for outbound connection to " + ctx.channel(), cause);
+                // SSL errors won't be recoverable within timeout period so we'll just abort
+                pending.clear();
+                backlog.clear();
+                currentMsgBufferCount = 0;
+            }
+            else if (logger.isTraceEnabled())
+            {
+                logger.trace("error writing to {}", poolReference.endPoint(), cause);
+            }
+            ctx.close();
+        }
+    }
+
+    /**
+     * Records how long the coalescing strategy would park, rather than parking the event loop.
+     */
+    private static final class RecordingParker implements Parker
+    {
+        private long parked;
+
+        public void park(long nanos)
+        {
+            parked += nanos;
+        }
+    }
+}
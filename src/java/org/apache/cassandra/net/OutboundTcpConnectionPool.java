@@ -42,13 +42,13 @@ public class OutboundTcpConnectionPool
     // pointer for the real Address.
     private final InetAddress id;
     private final CountDownLatch started;
-    public final OutboundTcpConnection smallMessages;
-    public final OutboundTcpConnection largeMessages;
-    public final OutboundTcpConnection gossipMessages;
+    public final OutboundConnection smallMessages;
+    public final OutboundConnection largeMessages;
+    public final OutboundConnection gossipMessages;
 
     // pointer to the reset Address.
     private InetAddress resetEndpoint;
-    private ConnectionMetrics metrics;
+    private volatile ConnectionMetrics metrics;
 
     OutboundTcpConnectionPool(InetAddress remoteEp)
     {
@@ -56,16 +56,23 @@ public class OutboundTcpConnectionPool
         resetEndpoint = SystemKeyspace.getPreferredIP(remoteEp);
         started = new CountDownLatch(1);
 
-        smallMessages = new OutboundTcpConnection(this);
-        largeMessages = new OutboundTcpConnection(this);
-        gossipMessages = new OutboundTcpConnection(this);
+        smallMessages = newConnection();
+        largeMessages = newConnection();
+        gossipMessages = newConnection();
+    }
+
+    private OutboundConnection newConnection()
+    {
+        return DatabaseDescriptor.useInternodeEventLoop()
+               ? new OutboundEventLoopConnection(this)
+               : new OutboundTcpConnection(this);
     }
 
     /**
      * returns the appropriate connection based on message type.
      * returns null if a connection could not be established.
      */
-    OutboundTcpConnection getConnection(MessageOut msg)
+    OutboundConnection getConnection(MessageOut msg)
     {
         if (Stage.GOSSIP == msg.getStage())
             return gossipMessages;
@@ -76,13 +83,13 @@ public class OutboundTcpConnectionPool
 
     void reset()
     {
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages, gossipMessages })
+        for (OutboundConnection conn : new OutboundConnection[] { smallMessages, largeMessages, gossipMessages })
             conn.closeSocket(false);
     }
 
     public void resetToNewerVersion(int version)
     {
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages, gossipMessages })
+        for (OutboundConnection conn : new OutboundConnection[] { smallMessages, largeMessages, gossipMessages })
         {
             if (version > conn.getTargetVersion())
                 conn.softCloseSocket();
@@ -98,7 +105,7 @@ public class OutboundTcpConnectionPool
     {
         SystemKeyspace.updatePreferredIP(id, remoteEP);
         resetEndpoint = remoteEP;
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages, gossipMessages })
+        for (OutboundConnection conn : new OutboundConnection[] { smallMessages, largeMessages, gossipMessages })
             conn.softCloseSocket();
 
         // release previous metrics and create new one with reset address
@@ -117,6 +124,29 @@ public class OutboundTcpConnectionPool
         metrics.timeouts.mark();
     }
 
+    /**
+     * Notifies the connections of a round trip time measured to the peer, which their coalescing strategies may adapt
+     * to.
+     */
+    void onRoundTripTime(long nanos)
+    {
+        for (OutboundConnection conn : new OutboundConnection[] { smallMessages, largeMessages, gossipMessages })
+            conn.onRoundTripTime(nanos);
+    }
+
+    /**
+     * Records a batch of messages drained from the backlog of one of the connections by its coalescing strategy.
+     */
+    void onCoalesced(int messages, long windowNanos)
+    {
+        // the connections may drain messages before the metrics are created
+        ConnectionMetrics metrics = this.metrics;
+        if (metrics == null)
+            return;
+        metrics.coalescedMessages.update(messages);
+        metrics.coalescingWindow.update(TimeUnit.NANOSECONDS.toMicros(windowNanos));
+    }
+
     public Socket newSocket() throws IOException
     {
         return newSocket(endPoint());
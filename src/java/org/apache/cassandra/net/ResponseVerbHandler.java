@@ -30,7 +30,8 @@ public class ResponseVerbHandler implements IVerbHandler
 
     public void doVerb(MessageIn message, int id)
     {
-        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - MessagingService.instance().getRegisteredCallbackAge(id));
+        long roundTripTime = System.nanoTime() - MessagingService.instance().getRegisteredCallbackAge(id);
+        long latency = TimeUnit.NANOSECONDS.toMillis(roundTripTime);
         CallbackInfo callbackInfo = MessagingService.instance().removeRegisteredCallback(id);
         if (callbackInfo == null)
         {
@@ -40,6 +41,7 @@ public class ResponseVerbHandler implements IVerbHandler
             return;
         }
 
+        MessagingService.instance().addRoundTripTime(message.from, roundTripTime);
         Tracing.trace("Processing response from {}", message.from);
         IAsyncCallback cb = callbackInfo.callback;
         if (message.isFailureResponse())
@@ -35,12 +35,19 @@ public class ValidationTask extends AbstractFuture<TreeResponse> implements Runn
     private final RepairJobDesc desc;
     private final InetAddress endpoint;
     private final int gcBefore;
+    private final boolean useMurmur3Hash;
 
     public ValidationTask(RepairJobDesc desc, InetAddress endpoint, int gcBefore)
+    {
+        this(desc, endpoint, gcBefore, false);
+    }
+
+    public ValidationTask(RepairJobDesc desc, InetAddress endpoint, int gcBefore, boolean useMurmur3Hash)
     {
         this.desc = desc;
         this.endpoint = endpoint;
         this.gcBefore = gcBefore;
+        this.useMurmur3Hash = useMurmur3Hash;
     }
 
     /**
@@ -48,7 +55,7 @@ public class ValidationTask extends AbstractFuture<TreeResponse> implements Runn
      */
     public void run()
     {
-        ValidationRequest request = new ValidationRequest(desc, gcBefore);
+        ValidationRequest request = new ValidationRequest(desc, gcBefore, useMurmur3Hash);
         MessagingService.instance().sendOneWay(request.createMessage(), endpoint);
     }
 
@@ -18,8 +18,8 @@
 package org.apache.cassandra.repair;
 
 import java.net.InetAddress;
-import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 
@@ -35,9 +35,11 @@ import org.apache.cassandra.db.rows.UnfilteredRowIterator;
 import org.apache.cassandra.db.rows.UnfilteredRowIterators;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.PartitionHashes;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.repair.messages.ValidationComplete;
 import org.apache.cassandra.tracing.Tracing;
+import org.apache.cassandra.utils.CountingDigest;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.MerkleTree;
 import org.apache.cassandra.utils.MerkleTree.RowHash;
@@ -50,6 +52,9 @@ import org.apache.cassandra.utils.MerkleTrees;
  * 1. prepare() - Initialize tree with samples.
  * 2. add() - 0 or more times, to add hashes to the tree.
  * 3. complete() - Enqueues any operations that were blocked waiting for a valid tree.
+ *
+ * The trees of disjoint subsets of the ranges can be built concurrently, by the validators returned by forRanges()
+ * once prepared, before completing this validator.
  */
 public class Validator implements Runnable
 {
@@ -58,6 +63,7 @@ public class Validator implements Runnable
     public final RepairJobDesc desc;
     public final InetAddress initiator;
     public final int gcBefore;
+    public final boolean useMurmur3Hash;
 
     // null when all rows with the min token have been consumed
     private long validated;
@@ -68,15 +74,26 @@ public class Validator implements Runnable
     private MerkleTrees.TreeRangeIterator ranges;
     // last key seen
     private DecoratedKey lastKey;
+    // the validators building the trees of subsets of the ranges, see forRanges()
+    private final List<Validator> rangeValidators = new ArrayList<>();
+    private final CountingDigest digest;
 
     public Validator(RepairJobDesc desc, InetAddress initiator, int gcBefore)
+    {
+        this(desc, initiator, gcBefore, false);
+    }
+
+    public Validator(RepairJobDesc desc, InetAddress initiator, int gcBefore, boolean useMurmur3Hash)
     {
         this.desc = desc;
         this.initiator = initiator;
         this.gcBefore = gcBefore;
+        this.useMurmur3Hash = useMurmur3Hash;
         validated = 0;
         range = null;
         ranges = null;
+        // MerkleTree uses XOR internally, so we want lots of output bits here
+        digest = new CountingDigest(useMurmur3Hash ? PartitionHashes.newDigest() : FBUtilities.newMessageDigest("SHA-256"));
     }
 
     public void prepare(ColumnFamilyStore cfs, MerkleTrees tree)
@@ -124,6 +141,22 @@ public class Validator implements Runnable
         ranges = tree.invalids();
     }
 
+    /**
+     * Returns a validator building the trees of the given ranges of this prepared validator, with the rows of those
+     * ranges only. The trees are shared with this validator, so the validators of disjoint subsets of the ranges can
+     * be used concurrently, and this validator is completed once they are all done.
+     */
+    public Validator forRanges(Collection<Range<Token>> subRanges)
+    {
+        assert ranges != null : "Validator was not prepared()";
+
+        Validator validator = new Validator(desc, initiator, gcBefore, useMurmur3Hash);
+        validator.trees = trees.subTrees(subRanges);
+        validator.ranges = validator.trees.invalids();
+        rangeValidators.add(validator);
+        return validator;
+    }
+
     /**
      * Called (in order) for every row present in the CF.
      * Hashes the row, and adds it to the tree being built.
@@ -132,10 +165,37 @@ public class Validator implements Runnable
      */
     public void add(UnfilteredRowIterator partition)
     {
-        assert Range.isInRanges(partition.partitionKey().getToken(), desc.ranges) : partition.partitionKey().getToken() + " is not contained in " + desc.ranges;
-        assert lastKey == null || lastKey.compareTo(partition.partitionKey()) < 0
-               : "partition " + partition.partitionKey() + " received out of order wrt " + lastKey;
-        lastKey = partition.partitionKey();
+        moveTo(partition.partitionKey());
+        // case 3 must be true: mix in the hashed row
+        RowHash rowHash = rowHash(partition);
+        if (rowHash != null)
+        {
+            range.addHash(rowHash);
+        }
+    }
+
+    /**
+     * Called (in order, like {@link #add(UnfilteredRowIterator)}) for the partitions whose Murmur3 hash was
+     * precomputed when writing their sstable (see {@link PartitionHashes}), instead of hashing them.
+     *
+     * @param key the key of the partition
+     * @param hash the hash of the partition
+     * @param size the number of bytes hashed
+     */
+    public void add(DecoratedKey key, byte[] hash, long size)
+    {
+        assert useMurmur3Hash : "Precomputed hashes can only be used with Murmur3 hashes";
+        moveTo(key);
+        validated++;
+        range.addHash(new RowHash(key.getToken(), hash, size));
+    }
+
+    private void moveTo(DecoratedKey key)
+    {
+        assert Range.isInRanges(key.getToken(), desc.ranges) : key.getToken() + " is not contained in " + desc.ranges;
+        assert lastKey == null || lastKey.compareTo(key) < 0
+               : "partition " + key + " received out of order wrt " + lastKey;
+        lastKey = key;
 
         if (range == null)
             range = ranges.next();
@@ -149,12 +209,6 @@ public class Validator implements Runnable
         }
 
         assert range.contains(lastKey.getToken()) : "Token not in MerkleTree: " + lastKey.getToken();
-        // case 3 must be true: mix in the hashed row
-        RowHash rowHash = rowHash(partition);
-        if (rowHash != null)
-        {
-            range.addHash(rowHash);
-        }
     }
 
     public boolean findCorrectRange(Token t)
@@ -167,54 +221,14 @@ public class Validator implements Runnable
         return range.contains(t);
     }
 
-    static class CountingDigest extends MessageDigest
-    {
-        private long count;
-        private MessageDigest underlying;
-
-        public CountingDigest(MessageDigest underlying)
-        {
-            super(underlying.getAlgorithm());
-            this.underlying = underlying;
-        }
-
-        @Override
-        protected void engineUpdate(byte input)
-        {
-            underlying.update(input);
-            count += 1;
-        }
-
-        @Override
-        protected void engineUpdate(byte[] input, int offset, int len)
-        {
-            underlying.update(input, offset, len);
-            count += len;
-        }
-
-        @Override
-        protected byte[] engineDigest()
-        {
-            return underlying.digest();
-        }
-
-        @Override
-        protected void engineReset()
-        {
-            underlying.reset();
-        }
-
-    }
-
     private MerkleTree.RowHash rowHash(UnfilteredRowIterator partition)
     {
         validated++;
-        // MerkleTree uses XOR internally, so we want lots of output bits here
-        CountingDigest digest = new CountingDigest(FBUtilities.newMessageDigest("SHA-256"));
-        UnfilteredRowIterators.digest(null, partition, digest, MessagingService.current_version);
+        digest.reset();
+        UnfilteredRowIterators.digest(null, partition, digest, useMurmur3Hash ? PartitionHashes.DIGEST_VERSION : MessagingService.VERSION_30);
         // only return new hash for merkle tree in case digest was updated - see CASSANDRA-8979
-        return digest.count > 0
-             ? new MerkleTree.RowHash(partition.partitionKey().getToken(), digest.digest(), digest.count)
+        return digest.count() > 0
+             ? new MerkleTree.RowHash(partition.partitionKey().getToken(), digest.digest(), digest.count())
              : null;
     }
 
@@ -224,6 +238,8 @@ public class Validator implements Runnable
     public void complete()
     {
         completeTree();
+        for (Validator validator : rangeValidators)
+            validated += validator.validated;
 
         StageManager.getStage(Stage.ANTI_ENTROPY).execute(this);
 
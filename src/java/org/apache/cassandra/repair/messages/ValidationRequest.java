@@ -22,6 +22,7 @@ import java.io.IOException;
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.util.DataInputPlus;
 import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.repair.RepairJobDesc;
 
 /**
@@ -34,11 +35,19 @@ public class ValidationRequest extends RepairMessage
     public static MessageSerializer serializer = new ValidationRequestSerializer();
 
     public final int gcBefore;
+    // whether the rows are hashed with Murmur3 rather than SHA-256, which all the replicas must support (since 3.11)
+    public final boolean useMurmur3Hash;
 
     public ValidationRequest(RepairJobDesc desc, int gcBefore)
+    {
+        this(desc, gcBefore, false);
+    }
+
+    public ValidationRequest(RepairJobDesc desc, int gcBefore, boolean useMurmur3Hash)
     {
         super(Type.VALIDATION_REQUEST, desc);
         this.gcBefore = gcBefore;
+        this.useMurmur3Hash = useMurmur3Hash;
     }
 
     @Override
@@ -46,6 +55,7 @@ public class ValidationRequest extends RepairMessage
     {
         return "ValidationRequest{" +
                 "gcBefore=" + gcBefore +
+                ", useMurmur3Hash=" + useMurmur3Hash +
                 "} " + super.toString();
     }
 
@@ -56,13 +66,13 @@ public class ValidationRequest extends RepairMessage
         if (o == null || getClass() != o.getClass()) return false;
 
         ValidationRequest that = (ValidationRequest) o;
-        return gcBefore == that.gcBefore;
+        return gcBefore == that.gcBefore && useMurmur3Hash == that.useMurmur3Hash;
     }
 
     @Override
     public int hashCode()
     {
-        return gcBefore;
+        return 31 * gcBefore + (useMurmur3Hash ? 1 : 0);
     }
 
     public static class ValidationRequestSerializer implements MessageSerializer<ValidationRequest>
@@ -71,18 +81,26 @@ public class ValidationRequest extends RepairMessage
         {
             RepairJobDesc.serializer.serialize(message.desc, out, version);
             out.writeInt(message.gcBefore);
+            if (version >= MessagingService.VERSION_311)
+                out.writeBoolean(message.useMurmur3Hash);
+            else
+                assert !message.useMurmur3Hash : "Murmur3 hashes are not supported in version " + version;
         }
 
         public ValidationRequest deserialize(DataInputPlus dis, int version) throws IOException
         {
             RepairJobDesc desc = RepairJobDesc.serializer.deserialize(dis, version);
-            return new ValidationRequest(desc, dis.readInt());
+            int gcBefore = dis.readInt();
+            boolean useMurmur3Hash = version >= MessagingService.VERSION_311 && dis.readBoolean();
+            return new ValidationRequest(desc, gcBefore, useMurmur3Hash);
         }
 
         public long serializedSize(ValidationRequest message, int version)
         {
             long size = RepairJobDesc.serializer.serializedSize(message.desc, version);
             size += TypeSizes.sizeof(message.gcBefore);
+            if (version >= MessagingService.VERSION_311)
+                size += TypeSizes.sizeof(message.useMurmur3Hash);
             return size;
         }
     }
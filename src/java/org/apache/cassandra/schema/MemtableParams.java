@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.schema;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+
+import org.apache.cassandra.db.Memtable;
+import org.apache.cassandra.db.marshal.MapType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.memtable.SkipListMemtable;
+import org.apache.cassandra.db.memtable.TrieMemtable;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static java.lang.String.format;
+
+// CQL: {'class' : 'SkipListMemtable' | 'TrieMemtable' | 'ShardedSkipListMemtable' | 'HashMemtable' | <custom class>, <sub-options>}
+public final class MemtableParams
+{
+    public enum Option
+    {
+        CLASS;
+
+        @Override
+        public String toString()
+        {
+            return name().toLowerCase();
+        }
+    }
+
+    public static final MemtableParams DEFAULT = new MemtableParams(SkipListMemtable.class, ImmutableMap.of(), SkipListMemtable.FACTORY);
+
+    /**
+     * The key of the memtable of a table in the extensions of its schema. The memtable isn't a column of the schema
+     * tables, so that nodes that don't know about it agree on the schema of tables using the default memtable, which
+     * isn't stored, and keep the memtable of the others as an opaque extension.
+     */
+    public static final String EXTENSION = "memtable";
+    private static final MapType<String, String> EXTENSION_TYPE = MapType.getInstance(UTF8Type.instance, UTF8Type.instance, false);
+
+    private final Class<? extends Memtable> klass;
+    private final ImmutableMap<String, String> options;
+    private final Memtable.Factory factory;
+
+    private MemtableParams(Class<? extends Memtable> klass, Map<String, String> options, Memtable.Factory factory)
+    {
+        this.klass = klass;
+        this.options = ImmutableMap.copyOf(options);
+        this.factory = factory;
+    }
+
+    public static MemtableParams create(Class<? extends Memtable> klass, Map<String, String> options)
+    {
+        if (klass.equals(DEFAULT.klass) && options.isEmpty())
+            return DEFAULT;
+
+        return new MemtableParams(klass, options, createFactory(klass, options));
+    }
+
+    public static MemtableParams trie()
+    {
+        return create(TrieMemtable.class, ImmutableMap.of());
+    }
+
+    public Class<? extends Memtable> klass()
+    {
+        return klass;
+    }
+
+    public Map<String, String> options()
+    {
+        return options;
+    }
+
+    public Memtable.Factory factory()
+    {
+        return factory;
+    }
+
+    /**
+     * Obtains the factory of a memtable class through its static {@code factory(Map<String, String>)} method, which
+     * validates the provided sub-options.
+     */
+    private static Memtable.Factory createFactory(Class<? extends Memtable> klass, Map<String, String> options)
+    {
+        try
+        {
+            Method method = klass.getMethod("factory", Map.class);
+            return (Memtable.Factory) method.invoke(null, options);
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw new ConfigurationException(format("Memtable class %s does not have a static factory(Map<String, String>) method",
+                                                    klass.getName()), e);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new ConfigurationException("Cannot access method factory in " + klass.getName(), e);
+        }
+        catch (InvocationTargetException e)
+        {
+            if (e.getTargetException() instanceof ConfigurationException)
+                throw (ConfigurationException) e.getTargetException();
+
+            throw new ConfigurationException(format("%s.factory() threw an error: %s %s",
+                                                    klass.getSimpleName(),
+                                                    e.getTargetException().getClass().getName(),
+                                                    e.getTargetException().getMessage()),
+                                             e);
+        }
+    }
+
+    public static MemtableParams fromMap(Map<String, String> map)
+    {
+        if (map.isEmpty())
+            return DEFAULT;
+
+        Map<String, String> options = new HashMap<>(map);
+
+        String className = options.remove(Option.CLASS.toString());
+        if (className == null)
+        {
+            throw new ConfigurationException(format("Missing sub-option '%s' for the '%s' option",
+                                                    Option.CLASS,
+                                                    TableParams.Option.MEMTABLE));
+        }
+
+        return create(classFromName(className), options);
+    }
+
+    private static Class<? extends Memtable> classFromName(String name)
+    {
+        String className = name.contains(".")
+                         ? name
+                         : "org.apache.cassandra.db.memtable." + name;
+        Class<Memtable> memtableClass = FBUtilities.classForName(className, "memtable");
+
+        if (!Memtable.class.isAssignableFrom(memtableClass))
+            throw new ConfigurationException(format("Memtable class %s is not derived from Memtable", className));
+
+        return memtableClass;
+    }
+
+    /**
+     * @return the memtable stored in the given schema extensions, or the default one.
+     */
+    public static MemtableParams fromExtensions(Map<String, ByteBuffer> extensions)
+    {
+        ByteBuffer value = extensions.get(EXTENSION);
+        return value == null ? DEFAULT : fromMap(EXTENSION_TYPE.compose(value));
+    }
+
+    /**
+     * @return the given schema extensions, without the memtable if the table uses the default one, and with it
+     * otherwise.
+     */
+    public Map<String, ByteBuffer> addToExtensions(Map<String, ByteBuffer> extensions)
+    {
+        Map<String, ByteBuffer> map = new HashMap<>(extensions);
+        map.remove(EXTENSION);
+        if (!equals(DEFAULT))
+            map.put(EXTENSION, EXTENSION_TYPE.decompose(asMap()));
+        return map;
+    }
+
+    public Map<String, String> asMap()
+    {
+        return ImmutableMap.<String, String>builder()
+                           .putAll(options)
+                           .put(Option.CLASS.toString(), klass.getName())
+                           .build();
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper(this)
+                          .add("class", klass.getName())
+                          .add("options", options)
+                          .toString();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+
+        if (!(o instanceof MemtableParams))
+            return false;
+
+        MemtableParams mp = (MemtableParams) o;
+
+        return klass.equals(mp.klass) && options.equals(mp.options);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(klass, options);
+    }
+}
@@ -510,7 +510,7 @@ public final class SchemaKeyspace
              .frozenMap("caching", params.caching.asMap())
              .frozenMap("compaction", params.compaction.asMap())
              .frozenMap("compression", params.compression.asMap())
-             .frozenMap("extensions", params.extensions)
+             .frozenMap("extensions", params.memtable.addToExtensions(params.extensions))
              .add("cdc", params.cdc);
     }
 
@@ -979,6 +979,10 @@ public final class SchemaKeyspace
 
     public static TableParams createTableParamsFromRow(UntypedResultSet.Row row)
     {
+        Map<String, ByteBuffer> extensions = new HashMap<>(row.getFrozenMap("extensions", UTF8Type.instance, BytesType.instance));
+        MemtableParams memtable = MemtableParams.fromExtensions(extensions);
+        extensions.remove(MemtableParams.EXTENSION);
+
         return TableParams.builder()
                           .bloomFilterFpChance(row.getDouble("bloom_filter_fp_chance"))
                           .caching(CachingParams.fromMap(row.getFrozenTextMap("caching")))
@@ -987,9 +991,10 @@ public final class SchemaKeyspace
                           .compression(CompressionParams.fromMap(row.getFrozenTextMap("compression")))
                           .dcLocalReadRepairChance(row.getDouble("dclocal_read_repair_chance"))
                           .defaultTimeToLive(row.getInt("default_time_to_live"))
-                          .extensions(row.getFrozenMap("extensions", UTF8Type.instance, BytesType.instance))
+                          .extensions(extensions)
                           .gcGraceSeconds(row.getInt("gc_grace_seconds"))
                           .maxIndexInterval(row.getInt("max_index_interval"))
+                          .memtable(memtable)
                           .memtableFlushPeriodInMs(row.getInt("memtable_flush_period_in_ms"))
                           .minIndexInterval(row.getInt("min_index_interval"))
                           .readRepairChance(row.getDouble("read_repair_chance"))
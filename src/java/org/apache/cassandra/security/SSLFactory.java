@@ -31,6 +31,7 @@ import java.util.List;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLParameters;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLSocket;
@@ -94,6 +95,23 @@ public final class SSLFactory
         return socket;
     }
 
+    /** Create an engine for the client side of a connection to the given address */
+    public static SSLEngine getClientEngine(EncryptionOptions options, InetAddress address, int port) throws IOException
+    {
+        SSLContext ctx = createSSLContext(options, true);
+        SSLEngine engine = ctx.createSSLEngine(address.getHostAddress(), port);
+        engine.setUseClientMode(true);
+        String[] suites = filterCipherSuites(engine.getSupportedCipherSuites(), options.cipher_suites);
+        if(options.require_endpoint_verification)
+        {
+            SSLParameters sslParameters = engine.getSSLParameters();
+            sslParameters.setEndpointIdentificationAlgorithm("HTTPS");
+            engine.setSSLParameters(sslParameters);
+        }
+        engine.setEnabledCipherSuites(suites);
+        return engine;
+    }
+
     /** Sets relevant socket options specified in encryption settings */
     private static void prepareSocket(SSLServerSocket serverSocket, EncryptionOptions options)
     {
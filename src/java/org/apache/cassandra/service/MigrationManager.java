@@ -143,11 +143,29 @@ public class MigrationManager
          * Don't request schema from nodes with a differnt or unknonw major version (may have incompatible schema)
          * Don't request schema from fat clients
          */
-        return MessagingService.instance().knowsVersion(endpoint)
-                && MessagingService.instance().getRawVersion(endpoint) == MessagingService.current_version
+        return hasCompatibleSchema(endpoint)
                 && !Gossiper.instance.isGossipOnlyMember(endpoint);
     }
 
+    static boolean shouldPushSchemaTo(InetAddress endpoint)
+    {
+        // only push schema to nodes with known and compatible versions
+        return !endpoint.equals(FBUtilities.getBroadcastAddress()) && hasCompatibleSchema(endpoint);
+    }
+
+    /**
+     * Nodes of the messaging versions from {@link MessagingService#VERSION_30} on serialize schema the same way: the
+     * later ones only changed the digests of read responses, so that schema keeps flowing during rolling upgrades.
+     */
+    private static boolean hasCompatibleSchema(InetAddress endpoint)
+    {
+        if (!MessagingService.instance().knowsVersion(endpoint))
+            return false;
+
+        int version = MessagingService.instance().getRawVersion(endpoint);
+        return version >= MessagingService.VERSION_30 && version <= MessagingService.current_version;
+    }
+
     public static boolean isReadyForBootstrap()
     {
         return MigrationTask.getInflightTasks().isEmpty();
@@ -535,10 +553,7 @@ public class MigrationManager
 
         for (InetAddress endpoint : Gossiper.instance.getLiveMembers())
         {
-            // only push schema to nodes with known and equal versions
-            if (!endpoint.equals(FBUtilities.getBroadcastAddress()) &&
-                    MessagingService.instance().knowsVersion(endpoint) &&
-                    MessagingService.instance().getRawVersion(endpoint) == MessagingService.current_version)
+            if (shouldPushSchemaTo(endpoint))
                 pushSchemaMutation(endpoint, schema);
         }
 
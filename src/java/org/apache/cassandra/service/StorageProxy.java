@@ -925,6 +925,34 @@ public class StorageProxy implements StorageProxyMBean
         return replica.equals(FBUtilities.getBroadcastAddress());
     }
 
+    /**
+     * Whether a read of the given partition at the given consistency level only needs to wait for the local node, that
+     * is whether the consistency level is ONE or LOCAL_ONE and the local node is the replica the data is read from.
+     */
+    public static boolean isLocalOnlyRead(Keyspace keyspace, ByteBuffer key, ConsistencyLevel consistencyLevel)
+    {
+        if (consistencyLevel != ConsistencyLevel.ONE && consistencyLevel != ConsistencyLevel.LOCAL_ONE)
+            return false;
+
+        List<InetAddress> targets = consistencyLevel.filterForQuery(keyspace, getLiveSortedEndpoints(keyspace, key));
+        return !targets.isEmpty() && canDoLocalRequest(targets.get(0));
+    }
+
+    /**
+     * Whether a write of the given partition at the given consistency level only needs to wait for the local node, that
+     * is whether the consistency level is ONE or LOCAL_ONE, the local node is a replica of the partition and there is
+     * no pending replica whose acknowledgement would also be required.
+     */
+    public static boolean isLocalOnlyWrite(Keyspace keyspace, ByteBuffer key, ConsistencyLevel consistencyLevel)
+    {
+        if (consistencyLevel != ConsistencyLevel.ONE && consistencyLevel != ConsistencyLevel.LOCAL_ONE)
+            return false;
+
+        Token token = StorageService.instance.getTokenMetadata().partitioner.getToken(key);
+        return StorageService.instance.getNaturalEndpoints(keyspace.getName(), token).contains(FBUtilities.getBroadcastAddress())
+               && StorageService.instance.getTokenMetadata().pendingEndpointsFor(token, keyspace.getName()).isEmpty();
+    }
+
     private static void syncWriteToBatchlog(Collection<Mutation> mutations, BatchlogEndpoints endpoints, UUID uuid)
     throws WriteTimeoutException, WriteFailureException
     {
@@ -1312,7 +1340,7 @@ public class StorageProxy implements StorageProxyMBean
 
     private static void performLocally(Stage stage, final Runnable runnable)
     {
-        StageManager.getStage(stage).maybeExecuteImmediately(new LocalMutationRunnable()
+        StageManager.maybeExecuteInline(stage, new LocalMutationRunnable()
         {
             public void runMayThrow()
             {
@@ -1336,7 +1364,7 @@ public class StorageProxy implements StorageProxyMBean
 
     private static void performLocally(Stage stage, Optional<IMutation> mutation, final Runnable runnable, final IAsyncCallbackWithFailure<?> handler)
     {
-        StageManager.getStage(stage).maybeExecuteImmediately(new LocalMutationRunnable(mutation)
+        StageManager.maybeExecuteInline(stage, new LocalMutationRunnable(mutation)
         {
             public void runMayThrow()
             {
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.streaming;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Map;
+
+import com.google.common.base.Throwables;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Directories;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.SSTableMultiWriter;
+import org.apache.cassandra.io.sstable.format.big.BigTableZeroCopyWriter;
+import org.apache.cassandra.streaming.messages.FileMessageHeader;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * StreamReader for the SSTables sent entirely by {@link EntireSSTableStreamWriter}, which copies the files of their
+ * components to a data directory with zero-copy transfers, instead of rebuilding the SSTable from its partitions.
+ */
+public class EntireSSTableStreamReader extends StreamReader
+{
+    private static final Logger logger = LoggerFactory.getLogger(EntireSSTableStreamReader.class);
+
+    private final Map<Component, Long> components;
+
+    public EntireSSTableStreamReader(FileMessageHeader header, StreamSession session)
+    {
+        super(header, session);
+        assert header.isEntireSSTable();
+        this.components = header.components;
+    }
+
+    /**
+     * @param channel where this reads data from
+     * @return SSTable transferred
+     * @throws IOException if reading the remote sstable fails. Will throw an RTE if local write fails.
+     */
+    @Override
+    @SuppressWarnings("resource") // the writer is returned or aborted, the channel needs to remain open
+    public SSTableMultiWriter read(ReadableByteChannel channel) throws IOException
+    {
+        long totalSize = totalSize();
+
+        Pair<String, String> kscf = Schema.instance.getCF(cfId);
+        ColumnFamilyStore cfs = null;
+        if (kscf != null)
+            cfs = Keyspace.open(kscf.left).getColumnFamilyStore(kscf.right);
+
+        if (kscf == null || cfs == null)
+        {
+            // schema was dropped during streaming
+            throw new IOException("CF " + cfId + " was dropped during streaming");
+        }
+
+        logger.debug("[Stream #{}] Start receiving entire sstable #{} from {}, repairedAt = {}, size = {}, ks = '{}', table = '{}'.",
+                     session.planId(), fileSeqNum, session.peer, repairedAt, totalSize, cfs.keyspace.getName(),
+                     cfs.getColumnFamilyName());
+
+        BigTableZeroCopyWriter writer = null;
+        long bytesRead = 0;
+        try
+        {
+            writer = createWriter(cfs, totalSize);
+            for (Map.Entry<Component, Long> component : components.entrySet())
+            {
+                writer.writeComponent(component.getKey(), channel, component.getValue());
+                bytesRead += component.getValue();
+                session.progress(writer.getFilename(), ProgressInfo.Direction.IN, bytesRead, totalSize);
+            }
+            logger.debug("[Stream #{}] Finished receiving entire sstable #{} from {} readBytes = {}, totalSize = {}",
+                         session.planId(), fileSeqNum, session.peer, FBUtilities.prettyPrintMemory(bytesRead), FBUtilities.prettyPrintMemory(totalSize));
+            return writer;
+        }
+        catch (Throwable e)
+        {
+            logger.warn("[Stream {}] Error while receiving entire sstable #{} on ks='{}' and table='{}'.",
+                        session.planId(), fileSeqNum, cfs.keyspace.getName(), cfs.getTableName());
+            if (writer != null)
+            {
+                bytesRead = writer.getFilePointer();
+                writer.abort(e);
+            }
+            drain(Channels.newInputStream(channel), bytesRead);
+            if (e instanceof IOException)
+                throw (IOException) e;
+            else
+                throw Throwables.propagate(e);
+        }
+    }
+
+    private BigTableZeroCopyWriter createWriter(ColumnFamilyStore cfs, long totalSize) throws IOException
+    {
+        Directories.DataDirectory localDir = cfs.getDirectories().getWriteableLocation(totalSize);
+        if (localDir == null)
+            throw new IOException(String.format("Insufficient disk space to store %s", FBUtilities.prettyPrintMemory(totalSize)));
+
+        File directory = cfs.getDirectories().getLocationForDisk(localDir);
+        Descriptor descriptor = cfs.newSSTableDescriptor(directory, inputVersion, format);
+        BigTableZeroCopyWriter writer = new BigTableZeroCopyWriter(descriptor, cfs.metadata, components.keySet(), repairedAt, sstableLevel, session.getTransaction(cfId));
+        StreamHook.instance.reportIncomingFile(cfs, writer, session, fileSeqNum);
+        return writer;
+    }
+
+    @Override
+    protected long totalSize()
+    {
+        long size = 0;
+        for (long componentSize : components.values())
+            size += componentSize;
+        return size;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.streaming;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.format.SSTableFormat;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.ChannelProxy;
+import org.apache.cassandra.io.util.DataOutputStreamPlus;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * StreamWriter for the SSTables whose data file is sent entirely, which sends the files of their components as is,
+ * with zero-copy transfers (see {@link ChannelProxy#transferTo}), instead of the sections of their data file.
+ *
+ * The receiver ({@link EntireSSTableStreamReader}) only has to copy them to its data directory and to rewrite their
+ * repairedAt and level, instead of rebuilding the SSTable from its partitions.
+ */
+public class EntireSSTableStreamWriter extends StreamWriter implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(EntireSSTableStreamWriter.class);
+
+    private static final int TRANSFER_SIZE = 10 * 1024 * 1024;
+
+    private final Map<Component, ChannelProxy> channels = new LinkedHashMap<>();
+    private final Map<Component, Long> componentSizes = new LinkedHashMap<>();
+
+    /**
+     * Opens the files of the components of the SSTable, whose content is the one that is sent.
+     */
+    public EntireSSTableStreamWriter(SSTableReader sstable, StreamSession session)
+    {
+        super(sstable, Collections.emptyList(), session);
+        try
+        {
+            for (Component component : componentsToStream(sstable))
+            {
+                ChannelProxy channel = new ChannelProxy(sstable.descriptor.filenameFor(component));
+                channels.put(component, channel);
+                componentSizes.put(component, channel.size());
+            }
+        }
+        catch (Throwable t)
+        {
+            close();
+            throw t;
+        }
+    }
+
+    /**
+     * @return whether the given sections of the SSTable data file should be sent by sending the whole SSTable, that is
+     * if stream_entire_sstables is enabled and the sections cover the whole data file.
+     */
+    public static boolean canStream(SSTableReader sstable, List<Pair<Long, Long>> sections)
+    {
+        if (!DatabaseDescriptor.streamEntireSSTables())
+            return false;
+
+        // the receiver must be able to use the components as is
+        if (sstable.descriptor.formatType != SSTableFormat.Type.BIG || !sstable.descriptor.version.storeRows())
+            return false;
+
+        if (!sstable.getComponents().contains(Component.PRIMARY_INDEX) || !sstable.getComponents().contains(Component.STATS))
+            return false;
+
+        return sections.size() == 1
+               && sections.get(0).left == 0
+               && sections.get(0).right == sstable.uncompressedLength();
+    }
+
+    /**
+     * @return the sizes of the files of the components of the SSTable that are sent, in the order they are sent
+     */
+    public static Map<Component, Long> componentSizes(SSTableReader sstable)
+    {
+        Map<Component, Long> sizes = new LinkedHashMap<>();
+        for (Component component : componentsToStream(sstable))
+            sizes.put(component, new File(sstable.descriptor.filenameFor(component)).length());
+        return sizes;
+    }
+
+    // the receiver writes its own TOC, and rebuilds the secondary indexes
+    private static List<Component> componentsToStream(SSTableReader sstable)
+    {
+        List<Component> components = new ArrayList<>();
+        for (Component component : new Component[]{ Component.DATA,
+                                                     Component.PRIMARY_INDEX,
+                                                     Component.STATS,
+                                                     Component.COMPRESSION_INFO,
+                                                     Component.FILTER,
+                                                     Component.SUMMARY,
+                                                     sstable.descriptor.digestComponent,
+                                                     Component.CRC,
+                                                     Component.PARTITION_HASHES,
+                                                     Component.PARTITION_INDEX,
+                                                     Component.ROW_INDEX,
+                                                     Component.ROW_FILTER })
+        {
+            if (sstable.getComponents().contains(component))
+                components.add(component);
+        }
+        return components;
+    }
+
+    /**
+     * @return the sizes of the files sent, as opened by this writer
+     */
+    public Map<Component, Long> componentSizes()
+    {
+        return componentSizes;
+    }
+
+    @Override
+    public void write(DataOutputStreamPlus out) throws IOException
+    {
+        long totalSize = totalSize();
+        logger.debug("[Stream #{}] Start streaming entire sstable {} to {}, repairedAt = {}, totalSize = {}", session.planId(),
+                     sstable.getFilename(), session.peer, sstable.getSSTableMetadata().repairedAt, totalSize);
+
+        long progress = 0L;
+        for (Map.Entry<Component, ChannelProxy> entry : channels.entrySet())
+        {
+            ChannelProxy channel = entry.getValue();
+            long length = componentSizes.get(entry.getKey());
+            logger.trace("[Stream #{}] Writing component {} with length {} to stream.", session.planId(), entry.getKey(), length);
+
+            long bytesTransferred = 0;
+            while (bytesTransferred < length)
+            {
+                final long position = bytesTransferred;
+                final int toTransfer = (int) Math.min(TRANSFER_SIZE, length - bytesTransferred);
+                limiter.acquire(toTransfer);
+                long lastWrite = out.applyToChannel((wbc) -> channel.transferTo(position, toTransfer, wbc));
+                bytesTransferred += lastWrite;
+                progress += lastWrite;
+                session.progress(sstable.descriptor.filenameFor(Component.DATA), ProgressInfo.Direction.OUT, progress, totalSize);
+            }
+        }
+        logger.debug("[Stream #{}] Finished streaming entire sstable {} to {}, bytesTransferred = {}, totalSize = {}",
+                     session.planId(), sstable.getFilename(), session.peer, FBUtilities.prettyPrintMemory(progress), FBUtilities.prettyPrintMemory(totalSize));
+    }
+
+    @Override
+    protected long totalSize()
+    {
+        long size = 0;
+        for (long componentSize : componentSizes.values())
+            size += componentSize;
+        return size;
+    }
+
+    public void close()
+    {
+        channels.values().forEach(ChannelProxy::close);
+    }
+}
@@ -481,6 +481,7 @@ public class StreamSession implements IEndpointStateChangeSubscriber
                 break;
 
             case FILE:
+            case ENTIRE_SSTABLE_FILE:
                 receive((IncomingFileMessage) message);
                 break;
 
@@ -19,13 +19,16 @@ package org.apache.cassandra.streaming.messages;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.SerializationHeader;
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.compress.CompressionMetadata;
+import org.apache.cassandra.io.sstable.Component;
 import org.apache.cassandra.io.sstable.format.SSTableFormat;
 import org.apache.cassandra.io.util.DataInputPlus;
 import org.apache.cassandra.io.util.DataOutputPlus;
@@ -61,6 +64,11 @@ public class FileMessageHeader
     public final long repairedAt;
     public final int sstableLevel;
     public final SerializationHeader.Component header;
+    /**
+     * The components of the SSTable and their sizes, in the order they are sent, if the whole SSTable is sent as is
+     * (see {@link StreamMessage.Type#ENTIRE_SSTABLE_FILE}), and null otherwise.
+     */
+    public final Map<Component, Long> components;
 
     public FileMessageHeader(UUID cfId,
                              int sequenceNumber,
@@ -72,6 +80,21 @@ public class FileMessageHeader
                              long repairedAt,
                              int sstableLevel,
                              SerializationHeader.Component header)
+    {
+        this(cfId, sequenceNumber, version, format, estimatedKeys, sections, compressionInfo, repairedAt, sstableLevel, header, null);
+    }
+
+    public FileMessageHeader(UUID cfId,
+                             int sequenceNumber,
+                             Version version,
+                             SSTableFormat.Type format,
+                             long estimatedKeys,
+                             List<Pair<Long, Long>> sections,
+                             CompressionInfo compressionInfo,
+                             long repairedAt,
+                             int sstableLevel,
+                             SerializationHeader.Component header,
+                             Map<Component, Long> components)
     {
         this.cfId = cfId;
         this.sequenceNumber = sequenceNumber;
@@ -84,6 +107,7 @@ public class FileMessageHeader
         this.repairedAt = repairedAt;
         this.sstableLevel = sstableLevel;
         this.header = header;
+        this.components = components;
     }
 
     public FileMessageHeader(UUID cfId,
@@ -96,6 +120,21 @@ public class FileMessageHeader
                              long repairedAt,
                              int sstableLevel,
                              SerializationHeader.Component header)
+    {
+        this(cfId, sequenceNumber, version, format, estimatedKeys, sections, compressionMetadata, repairedAt, sstableLevel, header, null);
+    }
+
+    public FileMessageHeader(UUID cfId,
+                             int sequenceNumber,
+                             Version version,
+                             SSTableFormat.Type format,
+                             long estimatedKeys,
+                             List<Pair<Long, Long>> sections,
+                             CompressionMetadata compressionMetadata,
+                             long repairedAt,
+                             int sstableLevel,
+                             SerializationHeader.Component header,
+                             Map<Component, Long> components)
     {
         this.cfId = cfId;
         this.sequenceNumber = sequenceNumber;
@@ -108,6 +147,7 @@ public class FileMessageHeader
         this.repairedAt = repairedAt;
         this.sstableLevel = sstableLevel;
         this.header = header;
+        this.components = components;
     }
 
     public boolean isCompressed()
@@ -115,13 +155,32 @@ public class FileMessageHeader
         return compressionInfo != null || compressionMetadata != null;
     }
 
+    public boolean isEntireSSTable()
+    {
+        return components != null;
+    }
+
+    /**
+     * @return a copy of this header for the entire SSTable with the given components
+     */
+    public FileMessageHeader withComponents(Map<Component, Long> components)
+    {
+        assert isEntireSSTable();
+        return new FileMessageHeader(cfId, sequenceNumber, version, format, estimatedKeys, sections, compressionMetadata, repairedAt, sstableLevel, header, components);
+    }
+
     /**
      * @return total file size to transfer in bytes
      */
     public long size()
     {
         long size = 0;
-        if (compressionInfo != null)
+        if (components != null)
+        {
+            for (long componentSize : components.values())
+                size += componentSize;
+        }
+        else if (compressionInfo != null)
         {
             // calculate total length of transferring chunks
             for (CompressionMetadata.Chunk chunk : compressionInfo.chunks)
@@ -150,6 +209,8 @@ public class FileMessageHeader
         sb.append(", estimated keys: ").append(estimatedKeys);
         sb.append(", transfer size: ").append(size());
         sb.append(", compressed?: ").append(isCompressed());
+        if (components != null)
+            sb.append(", components: ").append(components.keySet());
         sb.append(", repairedAt: ").append(repairedAt);
         sb.append(", level: ").append(sstableLevel);
         sb.append(')');
@@ -205,10 +266,27 @@ public class FileMessageHeader
 
             if (version >= StreamMessage.VERSION_30 && header.version.storeRows())
                 SerializationHeader.serializer.serialize(header.version, header.header, out);
+
+            // only sent with ENTIRE_SSTABLE_FILE messages
+            if (header.components != null)
+            {
+                out.writeInt(header.components.size());
+                for (Map.Entry<Component, Long> component : header.components.entrySet())
+                {
+                    out.writeUTF(component.getKey().type.name());
+                    out.writeUTF(component.getKey().name);
+                    out.writeLong(component.getValue());
+                }
+            }
             return compressionInfo;
         }
 
         public FileMessageHeader deserialize(DataInputPlus in, int version) throws IOException
+        {
+            return deserialize(in, version, false);
+        }
+
+        public FileMessageHeader deserialize(DataInputPlus in, int version, boolean entireSSTable) throws IOException
         {
             UUID cfId = UUIDSerializer.serializer.deserialize(in, MessagingService.current_version);
             int sequenceNumber = in.readInt();
@@ -230,7 +308,19 @@ public class FileMessageHeader
                                                  ? SerializationHeader.serializer.deserialize(sstableVersion, in)
                                                  : null;
 
-            return new FileMessageHeader(cfId, sequenceNumber, sstableVersion, format, estimatedKeys, sections, compressionInfo, repairedAt, sstableLevel, header);
+            Map<Component, Long> components = null;
+            if (entireSSTable)
+            {
+                int componentCount = in.readInt();
+                components = new LinkedHashMap<>(componentCount);
+                for (int i = 0; i < componentCount; i++)
+                {
+                    Component.Type type = Component.Type.valueOf(in.readUTF());
+                    components.put(new Component(type, in.readUTF()), in.readLong());
+                }
+            }
+
+            return new FileMessageHeader(cfId, sequenceNumber, sstableVersion, format, estimatedKeys, sections, compressionInfo, repairedAt, sstableLevel, header, components);
         }
 
         public long serializedSize(FileMessageHeader header, int version)
@@ -256,6 +346,17 @@ public class FileMessageHeader
             if (version >= StreamMessage.VERSION_30)
                 size += SerializationHeader.serializer.serializedSize(header.version, header.header);
 
+            if (header.components != null)
+            {
+                size += TypeSizes.sizeof(header.components.size());
+                for (Map.Entry<Component, Long> component : header.components.entrySet())
+                {
+                    size += TypeSizes.sizeof(component.getKey().type.name());
+                    size += TypeSizes.sizeof(component.getKey().name);
+                    size += TypeSizes.sizeof(component.getValue());
+                }
+            }
+
             return size;
         }
     }
@@ -25,6 +25,7 @@ import org.apache.cassandra.io.sstable.SSTableMultiWriter;
 import org.apache.cassandra.io.util.DataInputPlus;
 import org.apache.cassandra.io.util.DataInputPlus.DataInputStreamPlus;
 import org.apache.cassandra.io.util.DataOutputStreamPlus;
+import org.apache.cassandra.streaming.EntireSSTableStreamReader;
 import org.apache.cassandra.streaming.StreamReader;
 import org.apache.cassandra.streaming.StreamSession;
 import org.apache.cassandra.streaming.compress.CompressedStreamReader;
@@ -35,14 +36,26 @@ import org.apache.cassandra.utils.JVMStabilityInspector;
  */
 public class IncomingFileMessage extends StreamMessage
 {
-    public static Serializer<IncomingFileMessage> serializer = new Serializer<IncomingFileMessage>()
+    public static Serializer<IncomingFileMessage> serializer = new IncomingFileMessageSerializer(false);
+
+    public static Serializer<IncomingFileMessage> entireSSTableSerializer = new IncomingFileMessageSerializer(true);
+
+    private static class IncomingFileMessageSerializer implements Serializer<IncomingFileMessage>
     {
+        private final boolean entireSSTable;
+
+        private IncomingFileMessageSerializer(boolean entireSSTable)
+        {
+            this.entireSSTable = entireSSTable;
+        }
+
         @SuppressWarnings("resource")
         public IncomingFileMessage deserialize(ReadableByteChannel in, int version, StreamSession session) throws IOException
         {
             DataInputPlus input = new DataInputStreamPlus(Channels.newInputStream(in));
-            FileMessageHeader header = FileMessageHeader.serializer.deserialize(input, version);
-            StreamReader reader = !header.isCompressed() ? new StreamReader(header, session)
+            FileMessageHeader header = FileMessageHeader.serializer.deserialize(input, version, entireSSTable);
+            StreamReader reader = header.isEntireSSTable() ? new EntireSSTableStreamReader(header, session)
+                    : !header.isCompressed() ? new StreamReader(header, session)
                     : new CompressedStreamReader(header, session);
 
             try
@@ -76,14 +89,14 @@ public class IncomingFileMessage extends StreamMessage
         {
             throw new UnsupportedOperationException("Not allowed to call serialize on an incoming file");
         }
-    };
+    }
 
     public FileMessageHeader header;
     public SSTableMultiWriter sstable;
 
     public IncomingFileMessage(SSTableMultiWriter sstable, FileMessageHeader header)
     {
-        super(Type.FILE);
+        super(header.isEntireSSTable() ? Type.ENTIRE_SSTABLE_FILE : Type.FILE);
         this.header = header;
         this.sstable = sstable;
     }
@@ -23,6 +23,7 @@ import java.util.List;
 
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.util.DataOutputStreamPlus;
+import org.apache.cassandra.streaming.EntireSSTableStreamWriter;
 import org.apache.cassandra.streaming.StreamSession;
 import org.apache.cassandra.streaming.StreamWriter;
 import org.apache.cassandra.streaming.compress.CompressedStreamWriter;
@@ -56,21 +57,24 @@ public class OutgoingFileMessage extends StreamMessage
 
     public OutgoingFileMessage(Ref<SSTableReader> ref, int sequenceNumber, long estimatedKeys, List<Pair<Long, Long>> sections, long repairedAt, boolean keepSSTableLevel)
     {
-        super(Type.FILE);
+        super(EntireSSTableStreamWriter.canStream(ref.get(), sections) ? Type.ENTIRE_SSTABLE_FILE : Type.FILE);
         this.ref = ref;
 
         SSTableReader sstable = ref.get();
         filename = sstable.getFilename();
+        boolean entireSSTable = type == Type.ENTIRE_SSTABLE_FILE;
+        // the compression info is only needed to send sections of the data file
         this.header = new FileMessageHeader(sstable.metadata.cfId,
                                             sequenceNumber,
                                             sstable.descriptor.version,
                                             sstable.descriptor.formatType,
                                             estimatedKeys,
                                             sections,
-                                            sstable.compression ? sstable.getCompressionMetadata() : null,
+                                            sstable.compression && !entireSSTable ? sstable.getCompressionMetadata() : null,
                                             repairedAt,
                                             keepSSTableLevel ? sstable.getSSTableLevel() : 0,
-                                            sstable.header == null ? null : sstable.header.toComponent());
+                                            sstable.header == null ? null : sstable.header.toComponent(),
+                                            entireSSTable ? EntireSSTableStreamWriter.componentSizes(sstable) : null);
     }
 
     public synchronized void serialize(DataOutputStreamPlus out, int version, StreamSession session) throws IOException
@@ -80,9 +84,21 @@ public class OutgoingFileMessage extends StreamMessage
             return;
         }
 
+        final SSTableReader reader = ref.get();
+        if (header.isEntireSSTable())
+        {
+            try (EntireSSTableStreamWriter writer = new EntireSSTableStreamWriter(reader, session))
+            {
+                // the components sizes may have changed since the creation of the message, if the sstable
+                // metadata were rewritten, so we send the sizes of the files we actually opened
+                FileMessageHeader.serializer.serialize(header.withComponents(writer.componentSizes()), out, version);
+                writer.write(out);
+            }
+            return;
+        }
+
         CompressionInfo compressionInfo = FileMessageHeader.serializer.serialize(header, out, version);
 
-        final SSTableReader reader = ref.get();
         StreamWriter writer = compressionInfo == null ?
                                       new StreamWriter(reader, header.sections, session) :
                                       new CompressedStreamWriter(reader, header.sections,
@@ -85,7 +85,12 @@ public abstract class StreamMessage
         RECEIVED(3, 4, ReceivedMessage.serializer),
         RETRY(4, 4, RetryMessage.serializer),
         COMPLETE(5, 1, CompleteMessage.serializer),
-        SESSION_FAILED(6, 5, SessionFailedMessage.serializer);
+        SESSION_FAILED(6, 5, SessionFailedMessage.serializer),
+        /**
+         * An SSTable whose data file is sent entirely, sent as its complete set of components rather than as sections
+         * of its data file. Only sent if stream_entire_sstables is enabled.
+         */
+        ENTIRE_SSTABLE_FILE(7, 0, IncomingFileMessage.entireSSTableSerializer, OutgoingFileMessage.serializer);
 
         public static Type get(byte type)
         {
@@ -139,6 +139,26 @@ public class Info extends NodeToolCmd
             // Chunk cache is not on.
         }
 
+        // Compressed Chunk Cache: Hits, Requests, RecentHitRate
+        try
+        {
+            System.out.printf("%-23s: entries %d, size %s, capacity %s, %d misses, %d requests, %.3f recent hit rate%n",
+                    "Compressed Chunk Cache",
+                    probe.getCacheMetric("CompressedChunkCache", "Entries"),
+                    FileUtils.stringifyFileSize((long) probe.getCacheMetric("CompressedChunkCache", "Size")),
+                    FileUtils.stringifyFileSize((long) probe.getCacheMetric("CompressedChunkCache", "Capacity")),
+                    probe.getCacheMetric("CompressedChunkCache", "Misses"),
+                    probe.getCacheMetric("CompressedChunkCache", "Requests"),
+                    probe.getCacheMetric("CompressedChunkCache", "HitRate"));
+        }
+        catch (RuntimeException e)
+        {
+            if (!(e.getCause() instanceof InstanceNotFoundException))
+                throw e;
+
+            // Compressed chunk cache is not on.
+        }
+
         // Global table stats
         System.out.printf("%-23s: %s%%%n", "Percent Repaired", probe.getColumnFamilyMetric(null, null, "PercentRepaired"));
 
@@ -383,28 +383,70 @@ public abstract class CBUtil
         int length = cb.readInt();
         if (length < 0)
             return null;
-        ByteBuf slice = cb.readSlice(length);
 
-        return ByteBuffer.wrap(readRawBytes(slice));
+        byte[] bytes = new byte[length];
+        cb.readBytes(bytes);
+        return ByteBuffer.wrap(bytes);
     }
 
     public static ByteBuffer readBoundValue(ByteBuf cb, int protocolVersion)
     {
         int length = cb.readInt();
         if (length < 0)
+            return unboundValue(length, protocolVersion);
+
+        byte[] bytes = new byte[length];
+        cb.readBytes(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    // Reads a bound value into the provided array, of which the returned value is a slice.
+    private static ByteBuffer readBoundValue(ByteBuf cb, int protocolVersion, byte[] values, int offset)
+    {
+        int length = cb.readInt();
+        if (length < 0)
+            return unboundValue(length, protocolVersion);
+
+        cb.readBytes(values, offset, length);
+        return ByteBuffer.wrap(values, offset, length).slice();
+    }
+
+    private static ByteBuffer unboundValue(int length, int protocolVersion)
+    {
+        if (protocolVersion < 4) // backward compatibility for pre-version 4
+            return null;
+        if (length == -1)
+            return null;
+        else if (length == -2)
+            return ByteBufferUtil.UNSET_BYTE_BUFFER;
+        else
+            throw new ProtocolException("Invalid ByteBuf length " + length);
+    }
+
+    /**
+     * Returns the total size of the {@code count} values, optionally each preceded by its name, starting at the
+     * reader index of {@code cb}, without moving it. The values of a message can then all be copied out of the
+     * (pooled) frame into a single array rather than into an array each.
+     */
+    private static int sizeOfNextValues(ByteBuf cb, int count, boolean withNames)
+    {
+        int index = cb.readerIndex();
+        long size = 0;
+        for (int i = 0; i < count && index < cb.writerIndex(); i++)
         {
-            if (protocolVersion < 4) // backward compatibility for pre-version 4
-                return null;
-            if (length == -1)
-                return null;
-            else if (length == -2)
-                return ByteBufferUtil.UNSET_BYTE_BUFFER;
-            else
-                throw new ProtocolException("Invalid ByteBuf length " + length);
+            if (withNames)
+                index += 2 + cb.getUnsignedShort(index);
+
+            int length = cb.getInt(index);
+            index += 4;
+            if (length > 0)
+            {
+                size += length;
+                index += length;
+            }
         }
-        ByteBuf slice = cb.readSlice(length);
-
-        return ByteBuffer.wrap(readRawBytes(slice));
+        // a malformed message will fail to be read, but we don't want to allocate more than its size beforehand
+        return (int) Math.min(size, cb.readableBytes());
     }
 
     public static void writeValue(byte[] bytes, ByteBuf cb)
@@ -430,7 +472,10 @@ public abstract class CBUtil
         int remaining = bytes.remaining();
         cb.writeInt(remaining);
 
-        if (remaining > 0)
+        // writing a heap buffer from its array avoids having to duplicate it to preserve its position
+        if (remaining > 0 && bytes.hasArray())
+            cb.writeBytes(bytes.array(), bytes.arrayOffset() + bytes.position(), remaining);
+        else if (remaining > 0)
             cb.writeBytes(bytes.duplicate());
     }
 
@@ -457,9 +502,16 @@ public abstract class CBUtil
         if (size == 0)
             return Collections.<ByteBuffer>emptyList();
 
+        byte[] values = new byte[sizeOfNextValues(cb, size, false)];
+        int offset = 0;
         List<ByteBuffer> l = new ArrayList<ByteBuffer>(size);
         for (int i = 0; i < size; i++)
-            l.add(readBoundValue(cb, protocolVersion));
+        {
+            ByteBuffer value = readBoundValue(cb, protocolVersion, values, offset);
+            if (value != null)
+                offset += value.remaining();
+            l.add(value);
+        }
         return l;
     }
 
@@ -484,12 +536,17 @@ public abstract class CBUtil
         if (size == 0)
             return Pair.create(Collections.<String>emptyList(), Collections.<ByteBuffer>emptyList());
 
+        byte[] values = new byte[sizeOfNextValues(cb, size, true)];
+        int offset = 0;
         List<String> s = new ArrayList<>(size);
         List<ByteBuffer> l = new ArrayList<>(size);
         for (int i = 0; i < size; i++)
         {
             s.add(readString(cb));
-            l.add(readBoundValue(cb, protocolVersion));
+            ByteBuffer value = readBoundValue(cb, protocolVersion, values, offset);
+            if (value != null)
+                offset += value.remaining();
+            l.add(value);
         }
         return Pair.create(s, l);
     }
@@ -73,6 +73,18 @@ public class Frame
         return new Frame(header, body);
     }
 
+    /**
+     * Allocates a buffer for a frame body of the provided size, leaving room for the header before the body so that
+     * the {@link Encoder} can write the header in place rather than in a separate buffer.
+     */
+    public static ByteBuf allocateBody(int bodySize)
+    {
+        ByteBuf body = CBUtil.allocator.buffer(Header.LENGTH + bodySize);
+        body.writerIndex(Header.LENGTH);
+        body.readerIndex(Header.LENGTH);
+        return body;
+    }
+
     public static class Header
     {
         // 9 bytes in protocol version 3 and later
@@ -270,24 +282,43 @@ public class Frame
         public void encode(ChannelHandlerContext ctx, Frame frame, List<Object> results)
         throws IOException
         {
-            ByteBuf header = CBUtil.allocator.buffer(Header.LENGTH);
-
-            Message.Type type = frame.header.type;
-            header.writeByte(type.direction.addToVersion(frame.header.version));
-            header.writeByte(Header.Flag.serialize(frame.header.flags));
-
+            ByteBuf body = frame.body;
+            int bodyLength = body.readableBytes();
             // Continue to support writing pre-v3 headers so that we can give proper error messages to drivers that
             // connect with the v1/v2 protocol. See CASSANDRA-11464.
-            if (frame.header.version >= Server.VERSION_3)
-                header.writeShort(frame.header.streamId);
-            else
-                header.writeByte(frame.header.streamId);
+            int headerLength = frame.header.version >= Server.VERSION_3 ? Header.LENGTH : Header.LENGTH - 1;
 
-            header.writeByte(type.opcode);
-            header.writeInt(frame.body.readableBytes());
+            // If the body was allocated with room for the header (see allocateBody), write the frame as a single buffer
+            if (body.readerIndex() >= headerLength)
+            {
+                int end = body.writerIndex();
+                int start = body.readerIndex() - headerLength;
+                body.readerIndex(start).writerIndex(start);
+                writeHeader(frame.header, bodyLength, body);
+                body.writerIndex(end);
+                results.add(body);
+                return;
+            }
 
+            ByteBuf header = CBUtil.allocator.buffer(Header.LENGTH);
+            writeHeader(frame.header, bodyLength, header);
             results.add(header);
-            results.add(frame.body);
+            results.add(body);
+        }
+
+        private static void writeHeader(Header header, int bodyLength, ByteBuf out)
+        {
+            Message.Type type = header.type;
+            out.writeByte(type.direction.addToVersion(header.version));
+            out.writeByte(Header.Flag.serialize(header.flags));
+
+            if (header.version >= Server.VERSION_3)
+                out.writeShort(header.streamId);
+            else
+                out.writeByte(header.streamId);
+
+            out.writeByte(type.opcode);
+            out.writeInt(bodyLength);
         }
     }
 
@@ -42,6 +42,7 @@ import com.google.common.collect.ImmutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.concurrent.StageManager;
 import org.apache.cassandra.service.ClientWarn;
 import org.apache.cassandra.transport.messages.*;
 import org.apache.cassandra.service.QueryState;
@@ -212,6 +213,15 @@ public abstract class Message
 
         public abstract Response execute(QueryState queryState);
 
+        /**
+         * Whether this request only needs the local node to complete, in which case it may be executed directly by the
+         * network thread that received it (see {@link LocalDispatcher}).
+         */
+        public boolean isLocalOnly()
+        {
+            return false;
+        }
+
         public void setTracingRequested()
         {
             this.tracingRequested = true;
@@ -347,7 +357,7 @@ public abstract class Message
                             throw new ProtocolException("Must not send frame with CUSTOM_PAYLOAD flag for native protocol version < 4");
                         messageSize += CBUtil.sizeOfBytesMap(customPayload);
                     }
-                    body = CBUtil.allocator.buffer(messageSize);
+                    body = Frame.allocateBody(messageSize);
                     if (tracingId != null)
                     {
                         CBUtil.writeUUID(tracingId, body);
@@ -372,7 +382,7 @@ public abstract class Message
                     Map<String, ByteBuffer> payload = message.getCustomPayload();
                     if (payload != null)
                         messageSize += CBUtil.sizeOfBytesMap(payload);
-                    body = CBUtil.allocator.buffer(messageSize);
+                    body = Frame.allocateBody(messageSize);
                     if (payload != null)
                     {
                         CBUtil.writeBytesMap(payload, body);
@@ -404,6 +414,30 @@ public abstract class Message
         }
     }
 
+    /**
+     * Executes the requests that only need the local node on the network thread that received them, without handing
+     * them off to the request executor nor to the stages, and passes the other requests on to the next handler.
+     */
+    @ChannelHandler.Sharable
+    public static class LocalDispatcher extends ChannelInboundHandlerAdapter
+    {
+        private final Dispatcher dispatcher;
+
+        public LocalDispatcher(Dispatcher dispatcher)
+        {
+            this.dispatcher = dispatcher;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg)
+        {
+            if (msg instanceof Request && ((Request) msg).isLocalOnly())
+                StageManager.executeInline(() -> dispatcher.channelRead0(ctx, (Request) msg));
+            else
+                ctx.fireChannelRead(msg);
+        }
+    }
+
     @ChannelHandler.Sharable
     public static class Dispatcher extends SimpleChannelInboundHandler<Request>
     {
@@ -547,6 +581,18 @@ public abstract class Message
             flusher.start();
         }
 
+        /**
+         * Stops reading requests from a client while the responses already queued for it exceed the channel's write
+         * buffer high water mark, until they drop below its low water mark. A client that doesn't read its (large)
+         * results fast enough then can't make the coordinator buffer more of them.
+         */
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception
+        {
+            ctx.channel().config().setAutoRead(ctx.channel().isWritable());
+            super.channelWritabilityChanged(ctx);
+        }
+
         @Override
         public void exceptionCaught(final ChannelHandlerContext ctx, Throwable cause)
         throws Exception
@@ -26,8 +26,11 @@ import org.apache.cassandra.cql3.CQLStatement;
 import org.apache.cassandra.cql3.ColumnSpecification;
 import org.apache.cassandra.cql3.QueryHandler;
 import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
 import org.apache.cassandra.cql3.statements.ParsedStatement;
+import org.apache.cassandra.cql3.statements.SelectStatement;
 import org.apache.cassandra.exceptions.PreparedQueryNotFoundException;
+import org.apache.cassandra.exceptions.RequestValidationException;
 import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.service.QueryState;
 import org.apache.cassandra.tracing.Tracing;
@@ -87,6 +90,29 @@ public class ExecuteMessage extends Message.Request
         this.options = options;
     }
 
+    @Override
+    public boolean isLocalOnly()
+    {
+        ParsedStatement.Prepared prepared = ClientState.getCQLQueryHandler().getPrepared(statementId);
+        if (prepared == null)
+            return false;
+
+        try
+        {
+            options.prepare(prepared.boundNames);
+            if (prepared.statement instanceof SelectStatement)
+                return ((SelectStatement) prepared.statement).isLocalOnly(options);
+            if (prepared.statement instanceof ModificationStatement)
+                return ((ModificationStatement) prepared.statement).isLocalOnly(options);
+            return false;
+        }
+        catch (RequestValidationException e)
+        {
+            // the error is reported by the regular execution
+            return false;
+        }
+    }
+
     public Message.Response execute(QueryState state)
     {
         try
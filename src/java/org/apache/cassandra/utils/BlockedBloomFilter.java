@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import org.apache.cassandra.utils.concurrent.Ref;
+import org.apache.cassandra.utils.concurrent.WrappedSharedCloseable;
+import org.apache.cassandra.utils.obs.IBitSet;
+
+/**
+ * A Bloom filter whose hashes for a given key all fall within a single block of {@link #BLOCK_BITS} bits, that is
+ * 64 bytes or one cache line, instead of being spread across the whole bit set like in {@link BloomFilter}.
+ *
+ * A lookup thus costs a single cache miss, or two when the block straddles two lines, whatever the hash count. The
+ * price is a higher false positive rate for the same size, as keys are not evenly spread across blocks, which
+ * {@link FilterFactory} compensates for by sizing these filters with {@link #falsePositiveRate}.
+ *
+ * The block is picked with one half of the murmur3 hash of the key, and the bits within the block with the other.
+ * Like the 3.0 {@link BloomFilter}s, the block is not picked with the half used for token distribution (CASSANDRA-8413),
+ * and that half is mixed before its top bits pick the first bit, as they are nearly the same for all the keys of a node.
+ */
+public class BlockedBloomFilter extends WrappedSharedCloseable implements IFilter
+{
+    public static final int BLOCK_BITS = 512;
+    private static final int BLOCK_MASK = BLOCK_BITS - 1;
+    // shifts the top bits of a hash to a bit of the block
+    private static final int BLOCK_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(BLOCK_BITS);
+
+    private final static FastThreadLocal<long[]> reusableHash = new FastThreadLocal<long[]>()
+    {
+        protected long[] initialValue()
+        {
+            return new long[2];
+        }
+    };
+
+    public final IBitSet bitset;
+    public final int hashCount;
+    private final long blockCount;
+
+    BlockedBloomFilter(int hashCount, IBitSet bitset)
+    {
+        super(bitset);
+        assert bitset.capacity() >= BLOCK_BITS : bitset.capacity();
+        this.hashCount = hashCount;
+        this.bitset = bitset;
+        this.blockCount = bitset.capacity() / BLOCK_BITS;
+    }
+
+    private BlockedBloomFilter(BlockedBloomFilter copy)
+    {
+        super(copy);
+        this.hashCount = copy.hashCount;
+        this.bitset = copy.bitset;
+        this.blockCount = copy.blockCount;
+    }
+
+    /**
+     * @return the given number of bits, rounded up to a whole number of blocks.
+     */
+    static long roundToBlocks(long numBits)
+    {
+        return Math.max(1, (numBits + BLOCK_MASK) / BLOCK_BITS) * BLOCK_BITS;
+    }
+
+    /**
+     * @return the expected false positive rate of a filter with the given number of bits per element and hashes.
+     *
+     * The number of elements in the block of a key follows a Poisson distribution, and the rate is the average of the
+     * rates of classic filters of one block with each number of elements, weighted by its probability.
+     */
+    static double falsePositiveRate(double bitsPerElement, int hashCount)
+    {
+        double mean = BLOCK_BITS / bitsPerElement;
+        double probability = Math.exp(-mean);
+        double rate = 0;
+        for (int elements = 0; elements < 2 * mean + 100; elements++)
+        {
+            rate += probability * Math.pow(1 - Math.pow(1 - 1.0 / BLOCK_BITS, (double) hashCount * elements), hashCount);
+            probability *= mean / (elements + 1);
+        }
+        return rate;
+    }
+
+    public long serializedSize()
+    {
+        return BloomFilterSerializer.serializedSize(this);
+    }
+
+    /**
+     * Mixes the bits used for a hash into the ones used for the next. Stepping through the block by a fixed increment,
+     * like {@link BloomFilter} does through the whole bit set, would make keys that share an increment and start a few
+     * steps apart share most of their bits, which is likely with only {@link #BLOCK_BITS} bits.
+     */
+    private static long next(long bits)
+    {
+        return (bits ^ (bits >>> 31)) * 0x9E3779B97F4A7C15L;
+    }
+
+    public void add(FilterKey key)
+    {
+        long[] hash = reusableHash.get();
+        key.filterHash(hash);
+        long block = FBUtilities.abs(hash[1] % blockCount) * BLOCK_BITS;
+        long bits = next(hash[0]);
+        for (int i = 0; i < hashCount; i++)
+        {
+            bitset.set(block + (bits >>> BLOCK_SHIFT));
+            bits = next(bits);
+        }
+    }
+
+    public boolean isPresent(FilterKey key)
+    {
+        long[] hash = reusableHash.get();
+        key.filterHash(hash);
+        long block = FBUtilities.abs(hash[1] % blockCount) * BLOCK_BITS;
+        long bits = next(hash[0]);
+        for (int i = 0; i < hashCount; i++)
+        {
+            if (!bitset.get(block + (bits >>> BLOCK_SHIFT)))
+                return false;
+            bits = next(bits);
+        }
+        return true;
+    }
+
+    public void clear()
+    {
+        bitset.clear();
+    }
+
+    public IFilter sharedCopy()
+    {
+        return new BlockedBloomFilter(this);
+    }
+
+    @Override
+    public long offHeapSize()
+    {
+        return bitset.offHeapSize();
+    }
+
+    public String toString()
+    {
+        return "BlockedBloomFilter[hashCount=" + hashCount + ";capacity=" + bitset.capacity() + ']';
+    }
+
+    public void addTo(Ref.IdentityCollection identities)
+    {
+        super.addTo(identities);
+        bitset.addTo(identities);
+    }
+}
@@ -26,8 +26,14 @@ import org.apache.cassandra.utils.obs.IBitSet;
 import org.apache.cassandra.utils.obs.OffHeapBitSet;
 import org.apache.cassandra.utils.obs.OpenBitSet;
 
+/**
+ * Serializes both kinds of Bloom filters. A {@link BloomFilter} is written as its hash count followed by its bit set,
+ * and a {@link BlockedBloomFilter} as the same preceded by {@link #BLOCKED_VERSION}, which can never be a hash count.
+ */
 final class BloomFilterSerializer
 {
+    static final int BLOCKED_VERSION = -1;
+
     private BloomFilterSerializer()
     {
     }
@@ -38,18 +44,31 @@ final class BloomFilterSerializer
         bf.bitset.serialize(out);
     }
 
-    public static BloomFilter deserialize(DataInput in, boolean oldBfHashOrder) throws IOException
+    public static void serialize(BlockedBloomFilter bf, DataOutputPlus out) throws IOException
+    {
+        out.writeInt(BLOCKED_VERSION);
+        out.writeInt(bf.hashCount);
+        bf.bitset.serialize(out);
+    }
+
+    public static IFilter deserialize(DataInput in, boolean oldBfHashOrder) throws IOException
     {
         return deserialize(in, false, oldBfHashOrder);
     }
 
     @SuppressWarnings("resource")
-    public static BloomFilter deserialize(DataInput in, boolean offheap, boolean oldBfHashOrder) throws IOException
+    public static IFilter deserialize(DataInput in, boolean offheap, boolean oldBfHashOrder) throws IOException
     {
         int hashes = in.readInt();
+        boolean blocked = hashes == BLOCKED_VERSION;
+        if (blocked)
+            hashes = in.readInt();
+        if (hashes < 0)
+            throw new IOException("Unknown bloom filter format with hash count " + hashes);
+
         IBitSet bs = offheap ? OffHeapBitSet.deserialize(in) : OpenBitSet.deserialize(in);
 
-        return new BloomFilter(hashes, bs, oldBfHashOrder);
+        return blocked ? new BlockedBloomFilter(hashes, bs) : new BloomFilter(hashes, bs, oldBfHashOrder);
     }
 
     /**
@@ -65,4 +84,9 @@ final class BloomFilterSerializer
         size += bf.bitset.serializedSize();
         return size;
     }
+
+    public static long serializedSize(BlockedBloomFilter bf)
+    {
+        return TypeSizes.sizeof(BLOCKED_VERSION) + TypeSizes.sizeof(bf.hashCount) + bf.bitset.serializedSize();
+    }
 }
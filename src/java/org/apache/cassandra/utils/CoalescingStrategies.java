@@ -215,10 +215,31 @@ public class CoalescingStrategies
 
         protected abstract <C extends Coalescable> void coalesceInternal(BlockingQueue<C> input, List<C> out, int maxItems) throws InterruptedException;
 
+        /**
+         * Notifies the strategy of a round trip time measured to the peer it coalesces messages for, which is
+         * ignored by default.
+         *
+         * @param nanos the round trip time, in nanoseconds
+         */
+        public void onRoundTripTime(long nanos)
+        {
+        }
+
+        /**
+         * @return the maximum time, in nanoseconds, the strategy currently waits for more messages to send them
+         * along with those already available, or 0 if it doesn't wait.
+         */
+        public long currentWindowNanos()
+        {
+            return 0;
+        }
     }
 
-    @VisibleForTesting
-    interface Parker
+    /**
+     * Waits for more messages to coalesce. Connections that can't block while doing so may record the time instead,
+     * to send the messages coalesced so far once it elapsed.
+     */
+    public interface Parker
     {
         void park(long nanos);
     }
@@ -349,6 +370,12 @@ public class CoalescingStrategies
             }
         }
 
+        @Override
+        public long currentWindowNanos()
+        {
+            return maxCoalesceWindow;
+        }
+
         @Override
         public String toString() {
             return "Time horizon moving average";
@@ -424,6 +451,12 @@ public class CoalescingStrategies
                 notifyOfSample(out.get(ii).timestampNanos());
         }
 
+        @Override
+        public long currentWindowNanos()
+        {
+            return maxCoalesceWindow;
+        }
+
         @Override
         public String toString() {
             return "Moving average";
@@ -456,6 +489,12 @@ public class CoalescingStrategies
             debugTimestamps(out);
         }
 
+        @Override
+        public long currentWindowNanos()
+        {
+            return coalesceWindow;
+        }
+
         @Override
         public String toString() {
             return "Fixed";
@@ -491,12 +530,151 @@ public class CoalescingStrategies
         }
     }
 
+    /*
+     * A strategy tuning itself to the peer and the load: it waits for at most an eighth of the round trip time measured
+     * to the peer (capped by the configured window), and only coalesces while doing so was measured to increase the
+     * rate at which the connection sends messages.
+     *
+     * Time is divided into epochs, in each of which the strategy either coalesces like the time horizon strategy or
+     * doesn't. At the end of each epoch, the rate at which messages were sent while the connection was busy (that is,
+     * excluding the time spent waiting on an empty backlog, but including the time spent waiting to coalesce) is
+     * compared to the last one measured in the other mode, and the fastest mode is kept, the other one being probed
+     * again for an epoch every PROBE_INTERVAL epochs. Coalescing is disabled while the backlog is mostly empty, as it
+     * can only add latency then.
+     */
     @VisibleForTesting
-    static CoalescingStrategy newCoalescingStrategy(String strategy,
-                                                    int coalesceWindow,
-                                                    Parker parker,
-                                                    Logger logger,
-                                                    String displayName)
+    static class AdaptiveCoalescingStrategy extends CoalescingStrategy
+    {
+        private static final long EPOCH = TimeUnit.MILLISECONDS.toNanos(100);
+        private static final int PROBE_INTERVAL = 16;
+        // the window is at most rtt >> WINDOW_SHIFT
+        private static final int WINDOW_SHIFT = 3;
+        // the round trip time is averaged with a gain of 1/8, like TCP's smoothed round trip time
+        private static final int RTT_GAIN_SHIFT = 3;
+        // the average number of messages found in the backlog below which coalescing isn't worth it
+        private static final int MIN_BACKLOG = 2;
+        // how much faster coalescing must be to be kept, so measurement noise doesn't make it flip-flop
+        private static final double MIN_SPEEDUP = 1.05;
+
+        private final long maxCoalesceWindow;
+
+        // updated by the threads processing the responses of the peer; losing a concurrent update is harmless
+        private volatile long roundTripTime = -1;
+
+        private boolean coalescing = false;
+        private long averageGap = Long.MAX_VALUE;
+        private double rateCoalescing;
+        private double rateNotCoalescing;
+        private int epochsSinceProbe;
+
+        // the measurements of the current epoch
+        private long epochStart = CLOCK.nanoTime();
+        private long idle;
+        private int batches;
+        private long backlog;
+        private long messages;
+
+        public AdaptiveCoalescingStrategy(int maxCoalesceWindow, Parker parker, Logger logger, String displayName)
+        {
+            super(parker, logger, displayName);
+            this.maxCoalesceWindow = TimeUnit.MICROSECONDS.toNanos(maxCoalesceWindow);
+        }
+
+        @Override
+        public void onRoundTripTime(long nanos)
+        {
+            long rtt = roundTripTime;
+            roundTripTime = rtt < 0 ? nanos : rtt + ((nanos - rtt) >> RTT_GAIN_SHIFT);
+        }
+
+        private long window()
+        {
+            long rtt = roundTripTime;
+            return rtt < 0 ? maxCoalesceWindow : Math.min(maxCoalesceWindow, rtt >> WINDOW_SHIFT);
+        }
+
+        @Override
+        public long currentWindowNanos()
+        {
+            return coalescing ? window() : 0;
+        }
+
+        @Override
+        protected <C extends Coalescable> void coalesceInternal(BlockingQueue<C> input, List<C> out, int maxItems) throws InterruptedException
+        {
+            if (input.drainTo(out, maxItems) == 0)
+            {
+                long start = CLOCK.nanoTime();
+                out.add(input.take());
+                idle += CLOCK.nanoTime() - start;
+                input.drainTo(out, maxItems - 1);
+            }
+            batches++;
+            backlog += out.size();
+
+            debugGap(averageGap);
+            if (coalescing && maybeSleep(out.size(), averageGap, window(), parker))
+                input.drainTo(out, maxItems - out.size());
+            messages += out.size();
+            debugTimestamps(out);
+
+            long now = CLOCK.nanoTime();
+            if (now - epochStart >= EPOCH)
+                endEpoch(now);
+        }
+
+        private void endEpoch(long now)
+        {
+            long elapsed = now - epochStart;
+            long busy = elapsed - idle;
+            if (busy > 0)
+            {
+                double rate = (double) messages / busy;
+                if (coalescing)
+                    rateCoalescing = rate;
+                else
+                    rateNotCoalescing = rate;
+            }
+            averageGap = elapsed / messages;
+
+            boolean coalesce;
+            if (backlog < (long) MIN_BACKLOG * batches || window() == 0)
+            {
+                coalesce = false;
+            }
+            else if (rateCoalescing == 0 || rateNotCoalescing == 0 || ++epochsSinceProbe >= PROBE_INTERVAL)
+            {
+                coalesce = !coalescing;
+                epochsSinceProbe = 0;
+            }
+            else
+            {
+                coalesce = rateCoalescing > rateNotCoalescing * MIN_SPEEDUP;
+            }
+
+            if (coalesce != coalescing && logger.isTraceEnabled())
+                logger.trace("{} {} coalescing, {} messages/ms with it and {} without", this, coalesce ? "enabling" : "disabling",
+                             rateCoalescing * 1e6, rateNotCoalescing * 1e6);
+            coalescing = coalesce;
+
+            epochStart = now;
+            idle = 0;
+            batches = 0;
+            backlog = 0;
+            messages = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Adaptive";
+        }
+    }
+
+    public static CoalescingStrategy newCoalescingStrategy(String strategy,
+                                                           int coalesceWindow,
+                                                           Parker parker,
+                                                           Logger logger,
+                                                           String displayName)
     {
         String classname = null;
         String strategyCleaned = strategy.trim().toUpperCase();
@@ -514,6 +692,9 @@ public class CoalescingStrategies
         case "DISABLED":
             classname = DisabledCoalescingStrategy.class.getName();
             break;
+        case "ADAPTIVE":
+            classname = AdaptiveCoalescingStrategy.class.getName();
+            break;
         default:
             classname = strategy;
         }
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+/**
+ * A {@link MessageDigest} counting the bytes digested by the digest it wraps since it was last reset.
+ */
+public class CountingDigest extends MessageDigest
+{
+    private long count;
+    private final MessageDigest underlying;
+
+    public CountingDigest(MessageDigest underlying)
+    {
+        super(underlying.getAlgorithm());
+        this.underlying = underlying;
+    }
+
+    /**
+     * @return the number of bytes digested since the last reset
+     */
+    public long count()
+    {
+        return count;
+    }
+
+    @Override
+    protected void engineUpdate(byte input)
+    {
+        underlying.update(input);
+        count += 1;
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len)
+    {
+        underlying.update(input, offset, len);
+        count += len;
+    }
+
+    @Override
+    protected void engineUpdate(ByteBuffer input)
+    {
+        count += input.remaining();
+        underlying.update(input);
+    }
+
+    @Override
+    protected byte[] engineDigest()
+    {
+        return underlying.digest();
+    }
+
+    @Override
+    protected void engineReset()
+    {
+        underlying.reset();
+        count = 0;
+    }
+}
@@ -105,6 +105,23 @@ public class FBUtilities
         }
     };
 
+    private static final ThreadLocal<MessageDigest> localMurmur3Digest = new ThreadLocal<MessageDigest>()
+    {
+        @Override
+        protected MessageDigest initialValue()
+        {
+            return new Murmur3Digest();
+        }
+
+        @Override
+        public MessageDigest get()
+        {
+            MessageDigest digest = super.get();
+            digest.reset();
+            return digest;
+        }
+    };
+
     public static final int MAX_UNSIGNED_SHORT = 0xFFFF;
 
     public static MessageDigest threadLocalMD5Digest()
@@ -112,6 +129,14 @@ public class FBUtilities
         return localMD5Digest.get();
     }
 
+    /**
+     * @return a non-cryptographic 128 bits digest (see {@link Murmur3Digest}), much cheaper than MD5
+     */
+    public static MessageDigest threadLocalMurmur3Digest()
+    {
+        return localMurmur3Digest.get();
+    }
+
     public static MessageDigest newMessageDigest(String algorithm)
     {
         try
@@ -37,7 +37,10 @@ public class FilterFactory
 
     public static void serialize(IFilter bf, DataOutputPlus output) throws IOException
     {
-        BloomFilterSerializer.serialize((BloomFilter) bf, output);
+        if (bf instanceof BlockedBloomFilter)
+            BloomFilterSerializer.serialize((BlockedBloomFilter) bf, output);
+        else
+            BloomFilterSerializer.serialize((BloomFilter) bf, output);
     }
 
     public static IFilter deserialize(DataInput input, boolean offheap, boolean oldBfHashOrder) throws IOException
@@ -69,12 +72,24 @@ public class FilterFactory
      *         filter.
      */
     public static IFilter getFilter(long numElements, double maxFalsePosProbability, boolean offheap, boolean oldBfHashOrder)
+    {
+        return getFilter(numElements, maxFalsePosProbability, offheap, oldBfHashOrder, false);
+    }
+
+    /**
+     * @return The smallest filter that can provide the given false positive probability rate for the given number
+     *         of elements, which is a {@link BlockedBloomFilter} if {@code blocked} and the old hash order isn't
+     *         required.
+     */
+    public static IFilter getFilter(long numElements, double maxFalsePosProbability, boolean offheap, boolean oldBfHashOrder, boolean blocked)
     {
         assert maxFalsePosProbability <= 1.0 : "Invalid probability";
         if (maxFalsePosProbability == 1.0)
             return new AlwaysPresentFilter();
         int bucketsPerElement = BloomCalculations.maxBucketsPerElement(numElements);
         BloomCalculations.BloomSpecification spec = BloomCalculations.computeBloomSpec(bucketsPerElement, maxFalsePosProbability);
+        if (blocked && !oldBfHashOrder)
+            return createBlockedFilter(spec.K, numElements, spec.bucketsPerElement, offheap);
         return createFilter(spec.K, numElements, spec.bucketsPerElement, offheap, oldBfHashOrder);
     }
 
@@ -85,4 +100,18 @@ public class FilterFactory
         IBitSet bitset = offheap ? new OffHeapBitSet(numBits) : new OpenBitSet(numBits);
         return new BloomFilter(hash, bitset, oldBfHashOrder);
     }
+
+    @SuppressWarnings("resource")
+    private static IFilter createBlockedFilter(int hash, long numElements, int bucketsPer, boolean offheap)
+    {
+        // keys aren't evenly spread across blocks, so more bits per element are needed for the false positive rate
+        // of a classic filter with the same hashes
+        double targetRate = BloomCalculations.probs[bucketsPer][hash];
+        double bitsPerElement = bucketsPer;
+        while (BlockedBloomFilter.falsePositiveRate(bitsPerElement, hash) > targetRate)
+            bitsPerElement += 0.25;
+        long numBits = BlockedBloomFilter.roundToBlocks((long) Math.ceil(numElements * bitsPerElement));
+        IBitSet bitset = offheap ? new OffHeapBitSet(numBits) : new OpenBitSet(numBits);
+        return new BlockedBloomFilter(hash, bitset);
+    }
 }
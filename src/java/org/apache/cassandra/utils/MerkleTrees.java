@@ -185,6 +185,25 @@ public class MerkleTrees implements Iterable<Map.Entry<Range<Token>, MerkleTree>
         return merkleTrees.get(range);
     }
 
+    /**
+     * Get the MerkleTrees of the given ranges, which share the trees of this, so building them builds the trees of
+     * this. This allows to build the trees of disjoint sets of ranges concurrently.
+     *
+     * @param ranges a subset of the ranges of this
+     * @return the MerkleTrees of the given ranges
+     */
+    public MerkleTrees subTrees(Collection<Range<Token>> ranges)
+    {
+        List<MerkleTree> trees = new ArrayList<>(ranges.size());
+        for (Range<Token> range : ranges)
+        {
+            MerkleTree tree = merkleTrees.get(range);
+            assert tree != null : "No merkle tree for range " + range;
+            trees.add(tree);
+        }
+        return new MerkleTrees(partitioner, trees);
+    }
+
     public long size()
     {
         long size = 0;
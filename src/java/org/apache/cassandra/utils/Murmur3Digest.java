@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+/**
+ * A non-cryptographic, 128 bits {@link MessageDigest} computing the MurmurHash3 x64_128 of its input incrementally.
+ *
+ * This is used instead of MD5 where the digest only has to detect accidental differences, like the digests of read
+ * responses, for which MD5 is needlessly expensive. Unlike {@link MurmurHash#hash3_x64_128}, the tail bytes are
+ * treated as unsigned, so this matches the reference implementation (with a seed of 0).
+ */
+public class Murmur3Digest extends MessageDigest
+{
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private static final int BLOCK_SIZE = 16;
+
+    // the bytes of the current, incomplete, block
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    private int buffered;
+    private long length;
+
+    private long h1;
+    private long h2;
+
+    public Murmur3Digest()
+    {
+        super("MurmurHash3_x64_128");
+    }
+
+    @Override
+    protected int engineGetDigestLength()
+    {
+        return BLOCK_SIZE;
+    }
+
+    @Override
+    protected void engineUpdate(byte input)
+    {
+        buffer[buffered++] = input;
+        length++;
+        if (buffered == BLOCK_SIZE)
+        {
+            processBlock(getLong(buffer, 0), getLong(buffer, 8));
+            buffered = 0;
+        }
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len)
+    {
+        length += len;
+        if (buffered > 0)
+        {
+            int toCopy = Math.min(BLOCK_SIZE - buffered, len);
+            System.arraycopy(input, offset, buffer, buffered, toCopy);
+            buffered += toCopy;
+            offset += toCopy;
+            len -= toCopy;
+            if (buffered < BLOCK_SIZE)
+                return;
+            processBlock(getLong(buffer, 0), getLong(buffer, 8));
+            buffered = 0;
+        }
+
+        while (len >= BLOCK_SIZE)
+        {
+            processBlock(getLong(input, offset), getLong(input, offset + 8));
+            offset += BLOCK_SIZE;
+            len -= BLOCK_SIZE;
+        }
+
+        System.arraycopy(input, offset, buffer, 0, len);
+        buffered = len;
+    }
+
+    @Override
+    protected void engineUpdate(ByteBuffer input)
+    {
+        if (input.hasArray())
+        {
+            engineUpdate(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            input.position(input.limit());
+            return;
+        }
+
+        while (input.hasRemaining() && buffered > 0)
+            engineUpdate(input.get());
+
+        int position = input.position();
+        int limit = input.limit();
+        while (limit - position >= BLOCK_SIZE)
+        {
+            processBlock(getLong(input, position), getLong(input, position + 8));
+            position += BLOCK_SIZE;
+        }
+        length += position - input.position();
+        input.position(position);
+
+        while (input.hasRemaining())
+            engineUpdate(input.get());
+    }
+
+    @Override
+    protected byte[] engineDigest()
+    {
+        long k1 = 0;
+        long k2 = 0;
+        switch (buffered)
+        {
+            case 15: k2 ^= ((long) buffer[14] & 0xff) << 48;
+            case 14: k2 ^= ((long) buffer[13] & 0xff) << 40;
+            case 13: k2 ^= ((long) buffer[12] & 0xff) << 32;
+            case 12: k2 ^= ((long) buffer[11] & 0xff) << 24;
+            case 11: k2 ^= ((long) buffer[10] & 0xff) << 16;
+            case 10: k2 ^= ((long) buffer[9] & 0xff) << 8;
+            case  9: k2 ^= ((long) buffer[8] & 0xff);
+                k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+
+            case  8: k1 ^= ((long) buffer[7] & 0xff) << 56;
+            case  7: k1 ^= ((long) buffer[6] & 0xff) << 48;
+            case  6: k1 ^= ((long) buffer[5] & 0xff) << 40;
+            case  5: k1 ^= ((long) buffer[4] & 0xff) << 32;
+            case  4: k1 ^= ((long) buffer[3] & 0xff) << 24;
+            case  3: k1 ^= ((long) buffer[2] & 0xff) << 16;
+            case  2: k1 ^= ((long) buffer[1] & 0xff) << 8;
+            case  1: k1 ^= ((long) buffer[0] & 0xff);
+                k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = MurmurHash.fmix(h1);
+        h2 = MurmurHash.fmix(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        byte[] digest = new byte[BLOCK_SIZE];
+        putLong(digest, 0, h1);
+        putLong(digest, 8, h2);
+
+        engineReset();
+        return digest;
+    }
+
+    @Override
+    protected void engineReset()
+    {
+        buffered = 0;
+        length = 0;
+        h1 = 0;
+        h2 = 0;
+    }
+
+    private void processBlock(long k1, long k2)
+    {
+        k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+
+        h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+
+        k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+
+        h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    // little-endian, as the blocks of the reference implementation
+    private static long getLong(byte[] bytes, int offset)
+    {
+        return ((long) bytes[offset] & 0xff)
+               | ((long) bytes[offset + 1] & 0xff) << 8
+               | ((long) bytes[offset + 2] & 0xff) << 16
+               | ((long) bytes[offset + 3] & 0xff) << 24
+               | ((long) bytes[offset + 4] & 0xff) << 32
+               | ((long) bytes[offset + 5] & 0xff) << 40
+               | ((long) bytes[offset + 6] & 0xff) << 48
+               | ((long) bytes[offset + 7] & 0xff) << 56;
+    }
+
+    private static long getLong(ByteBuffer bytes, int offset)
+    {
+        return MurmurHash.getblock(bytes, offset, 0);
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value)
+    {
+        for (int i = 7; i >= 0; i--)
+        {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An unbounded {@link BlockingQueue} whose producers never block nor acquire a lock, unlike those of a
+ * {@link java.util.concurrent.LinkedBlockingQueue}, which all contend on the same lock with the consumers.
+ *
+ * The elements are held by a {@link ConcurrentLinkedQueue}, and the consumers waiting for an element are parked on a
+ * {@link WaitQueue}, which producers only signal when there are waiters. The size is maintained separately, as
+ * computing the size of a ConcurrentLinkedQueue requires traversing it, so it may briefly include the elements being
+ * added.
+ */
+public class LockFreeBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    private final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final WaitQueue hasElements = new WaitQueue();
+
+    public boolean offer(E e)
+    {
+        // counted first, so the size never goes negative when the element is polled right away
+        size.incrementAndGet();
+        queue.offer(e);
+        if (hasElements.hasWaiters())
+            hasElements.signal();
+        return true;
+    }
+
+    public void put(E e)
+    {
+        offer(e);
+    }
+
+    public boolean offer(E e, long timeout, TimeUnit unit)
+    {
+        return offer(e);
+    }
+
+    public E poll()
+    {
+        E e = queue.poll();
+        if (e != null)
+            size.decrementAndGet();
+        return e;
+    }
+
+    public E take() throws InterruptedException
+    {
+        E e;
+        while ((e = poll()) == null)
+        {
+            WaitQueue.Signal signal = hasElements.register();
+            if ((e = poll()) != null)
+            {
+                signal.cancel();
+                return e;
+            }
+            signal.await();
+        }
+        return e;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        while ((e = poll()) == null)
+        {
+            if (System.nanoTime() >= deadline)
+                return null;
+
+            WaitQueue.Signal signal = hasElements.register();
+            if ((e = poll()) != null)
+            {
+                signal.cancel();
+                return e;
+            }
+            signal.awaitUntil(deadline);
+        }
+        return e;
+    }
+
+    public E peek()
+    {
+        return queue.peek();
+    }
+
+    public int size()
+    {
+        return size.get();
+    }
+
+    public boolean isEmpty()
+    {
+        return queue.isEmpty();
+    }
+
+    public int remainingCapacity()
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        int drained = 0;
+        E e;
+        while (drained < maxElements && (e = poll()) != null)
+        {
+            c.add(e);
+            drained++;
+        }
+        return drained;
+    }
+
+    public void clear()
+    {
+        while (poll() != null)
+        {
+        }
+    }
+
+    public boolean remove(Object o)
+    {
+        if (!queue.remove(o))
+            return false;
+        size.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return a weakly consistent iterator over the elements of the queue, like those of
+     * {@link ConcurrentLinkedQueue}, whose removals are reflected in the size of the queue.
+     */
+    public Iterator<E> iterator()
+    {
+        Iterator<E> iterator = queue.iterator();
+        return new Iterator<E>()
+        {
+            private E last;
+
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            public E next()
+            {
+                return last = iterator.next();
+            }
+
+            public void remove()
+            {
+                if (last == null)
+                    throw new IllegalStateException();
+                // unlike the removals of the iterator, remove() doesn't remove an element polled concurrently
+                LockFreeBlockingQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+}
@@ -122,6 +122,19 @@ public abstract class MemoryUtil
             putIntByByte(address, l);
     }
 
+    /**
+     * Stores an int with release semantics. The address must be 4-byte aligned.
+     */
+    public static void setIntOrdered(long address, int l)
+    {
+        unsafe.putOrderedInt(null, address, l);
+    }
+
+    public static void setByteVolatile(long address, byte b)
+    {
+        unsafe.putByteVolatile(null, address, b);
+    }
+
     public static void setLong(long address, long l)
     {
         if (Architecture.IS_UNALIGNED)
@@ -145,6 +158,19 @@ public abstract class MemoryUtil
         return Architecture.IS_UNALIGNED ? unsafe.getInt(address) : getIntByByte(address);
     }
 
+    /**
+     * Reads an int with acquire semantics. The address must be 4-byte aligned.
+     */
+    public static int getIntVolatile(long address)
+    {
+        return unsafe.getIntVolatile(null, address);
+    }
+
+    public static byte getByteVolatile(long address)
+    {
+        return unsafe.getByteVolatile(null, address);
+    }
+
     public static long getLong(long address)
     {
         return Architecture.IS_UNALIGNED ? unsafe.getLong(address) : getLongByByte(address);
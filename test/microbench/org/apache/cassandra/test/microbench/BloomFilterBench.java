@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.test.microbench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.db.BufferDecoratedKey;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FilterFactory;
+import org.apache.cassandra.utils.IFilter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares lookups in classic Bloom filters, whose hashes are spread across the whole filter, against lookups in
+ * blocked ones, whose hashes all fall within one cache line. Filters of a few million keys don't fit in the CPU
+ * caches, like the filters of the many sstables a read may have to check.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class BloomFilterBench
+{
+    static final int count = 1 << 16;
+
+    @Param({ "false", "true" })
+    private boolean blocked;
+
+    @Param({ "0.1", "0.01" })
+    private double fpChance;
+
+    @Param({ "4000000" })
+    private int keys;
+
+    private IFilter filter;
+    private IFilter.FilterKey[] present;
+    private IFilter.FilterKey[] absent;
+    private int index;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+        filter = FilterFactory.getFilter(keys, fpChance, true, false, blocked);
+        present = new IFilter.FilterKey[count];
+        for (int i = 0; i < keys; i++)
+        {
+            IFilter.FilterKey key = key(random);
+            filter.add(key);
+            if (i < count)
+                present[i] = key;
+        }
+        absent = new IFilter.FilterKey[count];
+        for (int i = 0; i < count; i++)
+            absent[i] = key(random);
+    }
+
+    private static IFilter.FilterKey key(Random random)
+    {
+        return new BufferDecoratedKey(new Murmur3Partitioner.LongToken(0), ByteBufferUtil.bytes(random.nextLong()));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        filter.close();
+    }
+
+    @Benchmark
+    public boolean isPresentAbsentKey()
+    {
+        return filter.isPresent(absent[index++ & (count - 1)]);
+    }
+
+    @Benchmark
+    public boolean isPresentPresentKey()
+    {
+        return filter.isPresent(present[index++ & (count - 1)]);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.test.microbench;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.db.marshal.*;
+import org.apache.cassandra.utils.FastByteOperations;
+import org.apache.cassandra.utils.UUIDGen;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares values with their type against comparing their byte-comparable representations, for each type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class ComparableBytesBench
+{
+    static final int count = 1024;
+
+    @Param({ "int", "bigint", "double", "varint", "decimal", "uuid", "timeuuid", "text", "tuple", "composite", "reversed" })
+    private String type;
+
+    private AbstractType<?> comparator;
+    private ByteBuffer[] values;
+    private ByteBuffer[] comparableBytes;
+    private int index;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+        values = new ByteBuffer[count];
+        comparableBytes = new ByteBuffer[count];
+        for (int i = 0; i < count; i++)
+        {
+            values[i] = value(random);
+            comparableBytes[i] = comparator.asComparableBytes(values[i]);
+        }
+    }
+
+    private ByteBuffer value(Random random)
+    {
+        switch (type)
+        {
+            case "int":
+                comparator = Int32Type.instance;
+                return Int32Type.instance.decompose(random.nextInt());
+            case "bigint":
+                comparator = LongType.instance;
+                return LongType.instance.decompose(random.nextLong());
+            case "double":
+                comparator = DoubleType.instance;
+                return DoubleType.instance.decompose(random.nextGaussian());
+            case "varint":
+                comparator = IntegerType.instance;
+                return IntegerType.instance.decompose(BigInteger.valueOf(random.nextLong()).multiply(BigInteger.valueOf(random.nextInt())));
+            case "decimal":
+                comparator = DecimalType.instance;
+                return DecimalType.instance.decompose(BigDecimal.valueOf(random.nextLong(), random.nextInt(10)));
+            case "uuid":
+                comparator = UUIDType.instance;
+                return UUIDType.instance.decompose(UUID.randomUUID());
+            case "timeuuid":
+                comparator = TimeUUIDType.instance;
+                return TimeUUIDType.instance.decompose(UUIDGen.getTimeUUID(random.nextInt(1000000), 0, random.nextLong()));
+            case "text":
+                comparator = UTF8Type.instance;
+                return UTF8Type.instance.decompose("prefix" + random.nextInt(1000));
+            case "tuple":
+                TupleType tuple = new TupleType(Arrays.asList(Int32Type.instance, UTF8Type.instance));
+                comparator = tuple;
+                return TupleType.buildValue(new ByteBuffer[]{ Int32Type.instance.decompose(random.nextInt(10)),
+                                                              UTF8Type.instance.decompose("v" + random.nextInt(100)) });
+            case "composite":
+                comparator = CompositeType.getInstance(LongType.instance, UTF8Type.instance);
+                return CompositeType.build(LongType.instance.decompose((long) random.nextInt(10)),
+                                           UTF8Type.instance.decompose("v" + random.nextInt(100)));
+            case "reversed":
+                comparator = ReversedType.getInstance(TimestampType.instance);
+                return TimestampType.instance.decompose(new Date(random.nextLong()));
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    private int next()
+    {
+        return index++ & (count - 1);
+    }
+
+    @Benchmark
+    public int compareValues()
+    {
+        int i = next();
+        return comparator.compare(values[i], values[(i + 1) & (count - 1)]);
+    }
+
+    @Benchmark
+    public int compareComparableBytes()
+    {
+        int i = next();
+        return FastByteOperations.compareUnsigned(comparableBytes[i], comparableBytes[(i + 1) & (count - 1)]);
+    }
+
+    @Benchmark
+    public ByteBuffer encode()
+    {
+        return comparator.asComparableBytes(values[next()]);
+    }
+}
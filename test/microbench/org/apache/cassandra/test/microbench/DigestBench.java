@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.test.microbench;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.utils.FBUtilities;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the digests used for read responses: MD5, and the non-cryptographic Murmur3 digest used from
+ * MessagingService.VERSION_311, for large values and for the many small updates of a partition digest.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class DigestBench
+{
+    @Param({ "MD5", "Murmur3" })
+    private String digest;
+
+    @Param({ "16", "1024", "65536" })
+    private int size;
+
+    private ByteBuffer value;
+    private ByteBuffer directValue;
+
+    @Setup
+    public void setup()
+    {
+        byte[] bytes = new byte[size];
+        new Random(0).nextBytes(bytes);
+        value = ByteBuffer.wrap(bytes);
+        directValue = ByteBuffer.allocateDirect(size);
+        directValue.put(bytes).flip();
+    }
+
+    private MessageDigest digest()
+    {
+        return digest.equals("MD5") ? FBUtilities.threadLocalMD5Digest() : FBUtilities.threadLocalMurmur3Digest();
+    }
+
+    @Benchmark
+    public byte[] digestValue()
+    {
+        MessageDigest digest = digest();
+        digest.update(value.duplicate());
+        return digest.digest();
+    }
+
+    @Benchmark
+    public byte[] digestDirectValue()
+    {
+        MessageDigest digest = digest();
+        digest.update(directValue.duplicate());
+        return digest.digest();
+    }
+
+    // like the digest of cells, which interleaves small fixed-size fields with the values
+    @Benchmark
+    public byte[] digestCells()
+    {
+        MessageDigest digest = digest();
+        ByteBuffer value = this.value.duplicate();
+        for (int i = 0; i + 8 <= value.limit(); i += 8)
+        {
+            FBUtilities.updateWithLong(digest, i);
+            FBUtilities.updateWithInt(digest, i);
+            FBUtilities.updateWithByte(digest, 0);
+            digest.update(value.array(), i, 8);
+        }
+        return digest.digest();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.test.microbench;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.cql3.QueryProcessor;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
+import org.apache.cassandra.cql3.statements.SelectStatement;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.ReadQuery;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.service.QueryState;
+import org.apache.cassandra.transport.messages.ResultMessage;
+import org.apache.cassandra.utils.FBUtilities;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Executes statements prepared once with new bound values, the way clients use prepared statements.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class PreparedStatementBench
+{
+    static final String keyspace = "prepared_bench";
+    static final int partitions = 1000;
+
+    private SelectStatement selectPartition;
+    private SelectStatement selectRow;
+    private ModificationStatement insert;
+    private QueryState state;
+    private int counter;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(keyspace,
+                                    KeyspaceParams.simple(1),
+                                    CFMetaData.compile("CREATE TABLE tbl (pk int, ck int, v text, PRIMARY KEY (pk, ck))", keyspace));
+
+        state = QueryState.forInternalCalls();
+        selectPartition = (SelectStatement) prepare("SELECT * FROM %s.tbl WHERE pk = ?");
+        selectRow = (SelectStatement) prepare("SELECT v FROM %s.tbl WHERE pk = ? AND ck = ?");
+        insert = (ModificationStatement) prepare("INSERT INTO %s.tbl (pk, ck, v) VALUES (?, ?, ?)");
+
+        for (int i = 0; i < partitions; i++)
+            insert.executeInternal(state, options(i, 0, "value" + i));
+    }
+
+    private Object prepare(String query)
+    {
+        return QueryProcessor.parseStatement(String.format(query, keyspace), state).statement;
+    }
+
+    private static QueryOptions options(Object... values)
+    {
+        ByteBuffer[] buffers = new ByteBuffer[values.length];
+        for (int i = 0; i < values.length; i++)
+            buffers[i] = values[i] instanceof Integer ? Int32Type.instance.decompose((Integer) values[i])
+                                                      : UTF8Type.instance.decompose((String) values[i]);
+        return QueryOptions.forInternalCalls(ConsistencyLevel.ONE, Arrays.asList(buffers));
+    }
+
+    private int nextKey()
+    {
+        return counter++ % partitions;
+    }
+
+    @Benchmark
+    public ReadQuery bindPartitionSelect()
+    {
+        return selectPartition.getQuery(options(nextKey()), FBUtilities.nowInSeconds());
+    }
+
+    @Benchmark
+    public ReadQuery bindRowSelect()
+    {
+        return selectRow.getQuery(options(nextKey(), 0), FBUtilities.nowInSeconds());
+    }
+
+    @Benchmark
+    public ResultMessage executeRowSelect()
+    {
+        return selectRow.executeInternal(state, options(nextKey(), 0));
+    }
+
+    @Benchmark
+    public ResultMessage executeInsert()
+    {
+        return insert.executeInternal(state, options(nextKey(), 1, "value"));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.util.Arrays;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.RandomAccessReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkCacheTest extends CQLTester
+{
+    @Before
+    public void checkEnabled()
+    {
+        Assume.assumeTrue(ChunkCache.instance != null);
+    }
+
+    @BeforeClass
+    public static void disableReadAhead()
+    {
+        // the scans that read ahead don't use the cache at all
+        DatabaseDescriptor.setScanReadAheadChunks(0);
+    }
+
+    private ColumnFamilyStore createAndFlush(int sstables) throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int, ck int, v text, PRIMARY KEY (pk, ck))");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        cfs.disableAutoCompaction();
+        for (int i = 0; i < sstables; i++)
+        {
+            for (int pk = 0; pk < 20; pk++)
+                for (int ck = 0; ck < 50; ck++)
+                    execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", pk, ck, "value " + pk + ':' + ck + ':' + i);
+            cfs.forceBlockingFlush();
+        }
+        return cfs;
+    }
+
+    private static ChunkCache.TableStats stats(ColumnFamilyStore cfs)
+    {
+        return ChunkCache.instance.tableStats(cfs.metadata.ksName, cfs.metadata.cfName);
+    }
+
+    @Test
+    public void testCompactionDoesNotAdmitChunks() throws Throwable
+    {
+        ColumnFamilyStore cfs = createAndFlush(3);
+        assertEquals(0, stats(cfs).size());
+
+        long scanRequests = ChunkCache.instance.metrics.scanRequests.getCount();
+        cfs.forceMajorCompaction();
+        assertEquals(1, cfs.getLiveSSTables().size());
+        assertTrue(ChunkCache.instance.metrics.scanRequests.getCount() > scanRequests);
+        assertEquals(0, stats(cfs).size());
+        assertEquals(0L, (long) cfs.metric.chunkCacheSize.getValue());
+
+        // the regular reads are cached
+        assertRowCount(execute("SELECT * FROM %s WHERE pk = 1"), 50);
+        long size = stats(cfs).size();
+        assertTrue(size > 0);
+        assertEquals(size, (long) cfs.metric.chunkCacheSize.getValue());
+
+        long requests = stats(cfs).requests.getCount();
+        long misses = stats(cfs).misses.getCount();
+        assertRowCount(execute("SELECT * FROM %s WHERE pk = 1"), 50);
+        assertTrue(stats(cfs).requests.getCount() > requests);
+        assertEquals(misses, stats(cfs).misses.getCount());
+        assertTrue(cfs.metric.chunkCacheHitRate.getValue() > 0);
+
+        // and are used by the scans, without being evicted by them
+        scanRequests = ChunkCache.instance.metrics.scanRequests.getCount();
+        long scanMisses = ChunkCache.instance.metrics.scanMisses.getCount();
+        cfs.forceMajorCompaction();
+        assertTrue(ChunkCache.instance.metrics.scanMisses.getCount() - scanMisses < ChunkCache.instance.metrics.scanRequests.getCount() - scanRequests);
+    }
+
+    @Test
+    public void testScanReader() throws Throwable
+    {
+        ColumnFamilyStore cfs = createAndFlush(1);
+        SSTableReader sstable = cfs.getLiveSSTables().iterator().next();
+
+        byte[] scanned = new byte[(int) sstable.uncompressedLength()];
+        try (RandomAccessReader reader = sstable.openDataScanReader(null))
+        {
+            reader.readFully(scanned);
+        }
+        assertEquals(0, stats(cfs).size());
+
+        byte[] read = new byte[scanned.length];
+        try (RandomAccessReader reader = sstable.openDataReader())
+        {
+            reader.readFully(read);
+        }
+        assertTrue(stats(cfs).size() > 0);
+
+        // the cached chunks and the ones read by the scan have the same content
+        try (RandomAccessReader reader = sstable.openDataScanReader(null))
+        {
+            reader.readFully(scanned);
+        }
+        assertTrue(Arrays.equals(read, scanned));
+    }
+}
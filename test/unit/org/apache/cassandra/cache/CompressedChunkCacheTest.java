@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.FileHandle;
+import org.apache.cassandra.io.util.RandomAccessReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedChunkCacheTest extends CQLTester
+{
+    private static final CompressedChunkCache cache = CompressedChunkCache.instance == null
+                                                      ? new CompressedChunkCache(1 << 20)
+                                                      : CompressedChunkCache.instance;
+
+    @Before
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    private SSTableReader createAndFlush() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int, ck int, v text, PRIMARY KEY (pk, ck)) WITH compression = {'class': 'LZ4Compressor', 'chunk_length_in_kb': '4'}");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        for (int pk = 0; pk < 20; pk++)
+            for (int ck = 0; ck < 50; ck++)
+                execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", pk, ck, "value " + pk + ':' + ck);
+        cfs.forceBlockingFlush();
+        return cfs.getLiveSSTables().iterator().next();
+    }
+
+    private FileHandle open(SSTableReader sstable)
+    {
+        try (FileHandle.Builder builder = new FileHandle.Builder(sstable.getFilename()).compressed(true)
+                                                                                      .mmapped(false)
+                                                                                      .withCompressedChunkCache(cache))
+        {
+            return builder.complete();
+        }
+    }
+
+    private static byte[] read(RandomAccessReader reader) throws Exception
+    {
+        try (RandomAccessReader r = reader)
+        {
+            byte[] bytes = new byte[(int) r.length()];
+            r.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    @Test
+    public void testReads() throws Throwable
+    {
+        SSTableReader sstable = createAndFlush();
+        byte[] expected = read(sstable.openDataReader());
+
+        try (FileHandle handle = open(sstable))
+        {
+            assertTrue(Arrays.equals(expected, read(handle.createReader())));
+            assertTrue(cache.size() > 1);
+            assertEquals(cache.metrics.misses.getCount(), cache.metrics.requests.getCount());
+            assertTrue(cache.weightedSize() < sstable.uncompressedLength());
+
+            // the second read is served by the cache
+            long misses = cache.metrics.misses.getCount();
+            assertTrue(Arrays.equals(expected, read(handle.createReader())));
+            assertEquals(misses, cache.metrics.misses.getCount());
+            assertTrue(cache.metrics.requests.getCount() > misses);
+        }
+
+        // the chunks of the file are invalidated once it is closed
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testScansAreNotCached() throws Throwable
+    {
+        SSTableReader sstable = createAndFlush();
+        byte[] expected = read(sstable.openDataReader());
+
+        try (FileHandle handle = open(sstable))
+        {
+            assertTrue(Arrays.equals(expected, read(handle.createScanReader(null))));
+            assertEquals(0, cache.size());
+
+            // but use the cached chunks
+            read(handle.createReader());
+            long misses = cache.metrics.misses.getCount();
+            assertTrue(Arrays.equals(expected, read(handle.createScanReader(null))));
+            assertEquals(misses, cache.metrics.misses.getCount());
+        }
+    }
+}
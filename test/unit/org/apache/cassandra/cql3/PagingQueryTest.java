@@ -23,6 +23,8 @@ import java.util.concurrent.ThreadLocalRandom;
 
 import org.junit.Test;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
+
 import com.datastax.driver.core.*;
 import com.datastax.driver.core.ResultSet;
 
@@ -101,6 +103,47 @@ public class PagingQueryTest extends CQLTester
         }
     }
 
+    @Test
+    public void pagingWithEncodedRows() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v text, s set<int>, PRIMARY KEY (k, c))");
+
+        for (int k = 0; k < 3; k++)
+            for (int c = 0; c < 100; c++)
+                execute("INSERT INTO %s (k, c, v, s) VALUES (?, ?, ?, ?)", k, c, c % 10 == 0 ? null : Integer.toString(c), set(k, c));
+
+        int minRows = DatabaseDescriptor.getNativeTransportStreamResultsMinRows();
+        DatabaseDescriptor.setNativeTransportStreamResultsMinRows(10);
+        try
+        {
+            Session session = sessionNet();
+            for (int fetchSize : new int[]{ 5, 42, 1000 })
+            {
+                SimpleStatement stmt = new SimpleStatement("SELECT k, c, v, s FROM " + KEYSPACE + '.' + currentTable() + " WHERE k IN (0, 1, 2)");
+                stmt.setFetchSize(fetchSize);
+                Iterator<Row> iter = session.execute(stmt).iterator();
+                for (int k = 0; k < 3; k++)
+                {
+                    for (int c = 0; c < 100; c++)
+                    {
+                        assertTrue(iter.hasNext());
+                        Row row = iter.next();
+                        String msg = "With fetch size " + fetchSize + " on " + k + ',' + c;
+                        assertEquals(msg, k, row.getInt(0));
+                        assertEquals(msg, c, row.getInt(1));
+                        assertEquals(msg, c % 10 == 0 ? null : Integer.toString(c), row.getString(2));
+                        assertEquals(msg, set(k, c), row.getSet(3, Integer.class));
+                    }
+                }
+                assertFalse(iter.hasNext());
+            }
+        }
+        finally
+        {
+            DatabaseDescriptor.setNativeTransportStreamResultsMinRows(minRows);
+        }
+    }
+
     private static String someText()
     {
         char[] arr = new char[1024];
@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.db;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import org.junit.After;
@@ -34,8 +35,12 @@ import org.apache.cassandra.db.partitions.UnfilteredPartitionIterator;
 import org.apache.cassandra.db.marshal.AsciiType;
 import org.apache.cassandra.dht.ByteOrderedPartitioner;
 import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.Murmur3Digest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class ReadResponseTest extends CQLTester
 {
@@ -77,6 +82,47 @@ public class ReadResponseTest extends CQLTester
         assertPartitions(response.makeIterator(Util.cmd(cfs).fromKeyIncl("k1").toKeyExcl("k4").build()), "k1", "k2", "k3");
     }
 
+    @Test
+    public void testDigestVersion() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k text PRIMARY KEY, v int)");
+        execute("INSERT INTO %s (k, v) VALUES (?, ?)", "k1", 1);
+
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        ReadCommand command = Util.cmd(cfs, "k1").build();
+
+        assertTrue(ReadResponse.newDigest(MessagingService.current_version) instanceof Murmur3Digest);
+        assertEquals("MD5", ReadResponse.newDigest(MessagingService.VERSION_30).getAlgorithm());
+
+        // the digest of a data response must match the digest response of a replica for the same digest version
+        ByteBuffer legacyDigest = digest(command.setDigestVersion(MessagingService.VERSION_30));
+        assertEquals(16, legacyDigest.remaining());
+        ByteBuffer digest = digest(command.setDigestVersion(MessagingService.current_version));
+        assertEquals(16, digest.remaining());
+        assertFalse(legacyDigest.equals(digest));
+    }
+
+    private static ByteBuffer digest(ReadCommand command)
+    {
+        ByteBuffer digest;
+        try (ReadExecutionController controller = command.executionController();
+             UnfilteredPartitionIterator iterator = command.executeLocally(controller))
+        {
+            digest = ReadResponse.createDigestResponse(iterator, command).digest(command);
+        }
+        try (ReadExecutionController controller = command.executionController();
+             UnfilteredPartitionIterator iterator = command.executeLocally(controller))
+        {
+            assertEquals(digest, ReadResponse.createDataResponse(iterator, command).digest(command));
+        }
+        try (ReadExecutionController controller = command.executionController();
+             UnfilteredPartitionIterator iterator = command.executeLocally(controller))
+        {
+            assertEquals(digest, ReadResponse.createRemoteDataResponse(iterator, command).digest(command));
+        }
+        return digest;
+    }
+
     private void assertPartitions(UnfilteredPartitionIterator actual, String... expectedKeys)
     {
         int i = 0;
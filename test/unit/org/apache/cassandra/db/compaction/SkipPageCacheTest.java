@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.io.util.SequentialWriter;
+import org.apache.cassandra.io.util.SequentialWriterOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SkipPageCacheTest extends CQLTester
+{
+    @After
+    public void resetOperations()
+    {
+        DatabaseDescriptor.setSkipPageCacheOperations(Collections.emptySet());
+    }
+
+    @Test
+    public void testWriter() throws Exception
+    {
+        File file = File.createTempFile("skippagecache", "data");
+        file.deleteOnExit();
+        SequentialWriterOption option = SequentialWriterOption.newBuilder()
+                                                              .bufferSize(4096)
+                                                              .trickleFsyncByteInterval(16 * 1024)
+                                                              .skipPageCache(true)
+                                                              .build();
+        assertTrue(option.skipPageCache());
+        assertFalse(SequentialWriterOption.DEFAULT.skipPageCache());
+
+        try (SequentialWriter writer = new SequentialWriter(file, option))
+        {
+            for (int i = 0; i < 64 * 1024; i++)
+                writer.writeInt(i);
+            writer.finish();
+        }
+
+        // the data dropped from the page cache is read back from disk
+        assertEquals(256 * 1024, file.length());
+        try (RandomAccessReader reader = RandomAccessReader.open(file))
+        {
+            for (int i = 0; i < 64 * 1024; i++)
+                assertEquals(i, reader.readInt());
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Throwable
+    {
+        DatabaseDescriptor.setSkipPageCacheOperations(EnumSet.of(OperationType.COMPACTION, OperationType.VALIDATION));
+        assertTrue(DatabaseDescriptor.skipPageCache(OperationType.COMPACTION));
+        assertFalse(DatabaseDescriptor.skipPageCache(OperationType.FLUSH));
+
+        createTable("CREATE TABLE %s (pk int, ck int, v text, PRIMARY KEY (pk, ck))");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        cfs.disableAutoCompaction();
+        for (int i = 0; i < 3; i++)
+        {
+            for (int pk = 0; pk < 10; pk++)
+                for (int ck = 0; ck < 100; ck++)
+                    execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", pk, ck, "value " + i);
+            cfs.forceBlockingFlush();
+        }
+
+        cfs.forceMajorCompaction();
+        assertEquals(1, cfs.getLiveSSTables().size());
+        assertRowCount(execute("SELECT * FROM %s"), 1000);
+        assertRows(execute("SELECT v FROM %s WHERE pk = 1 AND ck = 1"), row("value 2"));
+
+        // the pages the scans drop are read back from disk
+        SSTableReader sstable = cfs.getLiveSSTables().iterator().next();
+        sstable.dropPageCache(sstable.uncompressedLength(), sstable.getIndexFile().dataLength());
+        assertRowCount(execute("SELECT * FROM %s"), 1000);
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.marshal;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FastByteOperations;
+import org.apache.cassandra.utils.UUIDGen;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that comparing the byte-comparable representations of values gives the same result as comparing the
+ * values with their type.
+ */
+public class ComparableBytesTest
+{
+    private static final int RANDOM_VALUES = 200;
+
+    private final Random random = new Random();
+
+    @Test
+    public void testFixedLengthNumbers()
+    {
+        check(Int32Type.instance, random(() -> Int32Type.instance.decompose(random.nextInt()),
+                                         Int32Type.instance.decompose(0),
+                                         Int32Type.instance.decompose(-1),
+                                         Int32Type.instance.decompose(Integer.MIN_VALUE),
+                                         Int32Type.instance.decompose(Integer.MAX_VALUE),
+                                         ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(LongType.instance, random(() -> LongType.instance.decompose(random.nextLong()),
+                                        LongType.instance.decompose(0L),
+                                        LongType.instance.decompose(Long.MIN_VALUE),
+                                        LongType.instance.decompose(Long.MAX_VALUE),
+                                        ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(ShortType.instance, random(() -> ShortType.instance.decompose((short) random.nextInt()),
+                                         ShortType.instance.decompose(Short.MIN_VALUE),
+                                         ShortType.instance.decompose(Short.MAX_VALUE)));
+        check(ByteType.instance, random(() -> ByteType.instance.decompose((byte) random.nextInt()),
+                                        ByteType.instance.decompose(Byte.MIN_VALUE),
+                                        ByteType.instance.decompose(Byte.MAX_VALUE)));
+        check(TimestampType.instance, random(() -> TimestampType.instance.decompose(new Date(random.nextLong())),
+                                             ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(BooleanType.instance, Arrays.asList(BooleanType.instance.decompose(true),
+                                                  BooleanType.instance.decompose(false),
+                                                  ByteBuffer.wrap(new byte[]{ 2 }),
+                                                  ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testFloatingPoint()
+    {
+        check(FloatType.instance, random(() -> FloatType.instance.decompose((random.nextFloat() - 0.5f) * random.nextInt()),
+                                         FloatType.instance.decompose(0f),
+                                         FloatType.instance.decompose(-0f),
+                                         FloatType.instance.decompose(Float.NaN),
+                                         ByteBufferUtil.bytes(0x7fc00001), // another NaN
+                                         FloatType.instance.decompose(Float.MIN_VALUE),
+                                         FloatType.instance.decompose(Float.NEGATIVE_INFINITY),
+                                         FloatType.instance.decompose(Float.POSITIVE_INFINITY),
+                                         ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(DoubleType.instance, random(() -> DoubleType.instance.decompose((random.nextDouble() - 0.5) * random.nextLong()),
+                                          DoubleType.instance.decompose(0d),
+                                          DoubleType.instance.decompose(-0d),
+                                          DoubleType.instance.decompose(Double.NaN),
+                                          DoubleType.instance.decompose(-Double.MIN_VALUE),
+                                          DoubleType.instance.decompose(Double.NEGATIVE_INFINITY),
+                                          DoubleType.instance.decompose(Double.POSITIVE_INFINITY),
+                                          ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testVariableLengthNumbers()
+    {
+        check(IntegerType.instance, random(() -> IntegerType.instance.decompose(new BigInteger(random.nextInt(100), random).subtract(BigInteger.ONE.shiftLeft(random.nextInt(100)))),
+                                           IntegerType.instance.decompose(BigInteger.ZERO),
+                                           ByteBuffer.wrap(new byte[]{ 0, 0, 5 }),
+                                           ByteBuffer.wrap(new byte[]{ -1, -1, -5 }),
+                                           ByteBuffer.wrap(new byte[]{ 0, -128 }),
+                                           ByteBuffer.wrap(new byte[]{ -1, 127 }),
+                                           ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(DecimalType.instance, random(() -> DecimalType.instance.decompose(new BigDecimal(BigInteger.valueOf(random.nextInt()).multiply(BigInteger.TEN.pow(random.nextInt(3))),
+                                                                                                random.nextInt(20) - 10)),
+                                           DecimalType.instance.decompose(BigDecimal.ZERO),
+                                           DecimalType.instance.decompose(new BigDecimal("0.000")),
+                                           DecimalType.instance.decompose(new BigDecimal("1.0")),
+                                           DecimalType.instance.decompose(new BigDecimal("1.00")),
+                                           DecimalType.instance.decompose(new BigDecimal("-10")),
+                                           DecimalType.instance.decompose(new BigDecimal("-1E1")),
+                                           ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testUUIDs()
+    {
+        check(UUIDType.instance, random(() -> random.nextBoolean() ? UUIDType.instance.decompose(UUID.randomUUID())
+                                                                   : UUIDType.instance.decompose(UUIDGen.getTimeUUID(random.nextLong() >>> 20, random.nextInt(10000), random.nextLong())),
+                                        ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(TimeUUIDType.instance, random(() -> TimeUUIDType.instance.decompose(UUIDGen.getTimeUUID(random.nextInt(10) * 1000L, random.nextInt(10), random.nextLong())),
+                                            ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(LexicalUUIDType.instance, random(() -> LexicalUUIDType.instance.decompose(new UUID(random.nextLong(), random.nextLong())),
+                                               ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testByteOrdered() throws UnknownHostException
+    {
+        check(BytesType.instance, random(() -> randomBytes(6),
+                                         ByteBuffer.wrap(new byte[]{ 0 }),
+                                         ByteBuffer.wrap(new byte[]{ 0, 0 }),
+                                         ByteBuffer.wrap(new byte[]{ 0, -1 }),
+                                         ByteBuffer.wrap(new byte[]{ -1, 0 }),
+                                         ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(UTF8Type.instance, random(() -> UTF8Type.instance.decompose(Integer.toString(random.nextInt(1000), 36)),
+                                        UTF8Type.instance.decompose("\u0000"),
+                                        UTF8Type.instance.decompose("a\u0000b")));
+        check(InetAddressType.instance, Arrays.asList(InetAddressType.instance.decompose(InetAddress.getByName("127.0.0.1")),
+                                                      InetAddressType.instance.decompose(InetAddress.getByName("10.0.0.1")),
+                                                      InetAddressType.instance.decompose(InetAddress.getByName("::1")),
+                                                      InetAddressType.instance.decompose(InetAddress.getByName("fe80::1")),
+                                                      ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(EmptyType.instance, Arrays.asList(ByteBufferUtil.EMPTY_BYTE_BUFFER, ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testReversed()
+    {
+        check(ReversedType.getInstance(Int32Type.instance), random(() -> Int32Type.instance.decompose(random.nextInt()),
+                                                                   ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        check(ReversedType.getInstance(UTF8Type.instance), random(() -> UTF8Type.instance.decompose(Integer.toString(random.nextInt(1000), 36)),
+                                                                  ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testCollections()
+    {
+        ListType<Integer> listType = ListType.getInstance(Int32Type.instance, false);
+        check(listType, random(() -> listType.decompose(randomInts(4)),
+                               listType.decompose(new ArrayList<>()),
+                               ByteBufferUtil.EMPTY_BYTE_BUFFER));
+
+        SetType<String> setType = SetType.getInstance(UTF8Type.instance, false);
+        check(setType, random(() -> {
+                                  Set<String> set = new HashSet<>();
+                                  for (Integer i : randomInts(3))
+                                      set.add(Integer.toString(i & 7));
+                                  return setType.decompose(set);
+                              },
+                              ByteBufferUtil.EMPTY_BYTE_BUFFER));
+
+        MapType<Integer, String> mapType = MapType.getInstance(Int32Type.instance, UTF8Type.instance, false);
+        check(mapType, random(() -> {
+                                  Map<Integer, String> map = new HashMap<>();
+                                  for (Integer i : randomInts(3))
+                                      map.put(i & 3, Integer.toString(i & 1));
+                                  return mapType.decompose(map);
+                              },
+                              ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testTuples()
+    {
+        TupleType tupleType = new TupleType(Arrays.asList(Int32Type.instance, UTF8Type.instance, ReversedType.getInstance(LongType.instance)));
+        check(tupleType, random(() -> {
+                                    int size = 1 + random.nextInt(3);
+                                    ByteBuffer[] components = new ByteBuffer[size];
+                                    components[0] = random.nextInt(4) == 0 ? null : Int32Type.instance.decompose(random.nextInt(3));
+                                    if (size > 1)
+                                        components[1] = random.nextInt(4) == 0 ? null : UTF8Type.instance.decompose(Integer.toString(random.nextInt(3)));
+                                    if (size > 2)
+                                        components[2] = random.nextInt(4) == 0 ? null : LongType.instance.decompose((long) random.nextInt(3));
+                                    return TupleType.buildValue(components);
+                                },
+                                ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testComposites()
+    {
+        CompositeType compositeType = CompositeType.getInstance(UTF8Type.instance, Int32Type.instance);
+        check(compositeType, random(() -> {
+                                        ByteBuffer[] components = new ByteBuffer[1 + random.nextInt(2)];
+                                        components[0] = UTF8Type.instance.decompose(Integer.toString(random.nextInt(3)));
+                                        if (components.length > 1)
+                                            components[1] = Int32Type.instance.decompose(random.nextInt(3) - 1);
+                                        ByteBuffer value = CompositeType.build(random.nextInt(8) == 0, components);
+                                        // randomize the end-of-component byte of the last component
+                                        value.put(value.limit() - 1, (byte) (random.nextInt(3) - 1));
+                                        return value;
+                                    },
+                                    ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    private ByteBuffer randomBytes(int maxLength)
+    {
+        byte[] bytes = new byte[random.nextInt(maxLength)];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) (random.nextInt(3) - 1);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private List<Integer> randomInts(int maxSize)
+    {
+        List<Integer> ints = new ArrayList<>();
+        for (int i = random.nextInt(maxSize + 1); i > 0; i--)
+            ints.add(random.nextInt(5) - 2);
+        return ints;
+    }
+
+    private static List<ByteBuffer> random(Supplier<ByteBuffer> generator, ByteBuffer... values)
+    {
+        List<ByteBuffer> all = new ArrayList<>(Arrays.asList(values));
+        for (int i = 0; i < RANDOM_VALUES; i++)
+            all.add(generator.get());
+        return all;
+    }
+
+    private static void check(AbstractType<?> type, List<ByteBuffer> values)
+    {
+        List<ByteBuffer> encoded = new ArrayList<>(values.size());
+        for (ByteBuffer value : values)
+            encoded.add(type.asComparableBytes(value));
+
+        for (int i = 0; i < values.size(); i++)
+        {
+            for (int j = 0; j < values.size(); j++)
+            {
+                int expected = Integer.signum(type.compare(values.get(i), values.get(j)));
+                int actual = Integer.signum(FastByteOperations.compareUnsigned(encoded.get(i), encoded.get(j)));
+                assertEquals(String.format("%s: comparing %s and %s", type,
+                                           ByteBufferUtil.bytesToHex(values.get(i)), ByteBufferUtil.bytesToHex(values.get(j))),
+                             expected, actual);
+            }
+        }
+    }
+}
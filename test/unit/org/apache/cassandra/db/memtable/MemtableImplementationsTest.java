@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.memtable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.UntypedResultSet;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Memtable;
+import org.apache.cassandra.db.PartitionPosition;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MemtableImplementationsTest extends CQLTester
+{
+    private static final String[] MEMTABLES = { "{'class': 'SkipListMemtable'}",
+                                                "{'class': 'TrieMemtable'}",
+                                                "{'class': 'HashMemtable'}",
+                                                "{'class': 'ShardedSkipListMemtable', 'shards': '4'}",
+                                                "{'class': 'ShardedSkipListMemtable', 'shards': '1'}" };
+
+    @Test
+    public void testReadsAndFlush() throws Throwable
+    {
+        for (String memtable : MEMTABLES)
+        {
+            createTable("CREATE TABLE %s (pk int, ck int, v int, PRIMARY KEY (pk, ck)) WITH memtable = " + memtable);
+            ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+
+            for (int pk = 0; pk < 100; pk++)
+                for (int ck = 0; ck < 5; ck++)
+                    execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", pk, ck, pk + ck);
+
+            Memtable current = cfs.getTracker().getView().getCurrentMemtable();
+            assertEquals(memtable, 100, current.partitionCount());
+            checkReads(memtable);
+
+            cfs.forceBlockingFlush();
+            assertTrue(memtable, cfs.getTracker().getView().getCurrentMemtable().isClean());
+            checkReads(memtable);
+        }
+    }
+
+    private void checkReads(String memtable) throws Throwable
+    {
+        assertRows(execute("SELECT v FROM %s WHERE pk = ? AND ck = ?", 42, 3), row(45));
+        assertEmpty(execute("SELECT v FROM %s WHERE pk = ?", 100));
+
+        // partitions are returned in token order
+        List<Token> tokens = new ArrayList<>();
+        for (UntypedResultSet.Row row : execute("SELECT DISTINCT pk FROM %s"))
+            tokens.add(token(row.getInt("pk")));
+        assertEquals(memtable, 100, tokens.size());
+        for (int i = 1; i < tokens.size(); i++)
+            assertTrue(memtable, tokens.get(i - 1).compareTo(tokens.get(i)) < 0);
+
+        for (int i = 0; i < 100; i += 10)
+        {
+            Token token = token(i);
+            int after = 0;
+            for (Token t : tokens)
+                after += t.compareTo(token) > 0 ? 1 : 0;
+            assertRowCount(execute("SELECT * FROM %s WHERE token(pk) > token(?)", i), 5 * after);
+            assertRowCount(execute("SELECT * FROM %s WHERE token(pk) <= token(?)", i), 5 * (100 - after));
+        }
+    }
+
+    private static Token token(int key)
+    {
+        return Murmur3Partitioner.instance.getToken(ByteBufferUtil.bytes(key));
+    }
+
+    @Test
+    public void testShardCount() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int) WITH memtable = {'class': 'ShardedSkipListMemtable', 'shards': '8'}");
+        Memtable current = getCurrentColumnFamilyStore().getTracker().getView().getCurrentMemtable();
+        assertEquals(8, ((ShardedSkipListMemtable) current).shardCount());
+    }
+
+    @Test
+    public void testShardedFlushAndMetrics() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int) WITH memtable = {'class': 'ShardedSkipListMemtable', 'shards': '4'}");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        cfs.disableAutoCompaction();
+        for (int pk = 0; pk < 1000; pk++)
+            execute("INSERT INTO %s (pk, v) VALUES (?, ?)", pk, pk);
+
+        Memtable memtable = cfs.getTracker().getView().getCurrentMemtable();
+        assertEquals(4, (int) cfs.metric.memtableShardCount.getValue());
+        long[] partitions = cfs.metric.memtableShardPartitionCounts.getValue();
+        long[] onHeap = cfs.metric.memtableShardOnHeapSizes.getValue();
+        assertEquals(4, partitions.length);
+        long total = 0, totalOnHeap = 0;
+        for (int i = 0; i < 4; i++)
+        {
+            // the shards split the tokens evenly, and get about the same number of partitions
+            assertTrue(partitions[i] > 100);
+            assertTrue(onHeap[i] > 0);
+            total += partitions[i];
+            totalOnHeap += onHeap[i];
+        }
+        assertEquals(1000, total);
+        assertTrue(memtable.getOnHeapOwns() >= totalOnHeap);
+
+        // every shard is flushed to its own sstable, covering only the shard range
+        List<PartitionPosition> boundaries = memtable.shardBoundaries();
+        assertEquals(3, boundaries.size());
+        cfs.forceBlockingFlush();
+        assertEquals(4, cfs.getLiveSSTables().size());
+        for (SSTableReader sstable : cfs.getLiveSSTables())
+        {
+            int shard = 0;
+            while (shard < boundaries.size() && boundaries.get(shard).compareTo(sstable.first) < 0)
+                shard++;
+            if (shard < boundaries.size())
+                assertTrue(sstable.last.compareTo(boundaries.get(shard)) < 0);
+        }
+        assertRowCount(execute("SELECT * FROM %s"), 1000);
+        assertEquals(0L, memtable.getOnHeapOwns());
+    }
+
+    @Test
+    public void testInvalidOptions() throws Throwable
+    {
+        assertInvalidThrow(ConfigurationException.class, "CREATE TABLE " + KEYSPACE + ".invalid (pk int PRIMARY KEY) WITH memtable = {'class': 'ShardedSkipListMemtable', 'shards': '0'}");
+        assertInvalidThrow(ConfigurationException.class, "CREATE TABLE " + KEYSPACE + ".invalid (pk int PRIMARY KEY) WITH memtable = {'class': 'ShardedSkipListMemtable', 'shards': 'many'}");
+        assertInvalidThrow(ConfigurationException.class, "CREATE TABLE " + KEYSPACE + ".invalid (pk int PRIMARY KEY) WITH memtable = {'class': 'HashMemtable', 'shards': '2'}");
+        assertInvalidThrow(ConfigurationException.class, "CREATE TABLE " + KEYSPACE + ".invalid (pk int PRIMARY KEY) WITH memtable = {'class': 'org.apache.cassandra.db.ColumnFamilyStore'}");
+    }
+
+    @Test
+    public void testAlter() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int) WITH memtable = {'class': 'HashMemtable'}");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        execute("INSERT INTO %s (pk, v) VALUES (1, 1)");
+        assertTrue(cfs.getTracker().getView().getCurrentMemtable() instanceof HashMemtable);
+
+        alterTable("ALTER TABLE %s WITH memtable = {'class': 'ShardedSkipListMemtable', 'shards': '2'}");
+        assertTrue(cfs.getTracker().getView().getCurrentMemtable() instanceof ShardedSkipListMemtable);
+        execute("INSERT INTO %s (pk, v) VALUES (2, 2)");
+        assertRowCount(execute("SELECT * FROM %s"), 2);
+
+        // changing only the options also switches the memtable
+        alterTable("ALTER TABLE %s WITH memtable = {'class': 'ShardedSkipListMemtable', 'shards': '3'}");
+        assertEquals(3, ((ShardedSkipListMemtable) cfs.getTracker().getView().getCurrentMemtable()).shardCount());
+        assertRowCount(execute("SELECT * FROM %s"), 2);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.memtable;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import org.apache.cassandra.utils.FastByteOperations;
+import org.apache.cassandra.utils.Hex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemtableTrieTest
+{
+    private static final Comparator<byte[]> UNSIGNED = (a, b) -> FastByteOperations.compareUnsigned(a, 0, a.length, b, 0, b.length);
+
+    @Test
+    public void testEmpty()
+    {
+        MemtableTrie<String> trie = new MemtableTrie<>();
+        assertTrue(trie.isEmpty());
+        assertEquals(0, trie.valuesCount());
+        assertNull(trie.get(new byte[]{ 1, 2, 3 }));
+        assertTrue(!trie.iterator().hasNext());
+        trie.discard();
+    }
+
+    @Test
+    public void testPrefixKeys()
+    {
+        MemtableTrie<String> trie = new MemtableTrie<>();
+        byte[][] keys = { { 1, 2, 3, 4 }, { 1, 2 }, { 1, 2, 3 }, { 1 }, { 1, 2, 3, 4, 5, 6 } };
+        for (byte[] key : keys)
+            assertNull(trie.putIfAbsent(key, Hex.bytesToHex(key)));
+
+        for (byte[] key : keys)
+        {
+            assertEquals(Hex.bytesToHex(key), trie.get(key));
+            assertEquals(Hex.bytesToHex(key), trie.putIfAbsent(key, "other"));
+        }
+        assertNull(trie.get(new byte[]{ 1, 2, 3, 4, 5 }));
+        assertEquals(Arrays.asList("01", "0102", "010203", "01020304", "010203040506"), toList(trie.iterator()));
+        trie.discard();
+    }
+
+    @Test
+    public void testRandomSmallAlphabet()
+    {
+        // a small alphabet makes for long shared prefixes and chains of nodes
+        testRandom(4, 20, 10000);
+    }
+
+    @Test
+    public void testRandomFullAlphabet()
+    {
+        // a large alphabet makes for wide sparse and split nodes
+        testRandom(256, 6, 50000);
+    }
+
+    private static void testRandom(int alphabet, int maxLength, int count)
+    {
+        long seed = System.nanoTime();
+        Random random = new Random(seed);
+        MemtableTrie<String> trie = new MemtableTrie<>();
+        NavigableMap<byte[], String> expected = new TreeMap<>(UNSIGNED);
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                byte[] key = randomKey(random, alphabet, maxLength);
+                String value = Hex.bytesToHex(key);
+                assertEquals("seed " + seed, expected.putIfAbsent(key, value), trie.putIfAbsent(key, value));
+            }
+
+            assertEquals(expected.size(), trie.valuesCount());
+            assertTrue(trie.sizeOffHeap() > 0);
+            for (Map.Entry<byte[], String> entry : expected.entrySet())
+                assertEquals("seed " + seed, entry.getValue(), trie.get(entry.getKey()));
+            for (int i = 0; i < 1000; i++)
+            {
+                byte[] key = randomKey(random, alphabet, maxLength);
+                assertEquals("seed " + seed, expected.get(key), trie.get(key));
+            }
+
+            assertEquals("seed " + seed, new ArrayList<>(expected.values()), toList(trie.iterator()));
+
+            MemtableTrie.Bound.Type[] types = MemtableTrie.Bound.Type.values();
+            for (int i = 0; i < 1000; i++)
+            {
+                MemtableTrie.Bound lower = random.nextInt(10) == 0 ? null : new MemtableTrie.Bound(randomKey(random, alphabet, maxLength), types[random.nextInt(types.length)]);
+                MemtableTrie.Bound upper = random.nextInt(10) == 0 ? null : new MemtableTrie.Bound(randomKey(random, alphabet, maxLength), types[random.nextInt(types.length)]);
+                List<String> inRange = new ArrayList<>();
+                for (Map.Entry<byte[], String> entry : expected.entrySet())
+                {
+                    if (isAfter(entry.getKey(), lower) && isBefore(entry.getKey(), upper))
+                        inRange.add(entry.getValue());
+                }
+                assertEquals("seed " + seed, inRange, toList(trie.iterator(lower, upper)));
+            }
+        }
+        finally
+        {
+            trie.discard();
+        }
+    }
+
+    private static boolean isAfter(byte[] key, MemtableTrie.Bound bound)
+    {
+        if (bound == null)
+            return true;
+        int cmp = UNSIGNED.compare(key, bound.bytes);
+        switch (bound.type)
+        {
+            case INCLUSIVE: return cmp >= 0;
+            case EXCLUSIVE: return cmp > 0;
+            default: return cmp > 0 && !startsWith(key, bound.bytes);
+        }
+    }
+
+    private static boolean isBefore(byte[] key, MemtableTrie.Bound bound)
+    {
+        if (bound == null)
+            return true;
+        int cmp = UNSIGNED.compare(key, bound.bytes);
+        switch (bound.type)
+        {
+            case INCLUSIVE: return cmp <= 0;
+            case EXCLUSIVE: return cmp < 0;
+            default: return cmp <= 0 || startsWith(key, bound.bytes);
+        }
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix)
+    {
+        return key.length >= prefix.length && FastByteOperations.compareUnsigned(key, 0, prefix.length, prefix, 0, prefix.length) == 0;
+    }
+
+    private static byte[] randomKey(Random random, int alphabet, int maxLength)
+    {
+        byte[] key = new byte[1 + random.nextInt(maxLength)];
+        for (int i = 0; i < key.length; i++)
+            key[i] = (byte) random.nextInt(alphabet);
+        return key;
+    }
+
+    private static List<String> toList(Iterator<String> iterator)
+    {
+        List<String> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.memtable;
+
+import org.junit.Test;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Memtable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a trie memtable with heap_buffers, the default allocation type, whose pool doesn't allow any off-heap memory,
+ * rather than with the offheap_objects of the test configuration.
+ */
+public class TrieMemtableHeapBuffersTest extends CQLTester
+{
+    static
+    {
+        // before the memtable pool is created
+        DatabaseDescriptor.setMemtableAllocationType(Config.MemtableAllocationType.heap_buffers);
+    }
+
+    @Test(timeout = 60000)
+    public void testReadWriteAndFlush() throws Throwable
+    {
+        assertEquals(0, Memtable.MEMORY_POOL.offHeap.limit);
+
+        createTable("CREATE TABLE %s (pk int, ck int, v int, PRIMARY KEY (pk, ck)) WITH memtable = {'class': 'TrieMemtable'}");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        Memtable memtable = cfs.getTracker().getView().getCurrentMemtable();
+        assertTrue(memtable instanceof TrieMemtable);
+
+        for (int pk = 0; pk < 100; pk++)
+            for (int ck = 0; ck < 10; ck++)
+                execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", pk, ck, pk + ck);
+
+        // the trie memory counts on heap
+        assertEquals(100, memtable.partitionCount());
+        assertEquals(0, memtable.getAllocator().offHeap().owns());
+        assertTrue(memtable.getAllocator().onHeap().owns() > 0);
+        assertRows(execute("SELECT v FROM %s WHERE pk = ? AND ck = ?", 42, 3), row(45));
+        assertRowCount(execute("SELECT * FROM %s"), 1000);
+
+        flush();
+        assertTrue(cfs.getTracker().getView().getCurrentMemtable().isClean());
+        assertRows(execute("SELECT v FROM %s WHERE pk = ? AND ck = ?", 42, 3), row(45));
+        assertRowCount(execute("SELECT * FROM %s"), 1000);
+    }
+}
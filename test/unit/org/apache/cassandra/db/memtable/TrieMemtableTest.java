@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.memtable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.UntypedResultSet;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.OrderPreservingPartitioner;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.schema.MemtableParams;
+import org.apache.cassandra.schema.SchemaKeyspace;
+import org.apache.cassandra.schema.TableParams;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FastByteOperations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrieMemtableTest extends CQLTester
+{
+    @Test
+    public void testReadWriteAndFlush() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int, ck int, v int, PRIMARY KEY (pk, ck)) WITH memtable = {'class': 'TrieMemtable'}");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        assertEquals(MemtableParams.trie(), cfs.metadata.params.memtable);
+        assertTrue(cfs.getTracker().getView().getCurrentMemtable() instanceof TrieMemtable);
+
+        for (int pk = 0; pk < 100; pk++)
+            for (int ck = 0; ck < 10; ck++)
+                execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", pk, ck, pk + ck);
+
+        assertEquals(100, cfs.getTracker().getView().getCurrentMemtable().partitionCount());
+        assertRows(execute("SELECT v FROM %s WHERE pk = ? AND ck = ?", 42, 3), row(45));
+        assertRowCount(execute("SELECT * FROM %s"), 1000);
+        assertRowCount(execute("SELECT * FROM %s WHERE token(pk) > token(?)", 42), countAfter(42));
+
+        flush();
+        assertTrue(cfs.getTracker().getView().getCurrentMemtable().isClean());
+        assertRows(execute("SELECT v FROM %s WHERE pk = ? AND ck = ?", 42, 3), row(45));
+        assertRowCount(execute("SELECT * FROM %s"), 1000);
+    }
+
+    @Test
+    public void testAlter() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int)");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        assertEquals(MemtableParams.DEFAULT, cfs.metadata.params.memtable);
+
+        execute("INSERT INTO %s (pk, v) VALUES (1, 1)");
+        alterTable("ALTER TABLE %s WITH memtable = {'class': 'org.apache.cassandra.db.memtable.TrieMemtable'}");
+        assertEquals(MemtableParams.trie(), cfs.metadata.params.memtable);
+
+        // altering the memtable implementation switches the memtable
+        assertTrue(cfs.getTracker().getView().getCurrentMemtable() instanceof TrieMemtable);
+        execute("INSERT INTO %s (pk, v) VALUES (2, 2)");
+        assertRows(execute("SELECT v FROM %s WHERE pk = 2"), row(2));
+        assertRowCount(execute("SELECT * FROM %s"), 2);
+    }
+
+    @Test
+    public void testSchema() throws Throwable
+    {
+        // the default memtable leaves the schema as it was before memtables could be chosen, so that nodes that don't
+        // know about them agree on it
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int)");
+        UntypedResultSet.Row row = execute("SELECT * FROM system_schema.tables WHERE keyspace_name = ? AND table_name = ?", KEYSPACE, currentTable()).one();
+        assertFalse(row.getFrozenMap("extensions", UTF8Type.instance, BytesType.instance).containsKey(MemtableParams.EXTENSION));
+        assertEquals(MemtableParams.DEFAULT, SchemaKeyspace.createTableParamsFromRow(row).memtable);
+
+        alterTable("ALTER TABLE %s WITH memtable = {'class': 'TrieMemtable'}");
+        row = execute("SELECT * FROM system_schema.tables WHERE keyspace_name = ? AND table_name = ?", KEYSPACE, currentTable()).one();
+        assertTrue(row.getFrozenMap("extensions", UTF8Type.instance, BytesType.instance).containsKey(MemtableParams.EXTENSION));
+        TableParams params = SchemaKeyspace.createTableParamsFromRow(row);
+        assertEquals(MemtableParams.trie(), params.memtable);
+        assertTrue(params.extensions.isEmpty());
+
+        alterTable("ALTER TABLE %s WITH memtable = {}");
+        row = execute("SELECT * FROM system_schema.tables WHERE keyspace_name = ? AND table_name = ?", KEYSPACE, currentTable()).one();
+        assertFalse(row.getFrozenMap("extensions", UTF8Type.instance, BytesType.instance).containsKey(MemtableParams.EXTENSION));
+    }
+
+    @Test
+    public void testInvalidOptions() throws Throwable
+    {
+        assertInvalidThrow(ConfigurationException.class, "CREATE TABLE " + KEYSPACE + ".invalid (pk int PRIMARY KEY) WITH memtable = {'class': 'NoSuchMemtable'}");
+        assertInvalidThrow(ConfigurationException.class, "CREATE TABLE " + KEYSPACE + ".invalid (pk int PRIMARY KEY) WITH memtable = {'class': 'TrieMemtable', 'foo': 'bar'}");
+        assertInvalidThrow(ConfigurationException.class, "CREATE TABLE " + KEYSPACE + ".invalid (pk int PRIMARY KEY) WITH memtable = {'foo': 'bar'}");
+    }
+
+    @Test
+    public void testSupportedPartitioners()
+    {
+        assertTrue(TrieMemtable.supports(Murmur3Partitioner.instance));
+        assertTrue(TrieMemtable.supports(RandomPartitioner.instance));
+        assertTrue(TrieMemtable.supports(ByteOrderedPartitioner.instance));
+        assertFalse(TrieMemtable.supports(OrderPreservingPartitioner.instance));
+    }
+
+    @Test
+    public void testEncodingOrder()
+    {
+        testEncodingOrder(Murmur3Partitioner.instance);
+        testEncodingOrder(RandomPartitioner.instance);
+        testEncodingOrder(ByteOrderedPartitioner.instance);
+    }
+
+    private static void testEncodingOrder(IPartitioner partitioner)
+    {
+        Random random = new Random(0);
+        List<DecoratedKey> keys = new ArrayList<>();
+        keys.add(partitioner.decorateKey(ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        for (int i = 0; i < 1000; i++)
+        {
+            // zero bytes and shared prefixes exercise the escaping of byte ordered tokens
+            byte[] bytes = new byte[random.nextInt(6)];
+            for (int j = 0; j < bytes.length; j++)
+                bytes[j] = (byte) (random.nextInt(3) - 1);
+            keys.add(partitioner.decorateKey(ByteBuffer.wrap(bytes)));
+        }
+        Collections.sort(keys);
+
+        for (int i = 1; i < keys.size(); i++)
+        {
+            byte[] previous = TrieMemtable.encode(keys.get(i - 1));
+            byte[] current = TrieMemtable.encode(keys.get(i));
+            int cmp = FastByteOperations.compareUnsigned(previous, 0, previous.length, current, 0, current.length);
+            assertEquals(keys.get(i - 1) + " vs " + keys.get(i), Integer.signum(keys.get(i - 1).compareTo(keys.get(i))), Integer.signum(cmp));
+        }
+    }
+
+    private static int countAfter(int key)
+    {
+        Token token = Murmur3Partitioner.instance.getToken(ByteBufferUtil.bytes(key));
+        int count = 0;
+        for (int pk = 0; pk < 100; pk++)
+        {
+            if (Murmur3Partitioner.instance.getToken(ByteBufferUtil.bytes(pk)).compareTo(token) > 0)
+                count += 10;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.RowIndexEntry;
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.io.sstable.format.SSTableFormat;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.SequentialWriterOption;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionIndexTest extends CQLTester
+{
+    private final Random random = new Random();
+
+    @After
+    public void resetPartitionIndex()
+    {
+        DatabaseDescriptor.setWritePartitionIndex(false);
+    }
+
+    @Test
+    public void testHashedKeys() throws Throwable
+    {
+        TreeSet<DecoratedKey> keys = new TreeSet<>();
+        while (keys.size() < 100000)
+        {
+            byte[] key = new byte[1 + random.nextInt(20)];
+            random.nextBytes(key);
+            keys.add(Murmur3Partitioner.instance.decorateKey(ByteBuffer.wrap(key)));
+        }
+        checkIndex(Murmur3Partitioner.instance, keys);
+    }
+
+    @Test
+    public void testOrderedKeys() throws Throwable
+    {
+        // keys with long common prefixes make for deep tries
+        TreeSet<DecoratedKey> keys = new TreeSet<>();
+        while (keys.size() < 50000)
+            keys.add(ByteOrderedPartitioner.instance.decorateKey(ByteBufferUtil.bytes(String.format("partition-%08d-%d", random.nextInt(1000000), random.nextInt(3)))));
+        keys.add(ByteOrderedPartitioner.instance.decorateKey(ByteBuffer.wrap(new byte[]{ 0 })));
+        keys.add(ByteOrderedPartitioner.instance.decorateKey(ByteBuffer.wrap(new byte[]{ 0, 0 })));
+        checkIndex(ByteOrderedPartitioner.instance, keys);
+    }
+
+    @Test
+    public void testSingleAndNoKeys() throws Throwable
+    {
+        TreeSet<DecoratedKey> keys = new TreeSet<>();
+        checkIndex(Murmur3Partitioner.instance, keys);
+        keys.add(Murmur3Partitioner.instance.decorateKey(ByteBufferUtil.bytes("single")));
+        checkIndex(Murmur3Partitioner.instance, keys);
+    }
+
+    private void checkIndex(IPartitioner partitioner, TreeSet<DecoratedKey> allKeys) throws Throwable
+    {
+        // index every other key, so the others can be looked up as absent keys
+        Map<DecoratedKey, Long> positions = new HashMap<>();
+        List<DecoratedKey> absent = new ArrayList<>();
+        for (DecoratedKey key : allKeys)
+        {
+            if (random.nextBoolean())
+                positions.put(key, (long) random.nextInt(Integer.MAX_VALUE));
+            else
+                absent.add(key);
+        }
+
+        File directory = FileUtils.createTempFile("partition_index", "");
+        directory.delete();
+        directory.mkdirs();
+        Descriptor descriptor = new Descriptor(directory, KEYSPACE, "tbl", 1, SSTableFormat.Type.BIG);
+        try
+        {
+            try (PartitionIndex.Writer writer = new PartitionIndex.Writer(descriptor, SequentialWriterOption.DEFAULT))
+            {
+                for (DecoratedKey key : allKeys)
+                {
+                    if (positions.containsKey(key))
+                        writer.append(key, positions.get(key));
+                }
+                writer.finish();
+            }
+
+            try (PartitionIndex index = PartitionIndex.load(descriptor))
+            {
+                for (Map.Entry<DecoratedKey, Long> entry : positions.entrySet())
+                    assertEquals(entry.getValue().longValue(), index.getPosition(entry.getKey()));
+
+                // absent keys are either rejected or lead to the entry of another key
+                for (DecoratedKey key : absent)
+                {
+                    long position = index.getPosition(key);
+                    assertTrue(position == -1 || positions.containsValue(position));
+                }
+            }
+        }
+        finally
+        {
+            FileUtils.deleteRecursive(directory);
+        }
+    }
+
+    @Test
+    public void testPointReads() throws Throwable
+    {
+        DatabaseDescriptor.setWritePartitionIndex(true);
+        createTable("CREATE TABLE %s (k text, c int, v int, PRIMARY KEY (k, c))");
+        for (int i = 0; i < 1000; i += 2)
+        {
+            for (int c = 0; c < 3; c++)
+                execute("INSERT INTO %s (k, c, v) VALUES (?, ?, ?)", "key" + i, c, i + c);
+        }
+        flush();
+
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        SSTableReader sstable = cfs.getLiveSSTables().iterator().next();
+        assertTrue(sstable.getComponents().contains(Component.PARTITION_INDEX));
+
+        for (int i = 0; i < 1000; i++)
+        {
+            DecoratedKey key = sstable.decorateKey(ByteBufferUtil.bytes("key" + i));
+            RowIndexEntry entry = sstable.getPosition(key, SSTableReader.Operator.EQ, false);
+            if (i % 2 == 0)
+            {
+                assertNotNull(entry);
+                assertRows(execute("SELECT v FROM %s WHERE k = ? AND c = 1", "key" + i), row(i + 1));
+            }
+            else
+            {
+                assertNull(entry);
+                assertEmpty(execute("SELECT v FROM %s WHERE k = ?", "key" + i));
+            }
+        }
+
+        // reopening the sstable loads its partition index from disk
+        SSTableReader reopened = SSTableReader.open(sstable.descriptor);
+        try
+        {
+            DecoratedKey key = reopened.decorateKey(ByteBufferUtil.bytes("key10"));
+            assertNotNull(reopened.getPosition(key, SSTableReader.Operator.EQ, false));
+            assertEquals(sstable.getPosition(key, SSTableReader.Operator.EQ, false).position,
+                         reopened.getPosition(key, SSTableReader.Operator.EQ, false).position);
+        }
+        finally
+        {
+            reopened.selfRef().release();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RowBloomFilterTest extends CQLTester
+{
+    @Before
+    public void enableRowFilter()
+    {
+        DatabaseDescriptor.setWriteRowFilter(true);
+    }
+
+    @After
+    public void resetRowFilter()
+    {
+        DatabaseDescriptor.setWriteRowFilter(false);
+    }
+
+    @Test
+    public void testPointReads() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v int, PRIMARY KEY (k, c))");
+        // even rows in one sstable, odd rows in another
+        for (int parity = 0; parity < 2; parity++)
+        {
+            for (int c = parity; c < 1000; c += 2)
+                execute("INSERT INTO %s (k, c, v) VALUES (0, ?, ?)", c, c);
+            flush();
+        }
+
+        List<SSTableReader> sstables = new ArrayList<>(getCurrentColumnFamilyStore().getLiveSSTables());
+        sstables.sort(Comparator.comparingInt(sstable -> sstable.descriptor.generation));
+        int skipped = 0;
+        for (int parity = 0; parity < 2; parity++)
+        {
+            SSTableReader sstable = sstables.get(parity);
+            assertTrue(sstable.getComponents().contains(Component.ROW_FILTER));
+            DecoratedKey key = sstable.decorateKey(ByteBufferUtil.bytes(0));
+            for (int c = 0; c < 1000; c++)
+            {
+                boolean mayContain = sstable.mayContainRows(key, Collections.singleton(Clustering.make(Int32Type.instance.decompose(c))));
+                if (c % 2 == parity)
+                    assertTrue(mayContain);
+                else if (!mayContain)
+                    skipped++;
+            }
+        }
+        // out of the 1000 absent rows, with the default false positive chance of 0.01
+        assertTrue(skipped > 900);
+
+        for (int c = 0; c < 1000; c += 7)
+            assertRows(execute("SELECT v FROM %s WHERE k = 0 AND c = ?", c), row(c));
+        assertRows(execute("SELECT c FROM %s WHERE k = 0 AND c IN (1, 2, 1001)"), row(1), row(2));
+        assertEmpty(execute("SELECT v FROM %s WHERE k = 1 AND c = 1"));
+    }
+
+    @Test
+    public void testSizing() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v int, PRIMARY KEY (k, c))");
+        for (int k = 0; k < 2; k++)
+        {
+            for (int c = 0; c < 1000; c++)
+                execute("INSERT INTO %s (k, c, v) VALUES (?, ?, ?)", k, c, c);
+            flush();
+        }
+        // sized for the rows of the memtable flushed
+        for (SSTableReader sstable : getCurrentColumnFamilyStore().getLiveSSTables())
+            assertTrue(skipped(sstable, 1) > 900);
+
+        // sized for the rows of the sstables compacted, rather than for their two partitions
+        compact();
+        SSTableReader sstable = getCurrentColumnFamilyStore().getLiveSSTables().iterator().next();
+        assertTrue(skipped(sstable, 0) > 900);
+        assertTrue(skipped(sstable, 1) > 900);
+
+        assertTrue(sstable.getRowFilterOffHeapSize() > sstable.getBloomFilterOffHeapSize());
+        assertEquals(sstable.getBloomFilterOffHeapSize() + sstable.getRowFilterOffHeapSize(),
+                     (long) getCurrentColumnFamilyStore().metric.bloomFilterOffHeapMemoryUsed.getValue());
+    }
+
+    /**
+     * @return how many of 1000 rows absent from the given partition of the given sstable the row filter rules out
+     */
+    private static int skipped(SSTableReader sstable, int k)
+    {
+        DecoratedKey key = sstable.decorateKey(ByteBufferUtil.bytes(k));
+        int skipped = 0;
+        for (int c = 1000; c < 2000; c++)
+        {
+            if (!sstable.mayContainRows(key, Collections.singleton(Clustering.make(Int32Type.instance.decompose(c)))))
+                skipped++;
+        }
+        return skipped;
+    }
+
+    @Test
+    public void testDeletions() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v int, PRIMARY KEY (k, c))");
+        execute("INSERT INTO %s (k, c, v) VALUES (0, 1, 1)");
+        execute("INSERT INTO %s (k, c, v) VALUES (1, 1, 1)");
+        execute("INSERT INTO %s (k, c, v) VALUES (2, 1, 1)");
+        flush();
+
+        // deletions that have no row in common with the first sstable must still shadow its rows
+        execute("DELETE FROM %s WHERE k = 0 AND c >= 0 AND c < 5");
+        execute("DELETE FROM %s WHERE k = 1");
+        execute("INSERT INTO %s (k, c, v) VALUES (2, 2, 2)");
+        flush();
+
+        assertEmpty(execute("SELECT v FROM %s WHERE k = 0 AND c = 1"));
+        assertEmpty(execute("SELECT v FROM %s WHERE k = 1 AND c = 1"));
+        assertRows(execute("SELECT v FROM %s WHERE k = 2 AND c = 1"), row(1));
+        assertRows(execute("SELECT v FROM %s WHERE k = 2 AND c = 2"), row(2));
+    }
+
+    @Test
+    public void testEqualClusteringsWithDifferentBytes() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c decimal, v int, PRIMARY KEY (k, c)) WITH CLUSTERING ORDER BY (c DESC)");
+        execute("INSERT INTO %s (k, c, v) VALUES (0, ?, 1)", new BigDecimal("1.00"));
+        flush();
+
+        assertRows(execute("SELECT v FROM %s WHERE k = 0 AND c = ?", new BigDecimal("1.0")), row(1));
+        assertRows(execute("SELECT v FROM %s WHERE k = 0 AND c = ?", new BigDecimal("1")), row(1));
+        assertEmpty(execute("SELECT v FROM %s WHERE k = 0 AND c = ?", new BigDecimal("1.01")));
+    }
+
+    @Test
+    public void testStaticColumns() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, s int static, v int, PRIMARY KEY (k, c))");
+        execute("INSERT INTO %s (k, s) VALUES (0, 1)");
+        flush();
+        execute("INSERT INTO %s (k, c, v) VALUES (0, 1, 1)");
+        flush();
+
+        // the static row is in neither filter
+        assertRows(execute("SELECT s, v FROM %s WHERE k = 0 AND c = 1"), row(1, 1));
+    }
+
+    @Test
+    public void testNoFilterWithoutClusterings() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        execute("INSERT INTO %s (k, v) VALUES (0, 0)");
+        flush();
+        SSTableReader sstable = getCurrentColumnFamilyStore().getLiveSSTables().iterator().next();
+        assertFalse(sstable.getComponents().contains(Component.ROW_FILTER));
+        assertRows(execute("SELECT v FROM %s WHERE k = 0"), row(0));
+    }
+}
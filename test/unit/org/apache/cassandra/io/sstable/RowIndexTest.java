@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.UntypedResultSet;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.ClusteringBound;
+import org.apache.cassandra.db.ClusteringComparator;
+import org.apache.cassandra.db.ClusteringPrefix;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.RowIndexEntry;
+import org.apache.cassandra.db.columniterator.AbstractSSTableIterator.IndexState;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RowIndexTest extends CQLTester
+{
+    private static final int ROWS = 5000;
+    // large enough for trees of more than one level
+    private static final String PADDING = new String(new char[200]).replace('\0', 'x');
+
+    private final Random random = new Random();
+
+    private int columnIndexSize;
+    private int columnIndexCacheSize;
+
+    @Before
+    public void enableRowIndex()
+    {
+        columnIndexSize = DatabaseDescriptor.getColumnIndexSize() / 1024;
+        columnIndexCacheSize = DatabaseDescriptor.getColumnIndexCacheSize() / 1024;
+        // small blocks, and column indexes that are never kept on heap
+        DatabaseDescriptor.setColumnIndexSize(1);
+        DatabaseDescriptor.setColumnIndexCacheSize(0);
+        DatabaseDescriptor.setWriteRowIndex(true);
+    }
+
+    @After
+    public void resetRowIndex()
+    {
+        DatabaseDescriptor.setColumnIndexSize(columnIndexSize);
+        DatabaseDescriptor.setColumnIndexCacheSize(columnIndexCacheSize);
+        DatabaseDescriptor.setWriteRowIndex(false);
+    }
+
+    @Test
+    public void testBlockSearches() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c1 int, c2 text, v text, PRIMARY KEY (k, c1, c2)) WITH CLUSTERING ORDER BY (c1 ASC, c2 DESC)");
+        for (int i = 0; i < ROWS; i++)
+            execute("INSERT INTO %s (k, c1, c2, v) VALUES (0, ?, ?, ?)", i / 3, "c" + i % 3, "value" + i + PADDING);
+        execute("DELETE FROM %s WHERE k = 0 AND c1 >= 100 AND c1 < 200");
+        execute("INSERT INTO %s (k, c1, c2, v) VALUES (1, 0, 'c', 'narrow')");
+        flush();
+
+        SSTableReader sstable = getCurrentColumnFamilyStore().getLiveSSTables().iterator().next();
+        assertTrue(sstable.getComponents().contains(Component.ROW_INDEX));
+
+        RowIndexEntry<?> narrow = sstable.getPosition(sstable.decorateKey(ByteBufferUtil.bytes(1)), SSTableReader.Operator.EQ);
+        assertNull(sstable.openRowIndex(narrow));
+
+        RowIndexEntry<?> wide = sstable.getPosition(sstable.decorateKey(ByteBufferUtil.bytes(0)), SSTableReader.Operator.EQ);
+        assertTrue(wide.columnsIndexCount() > 500);
+
+        // the tree must find the same blocks as the binary search of the column index, for any kind of prefix
+        ClusteringComparator comparator = sstable.metadata.comparator;
+        for (boolean reversed : new boolean[]{ false, true })
+        {
+            try (IndexState withTree = new IndexState(null, comparator, wide, reversed, sstable.getIndexFile(), sstable.openRowIndex(wide));
+                 IndexState withoutTree = new IndexState(null, comparator, wide, reversed, sstable.getIndexFile()))
+            {
+                for (int i = 0; i < 10000; i++)
+                {
+                    ClusteringPrefix prefix = randomPrefix();
+                    int lastIndex = random.nextInt(wide.columnsIndexCount() + 2) - 1;
+                    assertEquals(prefix.toString(sstable.metadata) + " from " + lastIndex,
+                                 withoutTree.indexFor(prefix, lastIndex),
+                                 withTree.indexFor(prefix, lastIndex));
+                }
+            }
+        }
+    }
+
+    private ClusteringPrefix randomPrefix()
+    {
+        ByteBuffer c1 = Int32Type.instance.decompose(random.nextInt(ROWS / 3 + 2) - 1);
+        ByteBuffer c2 = UTF8Type.instance.decompose("c" + random.nextInt(4));
+        switch (random.nextInt(6))
+        {
+            case 0:
+                return Clustering.make(c1, c2);
+            case 1:
+                return ClusteringBound.inclusiveStartOf(c1);
+            case 2:
+                return ClusteringBound.exclusiveEndOf(c1);
+            case 3:
+                return ClusteringBound.inclusiveEndOf(c1, c2);
+            case 4:
+                return ClusteringBound.exclusiveStartOf(c1, c2);
+            default:
+                return random.nextBoolean() ? ClusteringBound.inclusiveEndOf(c1) : ClusteringBound.exclusiveStartOf(c1);
+        }
+    }
+
+    @Test
+    public void testSliceReads() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v text, PRIMARY KEY (k, c))");
+        for (int i = 0; i < ROWS; i++)
+            execute("INSERT INTO %s (k, c, v) VALUES (0, ?, ?)", i, "value" + i + PADDING);
+        execute("DELETE FROM %s WHERE k = 0 AND c > 1000 AND c <= 1500");
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+        {
+            int start = random.nextInt(ROWS);
+            int end = start + random.nextInt(500);
+            queries.add("SELECT c, v FROM %s WHERE k = 0 AND c >= " + start + " AND c < " + end);
+            queries.add("SELECT c, v FROM %s WHERE k = 0 AND c > " + start + " AND c <= " + end + " ORDER BY c DESC");
+            queries.add("SELECT c, v FROM %s WHERE k = 0 AND c = " + start);
+        }
+
+        List<List<String>> expected = new ArrayList<>();
+        for (String query : queries)
+            expected.add(values(execute(query)));
+
+        flush();
+        SSTableReader sstable = getCurrentColumnFamilyStore().getLiveSSTables().iterator().next();
+        DecoratedKey key = sstable.decorateKey(ByteBufferUtil.bytes(0));
+        try (RowIndex.Searcher searcher = sstable.openRowIndex(sstable.getPosition(key, SSTableReader.Operator.EQ)))
+        {
+            assertNotNull(searcher);
+        }
+
+        // the results read from the sstable must be those read from the memtable
+        for (int i = 0; i < queries.size(); i++)
+            assertEquals(queries.get(i), expected.get(i), values(execute(queries.get(i))));
+    }
+
+    private static List<String> values(UntypedResultSet result)
+    {
+        List<String> values = new ArrayList<>();
+        for (UntypedResultSet.Row row : result)
+            values.add(row.getInt("c") + ":" + row.getString("v"));
+        return values;
+    }
+}
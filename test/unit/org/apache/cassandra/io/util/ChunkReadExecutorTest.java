@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import org.apache.cassandra.cache.ChunkCache;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.io.compress.BufferType;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkReadExecutorTest extends CQLTester
+{
+    @Test
+    public void testSubmit() throws Exception
+    {
+        File file = File.createTempFile("chunks", "data");
+        file.deleteOnExit();
+        try (SequentialWriter writer = new SequentialWriter(file))
+        {
+            for (int i = 0; i < 64 * 1024; i++)
+                writer.writeInt(i);
+            writer.finish();
+        }
+
+        try (ChannelProxy channel = new ChannelProxy(file);
+             SimpleChunkReader reader = new SimpleChunkReader(channel, file.length(), BufferType.OFF_HEAP, 4096))
+        {
+            List<CompletableFuture<ByteBuffer>> reads = new ArrayList<>();
+            for (long position = 0; position < file.length(); position += 4096)
+            {
+                long chunkPosition = position;
+                ByteBuffer buffer = ByteBuffer.allocate(4096);
+                reads.add(ChunkReadExecutor.instance.submit(() -> {
+                    reader.readChunk(chunkPosition, buffer);
+                    return buffer;
+                }));
+            }
+
+            for (int chunk = 0; chunk < reads.size(); chunk++)
+            {
+                ByteBuffer buffer = reads.get(chunk).get(10, TimeUnit.SECONDS);
+                assertEquals(4096, buffer.remaining());
+                for (int i = 0; i < 1024; i++)
+                    assertEquals(chunk * 1024 + i, buffer.getInt());
+            }
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws Throwable
+    {
+        Assume.assumeTrue(ChunkCache.instance != null && ChunkReadExecutor.instance.isAsync());
+
+        createTable("CREATE TABLE %s (pk int, ck int, v text, PRIMARY KEY (pk, ck)) WITH compression = {'class': 'LZ4Compressor', 'chunk_length_in_kb': '4'}");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        for (int ck = 0; ck < 5000; ck++)
+            execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", 1, ck, "value " + ck);
+        cfs.forceBlockingFlush();
+        SSTableReader sstable = cfs.getLiveSSTables().iterator().next();
+        ChunkCache.TableStats stats = ChunkCache.instance.tableStats(keyspace(), currentTable());
+        assertEquals(0, stats.size());
+
+        // all the chunks of the range but the first one are loaded in the background
+        sstable.prefetchData(0, 32 * 1024, 0);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (stats.size() < 7 * 4096 && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        assertEquals(7 * 4096, stats.size());
+
+        // the partition is indexed, and its reads prefetch the chunks of the blocks they need, in both directions
+        assertTrue(sstable.getPosition(cfs.decorateKey(ByteBufferUtil.bytes(1)), SSTableReader.Operator.EQ).isIndexed());
+        assertRowCount(execute("SELECT * FROM %s WHERE pk = 1"), 5000);
+        assertRowCount(execute("SELECT * FROM %s WHERE pk = 1 ORDER BY ck DESC"), 5000);
+        assertRows(execute("SELECT v FROM %s WHERE pk = 1 AND ck > 4000 AND ck <= 4002"), row("value 4001"), row("value 4002"));
+        assertRows(execute("SELECT v FROM %s WHERE pk = 1 AND ck > 4000 AND ck <= 4002 ORDER BY ck DESC"), row("value 4002"), row("value 4001"));
+    }
+
+    @Test
+    public void testNoPrefetchOfFirstBlock() throws Throwable
+    {
+        Assume.assumeTrue(ChunkCache.instance != null && ChunkReadExecutor.instance.isAsync());
+
+        createTable("CREATE TABLE %s (pk int, ck int, v text, PRIMARY KEY (pk, ck)) WITH compression = {'class': 'LZ4Compressor', 'chunk_length_in_kb': '4'}");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        for (int ck = 0; ck < 5000; ck++)
+            execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", 1, ck, "value " + ck);
+        cfs.forceBlockingFlush();
+        ChunkCache.TableStats stats = ChunkCache.instance.tableStats(keyspace(), currentTable());
+
+        // reads that don't go past the first block of their slice don't prefetch the other ones
+        assertRows(execute("SELECT v FROM %s WHERE pk = 1 LIMIT 1"), row("value 0"));
+        assertRows(execute("SELECT v FROM %s WHERE pk = 1 ORDER BY ck DESC LIMIT 1"), row("value 4999"));
+        assertRows(execute("SELECT v FROM %s WHERE pk = 1 AND ck = 2500"), row("value 2500"));
+        waitForPrefetches(stats);
+        // only the chunks of the three blocks read, which may straddle two chunks
+        assertTrue(String.valueOf(stats.size()), stats.size() <= 6 * 4096);
+    }
+
+    @Test
+    public void testReversedPrefetch() throws Throwable
+    {
+        Assume.assumeTrue(ChunkCache.instance != null && ChunkReadExecutor.instance.isAsync());
+
+        createTable("CREATE TABLE %s (pk int, ck int, v text, PRIMARY KEY (pk, ck)) WITH compression = {'class': 'LZ4Compressor', 'chunk_length_in_kb': '4'}");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        for (int ck = 0; ck < 5000; ck++)
+            execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", 1, ck, "value " + ck);
+        cfs.forceBlockingFlush();
+        SSTableReader sstable = cfs.getLiveSSTables().iterator().next();
+        ChunkCache.TableStats stats = ChunkCache.instance.tableStats(keyspace(), currentTable());
+        long end = sstable.uncompressedLength();
+        assertTrue(end > 20 * 4096);
+
+        DatabaseDescriptor.setChunkPrefetchSizeInKB(16);
+        try
+        {
+            // a reversed read starts with the last blocks of the partition, so those are the ones prefetched
+            assertRowCount(execute("SELECT v FROM %s WHERE pk = 1 ORDER BY ck DESC LIMIT 1000"), 1000);
+            waitForPrefetches(stats);
+            assertCached(sstable, stats, end - 3 * 4096, true);
+            assertCached(sstable, stats, 4096, false);
+        }
+        finally
+        {
+            DatabaseDescriptor.setChunkPrefetchSizeInKB(256);
+        }
+    }
+
+    private static void waitForPrefetches(ChunkCache.TableStats stats) throws InterruptedException
+    {
+        long size;
+        do
+        {
+            size = stats.size();
+            Thread.sleep(100);
+        }
+        while (stats.size() != size);
+    }
+
+    private static void assertCached(SSTableReader sstable, ChunkCache.TableStats stats, long position, boolean cached) throws Exception
+    {
+        long misses = stats.misses.getCount();
+        try (FileDataInput in = sstable.getFileDataInput(position))
+        {
+            in.readByte();
+        }
+        assertEquals(cached, stats.misses.getCount() == misses);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.io.compress.BufferType;
+import org.apache.cassandra.metrics.ReadAheadMetrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchingRebuffererTest extends CQLTester
+{
+    private static final int CHUNK_SIZE = 4096;
+    private static final int INTS = 64 * 1024;
+
+    private static File file;
+
+    @BeforeClass
+    public static void writeFile() throws IOException
+    {
+        file = File.createTempFile("prefetching", "data");
+        file.deleteOnExit();
+        try (SequentialWriter writer = new SequentialWriter(file))
+        {
+            for (int i = 0; i < INTS; i++)
+                writer.writeInt(i);
+            writer.finish();
+        }
+    }
+
+    @Test
+    public void testSequentialRead() throws IOException
+    {
+        long chunks = ReadAheadMetrics.chunks.getCount();
+        long wasted = ReadAheadMetrics.wastedChunks.getCount();
+        try (ChannelProxy channel = new ChannelProxy(file);
+             SimpleChunkReader source = new SimpleChunkReader(channel, file.length(), BufferType.OFF_HEAP, CHUNK_SIZE);
+             RandomAccessReader reader = new RandomAccessReader(new PrefetchingRebufferer(source, 4)))
+        {
+            for (int i = 0; i < INTS; i++)
+                assertEquals(i, reader.readInt());
+            assertTrue(reader.isEOF());
+        }
+        assertEquals(file.length() / CHUNK_SIZE, ReadAheadMetrics.chunks.getCount() - chunks);
+        assertEquals(wasted, ReadAheadMetrics.wastedChunks.getCount());
+    }
+
+    @Test
+    public void testSeeks() throws IOException
+    {
+        long wasted = ReadAheadMetrics.wastedChunks.getCount();
+        try (ChannelProxy channel = new ChannelProxy(file);
+             SimpleChunkReader source = new SimpleChunkReader(channel, file.length(), BufferType.OFF_HEAP, CHUNK_SIZE);
+             RandomAccessReader reader = new RandomAccessReader(new PrefetchingRebufferer(source, 4)))
+        {
+            // within the chunks read ahead, after them, and backwards
+            for (int i : new int[]{ 0, 2000, 3000, 30000, 10, 65534, 40000 })
+            {
+                reader.seek(i * 4L);
+                assertEquals(i, reader.readInt());
+                assertEquals(i + 1, reader.readInt());
+            }
+        }
+        assertTrue(ReadAheadMetrics.wastedChunks.getCount() > wasted);
+    }
+
+    @Test
+    public void testScanReaders() throws Throwable
+    {
+        try (FileHandle.Builder builder = new FileHandle.Builder(file.getPath()).mmapped(false).bufferSize(CHUNK_SIZE);
+             FileHandle handle = builder.complete())
+        {
+            ChunkReader source = (ChunkReader) handle.rebuffererFactory();
+            assertTrue(PrefetchingRebufferer.isEnabled(source));
+            try (RandomAccessReader reader = handle.createScanReader(null))
+            {
+                for (int i = 0; i < INTS; i++)
+                    assertEquals(i, reader.readInt());
+            }
+
+            // unless disabled
+            DatabaseDescriptor.setScanReadAheadChunks(0);
+            try
+            {
+                assertFalse(PrefetchingRebufferer.isEnabled(source));
+            }
+            finally
+            {
+                DatabaseDescriptor.setScanReadAheadChunks(4);
+            }
+        }
+
+        // compactions read ahead
+        createTable("CREATE TABLE %s (pk int, ck int, v text, PRIMARY KEY (pk, ck)) WITH compression = {'class': 'LZ4Compressor', 'chunk_length_in_kb': '4'}");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        cfs.disableAutoCompaction();
+        for (int i = 0; i < 2; i++)
+        {
+            for (int pk = 0; pk < 10; pk++)
+                for (int ck = 0; ck < 100; ck++)
+                    execute("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", pk, ck, "value " + pk + ':' + ck + ':' + i);
+            cfs.forceBlockingFlush();
+        }
+
+        long chunks = ReadAheadMetrics.chunks.getCount();
+        cfs.forceMajorCompaction();
+        assertTrue(ReadAheadMetrics.chunks.getCount() > chunks);
+        assertRowCount(execute("SELECT * FROM %s"), 1000);
+    }
+}
@@ -24,7 +24,12 @@ import java.util.*;
 
 import org.junit.Test;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.net.IAsyncCallback;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.FBUtilities;
 
@@ -88,4 +93,72 @@ public class DynamicEndpointSnitchTest
         order = Arrays.asList(host1, host3, host2);
         assertEquals(order, dsnitch.getSortedListByProximity(self, Arrays.asList(host1, host2, host3)));
     }
+
+    @Test
+    public void testPendingRequests() throws InterruptedException, IOException, ConfigurationException
+    {
+        StorageService.instance.unsafeInitialize();
+        SimpleSnitch ss = new SimpleSnitch();
+        DynamicEndpointSnitch dsnitch = new DynamicEndpointSnitch(ss, String.valueOf(ss.hashCode()));
+        InetAddress self = FBUtilities.getBroadcastAddress();
+        InetAddress host1 = InetAddress.getByName("127.0.0.2");
+        InetAddress host2 = InetAddress.getByName("127.0.0.3");
+        InetAddress host3 = InetAddress.getByName("127.0.0.4");
+        List<InetAddress> hosts = Arrays.asList(host1, host2, host3);
+
+        setScores(dsnitch, 1, hosts, 10, 10, 10);
+        assertEquals(hosts, dsnitch.getSortedListByProximity(self, hosts));
+
+        // a host with pending requests is avoided before its latencies are reported
+        IAsyncCallback callback = new IAsyncCallback()
+        {
+            public void response(MessageIn msg)
+            {
+            }
+
+            public boolean isLatencyForSnitch()
+            {
+                return true;
+            }
+        };
+        int id = MessagingService.instance().addCallback(callback, new MessageOut(MessagingService.Verb.READ), host1, 60000, false);
+        assertEquals(1, MessagingService.instance().getPendingRequests(host1));
+        assertEquals(Arrays.asList(host2, host3, host1), dsnitch.getSortedListByProximity(self, hosts));
+
+        MessagingService.instance().removeRegisteredCallback(id);
+        assertEquals(0, MessagingService.instance().getPendingRequests(host1));
+        assertEquals(hosts, dsnitch.getSortedListByProximity(self, hosts));
+    }
+
+    @Test
+    public void testLatencyPercentile() throws InterruptedException, IOException, ConfigurationException
+    {
+        StorageService.instance.unsafeInitialize();
+        InetAddress self = FBUtilities.getBroadcastAddress();
+        InetAddress host1 = InetAddress.getByName("127.0.0.2");
+        InetAddress host2 = InetAddress.getByName("127.0.0.3");
+        List<InetAddress> hosts = Arrays.asList(host1, host2);
+
+        double percentile = DatabaseDescriptor.getDynamicLatencyPercentile();
+        try
+        {
+            // host1 is usually faster than host2, but has the worst tail latency
+            for (double latencyPercentile : new double[]{ 0.5, 0.99 })
+            {
+                DatabaseDescriptor.setDynamicLatencyPercentile(latencyPercentile);
+                SimpleSnitch ss = new SimpleSnitch();
+                DynamicEndpointSnitch dsnitch = new DynamicEndpointSnitch(ss, String.valueOf(ss.hashCode()));
+                assertEquals(latencyPercentile, dsnitch.getLatencyPercentile(), 0);
+                setScores(dsnitch, 9, hosts, 10, 20);
+                setScores(dsnitch, 1, hosts, 200, 20);
+
+                List<InetAddress> order = latencyPercentile == 0.5 ? hosts : Arrays.asList(host2, host1);
+                assertEquals(order, dsnitch.getSortedListByProximity(self, hosts));
+            }
+        }
+        finally
+        {
+            DatabaseDescriptor.setDynamicLatencyPercentile(percentile);
+        }
+    }
 }
@@ -34,8 +34,10 @@ import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.cql3.QueryProcessor;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.service.EmbeddedCassandraService;
+import org.apache.cassandra.utils.MD5Digest;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
 
 @RunWith(OrderedJUnit4ClassRunner.class)
 public class CQLMetricsTest extends SchemaLoader
@@ -117,11 +119,29 @@ public class CQLMetricsTest extends SchemaLoader
         assertEquals(0.5, QueryProcessor.metrics.preparedStatementsRatio.getValue());
     }
 
+    @Test
+    public void testPreparedStatementsHitsAndMisses()
+    {
+        clearMetrics();
+        PreparedStatement metricsStatement = session.prepare("INSERT INTO junit.metricstest (id, val) VALUES (?, ?)");
+
+        for (int i = 0; i < 10; i++)
+            session.execute(metricsStatement.bind(i, "val" + i));
+        assertEquals(10, QueryProcessor.metrics.preparedStatementsHits.getCount());
+        assertEquals(0, QueryProcessor.metrics.preparedStatementsMisses.getCount());
+
+        assertNull(QueryProcessor.instance.getPrepared(MD5Digest.compute("SELECT * FROM junit.unknown")));
+        assertEquals(10, QueryProcessor.metrics.preparedStatementsHits.getCount());
+        assertEquals(1, QueryProcessor.metrics.preparedStatementsMisses.getCount());
+    }
+
     private void clearMetrics()
     {
         QueryProcessor.metrics.preparedStatementsExecuted.dec(QueryProcessor.metrics.preparedStatementsExecuted.getCount());
         QueryProcessor.metrics.regularStatementsExecuted.dec(QueryProcessor.metrics.regularStatementsExecuted.getCount());
         QueryProcessor.metrics.preparedStatementsEvicted.dec(QueryProcessor.metrics.preparedStatementsEvicted.getCount());
+        QueryProcessor.metrics.preparedStatementsHits.dec(QueryProcessor.metrics.preparedStatementsHits.getCount());
+        QueryProcessor.metrics.preparedStatementsMisses.dec(QueryProcessor.metrics.preparedStatementsMisses.getCount());
     }
 }
 
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHashFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LZ4BlockCodecTest
+{
+    @Test
+    public void testEncode() throws IOException
+    {
+        byte[] compressible = new byte[100000];
+        byte[] random = random(100000);
+        byte[] small = random(10);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new LZ4BlockCodec.Encoder());
+        for (byte[] bytes : new byte[][]{ compressible, random, small })
+            assertTrue(channel.writeOutbound(Unpooled.wrappedBuffer(bytes)));
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ByteBuf buffer;
+        while ((buffer = (ByteBuf) channel.readOutbound()) != null)
+        {
+            byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes(bytes);
+            buffer.release();
+            encoded.write(bytes);
+        }
+        assertTrue(encoded.size() < compressible.length + random.length);
+
+        DataInputStream in = new DataInputStream(new LZ4BlockInputStream(new ByteArrayInputStream(encoded.toByteArray()),
+                                                                         LZ4Factory.fastestInstance().fastDecompressor(),
+                                                                         XXHashFactory.fastestInstance().newStreamingHash32(OutboundConnection.LZ4_HASH_SEED).asChecksum()));
+        for (byte[] bytes : new byte[][]{ compressible, random, small })
+        {
+            byte[] decoded = new byte[bytes.length];
+            in.readFully(decoded);
+            assertArrayEquals(bytes, decoded);
+        }
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testDecode() throws IOException
+    {
+        byte[] bytes = random(100000);
+        System.arraycopy(new byte[50000], 0, bytes, 0, 50000);
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        LZ4BlockOutputStream out = new LZ4BlockOutputStream(encoded,
+                                                            LZ4BlockCodec.BLOCK_SIZE,
+                                                            LZ4Factory.fastestInstance().fastCompressor(),
+                                                            XXHashFactory.fastestInstance().newStreamingHash32(OutboundConnection.LZ4_HASH_SEED).asChecksum(),
+                                                            true);
+        out.write(bytes, 0, 30000);
+        out.flush();
+        out.write(bytes, 30000, bytes.length - 30000);
+        out.flush();
+
+        // the blocks are read in pieces of varying sizes, which split their headers as well as their contents
+        byte[] blocks = encoded.toByteArray();
+        EmbeddedChannel channel = new EmbeddedChannel(new LZ4BlockCodec.Decoder());
+        Random random = new Random(0);
+        for (int offset = 0; offset < blocks.length; )
+        {
+            int length = Math.min(blocks.length - offset, 1 + random.nextInt(5000));
+            ByteBuf buffer = Unpooled.directBuffer(length);
+            buffer.writeBytes(blocks, offset, length);
+            channel.writeInbound(buffer);
+            offset += length;
+        }
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        ByteBuf buffer;
+        while ((buffer = (ByteBuf) channel.readInbound()) != null)
+        {
+            byte[] block = new byte[buffer.readableBytes()];
+            buffer.readBytes(block);
+            buffer.release();
+            decoded.write(block);
+        }
+        assertArrayEquals(bytes, decoded.toByteArray());
+
+        // the end of the stream closes the channel
+        out.close();
+        byte[] end = encoded.toByteArray();
+        channel.writeInbound(Unpooled.wrappedBuffer(end, blocks.length, end.length - blocks.length));
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testCorrupted()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel(new LZ4BlockCodec.Encoder());
+        channel.writeOutbound(Unpooled.wrappedBuffer(random(1000)));
+        ByteBuf encoded = (ByteBuf) channel.readOutbound();
+        // flips a byte of the contents, which the checksum detects
+        encoded.setByte(encoded.writerIndex() - 1, ~encoded.getByte(encoded.writerIndex() - 1));
+
+        channel = new EmbeddedChannel(new LZ4BlockCodec.Decoder());
+        try
+        {
+            channel.writeInbound(encoded);
+            throw new AssertionError("corrupted block was decoded");
+        }
+        catch (Exception e)
+        {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    private static byte[] random(int length)
+    {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.gms.EchoMessage;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OutboundEventLoopConnectionTest
+{
+    private static Config.InternodeCompression compression;
+
+    @BeforeClass
+    public static void setupClass()
+    {
+        compression = DatabaseDescriptor.internodeCompression();
+        DatabaseDescriptor.setInternodeEventLoop(true);
+        SchemaLoader.prepareServer();
+        // registers the handler of echo requests, amongst others
+        StorageService.instance.getTokenMetadata();
+        MessagingService.instance().listen();
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+        MessagingService.instance().shutdown();
+        DatabaseDescriptor.setInternodeEventLoop(false);
+        DatabaseDescriptor.setInternodeCompression(compression);
+    }
+
+    @Test
+    public void testEcho() throws InterruptedException
+    {
+        DatabaseDescriptor.setInternodeCompression(Config.InternodeCompression.none);
+        echo(1000, 0);
+        echo(10, 100000);
+    }
+
+    @Test
+    public void testCompressedEcho() throws InterruptedException
+    {
+        DatabaseDescriptor.setInternodeCompression(Config.InternodeCompression.all);
+        echo(1000, 0);
+        echo(10, 100000);
+    }
+
+    @Test
+    public void testUnserializableMessage() throws InterruptedException
+    {
+        DatabaseDescriptor.setInternodeCompression(Config.InternodeCompression.none);
+        MessageOut<EchoMessage> unserializable = new MessageOut<>(MessagingService.Verb.ECHO, EchoMessage.instance, new IVersionedSerializer<EchoMessage>()
+        {
+            public void serialize(EchoMessage message, DataOutputPlus out, int version) throws IOException
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            public EchoMessage deserialize(DataInputPlus in, int version)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            public long serializedSize(EchoMessage message, int version)
+            {
+                return 0;
+            }
+        });
+        OutboundConnection connection = MessagingService.instance().getConnectionPool(FBUtilities.getBroadcastAddress()).getConnection(unserializable);
+        long dropped = connection.getDroppedMessages();
+
+        // only the messages failing to serialize are dropped, rather than those written along with them
+        CountDownLatch responses = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++)
+        {
+            if (i % 10 == 0)
+                MessagingService.instance().sendOneWay(unserializable, FBUtilities.getBroadcastAddress());
+            sendEcho(new byte[0], responses);
+        }
+        assertTrue(responses.await(1, TimeUnit.MINUTES));
+        assertEquals(dropped + 10, connection.getDroppedMessages());
+    }
+
+    /**
+     * Sends echo requests to this node, each with a parameter of the given size, and waits for the responses.
+     */
+    private static void echo(int requests, int parameterSize) throws InterruptedException
+    {
+        // reconnects with the compression currently configured
+        OutboundTcpConnectionPool pool = MessagingService.instance().getConnectionPool(FBUtilities.getBroadcastAddress());
+        assertTrue(pool.smallMessages instanceof OutboundEventLoopConnection);
+        pool.reset();
+
+        byte[] parameter = new byte[parameterSize];
+        new Random(0).nextBytes(parameter);
+        CountDownLatch responses = new CountDownLatch(requests);
+        OutboundConnection connection = null;
+        long dropped = 0;
+        for (int i = 0; i < requests; i++)
+        {
+            MessageOut<EchoMessage> message = sendEcho(parameter, responses);
+            if (connection == null)
+            {
+                connection = pool.getConnection(message);
+                dropped = connection.getDroppedMessages();
+            }
+        }
+        assertTrue(responses.await(1, TimeUnit.MINUTES));
+        assertEquals(dropped, connection.getDroppedMessages());
+
+        // the connections are served by the event loops rather than by threads of their own
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+        {
+            assertFalse(thread.getName(), thread.getName().startsWith("MessagingService-Outgoing-"));
+            assertFalse(thread.getName(), thread.getName().startsWith("MessagingService-Incoming-"));
+        }
+    }
+
+    private static MessageOut<EchoMessage> sendEcho(byte[] parameter, CountDownLatch responses)
+    {
+        MessageOut<EchoMessage> message = new MessageOut<>(FBUtilities.getBroadcastAddress(),
+                                                           MessagingService.Verb.ECHO,
+                                                           EchoMessage.instance,
+                                                           EchoMessage.serializer,
+                                                           Collections.singletonMap("parameter", parameter));
+        MessagingService.instance().sendRR(message, FBUtilities.getBroadcastAddress(), new IAsyncCallback<EchoMessage>()
+        {
+            public void response(MessageIn<EchoMessage> msg)
+            {
+                responses.countDown();
+            }
+
+            public boolean isLatencyForSnitch()
+            {
+                return false;
+            }
+        });
+        return message;
+    }
+}
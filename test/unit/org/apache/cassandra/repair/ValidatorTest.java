@@ -19,22 +19,33 @@
 package org.apache.cassandra.repair;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.After;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.BufferDecoratedKey;
 import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.EmptyIterators;
 import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.RowUpdateBuilder;
+import org.apache.cassandra.db.compaction.CompactionManager;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.PartitionHashes;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.net.IMessageSink;
 import org.apache.cassandra.net.MessageIn;
 import org.apache.cassandra.net.MessageOut;
@@ -42,7 +53,10 @@ import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.repair.messages.RepairMessage;
 import org.apache.cassandra.repair.messages.ValidationComplete;
 import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.service.ActiveRepairService;
 import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.CloseableIterator;
+import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.MerkleTrees;
 import org.apache.cassandra.utils.concurrent.SimpleCondition;
 
@@ -51,6 +65,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertArrayEquals;
 
 public class ValidatorTest
 {
@@ -178,4 +193,218 @@ public class ValidatorTest
         if (!lock.isSignaled())
             lock.await();
     }
+
+    @Test
+    public void testParallelValidation() throws Throwable
+    {
+        ColumnFamilyStore cfs = Keyspace.open(keyspace).getColumnFamilyStore(columnFamily);
+        cfs.truncateBlocking();
+        for (int i = 0; i < 100; i++)
+            new RowUpdateBuilder(cfs.metadata, 0, String.format("key%02d", i)).clustering("c").add("val", "value" + i).build().applyUnsafe();
+        cfs.forceBlockingFlush();
+
+        List<Range<Token>> ranges = new ArrayList<>();
+        Token previous = partitioner.getMinimumToken();
+        for (String bound : new String[]{ "key20", "key45", "key70" })
+        {
+            Token token = partitioner.getToken(ByteBufferUtil.bytes(bound));
+            ranges.add(new Range<>(previous, token));
+            previous = token;
+        }
+        ranges.add(new Range<>(previous, partitioner.getMinimumToken()));
+
+        int parallelism = DatabaseDescriptor.getValidationParallelism();
+        try
+        {
+            for (boolean useMurmur3Hash : new boolean[]{ false, true })
+            {
+                DatabaseDescriptor.setValidationParallelism(1);
+                MerkleTrees sequential = validate(cfs, ranges, useMurmur3Hash);
+                DatabaseDescriptor.setValidationParallelism(3);
+                MerkleTrees parallel = validate(cfs, ranges, useMurmur3Hash);
+
+                // the trees may be split differently, but the hash of their ranges doesn't depend on it
+                assertEquals(ranges.size(), parallel.ranges().size());
+                for (Range<Token> range : ranges)
+                {
+                    assertNotNull(sequential.hash(range));
+                    assertArrayEquals(sequential.hash(range), parallel.hash(range));
+                    assertEquals(useMurmur3Hash ? 16 : 32, parallel.hash(range).length);
+                }
+            }
+        }
+        finally
+        {
+            DatabaseDescriptor.setValidationParallelism(parallelism);
+        }
+    }
+
+    @Test
+    public void testValidationWithPartitionHashes() throws Throwable
+    {
+        ColumnFamilyStore cfs = Keyspace.open(keyspace).getColumnFamilyStore(columnFamily);
+        List<Range<Token>> ranges = Collections.singletonList(new Range<>(partitioner.getMinimumToken(), partitioner.getMinimumToken()));
+
+        boolean writePartitionHashes = DatabaseDescriptor.writePartitionHashes();
+        try
+        {
+            DatabaseDescriptor.setWritePartitionHashes(false);
+            writeOverlappingSSTables(cfs, 100);
+            MerkleTrees withoutHashes = validate(cfs, ranges, true);
+
+            DatabaseDescriptor.setWritePartitionHashes(true);
+            writeOverlappingSSTables(cfs, 100);
+            for (SSTableReader sstable : cfs.getLiveSSTables())
+                assertTrue(PartitionHashes.canUse(sstable, 0, FBUtilities.nowInSeconds()));
+            MerkleTrees withHashes = validate(cfs, ranges, true);
+
+            assertNotNull(withoutHashes.hash(ranges.get(0)));
+            assertArrayEquals(withoutHashes.hash(ranges.get(0)), withHashes.hash(ranges.get(0)));
+
+            // the hashes of expired cells can't be used, as validation sees them as tombstones
+            cfs.truncateBlocking();
+            new RowUpdateBuilder(cfs.metadata, 0L, 1, "key").clustering("c").add("val", "value").build().applyUnsafe();
+            cfs.forceBlockingFlush();
+            SSTableReader sstable = cfs.getLiveSSTables().iterator().next();
+            assertTrue(PartitionHashes.canUse(sstable, 0, FBUtilities.nowInSeconds() - 10));
+            assertFalse(PartitionHashes.canUse(sstable, 0, FBUtilities.nowInSeconds() + 10));
+            assertFalse(PartitionHashes.canUse(sstable, FBUtilities.nowInSeconds() + 10, FBUtilities.nowInSeconds() - 10));
+        }
+        finally
+        {
+            DatabaseDescriptor.setWritePartitionHashes(writePartitionHashes);
+        }
+    }
+
+    @Test
+    public void testValidationOfSubrangesWithPartitionHashes() throws Throwable
+    {
+        ColumnFamilyStore cfs = Keyspace.open(keyspace).getColumnFamilyStore(columnFamily);
+        // ranges bounded by the tokens of some of the partitions, one of which wraps around
+        List<Token> tokens = new ArrayList<>();
+        for (int i : new int[]{ 100, 700, 1200, 1900 })
+            tokens.add(partitioner.getToken(ByteBufferUtil.bytes(String.format("key%04d", i))));
+        Collections.sort(tokens);
+        List<Range<Token>> ranges = Arrays.asList(new Range<>(tokens.get(0), tokens.get(1)),
+                                                  new Range<>(tokens.get(2), tokens.get(3)),
+                                                  new Range<>(tokens.get(3), tokens.get(0)));
+
+        boolean writePartitionHashes = DatabaseDescriptor.writePartitionHashes();
+        try
+        {
+            // enough partitions for the hashes of ranges to be read from sampled entries
+            DatabaseDescriptor.setWritePartitionHashes(false);
+            writeOverlappingSSTables(cfs, 2000);
+            MerkleTrees withoutHashes = validate(cfs, ranges, true);
+
+            DatabaseDescriptor.setWritePartitionHashes(true);
+            writeOverlappingSSTables(cfs, 2000);
+            MerkleTrees withHashes = validate(cfs, ranges, true);
+            for (Range<Token> range : ranges)
+            {
+                assertNotNull(withoutHashes.hash(range));
+                assertArrayEquals(withoutHashes.hash(range), withHashes.hash(range));
+            }
+
+            // the hashes of a range are the ones of its partitions
+            Range<Token> all = new Range<>(partitioner.getMinimumToken(), partitioner.getMinimumToken());
+            for (SSTableReader sstable : cfs.getLiveSSTables())
+            {
+                try (PartitionHashes.Reader reader = PartitionHashes.Reader.open(sstable))
+                {
+                    List<DecoratedKey> keys = keys(reader.entries(all));
+                    assertEquals(1200, keys.size());
+                    for (Range<Token> range : Range.normalize(ranges))
+                    {
+                        List<DecoratedKey> expected = new ArrayList<>();
+                        for (DecoratedKey key : keys)
+                        {
+                            if (range.contains(key.getToken()))
+                                expected.add(key);
+                        }
+                        assertEquals(expected, keys(reader.entries(range)));
+                    }
+                }
+            }
+        }
+        finally
+        {
+            DatabaseDescriptor.setWritePartitionHashes(writePartitionHashes);
+        }
+    }
+
+    private static List<DecoratedKey> keys(CloseableIterator<PartitionHashes.Entry> entries)
+    {
+        List<DecoratedKey> keys = new ArrayList<>();
+        try (CloseableIterator<PartitionHashes.Entry> iterator = entries)
+        {
+            while (iterator.hasNext())
+                keys.add(iterator.next().key);
+        }
+        return keys;
+    }
+
+    // writes two sstables sharing some partitions, with some deleted rows
+    private static void writeOverlappingSSTables(ColumnFamilyStore cfs, int partitions)
+    {
+        cfs.truncateBlocking();
+        for (int i = 0; i < partitions * 6 / 10; i++)
+            new RowUpdateBuilder(cfs.metadata, 0, String.format("key%04d", i)).clustering("c").add("val", "value" + i).build().applyUnsafe();
+        cfs.forceBlockingFlush();
+        for (int i = partitions * 4 / 10; i < partitions; i++)
+        {
+            String key = String.format("key%04d", i);
+            if (i % 10 == 0)
+                RowUpdateBuilder.deleteRow(cfs.metadata, 1, key, "c").applyUnsafe();
+            else
+                new RowUpdateBuilder(cfs.metadata, 1, key).clustering("d").add("val", "other" + i).build().applyUnsafe();
+        }
+        cfs.forceBlockingFlush();
+    }
+
+    private MerkleTrees validate(ColumnFamilyStore cfs, Collection<Range<Token>> ranges, boolean useMurmur3Hash) throws Throwable
+    {
+        UUID parentRepairSession = UUID.randomUUID();
+        ActiveRepairService.instance.registerParentRepairSession(parentRepairSession, FBUtilities.getBroadcastAddress(), Collections.singletonList(cfs),
+                                                                 ranges, false, System.currentTimeMillis(), false);
+        final RepairJobDesc desc = new RepairJobDesc(parentRepairSession, UUID.randomUUID(), keyspace, columnFamily, ranges);
+
+        final SimpleCondition lock = new SimpleCondition();
+        final AtomicReference<MerkleTrees> trees = new AtomicReference<>();
+        MessagingService.instance().addMessageSink(new IMessageSink()
+        {
+            public boolean allowOutgoingMessage(MessageOut message, int id, InetAddress to)
+            {
+                if (message.verb == MessagingService.Verb.REPAIR_MESSAGE)
+                {
+                    RepairMessage m = (RepairMessage) message.payload;
+                    if (m.messageType == RepairMessage.Type.VALIDATION_COMPLETE && desc.equals(m.desc))
+                    {
+                        trees.set(((ValidationComplete) m).trees);
+                        lock.signalAll();
+                    }
+                }
+                return false;
+            }
+
+            public boolean allowIncomingMessage(MessageIn message, int id)
+            {
+                return false;
+            }
+        });
+
+        try
+        {
+            Validator validator = new Validator(desc, InetAddress.getByName("127.0.0.2"), 0, useMurmur3Hash);
+            CompactionManager.instance.submitValidation(cfs, validator).get();
+            lock.await();
+            assertNotNull(trees.get());
+            return trees.get();
+        }
+        finally
+        {
+            MessagingService.instance().clearMessageSinks();
+            ActiveRepairService.instance.removeParentRepairSession(parentRepairSession);
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.service;
+
+import java.net.InetAddress;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.net.MessagingService;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MigrationManagerTest
+{
+    private static InetAddress peer;
+
+    @BeforeClass
+    public static void setup() throws Exception
+    {
+        peer = InetAddress.getByName("127.0.0.2");
+    }
+
+    @After
+    public void resetVersion()
+    {
+        MessagingService.instance().resetVersion(peer);
+    }
+
+    @Test
+    public void testUnknownVersion()
+    {
+        assertFalse(MigrationManager.shouldPullSchemaFrom(peer));
+        assertFalse(MigrationManager.shouldPushSchemaTo(peer));
+    }
+
+    @Test
+    public void testCurrentVersion()
+    {
+        MessagingService.instance().setVersion(peer, MessagingService.current_version);
+        assertTrue(MigrationManager.shouldPullSchemaFrom(peer));
+        assertTrue(MigrationManager.shouldPushSchemaTo(peer));
+    }
+
+    @Test
+    public void testMixedVersions()
+    {
+        // schema keeps flowing between upgraded nodes and 3.0 ones during a rolling upgrade
+        MessagingService.instance().setVersion(peer, MessagingService.VERSION_30);
+        assertTrue(MigrationManager.shouldPullSchemaFrom(peer));
+        assertTrue(MigrationManager.shouldPushSchemaTo(peer));
+
+        // but not with nodes of a previous major version
+        MessagingService.instance().setVersion(peer, MessagingService.VERSION_22);
+        assertFalse(MigrationManager.shouldPullSchemaFrom(peer));
+        assertFalse(MigrationManager.shouldPushSchemaTo(peer));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.streaming;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.RowUpdateBuilder;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.SSTableUtils;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.schema.CompressionParams;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.streaming.messages.OutgoingFileMessage;
+import org.apache.cassandra.streaming.messages.StreamMessage;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.concurrent.Refs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntireSSTableStreamingTest
+{
+    private static final InetAddress LOCAL = FBUtilities.getBroadcastAddress();
+    private static final String KEYSPACE = "EntireSSTableStreamingTest";
+    private static final String CF_COMPRESSED = "Compressed";
+    private static final String CF_UNCOMPRESSED = "Uncompressed";
+
+    @BeforeClass
+    public static void defineSchema() throws Exception
+    {
+        SchemaLoader.prepareServer();
+        StorageService.instance.initServer();
+        SchemaLoader.createKeyspace(KEYSPACE,
+                                    KeyspaceParams.simple(1),
+                                    SchemaLoader.standardCFMD(KEYSPACE, CF_COMPRESSED).compression(CompressionParams.lz4()),
+                                    SchemaLoader.standardCFMD(KEYSPACE, CF_UNCOMPRESSED).compression(CompressionParams.noCompression()));
+        DatabaseDescriptor.setStreamEntireSSTables(true);
+    }
+
+    @AfterClass
+    public static void resetStreaming()
+    {
+        DatabaseDescriptor.setStreamEntireSSTables(false);
+    }
+
+    @Test
+    public void testCompressed() throws Exception
+    {
+        testEntireSSTable(CF_COMPRESSED);
+    }
+
+    @Test
+    public void testUncompressed() throws Exception
+    {
+        testEntireSSTable(CF_UNCOMPRESSED);
+    }
+
+    private void testEntireSSTable(String table) throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(table);
+        SSTableReader sstable = writeSSTable(cfs);
+        IPartitioner p = cfs.getPartitioner();
+        List<Range<Token>> ranges = Collections.singletonList(new Range<>(p.getMinimumToken(), p.getMinimumToken()));
+        assertTrue(EntireSSTableStreamWriter.canStream(sstable, sstable.getPositionsForRanges(ranges)));
+        OutgoingFileMessage message = message(sstable, ranges);
+        assertEquals(StreamMessage.Type.ENTIRE_SSTABLE_FILE, message.type);
+        assertTrue(message.header.components.keySet().containsAll(Arrays.asList(Component.DATA, Component.PRIMARY_INDEX, Component.STATS)));
+        assertFalse(message.header.components.containsKey(Component.TOC));
+        assertEquals(sstable.bytesOnDisk() - new File(sstable.descriptor.filenameFor(Component.TOC)).length(), message.header.size());
+
+        cfs.clearUnsafe();
+        transfer(sstable, ranges, 42);
+
+        // the components are copied as is, but for the repair time
+        assertEquals(1, cfs.getLiveSSTables().size());
+        SSTableReader streamed = cfs.getLiveSSTables().iterator().next();
+        assertEquals(42, streamed.getSSTableMetadata().repairedAt);
+        for (Component component : Arrays.asList(Component.DATA, Component.PRIMARY_INDEX, Component.FILTER))
+            assertArrayEquals(Files.readAllBytes(new File(sstable.descriptor.filenameFor(component)).toPath()),
+                              Files.readAllBytes(new File(streamed.descriptor.filenameFor(component)).toPath()));
+        assertTrue(streamed.getComponents().contains(Component.TOC));
+        SSTableUtils.assertContentEquals(sstable, streamed);
+    }
+
+    @Test
+    public void testPartialSSTable() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF_COMPRESSED);
+        SSTableReader sstable = writeSSTable(cfs);
+        IPartitioner p = cfs.getPartitioner();
+        Token token = p.getToken(ByteBufferUtil.bytes("key50"));
+        List<Range<Token>> ranges = Collections.singletonList(new Range<>(p.getMinimumToken(), token));
+        assertFalse(EntireSSTableStreamWriter.canStream(sstable, sstable.getPositionsForRanges(ranges)));
+        assertEquals(StreamMessage.Type.FILE, message(sstable, ranges).type);
+
+        // the sections of the data file are still streamed
+        cfs.clearUnsafe();
+        transfer(sstable, ranges, sstable.getSSTableMetadata().repairedAt);
+        assertEquals(1, cfs.getLiveSSTables().size());
+        SSTableReader streamed = cfs.getLiveSSTables().iterator().next();
+        assertTrue(streamed.last.getToken().compareTo(token) <= 0);
+        assertTrue(streamed.onDiskLength() < sstable.onDiskLength());
+    }
+
+    @Test
+    public void testDisabled() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(CF_COMPRESSED);
+        SSTableReader sstable = writeSSTable(cfs);
+        IPartitioner p = cfs.getPartitioner();
+        List<Range<Token>> ranges = Collections.singletonList(new Range<>(p.getMinimumToken(), p.getMinimumToken()));
+
+        DatabaseDescriptor.setStreamEntireSSTables(false);
+        try
+        {
+            assertFalse(EntireSSTableStreamWriter.canStream(sstable, sstable.getPositionsForRanges(ranges)));
+        }
+        finally
+        {
+            DatabaseDescriptor.setStreamEntireSSTables(true);
+        }
+    }
+
+    private static SSTableReader writeSSTable(ColumnFamilyStore cfs)
+    {
+        cfs.truncateBlocking();
+        for (int i = 0; i < 100; i++)
+        {
+            new RowUpdateBuilder(cfs.metadata, FBUtilities.timestampMicros(), "key" + i)
+                .clustering("name")
+                .add("val", "value" + i)
+                .build()
+                .applyUnsafe();
+        }
+        cfs.forceBlockingFlush();
+        assertEquals(1, cfs.getLiveSSTables().size());
+        return cfs.getLiveSSTables().iterator().next();
+    }
+
+    private static OutgoingFileMessage message(SSTableReader sstable, List<Range<Token>> ranges)
+    {
+        OutgoingFileMessage message = new OutgoingFileMessage(sstable.ref(), 0, sstable.estimatedKeysForRanges(ranges), sstable.getPositionsForRanges(ranges), 0, false);
+        message.complete();
+        return message;
+    }
+
+    private static void transfer(SSTableReader sstable, List<Range<Token>> ranges, long repairedAt) throws Exception
+    {
+        Refs<SSTableReader> refs = Refs.tryRef(Collections.singletonList(sstable));
+        StreamSession.SSTableStreamingSections details = new StreamSession.SSTableStreamingSections(refs.get(sstable),
+                                                                                                    sstable.getPositionsForRanges(ranges),
+                                                                                                    sstable.estimatedKeysForRanges(ranges),
+                                                                                                    repairedAt);
+        new StreamPlan("EntireSSTableStreamingTest").transferFiles(LOCAL, new ArrayList<>(Collections.singletonList(details))).execute().get();
+    }
+}
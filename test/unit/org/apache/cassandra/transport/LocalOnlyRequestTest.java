@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.concurrent.Stage;
+import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.cql3.QueryProcessor;
+import org.apache.cassandra.cql3.UntypedResultSet;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.service.ClientState;
+import org.apache.cassandra.transport.messages.ExecuteMessage;
+import org.apache.cassandra.transport.messages.ResultMessage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocalOnlyRequestTest extends CQLTester
+{
+    @BeforeClass
+    public static void setUp() throws Throwable
+    {
+        // the requests need the local node to be part of the ring
+        requireNetwork();
+    }
+
+    @Test
+    public void testLocalOnlyRequests() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int, ck int, v int, PRIMARY KEY (pk, ck))");
+
+        assertTrue(isLocalOnly("SELECT * FROM %s WHERE pk = ?", ConsistencyLevel.ONE, 1));
+        assertTrue(isLocalOnly("SELECT * FROM %s WHERE pk = ? AND ck = ?", ConsistencyLevel.LOCAL_ONE, 1, 2));
+        assertTrue(isLocalOnly("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", ConsistencyLevel.ONE, 1, 2, 3));
+        assertTrue(isLocalOnly("DELETE FROM %s WHERE pk = ?", ConsistencyLevel.LOCAL_ONE, 1));
+
+        // stronger consistency levels, several partitions and range queries are executed as usual
+        assertFalse(isLocalOnly("SELECT * FROM %s WHERE pk = ?", ConsistencyLevel.QUORUM, 1));
+        assertFalse(isLocalOnly("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?)", ConsistencyLevel.ALL, 1, 2, 3));
+        assertFalse(isLocalOnly("SELECT * FROM %s WHERE pk IN (?, ?)", ConsistencyLevel.ONE, 1, 2));
+        assertFalse(isLocalOnly("SELECT * FROM %s", ConsistencyLevel.ONE));
+        assertFalse(isLocalOnly("SELECT * FROM %s WHERE token(pk) > token(?)", ConsistencyLevel.ONE, 1));
+
+        // so are conditional updates
+        assertFalse(isLocalOnly("INSERT INTO %s (pk, ck, v) VALUES (?, ?, ?) IF NOT EXISTS", ConsistencyLevel.ONE, 1, 2, 3));
+    }
+
+    @Test
+    public void testCounterAndListUpdates() throws Throwable
+    {
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, c counter)");
+        assertFalse(isLocalOnly("UPDATE %s SET c = c + 1 WHERE pk = ?", ConsistencyLevel.ONE, 1));
+
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, l list<int>)");
+        assertTrue(isLocalOnly("UPDATE %s SET l = l + [1] WHERE pk = ?", ConsistencyLevel.ONE, 1));
+        assertFalse(isLocalOnly("UPDATE %s SET l[0] = 1 WHERE pk = ?", ConsistencyLevel.ONE, 1));
+    }
+
+    @Test
+    public void testInlineExecution() throws Throwable
+    {
+        Thread current = Thread.currentThread();
+        AtomicReference<Thread> ran = new AtomicReference<>();
+        StageManager.executeInline(() -> StageManager.maybeExecuteInline(Stage.READ, () -> ran.set(Thread.currentThread())));
+        assertEquals(current, ran.get());
+
+        // a failing task does not fail the request
+        StageManager.executeInline(() -> StageManager.maybeExecuteInline(Stage.MUTATION, () -> { throw new RuntimeException(); }));
+
+        // the local writes and reads of a request executed inline are performed by its own thread
+        createTable("CREATE TABLE %s (pk int PRIMARY KEY, v int)");
+        StageManager.executeInline(() -> QueryProcessor.process(formatQuery("INSERT INTO %s (pk, v) VALUES (1, 1)"), ConsistencyLevel.ONE));
+        AtomicReference<UntypedResultSet> result = new AtomicReference<>();
+        StageManager.executeInline(() -> result.set(QueryProcessor.process(formatQuery("SELECT v FROM %s WHERE pk = 1"), ConsistencyLevel.ONE)));
+        assertRows(result.get(), row(1));
+    }
+
+    private String formatQuery(String query)
+    {
+        return String.format(query, keyspace() + '.' + currentTable());
+    }
+
+    private boolean isLocalOnly(String query, ConsistencyLevel consistency, int... values)
+    {
+        ResultMessage.Prepared prepared = QueryProcessor.prepare(formatQuery(query), ClientState.forInternalCalls(), false);
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int value : values)
+            buffers.add(Int32Type.instance.decompose(value));
+        return new ExecuteMessage(prepared.statementId, QueryOptions.forInternalCalls(consistency, buffers)).isLocalOnly();
+    }
+}
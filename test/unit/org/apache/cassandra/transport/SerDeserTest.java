@@ -30,6 +30,7 @@ import org.apache.cassandra.serializers.CollectionSerializer;
 import org.apache.cassandra.transport.Event.TopologyChange;
 import org.apache.cassandra.transport.Event.SchemaChange;
 import org.apache.cassandra.transport.Event.StatusChange;
+import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.Pair;
 
@@ -259,4 +260,57 @@ public class SerDeserTest
 
         assertEquals(decodedMeta, decodedMetaWithoutIndexes);
     }
+
+    @Test
+    public void valueListSerDeserTest()
+    {
+        List<ByteBuffer> values = Arrays.asList(bytes(1), null, bytes("foo"), ByteBufferUtil.EMPTY_BYTE_BUFFER, bytes(2L));
+        ByteBuf buf = Unpooled.buffer(CBUtil.sizeOfValueList(values));
+        CBUtil.writeValueList(values, buf);
+        buf.writeInt(42);
+
+        assertEquals(values, CBUtil.readValueList(buf, Server.VERSION_4));
+        assertEquals(42, buf.readInt());
+
+        buf = Unpooled.buffer();
+        buf.writeShort(values.size());
+        for (int i = 0; i < values.size(); i++)
+        {
+            CBUtil.writeString("v" + i, buf);
+            CBUtil.writeValue(values.get(i), buf);
+        }
+        buf.writeShort(1);
+        buf.writeInt(-2);
+
+        Pair<List<String>, List<ByteBuffer>> namesAndValues = CBUtil.readNameAndValueList(buf, Server.VERSION_4);
+        assertEquals(Arrays.asList("v0", "v1", "v2", "v3", "v4"), namesAndValues.left);
+        assertEquals(values, namesAndValues.right);
+        assertEquals(ByteBufferUtil.UNSET_BYTE_BUFFER, CBUtil.readValueList(buf, Server.VERSION_4).get(0));
+    }
+
+    @Test
+    public void encodedResultSetSerDeserTest()
+    {
+        List<ColumnSpecification> columnNames = new ArrayList<>();
+        for (int i = 0; i < 2; i++)
+            columnNames.add(new ColumnSpecification("ks", "cf", new ColumnIdentifier("col" + i, false), Int32Type.instance));
+
+        ResultSet rs = new ResultSet(columnNames);
+        ResultSet encoded = new ResultSet.Encoded(new ResultSet.ResultMetadata(columnNames));
+        for (int i = 0; i < 10; i++)
+        {
+            List<ByteBuffer> row = Arrays.asList(bytes(i), i % 3 == 0 ? null : bytes(-i));
+            rs.addRow(row);
+            encoded.addRow(row);
+        }
+        assertEquals(rs.size(), encoded.size());
+
+        int size = ResultSet.codec.encodedSize(encoded, Server.VERSION_4);
+        assertEquals(ResultSet.codec.encodedSize(rs, Server.VERSION_4), size);
+
+        ByteBuf buf = Unpooled.buffer(size);
+        ResultSet.codec.encode(encoded, buf, Server.VERSION_4);
+        assertEquals(size, buf.readableBytes());
+        assertEquals(rs.rows, ResultSet.codec.decode(buf, Server.VERSION_4).rows);
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.cassandra.io.util.DataOutputBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlockedBloomFilterTest
+{
+    private IFilter bf;
+
+    @Before
+    public void setup()
+    {
+        bf = FilterFactory.getFilter(10000L, FilterTestHelper.MAX_FAILURE_RATE, true, false, true);
+    }
+
+    @After
+    public void destroy()
+    {
+        bf.close();
+    }
+
+    @Test
+    public void testOne()
+    {
+        assertTrue(bf instanceof BlockedBloomFilter);
+        bf.add(FilterTestHelper.bytes("a"));
+        assert bf.isPresent(FilterTestHelper.bytes("a"));
+        assert !bf.isPresent(FilterTestHelper.bytes("b"));
+    }
+
+    @Test
+    public void testFalsePositivesInt()
+    {
+        FilterTestHelper.testFalsePositives(bf, FilterTestHelper.intKeys(), FilterTestHelper.randomKeys2());
+    }
+
+    @Test
+    public void testFalsePositivesRandom()
+    {
+        FilterTestHelper.testFalsePositives(bf, FilterTestHelper.randomKeys(), FilterTestHelper.randomKeys2());
+    }
+
+    @Test
+    public void testFalsePositiveRate()
+    {
+        // the rate must stay close to the requested one for the chances tables commonly use
+        Random random = new Random(42);
+        for (double fpChance : new double[]{ 0.1, 0.01, 0.001 })
+        {
+            int keys = 100000;
+            try (IFilter filter = FilterFactory.getFilter(keys, fpChance, true, false, true))
+            {
+                for (int i = 0; i < keys; i++)
+                    filter.add(FilterTestHelper.wrap(ByteBufferUtil.bytes(random.nextLong())));
+
+                int fp = 0;
+                int tries = 1000000;
+                for (int i = 0; i < tries; i++)
+                {
+                    if (filter.isPresent(FilterTestHelper.wrap(ByteBuffer.wrap(new byte[]{ 1, 2, 3, 4 }).putInt(0, i))))
+                        fp++;
+                }
+                double rate = (double) fp / tries;
+                assertTrue(fpChance + " gave " + rate, rate < fpChance * 1.1);
+            }
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateNarrowTokenRange()
+    {
+        // the sstables of a node only cover a narrow range of tokens, so the top bits of the token half of the hashes
+        // of their keys are all the same, which must not make the filter miss the requested rate
+        Random random = new Random(42);
+        double fpChance = 0.01;
+        int keys = 200000;
+        try (IFilter filter = FilterFactory.getFilter(keys, fpChance, true, false, true))
+        {
+            for (int i = 0; i < keys; i++)
+                filter.add(narrowToken(ByteBufferUtil.bytes(random.nextLong())));
+
+            int fp = 0;
+            int tries = 1000000;
+            for (int i = 0; i < tries; i++)
+            {
+                if (filter.isPresent(narrowToken(ByteBufferUtil.bytes(i))))
+                    fp++;
+            }
+            double rate = (double) fp / tries;
+            assertTrue(fpChance + " gave " + rate, rate < fpChance * 1.1);
+        }
+    }
+
+    private static IFilter.FilterKey narrowToken(ByteBuffer key)
+    {
+        return dest -> {
+            MurmurHash.hash3_x64_128(key, key.position(), key.remaining(), 0, dest);
+            dest[0] = (dest[0] >>> 6) | (0x2AL << 58);
+        };
+    }
+
+    @Test
+    public void testSerialize() throws IOException
+    {
+        bf.add(FilterTestHelper.bytes("a"));
+        DataOutputBuffer out = new DataOutputBuffer();
+        FilterFactory.serialize(bf, out);
+        assertEquals(bf.serializedSize(), out.getLength());
+
+        for (boolean offheap : new boolean[]{ false, true })
+        {
+            ByteArrayInputStream in = new ByteArrayInputStream(out.getData(), 0, out.getLength());
+            try (IFilter bf2 = FilterFactory.deserialize(new DataInputStream(in), offheap, false))
+            {
+                assertTrue(bf2 instanceof BlockedBloomFilter);
+                assert bf2.isPresent(FilterTestHelper.bytes("a"));
+                assert !bf2.isPresent(FilterTestHelper.bytes("b"));
+            }
+        }
+    }
+
+    @Test
+    public void testOldHashOrder()
+    {
+        // sstables with the old hash order keep the classic filter
+        try (IFilter filter = FilterFactory.getFilter(10000L, FilterTestHelper.MAX_FAILURE_RATE, true, true, true))
+        {
+            assertTrue(filter instanceof BloomFilter);
+        }
+    }
+
+    @Test
+    public void testSmallFilter()
+    {
+        try (IFilter filter = FilterFactory.getFilter(1, 0.01, false, false, true))
+        {
+            filter.add(FilterTestHelper.bytes("a"));
+            assert filter.isPresent(FilterTestHelper.bytes("a"));
+        }
+    }
+}
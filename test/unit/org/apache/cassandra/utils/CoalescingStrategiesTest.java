@@ -442,4 +442,98 @@ public class CoalescingStrategiesTest
             }
         }
     }
+
+    long now;
+
+    /**
+     * Runs the given strategy for an epoch, with batches of 4 messages taking the given time to send, waiting to
+     * coalesce counting as busy time, during which 8 messages arrive.
+     */
+    void runAdaptiveEpoch(CoalescingStrategy cs, long nanosPerMessage) throws Exception
+    {
+        long end = now + TimeUnit.MILLISECONDS.toNanos(100);
+        while (now <= end)
+        {
+            for (int i = 0; i < 4; i++)
+                input.offer(new SimpleCoalescable(now));
+            cs.coalesce(input, output, 128);
+            now += output.size() * nanosPerMessage;
+            output.clear();
+        }
+    }
+
+    CoalescingStrategy newAdaptiveStrategy(List<Long> parks)
+    {
+        now = 0;
+        CoalescingStrategies.CLOCK = () -> now;
+        return CoalescingStrategies.newCoalescingStrategy("ADAPTIVE", 200, nanos -> {
+            parks.add(nanos);
+            now += nanos;
+            for (int i = 0; i < 8; i++)
+                input.offer(new SimpleCoalescable(now));
+        }, logger, "Stupendopotamus");
+    }
+
+    @Test
+    public void testAdaptiveCoalescingStrategy() throws Exception
+    {
+        List<Long> parks = new ArrayList<>();
+        CoalescingStrategy cs = newAdaptiveStrategy(parks);
+        cs.onRoundTripTime(toNanos(800));
+        assertEquals(0, cs.currentWindowNanos());
+
+        // without coalescing, each message takes 10μs to send
+        runAdaptiveEpoch(cs, toNanos(10));
+        assertTrue(parks.isEmpty());
+
+        // coalescing is probed, and found to be faster as sending a batch of messages saves 8μs per message
+        assertEquals(toNanos(100), cs.currentWindowNanos());
+        for (int i = 0; i < 3; i++)
+        {
+            runAdaptiveEpoch(cs, toNanos(2));
+            assertEquals(toNanos(100), cs.currentWindowNanos());
+        }
+        assertFalse(parks.isEmpty());
+        for (long park : parks)
+            assertTrue(park <= toNanos(100));
+    }
+
+    @Test
+    public void testAdaptiveCoalescingStrategyNotFaster() throws Exception
+    {
+        List<Long> parks = new ArrayList<>();
+        CoalescingStrategy cs = newAdaptiveStrategy(parks);
+
+        runAdaptiveEpoch(cs, toNanos(10));
+        assertEquals(toNanos(200), cs.currentWindowNanos());
+
+        // coalescing is probed, but as it doesn't save anything it's disabled again
+        runAdaptiveEpoch(cs, toNanos(10));
+        assertFalse(parks.isEmpty());
+        assertEquals(0, cs.currentWindowNanos());
+
+        parks.clear();
+        runAdaptiveEpoch(cs, toNanos(10));
+        assertTrue(parks.isEmpty());
+        assertEquals(0, cs.currentWindowNanos());
+    }
+
+    @Test
+    public void testAdaptiveCoalescingStrategyEmptyBacklog() throws Exception
+    {
+        List<Long> parks = new ArrayList<>();
+        CoalescingStrategy cs = newAdaptiveStrategy(parks);
+
+        // messages are sent as soon as they arrive, so there is nothing to gain from coalescing them
+        long end = now + TimeUnit.MILLISECONDS.toNanos(300);
+        while (now <= end)
+        {
+            input.offer(new SimpleCoalescable(now));
+            cs.coalesce(input, output, 128);
+            now += toNanos(10);
+            output.clear();
+        }
+        assertTrue(parks.isEmpty());
+        assertEquals(0, cs.currentWindowNanos());
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class Murmur3DigestTest
+{
+    private static final Random random = new Random();
+
+    @Test
+    public void testMatchesMurmurHash()
+    {
+        // MurmurHash.hash3_x64_128 sign-extends the bytes of the tail, so both only match for non-negative tail bytes
+        for (int length = 0; length < 100; length++)
+        {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++)
+                bytes[i] = (byte) random.nextInt(128);
+
+            long[] expected = new long[2];
+            MurmurHash.hash3_x64_128(ByteBuffer.wrap(bytes), 0, length, 0, expected);
+
+            ByteBuffer digest = ByteBuffer.wrap(new Murmur3Digest().digest(bytes));
+            assertEquals(16, digest.remaining());
+            assertEquals(expected[0], digest.getLong(0));
+            assertEquals(expected[1], digest.getLong(8));
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdates()
+    {
+        for (int length = 0; length < 200; length += 7)
+        {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            byte[] expected = new Murmur3Digest().digest(bytes);
+
+            MessageDigest digest = new Murmur3Digest();
+            for (byte b : bytes)
+                digest.update(b);
+            assertArrayEquals(expected, digest.digest());
+
+            for (int chunk = 1; chunk < 40; chunk += 3)
+            {
+                for (int i = 0; i < length; i += chunk)
+                    digest.update(bytes, i, Math.min(chunk, length - i));
+                assertArrayEquals(expected, digest.digest());
+
+                for (int i = 0; i < length; i += chunk)
+                {
+                    ByteBuffer direct = ByteBuffer.allocateDirect(Math.min(chunk, length - i));
+                    direct.put(bytes, i, direct.capacity()).flip();
+                    digest.update(direct);
+                    assertFalse(direct.hasRemaining());
+                }
+                assertArrayEquals(expected, digest.digest());
+            }
+
+            digest.update(bytes);
+            digest.update(ByteBuffer.wrap(bytes, 0, length / 2));
+            digest.reset();
+            digest.update(ByteBuffer.wrap(bytes));
+            assertArrayEquals(expected, digest.digest());
+        }
+    }
+
+    @Test
+    public void testDifferentInputs()
+    {
+        byte[] bytes = new byte[33];
+        random.nextBytes(bytes);
+        byte[] digest = new Murmur3Digest().digest(bytes);
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] ^= 1;
+            assertFalse(MessageDigest.isEqual(digest, new Murmur3Digest().digest(bytes)));
+            bytes[i] ^= 1;
+        }
+        // the length is part of the digest
+        assertFalse(MessageDigest.isEqual(new Murmur3Digest().digest(new byte[0]), new Murmur3Digest().digest(new byte[1])));
+    }
+}
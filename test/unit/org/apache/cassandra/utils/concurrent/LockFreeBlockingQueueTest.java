@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils.concurrent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LockFreeBlockingQueueTest
+{
+    @Test
+    public void testQueue()
+    {
+        LockFreeBlockingQueue<Integer> queue = new LockFreeBlockingQueue<>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        for (int i = 0; i < 10; i++)
+            queue.put(i);
+        assertEquals(10, queue.size());
+        assertEquals(0, (int) queue.peek());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, queue.drainTo(drained, 4));
+        assertEquals(6, queue.size());
+
+        // removals through the iterator are counted
+        Iterator<Integer> iterator = queue.iterator();
+        while (iterator.hasNext())
+        {
+            if (iterator.next() % 2 == 0)
+                iterator.remove();
+        }
+        assertEquals(3, queue.size());
+        assertEquals(3, queue.drainTo(drained));
+        assertEquals(0, queue.size());
+        assertTrue(queue.isEmpty());
+
+        assertEquals(0, (int) drained.get(0));
+        assertEquals(9, (int) drained.get(drained.size() - 1));
+    }
+
+    @Test
+    public void testPollTimeout() throws InterruptedException
+    {
+        LockFreeBlockingQueue<Integer> queue = new LockFreeBlockingQueue<>();
+        long start = System.nanoTime();
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+
+        queue.offer(1);
+        assertEquals(1, (int) queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception
+    {
+        final int producers = 4;
+        final int elements = 10000;
+        LockFreeBlockingQueue<Integer> queue = new LockFreeBlockingQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++)
+            {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < elements; i++)
+                        queue.put(i);
+                }));
+            }
+
+            // the consumer blocks until the producers add elements
+            long sum = 0;
+            for (int i = 0; i < producers * elements; i++)
+                sum += queue.take();
+
+            for (Future<?> future : futures)
+                future.get();
+            assertEquals(producers * ((long) elements * (elements - 1) / 2), sum);
+            assertEquals(0, queue.size());
+            assertNull(queue.poll());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}